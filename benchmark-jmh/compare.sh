@@ -0,0 +1,18 @@
+#!/bin/sh
+#
+# Compare two jmh results and fail if any benchmark regressed more than the threshold, or any benchmark
+# in the baseline is missing in the current result (unless --allow-missing is specified).
+#
+# Build and run the benchmarks first:
+#   mvn -B install -DskipTests
+#   java -jar benchmark-jmh/target/benchmarks.jar -rf csv -rff baseline.csv
+#   (upgrade, rebuild)
+#   java -jar benchmark-jmh/target/benchmarks.jar -rf csv -rff current.csv
+#   benchmark-jmh/compare.sh baseline.csv current.csv 10
+#
+if [ $# -lt 2 ]; then
+    echo "Usage: $0 [--allow-missing] <baseline.csv> <current.csv> [maxRegressionPercent]"
+    exit 2
+fi
+DIR=$(cd "$(dirname "$0")" && pwd)
+exec java -cp "$DIR/target/benchmarks.jar" com.github.dtprj.dongting.jmh.BaselineCompare "$@"
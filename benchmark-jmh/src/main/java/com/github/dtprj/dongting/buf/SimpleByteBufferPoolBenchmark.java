@@ -0,0 +1,95 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.buf;
+
+import com.github.dtprj.dongting.common.Timestamp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author huangli
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimpleByteBufferPoolBenchmark {
+
+    @State(Scope.Thread)
+    public static class ThreadPool {
+        @Param({"1024", "16384"})
+        int size;
+
+        @Param({"false", "true"})
+        boolean threadSafe;
+
+        SimpleByteBufferPool pool;
+
+        @Setup
+        public void setup() {
+            pool = new SimpleByteBufferPool(new SimpleByteBufferPoolConfig(new Timestamp(), false,
+                    SimpleByteBufferPool.DEFAULT_THRESHOLD, threadSafe));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SharedPool {
+        @Param({"1024", "16384"})
+        int size;
+
+        @Param({"0", "1048576"})
+        long threadCacheBytes;
+
+        SimpleByteBufferPool pool;
+
+        @Setup
+        public void setup() {
+            SimpleByteBufferPoolConfig c = new SimpleByteBufferPoolConfig(null, false,
+                    SimpleByteBufferPool.DEFAULT_THRESHOLD, true);
+            c.setThreadCacheBytes(threadCacheBytes);
+            pool = new SimpleByteBufferPool(c);
+        }
+    }
+
+    @Benchmark
+    public ByteBuffer borrowRelease(ThreadPool s) {
+        ByteBuffer buf = s.pool.borrow(s.size);
+        s.pool.release(buf);
+        return buf;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ByteBuffer sharedBorrowRelease(SharedPool s) {
+        ByteBuffer buf = s.pool.borrow(s.size);
+        s.pool.release(buf);
+        return buf;
+    }
+}
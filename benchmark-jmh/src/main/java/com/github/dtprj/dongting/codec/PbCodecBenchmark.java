@@ -0,0 +1,106 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.codec;
+
+import com.github.dtprj.dongting.buf.DefaultPoolFactory;
+import com.github.dtprj.dongting.buf.RefBufferFactory;
+import com.github.dtprj.dongting.common.ByteArray;
+import com.github.dtprj.dongting.common.Timestamp;
+import com.github.dtprj.dongting.dtkv.KvReq;
+import com.github.dtprj.dongting.dtkv.server.KvReqCallback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode a KvReq with EncodeUtil and decode it with PbParser.
+ *
+ * @author huangli
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PbCodecBenchmark {
+
+    @Param({"128", "4096"})
+    private int valueSize;
+
+    private KvReq req;
+    private EncodeContext encodeContext;
+    private ByteBuffer encodeBuf;
+
+    private PbParser parser;
+    private DecodeContext decodeContext;
+    private KvReqCallback callback;
+    private ByteBuffer encoded;
+
+    @Setup
+    public void setup() {
+        byte[] key = "bench_key_0000001".getBytes();
+        byte[] value = new byte[valueSize];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = (byte) i;
+        }
+        req = new KvReq(1, key, new ByteArray(value), null, null, null);
+
+        RefBufferFactory heapPool = new RefBufferFactory(new DefaultPoolFactory()
+                .createPool(new Timestamp(), false), 128);
+        encodeContext = new EncodeContext(heapPool);
+        encodeBuf = ByteBuffer.allocate(req.actualSize());
+
+        encodeContext.reset();
+        req.encode(encodeContext, encodeBuf);
+        encodeBuf.flip();
+        encoded = ByteBuffer.allocate(encodeBuf.remaining());
+        encoded.put(encodeBuf);
+        encoded.flip();
+
+        parser = new PbParser();
+        decodeContext = new DecodeContext();
+        decodeContext.setHeapPool(heapPool);
+        callback = new KvReqCallback();
+    }
+
+    @Benchmark
+    public boolean encode() {
+        ByteBuffer buf = encodeBuf;
+        buf.clear();
+        encodeContext.reset();
+        return req.encode(encodeContext, buf);
+    }
+
+    @Benchmark
+    public Object decode() {
+        ByteBuffer buf = encoded;
+        buf.clear();
+        parser.prepareNext(decodeContext, callback, buf.remaining());
+        return parser.parse(buf);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IntObjMap and LongObjMap with random keys.
+ *
+ * @author huangli
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ObjMapBenchmark {
+
+    // should be power of 2
+    @Param({"1024", "65536"})
+    private int size;
+
+    private int[] intKeys;
+    private long[] longKeys;
+    private int mask;
+    private int pos;
+
+    private final Object value = new Object();
+    private IntObjMap<Object> intMap;
+    private LongObjMap<Object> longMap;
+
+    @Setup
+    public void setup() {
+        Random r = new Random(0);
+        intKeys = new int[size];
+        longKeys = new long[size];
+        mask = size - 1;
+        intMap = new IntObjMap<>();
+        longMap = new LongObjMap<>();
+        for (int i = 0; i < size; i++) {
+            intKeys[i] = r.nextInt();
+            longKeys[i] = r.nextLong();
+            intMap.put(intKeys[i], value);
+            longMap.put(longKeys[i], value);
+        }
+    }
+
+    @Benchmark
+    public Object intMapGet() {
+        return intMap.get(intKeys[pos++ & mask]);
+    }
+
+    @Benchmark
+    public Object intMapRemovePut() {
+        int k = intKeys[pos++ & mask];
+        intMap.remove(k);
+        return intMap.put(k, value);
+    }
+
+    @Benchmark
+    public Object longMapGet() {
+        return longMap.get(longKeys[pos++ & mask]);
+    }
+
+    @Benchmark
+    public Object longMapRemovePut() {
+        long k = longKeys[pos++ & mask];
+        longMap.remove(k);
+        return longMap.put(k, value);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.dtkv.server;
+
+import com.github.dtprj.dongting.common.ByteArray;
+import com.github.dtprj.dongting.common.Timestamp;
+import com.github.dtprj.dongting.dtkv.KvResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author huangli
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KvImplBenchmark {
+
+    // should be power of 2
+    @Param({"65536"})
+    private int keyCount;
+
+    private KvImpl kv;
+    private ByteArray[] keys;
+    private final byte[] value = new byte[128];
+    private int mask;
+    private int pos;
+    private long raftIndex;
+
+    @Setup
+    public void setup() {
+        kv = new KvImpl(new Timestamp(), 1, keyCount, 0.75f);
+        keys = new ByteArray[keyCount];
+        mask = keyCount - 1;
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = new ByteArray(("bench_key_" + i).getBytes());
+            kv.put(++raftIndex, keys[i], value);
+        }
+    }
+
+    @Benchmark
+    public KvResult put() {
+        return kv.put(++raftIndex, keys[pos++ & mask], value);
+    }
+
+    @Benchmark
+    public KvResult get() {
+        return kv.get(keys[pos++ & mask]);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.fiber;
+
+import com.github.dtprj.dongting.common.DtTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fiber switch in the dispatcher thread, and offer to a fiber channel from other thread.
+ *
+ * @author huangli
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FiberBenchmark {
+
+    private static final int BATCH = 1000;
+
+    private Dispatcher dispatcher;
+    private FiberGroup group;
+    private FiberChannel<Object> channel;
+
+    // only written by the consumer fiber
+    private volatile long consumed;
+    private long offered;
+
+    @Setup
+    public void setup() {
+        dispatcher = new Dispatcher("benchDispatcher");
+        group = new FiberGroup("benchGroup", dispatcher);
+        channel = group.newCrossThreadChannel(1024);
+        dispatcher.start();
+        dispatcher.startGroup(group).join();
+        group.fireFiber("consumer", new FiberFrame<>() {
+            @Override
+            public FrameCallResult execute(Void input) {
+                return channel.take(this::resume);
+            }
+
+            @SuppressWarnings("NonAtomicOperationOnVolatileField")
+            private FrameCallResult resume(Object o) {
+                consumed++;
+                return Fiber.resume(null, this);
+            }
+        });
+    }
+
+    @TearDown
+    public void shutdown() {
+        dispatcher.stop(new DtTime(3, TimeUnit.SECONDS));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void fiberSwitch() {
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        group.fireFiber("yield", new FiberFrame<>() {
+            private int count;
+
+            @Override
+            public FrameCallResult execute(Void input) {
+                if (++count < BATCH) {
+                    return Fiber.yield(this);
+                }
+                f.complete(null);
+                return Fiber.frameReturn();
+            }
+        });
+        f.join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void crossThreadOffer() {
+        FiberChannel<Object> c = channel;
+        for (int i = 0; i < BATCH; i++) {
+            c.fireOffer(this);
+        }
+        offered += BATCH;
+        while (consumed < offered) {
+            Thread.yield();
+        }
+    }
+}
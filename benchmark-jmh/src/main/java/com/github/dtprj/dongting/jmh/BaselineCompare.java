@@ -0,0 +1,202 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.jmh;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compare two jmh results in csv format (generated by "-rf csv -rff xxx.csv"), exit with 1 if any benchmark
+ * regressed more than the threshold percent, so it can be used to gate upgrades on performance.
+ * A benchmark in the baseline but missing in the current result is counted as a failure, unless
+ * --allow-missing is specified.
+ * <p>
+ * Usage: BaselineCompare [--allow-missing] baseline.csv current.csv [maxRegressionPercent, default 10]
+ *
+ * @author huangli
+ */
+public class BaselineCompare {
+
+    private static final String COL_BENCHMARK = "Benchmark";
+    private static final String COL_MODE = "Mode";
+    private static final String COL_SCORE = "Score";
+    private static final String COL_ERROR = "Score Error (99.9%)";
+    private static final String COL_UNIT = "Unit";
+    private static final String PARAM_PREFIX = "Param: ";
+    private static final String ALLOW_MISSING = "--allow-missing";
+
+    static class Result {
+        String mode;
+        double score;
+        double error;
+        String unit;
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean allowMissing = false;
+        ArrayList<String> list = new ArrayList<>();
+        for (String a : args) {
+            if (ALLOW_MISSING.equals(a)) {
+                allowMissing = true;
+            } else {
+                list.add(a);
+            }
+        }
+        if (list.size() < 2) {
+            System.err.println("Usage: BaselineCompare [" + ALLOW_MISSING
+                    + "] baseline.csv current.csv [maxRegressionPercent]");
+            System.exit(2);
+        }
+        double threshold = list.size() > 2 ? Double.parseDouble(list.get(2)) : 10;
+        Map<String, Result> baseline = load(Path.of(list.get(0)));
+        Map<String, Result> current = load(Path.of(list.get(1)));
+        int failures = compare(baseline, current, threshold, allowMissing);
+        if (failures > 0) {
+            System.out.println(failures + " benchmark(s) regressed more than " + threshold + "% or missing");
+            System.exit(1);
+        }
+        System.out.println("no regression more than " + threshold + "%");
+    }
+
+    /**
+     * return the count of regressed benchmarks, plus the count of missing benchmarks if allowMissing is false.
+     */
+    static int compare(Map<String, Result> baseline, Map<String, Result> current, double threshold,
+                       boolean allowMissing) {
+        int failures = 0;
+        System.out.printf("%-90s %14s %14s %10s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Map.Entry<String, Result> e : baseline.entrySet()) {
+            Result b = e.getValue();
+            Result c = current.get(e.getKey());
+            if (c == null) {
+                if (!allowMissing) {
+                    failures++;
+                }
+                System.out.printf("%-90s %14.3f %14s %10s%s%n", e.getKey(), b.score, "-", "missing",
+                        allowMissing ? "" : " FAIL");
+                continue;
+            }
+            if (!b.unit.equals(c.unit) || !b.mode.equals(c.mode)) {
+                System.out.printf("%-90s %14s %14s %10s%n", e.getKey(), b.unit, c.unit, "mismatch");
+                continue;
+            }
+            // positive means worse
+            double change = (c.score - b.score) / b.score * 100;
+            if (higherIsBetter(b.mode)) {
+                change = -change;
+            }
+            // ignore the difference covered by the error of the two results
+            boolean regressed = change > threshold && Math.abs(c.score - b.score) > b.error + c.error;
+            if (regressed) {
+                failures++;
+            }
+            System.out.printf("%-90s %14.3f %14.3f %+9.1f%%%s%n", e.getKey(), b.score, c.score, change,
+                    regressed ? " REGRESSION" : "");
+        }
+        for (String k : current.keySet()) {
+            if (!baseline.containsKey(k)) {
+                System.out.printf("%-90s %14s %14.3f %10s%n", k, "-", current.get(k).score, "new");
+            }
+        }
+        return failures;
+    }
+
+    private static boolean higherIsBetter(String mode) {
+        return "thrpt".equals(mode);
+    }
+
+    static Map<String, Result> load(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty()) {
+            throw new IOException("empty file: " + file);
+        }
+        List<String> header = parseLine(lines.get(0));
+        int benchIdx = header.indexOf(COL_BENCHMARK);
+        int modeIdx = header.indexOf(COL_MODE);
+        int scoreIdx = header.indexOf(COL_SCORE);
+        int errorIdx = header.indexOf(COL_ERROR);
+        int unitIdx = header.indexOf(COL_UNIT);
+        if (benchIdx < 0 || modeIdx < 0 || scoreIdx < 0 || errorIdx < 0 || unitIdx < 0) {
+            throw new IOException("not a jmh csv result: " + file);
+        }
+        Map<String, Result> map = new LinkedHashMap<>();
+        for (int i = 1; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> cols = parseLine(line);
+            StringBuilder key = new StringBuilder(cols.get(benchIdx));
+            for (int j = 0; j < header.size() && j < cols.size(); j++) {
+                String h = header.get(j);
+                if (h.startsWith(PARAM_PREFIX) && !cols.get(j).isEmpty()) {
+                    key.append(key.indexOf(":") < 0 ? ":" : ",")
+                            .append(h.substring(PARAM_PREFIX.length())).append('=').append(cols.get(j));
+                }
+            }
+            Result r = new Result();
+            r.mode = cols.get(modeIdx);
+            r.score = parseDouble(cols.get(scoreIdx));
+            r.error = parseDouble(cols.get(errorIdx));
+            r.unit = cols.get(unitIdx);
+            map.put(key.toString(), r);
+        }
+        return map;
+    }
+
+    private static double parseDouble(String s) {
+        if (s.isEmpty() || "NaN".equals(s)) {
+            return 0;
+        }
+        return Double.parseDouble(s);
+    }
+
+    static List<String> parseLine(String line) {
+        ArrayList<String> list = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        sb.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    sb.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                list.add(sb.toString());
+                sb.setLength(0);
+            } else {
+                sb.append(c);
+            }
+        }
+        list.add(sb.toString());
+        return list;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.queue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author huangli
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MpscLinkedQueueBenchmark {
+
+    private static final int BATCH = 64;
+
+    private final Object data = new Object();
+    private MpscLinkedQueue<Object> queue;
+
+    @Setup
+    public void setup() {
+        queue = MpscLinkedQueue.newInstance();
+    }
+
+    @Benchmark
+    public Object offerPoll() {
+        queue.offer(data);
+        return queue.relaxedPoll();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void offerBatchThenDrain(Blackhole bh) {
+        MpscLinkedQueue<Object> q = queue;
+        for (int i = 0; i < BATCH; i++) {
+            q.offer(data);
+        }
+        Object o;
+        while ((o = q.relaxedPoll()) != null) {
+            bh.consume(o);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.store;
+
+import com.github.dtprj.dongting.raft.impl.RaftUtil;
+import com.github.dtprj.dongting.raft.server.LogItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Log header write and read (with crc check), and crc of the log body.
+ *
+ * @author huangli
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LogHeaderBenchmark {
+
+    @Param({"false", "true"})
+    private boolean direct;
+
+    @Param({"256", "16384"})
+    private int bodySize;
+
+    private final CRC32C crc = new CRC32C();
+    private final LogHeader header = new LogHeader();
+    private LogItem item;
+    private ByteBuffer headerBuf;
+    private ByteBuffer bodyBuf;
+
+    @Setup
+    public void setup() {
+        item = new LogItem();
+        item.setType(LogItem.TYPE_NORMAL);
+        item.setBizType(1);
+        item.setTerm(3);
+        item.setPrevLogTerm(3);
+        item.setIndex(100000);
+        item.setTimestamp(System.currentTimeMillis());
+        item.setActualHeaderSize(0);
+        item.setActualBodySize(bodySize);
+        headerBuf = direct ? ByteBuffer.allocateDirect(LogHeader.ITEM_HEADER_SIZE)
+                : ByteBuffer.allocate(LogHeader.ITEM_HEADER_SIZE);
+        bodyBuf = direct ? ByteBuffer.allocateDirect(bodySize) : ByteBuffer.allocate(bodySize);
+        for (int i = 0; i < bodySize; i++) {
+            bodyBuf.put(i, (byte) i);
+        }
+        // RaftUtil initializes its logger, keep the class init out of measurement
+        writeReadHeader();
+        bodyCrc();
+    }
+
+    @Benchmark
+    public boolean writeReadHeader() {
+        ByteBuffer buf = headerBuf;
+        buf.clear();
+        LogHeader.writeHeader(crc, buf, item);
+        buf.flip();
+        header.read(buf);
+        return header.crcMatch();
+    }
+
+    @Benchmark
+    public int bodyCrc() {
+        crc.reset();
+        RaftUtil.updateCrc(crc, bodyBuf, 0, bodySize);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.store;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A sliding window like the index cache, put at the tail and remove from the head.
+ *
+ * @author huangli
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LongLongSeqMapBenchmark {
+
+    private static final int WINDOW = 4096;
+
+    private LongLongSeqMap map;
+    private long nextKey;
+    private int pos;
+
+    @Setup
+    public void setup() {
+        map = new LongLongSeqMap(WINDOW);
+        for (nextKey = 1; nextKey <= WINDOW; nextKey++) {
+            map.put(nextKey, nextKey * 100);
+        }
+    }
+
+    @Benchmark
+    public int putRemove() {
+        map.put(nextKey, nextKey * 100);
+        nextKey++;
+        map.remove();
+        return map.size();
+    }
+
+    @Benchmark
+    public long get() {
+        return map.get(map.getFirstKey() + (pos++ & (WINDOW - 1)));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.jmh;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author huangli
+ */
+public class BaselineCompareTest {
+
+    private static final String HEADER = "\"Benchmark\",\"Mode\",\"Threads\",\"Samples\",\"Score\","
+            + "\"Score Error (99.9%)\",\"Unit\",\"Param: size\",\"Param: type\"\n";
+
+    private static Map<String, BaselineCompare.Result> load(File dir, String name, String content) throws Exception {
+        Path p = new File(dir, name).toPath();
+        Files.writeString(p, HEADER + content, StandardCharsets.UTF_8);
+        return BaselineCompare.load(p);
+    }
+
+    @Test
+    public void testLoad(@TempDir File dir) throws Exception {
+        Map<String, BaselineCompare.Result> m = load(dir, "a.csv",
+                "\"a.B.encode\",\"thrpt\",1,5,1000.5,10.5,\"ops/s\",16,\"x,y\"\n"
+                        + "\"a.B.encode\",\"thrpt\",1,5,900,NaN,\"ops/s\",32,\"x,y\"\n"
+                        + "\"a.B.decode\",\"avgt\",1,5,20,1,\"ns/op\",,\n");
+        assertEquals(3, m.size());
+        BaselineCompare.Result r = m.get("a.B.encode:size=16,type=x,y");
+        assertNotNull(r);
+        assertEquals("thrpt", r.mode);
+        assertEquals(1000.5, r.score);
+        assertEquals(10.5, r.error);
+        assertEquals("ops/s", r.unit);
+        r = m.get("a.B.encode:size=32,type=x,y");
+        assertNotNull(r);
+        assertEquals(0, r.error);
+        r = m.get("a.B.decode");
+        assertNotNull(r);
+        assertEquals("avgt", r.mode);
+    }
+
+    @Test
+    public void testCompareDirection(@TempDir File dir) throws Exception {
+        Map<String, BaselineCompare.Result> base = load(dir, "base.csv",
+                "\"t\",\"thrpt\",1,5,1000,1,\"ops/s\",16,a\n"
+                        + "\"a\",\"avgt\",1,5,100,1,\"ns/op\",16,a\n");
+
+        // throughput higher, avg time lower, both better
+        Map<String, BaselineCompare.Result> better = load(dir, "better.csv",
+                "\"t\",\"thrpt\",1,5,2000,1,\"ops/s\",16,a\n"
+                        + "\"a\",\"avgt\",1,5,50,1,\"ns/op\",16,a\n");
+        assertEquals(0, BaselineCompare.compare(base, better, 10, false));
+
+        // throughput lower, avg time higher, both worse
+        Map<String, BaselineCompare.Result> worse = load(dir, "worse.csv",
+                "\"t\",\"thrpt\",1,5,500,1,\"ops/s\",16,a\n"
+                        + "\"a\",\"avgt\",1,5,200,1,\"ns/op\",16,a\n");
+        assertEquals(2, BaselineCompare.compare(base, worse, 10, false));
+
+        // changed more than threshold, but covered by the error
+        Map<String, BaselineCompare.Result> noisy = load(dir, "noisy.csv",
+                "\"t\",\"thrpt\",1,5,500,600,\"ops/s\",16,a\n"
+                        + "\"a\",\"avgt\",1,5,105,1,\"ns/op\",16,a\n");
+        assertEquals(0, BaselineCompare.compare(base, noisy, 10, false));
+    }
+
+    @Test
+    public void testCompareMissing(@TempDir File dir) throws Exception {
+        Map<String, BaselineCompare.Result> base = load(dir, "base.csv",
+                "\"t\",\"thrpt\",1,5,1000,1,\"ops/s\",16,a\n"
+                        + "\"t\",\"thrpt\",1,5,1000,1,\"ops/s\",32,a\n");
+        // the param value is part of the key, size=32 is missing, size=64 is new
+        Map<String, BaselineCompare.Result> current = load(dir, "current.csv",
+                "\"t\",\"thrpt\",1,5,1000,1,\"ops/s\",16,a\n"
+                        + "\"t\",\"thrpt\",1,5,1000,1,\"ops/s\",64,a\n");
+        assertEquals(1, BaselineCompare.compare(base, current, 10, false));
+        assertEquals(0, BaselineCompare.compare(base, current, 10, true));
+    }
+}
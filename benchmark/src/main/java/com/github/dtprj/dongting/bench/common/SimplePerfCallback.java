@@ -106,6 +106,9 @@ public class SimplePerfCallback extends PerfCallback {
             case RPC_D_WRITE -> prefix + "rpc_write";
             case FIBER_D_POLL -> prefix + "fiber_poll";
             case FIBER_D_WORK -> prefix + "fiber_work";
+            case FIBER_D_EXEC -> prefix + "fiber_exec";
+            case FIBER_D_READY_WAIT -> prefix + "fiber_ready_wait";
+            case FIBER_D_BLOCK -> prefix + "fiber_block";
             case RAFT_D_LEADER_RUNNER_FIBER_LATENCY -> prefix + "raft_leader_runner_fiber_latency";
             case RAFT_D_ENCODE_AND_WRITE -> prefix + "raft_encode_and_write";
             case RAFT_D_LOG_WRITE1 -> prefix + "raft_log_write1";
@@ -31,9 +31,13 @@ import java.util.concurrent.TimeUnit;
  */
 public class ChannelCrossThreadTest extends BenchBase {
 
+    // use the channel with lock-free ring buffer
+    private static final boolean CROSS_THREAD_CHANNEL = true;
+
     private final Dispatcher dispatcher = new Dispatcher("testDispatcher");
     private final FiberGroup group = new FiberGroup("testGroup", dispatcher);
-    private final FiberChannel<Object> channel = group.newChannel();
+    private final FiberChannel<Object> channel = CROSS_THREAD_CHANNEL ?
+            group.newCrossThreadChannel(1024) : group.newChannel();
 
     public static void main(String[] args) throws Exception {
         new ChannelCrossThreadTest(1, 1000, 500).start();
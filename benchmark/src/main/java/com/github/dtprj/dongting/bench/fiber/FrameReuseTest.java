@@ -0,0 +1,155 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.bench.fiber;
+
+import com.github.dtprj.dongting.common.DtTime;
+import com.github.dtprj.dongting.fiber.Dispatcher;
+import com.github.dtprj.dongting.fiber.Fiber;
+import com.github.dtprj.dongting.fiber.FiberFrame;
+import com.github.dtprj.dongting.fiber.FiberFuture;
+import com.github.dtprj.dongting.fiber.FiberGroup;
+import com.github.dtprj.dongting.fiber.FrameCall;
+import com.github.dtprj.dongting.fiber.FrameCallResult;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the allocation rate of a hot fiber loop, which creates a new sub frame, future and lambda
+ * in each round, with the loop that reuses them.
+ *
+ * @author huangli
+ */
+public class FrameReuseTest {
+    private static final int LOOP = 5_000_000;
+
+    private final Dispatcher dispatcher = new Dispatcher("testDispatcher");
+    private final FiberGroup group = new FiberGroup("testGroup", dispatcher);
+
+    public static void main(String[] args) throws Exception {
+        FrameReuseTest t = new FrameReuseTest();
+        // warm up
+        t.run(false);
+        t.run(true);
+
+        t.run(false);
+        t.run(true);
+        t.dispatcher.stop(new DtTime(10, TimeUnit.SECONDS));
+    }
+
+    FrameReuseTest() {
+        dispatcher.start();
+        dispatcher.startGroup(group).join();
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private void run(boolean reuse) throws Exception {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        group.fireFiber("loop", reuse ? new ReuseLoopFrame(result) : new AllocLoopFrame(result));
+        System.out.println(result.get());
+    }
+
+    private static class SubFrame extends FiberFrame<Integer> {
+        private FiberFuture<Integer> future;
+
+        @Override
+        public FrameCallResult execute(Void input) {
+            if (future == null || !future.isDone()) {
+                future = getFiberGroup().newFuture("sub");
+            } else {
+                future.reset();
+            }
+            future.complete(1);
+            return future.await(this::justReturn);
+        }
+    }
+
+    private class AllocLoopFrame extends FiberFrame<Void> {
+        private final CompletableFuture<String> result;
+        private int count;
+        private long sum;
+        private long startBytes;
+        private long startNanos;
+
+        AllocLoopFrame(CompletableFuture<String> result) {
+            this.result = result;
+        }
+
+        @Override
+        public FrameCallResult execute(Void input) {
+            if (count == 0) {
+                startBytes = allocatedBytes();
+                startNanos = System.nanoTime();
+            }
+            if (count++ == LOOP) {
+                finish(result, "alloc", startBytes, startNanos, sum);
+                return Fiber.frameReturn();
+            }
+            long base = count;
+            return Fiber.call(new SubFrame(), r -> afterSub(base, r));
+        }
+
+        private FrameCallResult afterSub(long base, Integer r) {
+            sum += base + r;
+            return Fiber.resume(null, this);
+        }
+    }
+
+    private class ReuseLoopFrame extends FiberFrame<Void> {
+        private final CompletableFuture<String> result;
+        private final SubFrame subFrame = new SubFrame();
+        private final FrameCall<Integer> afterSubCall = this::afterSub;
+        private int count;
+        private long sum;
+        private long startBytes;
+        private long startNanos;
+
+        ReuseLoopFrame(CompletableFuture<String> result) {
+            this.result = result;
+        }
+
+        @Override
+        public FrameCallResult execute(Void input) {
+            if (count == 0) {
+                startBytes = allocatedBytes();
+                startNanos = System.nanoTime();
+            }
+            if (count++ == LOOP) {
+                finish(result, "reuse", startBytes, startNanos, sum);
+                return Fiber.frameReturn();
+            }
+            return Fiber.call(subFrame, afterSubCall);
+        }
+
+        private FrameCallResult afterSub(Integer r) {
+            sum += count + r;
+            return Fiber.resume(null, this);
+        }
+    }
+
+    private static void finish(CompletableFuture<String> result, String name, long startBytes,
+                               long startNanos, long sum) {
+        long bytes = allocatedBytes() - startBytes;
+        long nanos = System.nanoTime() - startNanos;
+        result.complete(String.format("%s: %.1f bytes/loop, %d ms, sum=%d", name, (double) bytes / LOOP,
+                TimeUnit.NANOSECONDS.toMillis(nanos), sum));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.bench.raft;
+
+import com.github.dtprj.dongting.raft.impl.LeaderBalancer;
+import com.github.dtprj.dongting.raft.impl.LeaderBalancer.GroupLoad;
+import com.github.dtprj.dongting.raft.impl.LeaderBalancer.Move;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Simulate the leader balance of a 3 nodes * 300 groups cluster, elections are all won by node 1 at first,
+ * and some groups are hot. Each round every node plans its moves as LeaderBalancer does.
+ *
+ * @author huangli
+ */
+public class LeaderBalanceSimulation {
+    private static final int NODE_COUNT = 3;
+    private static final int GROUP_COUNT = 300;
+    private static final int MAX_TRANSFERS = 1; // see RaftServerConfig.leaderBalanceMaxTransfers
+    private static final double THRESHOLD = 1;
+    private static final double HOT_GROUP_RATIO = 0.05;
+    // the load of a hot group, for example 5000 writes per second
+    private static final double HOT_GROUP_LOAD = 6;
+
+    public static void main(String[] args) {
+        Random r = new Random(0);
+        List<GroupLoad> groups = new ArrayList<>();
+        for (int i = 0; i < GROUP_COUNT; i++) {
+            double load = r.nextDouble() < HOT_GROUP_RATIO ? HOT_GROUP_LOAD : 1 + r.nextDouble() * 0.2;
+            groups.add(new GroupLoad(i, 1, load, others(1)));
+        }
+        print(0, groups, 0);
+
+        long planNanos = 0;
+        int totalMoves = 0;
+        for (int round = 1; ; round++) {
+            int moves = 0;
+            for (int node = 1; node <= NODE_COUNT; node++) {
+                long t = System.nanoTime();
+                List<Move> list = LeaderBalancer.plan(node, groups, THRESHOLD, MAX_TRANSFERS);
+                planNanos += System.nanoTime() - t;
+                for (Move m : list) {
+                    GroupLoad g = groups.get(m.groupId);
+                    groups.set(m.groupId, new GroupLoad(g.groupId, m.targetNodeId, g.load, others(m.targetNodeId)));
+                    moves++;
+                }
+            }
+            totalMoves += moves;
+            if (moves == 0 || round % 20 == 0) {
+                print(round, groups, totalMoves);
+            }
+            if (moves == 0) {
+                System.out.printf("converged after %d rounds, avg plan time %.1fus%n", round,
+                        planNanos / 1000.0 / round / NODE_COUNT);
+                break;
+            }
+        }
+    }
+
+    private static int[] others(int leader) {
+        int[] r = new int[NODE_COUNT - 1];
+        int i = 0;
+        for (int n = 1; n <= NODE_COUNT; n++) {
+            if (n != leader) {
+                r[i++] = n;
+            }
+        }
+        return r;
+    }
+
+    private static void print(int round, List<GroupLoad> groups, int totalMoves) {
+        double[] loads = new double[NODE_COUNT + 1];
+        int[] counts = new int[NODE_COUNT + 1];
+        for (GroupLoad g : groups) {
+            loads[g.leaderId] += g.load;
+            counts[g.leaderId]++;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("round ").append(round).append(", moves ").append(totalMoves).append(':');
+        for (int n = 1; n <= NODE_COUNT; n++) {
+            sb.append(String.format(" node%d[leaders=%d, load=%.1f]", n, counts[n], loads[n]));
+        }
+        System.out.println(sb);
+    }
+}
@@ -27,6 +27,7 @@ import com.github.dtprj.dongting.dtkv.server.DtKV;
 import com.github.dtprj.dongting.dtkv.server.KvConfig;
 import com.github.dtprj.dongting.dtkv.server.KvServerUtil;
 import com.github.dtprj.dongting.fiber.Dispatcher;
+import com.github.dtprj.dongting.fiber.IdleStrategy;
 import com.github.dtprj.dongting.log.DtLog;
 import com.github.dtprj.dongting.log.DtLogs;
 import com.github.dtprj.dongting.net.HostPort;
@@ -65,6 +66,8 @@ public class RaftBenchmark extends BenchBase {
     // total different keys
     private static final int KEYS = 100_000;
     private static final boolean STATEMACHINE_USE_SEPARATE_EXECUTOR = false;
+    // blocking, busySpin, spinYieldPark, adaptive
+    private static final String DISPATCHER_IDLE_STRATEGY = "blocking";
 
     private static final byte[] DATA = new byte[DATA_LEN];
     private final List<RaftServer> raftServers = new ArrayList<>();
@@ -120,7 +123,21 @@ public class RaftBenchmark extends BenchBase {
             public Dispatcher createDispatcher(RaftGroupConfig groupConfig) {
                 // we start multi nodes in same jvm, so use node id as part of dispatcher name
                 return new Dispatcher("node-" + nodeId + "-dispatcher", new DefaultPoolFactory(),
-                        groupConfig.getPerfCallback());
+                        groupConfig.getPerfCallback(), createIdleStrategy());
+            }
+
+            @Override
+            protected IdleStrategy createIdleStrategy() {
+                switch (DISPATCHER_IDLE_STRATEGY) {
+                    case "busySpin":
+                        return IdleStrategy.busySpin();
+                    case "spinYieldPark":
+                        return IdleStrategy.spinYieldPark(1000, 10);
+                    case "adaptive":
+                        return IdleStrategy.adaptive();
+                    default:
+                        return IdleStrategy.blocking();
+                }
             }
         };
     }
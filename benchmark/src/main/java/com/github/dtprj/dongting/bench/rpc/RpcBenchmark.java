@@ -41,22 +41,33 @@ public class RpcBenchmark extends BenchBase {
     private NioServer server;
     private NioClient client;
     private final int cmd;
+    private final boolean unixDomain;
     private byte[] data;
 
     private static final int DATA_LEN = 128;
     private static final boolean SYNC = false;
     private static final long TIMEOUT = 1500;
     private static final boolean PERF = false;
+    // 0 means disable client side micro-batching
+    private static final long BATCH_WRITE_DELAY_NANOS = 0;
+    private static final String UNIX_DOMAIN_PATH = System.getProperty("java.io.tmpdir") + "/dt_rpc_bench.sock";
 
     public static void main(String[] args) throws Exception {
-        RpcBenchmark benchmark = new RpcBenchmark(1, 5000, 1000, Commands.CMD_PING);
+        System.out.println("----------------------------tcp------------------------------");
+        RpcBenchmark benchmark = new RpcBenchmark(1, 5000, 1000, Commands.CMD_PING, false);
+        benchmark.setLogRt(true);
+        benchmark.start();
+
+        System.out.println("----------------------unix domain socket---------------------");
+        benchmark = new RpcBenchmark(1, 5000, 1000, Commands.CMD_PING, true);
         benchmark.setLogRt(true);
         benchmark.start();
     }
 
-    public RpcBenchmark(int threadCount, long testTime, long warmupTime, int cmd) {
+    public RpcBenchmark(int threadCount, long testTime, long warmupTime, int cmd, boolean unixDomain) {
         super(threadCount, testTime, warmupTime);
         this.cmd = cmd;
+        this.unixDomain = unixDomain;
     }
 
     @Override
@@ -65,6 +76,9 @@ public class RpcBenchmark extends BenchBase {
         serverConfig.setIoThreads(1);
         serverConfig.setBizThreads(1);
         serverConfig.setPort(9000);
+        if (unixDomain) {
+            serverConfig.setUnixDomainSocketPath(UNIX_DOMAIN_PATH);
+        }
         if (PERF) {
             serverConfig.setPerfCallback(new RpcPerfCallback(true, "server_"));
         }
@@ -72,7 +86,9 @@ public class RpcBenchmark extends BenchBase {
         server.start();
 
         NioClientConfig clientConfig = new NioClientConfig();
-        clientConfig.setHostPorts(Collections.singletonList(new HostPort("127.0.0.1", 9000)));
+        HostPort hp = unixDomain ? HostPort.unixDomain(UNIX_DOMAIN_PATH) : new HostPort("127.0.0.1", 9000);
+        clientConfig.setHostPorts(Collections.singletonList(hp));
+        clientConfig.setBatchWriteDelayNanos(BATCH_WRITE_DELAY_NANOS);
 
         if (PERF) {
             clientConfig.setPerfCallback(new RpcPerfCallback(true, "client_"));
@@ -36,6 +36,7 @@ public class RpcPerfCallback extends PrometheusPerfCallback {
     private final Summary rpcReadBytes;
     private final Summary rpcWriteTime;
     private final Summary rpcWriteBytes;
+    private final Summary rpcWriteBatch;
 
     public RpcPerfCallback(boolean useNanos, String prefix) {
         super(useNanos);
@@ -48,6 +49,7 @@ public class RpcPerfCallback extends PrometheusPerfCallback {
         this.rpcReadBytes = createSummary(prefix + "rpc_read_bytes");
         this.rpcWriteTime = createSummary(prefix + "rpc_write_time");
         this.rpcWriteBytes = createSummary(prefix + "rpc_write_bytes");
+        this.rpcWriteBatch = createSummary(prefix + "rpc_write_batch");
     }
 
     @Override
@@ -84,6 +86,9 @@ public class RpcPerfCallback extends PrometheusPerfCallback {
                 rpcWriteTime.observe(costTime);
                 rpcWriteBytes.observe(sum);
                 break;
+            case RPC_C_WRITE_BATCH:
+                rpcWriteBatch.observe(count);
+                break;
             case RPC_C_MARK_READ:
                 rpcMarkRead.add(count);
                 break;
@@ -103,6 +108,7 @@ public class RpcPerfCallback extends PrometheusPerfCallback {
         printValue(rpcReadBytes);
         printTime(rpcWriteTime);
         printValue(rpcWriteBytes);
+        printValue(rpcWriteBatch);
 
         printCount("rpc_mark_read", rpcMarkRead);
         printCount("rpc_mark_write", rpcMarkWrite);
@@ -33,6 +33,7 @@ public class DefaultPoolFactory implements PoolFactory {
     public static final int[] DEFAULT_GLOBAL_MIN_COUNT = new int[]{16, 8, 4, 2, 1, 0, 0, 0};
     // 104,857,600 bytes
     public static final int[] DEFAULT_GLOBAL_MAX_COUNT = new int[]{128, 128, 64, 64, 32, 16, 8, 4};
+    public static final long DEFAULT_GLOBAL_THREAD_CACHE_BYTES = 2 * 1024 * 1024;
 
     public static final int[] DEFAULT_SMALL_SIZE = new int[]{128, 256, 512, 1024, 2048, 4096, 8192, 16384};
     // 557,056 bytes
@@ -60,6 +61,13 @@ public class DefaultPoolFactory implements PoolFactory {
         c.setMaxCount(DEFAULT_GLOBAL_MAX_COUNT);
         c.setTimeoutMillis(30000);
         c.setShareSize(calcTotalSize(c.getBufSizes(), c.getMaxCount()) / 2);
+        if (!direct) {
+            // each thread caches at most 8*32KB, 4*64KB, 2*128KB, 1*256KB. the buffers not used in a clean interval
+            // (1 second) and the caches of dead threads are returned to the shared pool by clean().
+            // not used by the direct pool, the thread caches are not limited by maxCount, direct memory is too
+            // precious for that.
+            c.setThreadCacheBytes(DEFAULT_GLOBAL_THREAD_CACHE_BYTES);
+        }
         return new SimpleByteBufferPool(c);
     }
 
@@ -24,7 +24,7 @@ import java.nio.ByteBuffer;
  * @author huangli
  */
 class FixSizeBufferPool {
-    private static final int MAGIC_INDEX = 0;
+    static final int MAGIC_INDEX = 0;
     private static final int RETURN_TIME_INDEX = 4;
     private final int bufferSize;
     private final int maxCount;
@@ -32,7 +32,7 @@ class FixSizeBufferPool {
     private final SimpleByteBufferPool p;
     private final boolean direct;
     private final long shareSize;
-    private static final int MAGIC = 0xEA1D9C07;
+    static final int MAGIC = 0xEA1D9C07;
 
     private final IndexedQueue<ByteBuffer> bufferStack;
 
@@ -73,13 +73,8 @@ class FixSizeBufferPool {
         IndexedQueue<ByteBuffer> bufferStack = this.bufferStack;
         // ByteBuffer.getLong may check limit, so we clear buffer first
         buf.clear();
-        if (buf.getInt(MAGIC_INDEX) == MAGIC) {
-            // shit
-            for (int i = 0, stackSize = bufferStack.size(); i < stackSize; i++) {
-                if (bufferStack.get(i) == buf) {
-                    throw new DtException("A bug may exist where the buffer is released twice.");
-                }
-            }
+        if (buf.getInt(MAGIC_INDEX) == MAGIC && contains(buf)) {
+            throw new DtException("A bug may exist where the buffer is released twice.");
         }
 
         if (bufferStack.size() >= maxCount) {
@@ -104,6 +99,16 @@ class FixSizeBufferPool {
         bufferStack.addLast(buf);
     }
 
+    boolean contains(ByteBuffer buf) {
+        IndexedQueue<ByteBuffer> bufferStack = this.bufferStack;
+        for (int i = 0, stackSize = bufferStack.size(); i < stackSize; i++) {
+            if (bufferStack.get(i) == buf) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void clean(long expireNanos) {
         IndexedQueue<ByteBuffer> stack = this.bufferStack;
         int size = stack.size();
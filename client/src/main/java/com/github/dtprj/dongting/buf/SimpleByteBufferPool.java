@@ -22,10 +22,17 @@ import com.github.dtprj.dongting.common.VersionFactory;
 import java.nio.ByteBuffer;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.Objects;
 
+import static com.github.dtprj.dongting.buf.FixSizeBufferPool.MAGIC;
+import static com.github.dtprj.dongting.buf.FixSizeBufferPool.MAGIC_INDEX;
+
 /**
- * Simple ByteBuffer pool, not thread safe.
+ * Simple ByteBuffer pool, not thread safe unless threadSafe is set in config. The thread safe pool may
+ * have a small per thread cache (threadCacheBytes in config). The caches are registered in the pool, clean()
+ * returns the buffers not used since last clean to the shared pool, and releases all buffers in the caches of
+ * dead threads.
  *
  * @author huangli
  */
@@ -33,6 +40,7 @@ public class SimpleByteBufferPool extends ByteBufferPool {
     static final VersionFactory VF = VersionFactory.getInstance();
     public static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
     public static final int DEFAULT_THRESHOLD = 128;
+    private static final int THREAD_CACHE_MAX_COUNT = 32;
 
     private final int threshold;
     private final int[] bufSizes;
@@ -48,6 +56,10 @@ public class SimpleByteBufferPool extends ByteBufferPool {
     // used in FixSizeBufferPool
     long currentUsedShareSize;
 
+    private final ThreadLocal<ThreadBufferCache> threadCache;
+    // guarded by this, the caches are trimmed by clean()
+    private final ArrayList<ThreadBufferCache> threadCaches;
+
     public static final int[] DEFAULT_BUF_SIZE = new int[]{1024, 2048, 4096, 8192, 16 * 1024,
             32 * 1024, 64 * 1024, 128 * 1024, 256 * 1024, 512 * 1024, 1024 * 1024, 2 * 1024 * 1024,
             4 * 1024 * 1024};
@@ -121,6 +133,26 @@ public class SimpleByteBufferPool extends ByteBufferPool {
             this.pools[i] = new FixSizeBufferPool(this, direct, config.getShareSize(),
                     minCount[i], maxCount[i], bufSizes[i]);
         }
+
+        if (threadSafe && config.getThreadCacheBytes() > 0) {
+            // each buffer size shares the thread cache bytes equally
+            long bytesPerSize = config.getThreadCacheBytes() / bufferTypeCount;
+            int[] capacity = new int[bufferTypeCount];
+            for (int i = 0; i < bufferTypeCount; i++) {
+                capacity[i] = (int) Math.min(THREAD_CACHE_MAX_COUNT, bytesPerSize / bufSizes[i]);
+            }
+            this.threadCaches = new ArrayList<>();
+            this.threadCache = ThreadLocal.withInitial(() -> {
+                ThreadBufferCache tc = new ThreadBufferCache(capacity, Thread.currentThread());
+                synchronized (this) {
+                    threadCaches.add(tc);
+                }
+                return tc;
+            });
+        } else {
+            this.threadCaches = null;
+            this.threadCache = null;
+        }
     }
 
     @Override
@@ -163,6 +195,16 @@ public class SimpleByteBufferPool extends ByteBufferPool {
 
         ByteBuffer result;
         if (threadSafe) {
+            if (threadCache != null) {
+                ThreadBufferCache tc = threadCache.get();
+                // the lock is not contended unless clean() is trimming the cache
+                synchronized (tc) {
+                    result = tc.borrow(poolIndex);
+                }
+                if (result != null) {
+                    return result;
+                }
+            }
             synchronized (this) {
                 result = pools[poolIndex].borrow();
             }
@@ -180,6 +222,10 @@ public class SimpleByteBufferPool extends ByteBufferPool {
     @Override
     public void release(ByteBuffer buf) {
         if (threadSafe) {
+            if (threadCache != null) {
+                releaseToThreadCache(buf);
+                return;
+            }
             synchronized (this) {
                 ts.refresh(1);
                 release0(buf);
@@ -189,7 +235,71 @@ public class SimpleByteBufferPool extends ByteBufferPool {
         }
     }
 
+    private void releaseToThreadCache(ByteBuffer buf) {
+        int poolIndex = poolIndexOfRelease(buf);
+        if (poolIndex < 0) {
+            return;
+        }
+        buf.clear();
+        if (buf.getInt(MAGIC_INDEX) == MAGIC) {
+            // may be released twice, the buffer may be in the shared pool or the cache of any thread
+            synchronized (this) {
+                if (pools[poolIndex].contains(buf)) {
+                    throw new DtException("A bug may exist where the buffer is released twice.");
+                }
+                for (int i = 0, size = threadCaches.size(); i < size; i++) {
+                    ThreadBufferCache c = threadCaches.get(i);
+                    synchronized (c) {
+                        if (c.contains(poolIndex, buf)) {
+                            throw new DtException("A bug may exist where the buffer is released twice.");
+                        }
+                    }
+                }
+            }
+        }
+        ThreadBufferCache tc = threadCache.get();
+        synchronized (tc) {
+            if (tc.release(poolIndex, buf)) {
+                return;
+            }
+        }
+        synchronized (this) {
+            ts.refresh(1);
+            pools[poolIndex].release(buf, ts.getNanoTime());
+        }
+    }
+
+    // called with the lock of this pool
+    private void trimThreadCaches() {
+        ts.refresh(1);
+        long nanos = ts.getNanoTime();
+        ArrayList<ThreadBufferCache> list = threadCaches;
+        for (int i = list.size() - 1; i >= 0; i--) {
+            ThreadBufferCache tc = list.get(i);
+            synchronized (tc) {
+                if (tc.owner.isAlive()) {
+                    tc.trim(pools, nanos);
+                } else {
+                    tc.trimAll(pools, nanos);
+                    int last = list.size() - 1;
+                    list.set(i, list.get(last));
+                    list.remove(last);
+                }
+            }
+        }
+    }
+
     private void release0(ByteBuffer buf) {
+        int poolIndex = poolIndexOfRelease(buf);
+        if (poolIndex >= 0) {
+            pools[poolIndex].release(buf, ts.getNanoTime());
+        }
+    }
+
+    /**
+     * return -1 if the buffer should not return to pool (released here if it's direct).
+     */
+    private int poolIndexOfRelease(ByteBuffer buf) {
         if (buf.isDirect() != direct) {
             throw new DtException("the buffer not belong to this pool, direct=" + buf.isDirect());
         }
@@ -198,7 +308,7 @@ public class SimpleByteBufferPool extends ByteBufferPool {
             if (direct) {
                 VF.releaseDirectBuffer(buf);
             }
-            return;
+            return -1;
         }
         int[] bufSizes = this.bufSizes;
         int poolCount = bufSizes.length;
@@ -216,9 +326,9 @@ public class SimpleByteBufferPool extends ByteBufferPool {
             if (direct) {
                 VF.releaseDirectBuffer(buf);
             }
-            return;
+            return -1;
         }
-        pools[poolIndex].release(buf, ts.getNanoTime());
+        return poolIndex;
     }
 
     @Override
@@ -226,6 +336,9 @@ public class SimpleByteBufferPool extends ByteBufferPool {
         if (threadSafe) {
             synchronized (this) {
                 clean0();
+                if (threadCaches != null) {
+                    trimThreadCaches();
+                }
             }
         } else {
             clean0();
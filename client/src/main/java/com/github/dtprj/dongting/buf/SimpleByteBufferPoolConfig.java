@@ -30,6 +30,8 @@ public class SimpleByteBufferPoolConfig {
     private int[] maxCount = SimpleByteBufferPool.DEFAULT_MAX_COUNT;
     private long timeoutMillis = 10 * 1000;
     private long shareSize = 0;
+    // max bytes cached by each thread, only used when threadSafe is true, 0 means no thread cache
+    private long threadCacheBytes = 0;
 
     public SimpleByteBufferPoolConfig() {
     }
@@ -117,4 +119,12 @@ public class SimpleByteBufferPoolConfig {
     public void setShareSize(long shareSize) {
         this.shareSize = shareSize;
     }
+
+    public long getThreadCacheBytes() {
+        return threadCacheBytes;
+    }
+
+    public void setThreadCacheBytes(long threadCacheBytes) {
+        this.threadCacheBytes = threadCacheBytes;
+    }
 }
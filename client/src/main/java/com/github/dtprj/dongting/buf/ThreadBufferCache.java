@@ -0,0 +1,131 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.buf;
+
+import com.github.dtprj.dongting.common.DtException;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.github.dtprj.dongting.buf.FixSizeBufferPool.MAGIC;
+import static com.github.dtprj.dongting.buf.FixSizeBufferPool.MAGIC_INDEX;
+
+/**
+ * Per thread buffer stacks in front of a thread safe SimpleByteBufferPool. It's used by the owner thread, and
+ * trimmed by SimpleByteBufferPool.clean() in other thread, all methods should be called with the lock of this
+ * object, the lock is not contended in most time.
+ *
+ * @author huangli
+ */
+class ThreadBufferCache {
+    private final ByteBuffer[][] stacks;
+    private final int[] sizes;
+    // min stack size since last trim, the buffers below it are not used in the interval
+    private final int[] lowWater;
+
+    final Thread owner;
+
+    ThreadBufferCache(int[] capacity, Thread owner) {
+        int len = capacity.length;
+        this.stacks = new ByteBuffer[len][];
+        for (int i = 0; i < len; i++) {
+            stacks[i] = new ByteBuffer[capacity[i]];
+        }
+        this.sizes = new int[len];
+        this.lowWater = new int[len];
+        this.owner = owner;
+    }
+
+    ByteBuffer borrow(int poolIndex) {
+        int s = sizes[poolIndex];
+        if (s == 0) {
+            return null;
+        }
+        ByteBuffer[] stack = stacks[poolIndex];
+        ByteBuffer buf = stack[--s];
+        stack[s] = null;
+        sizes[poolIndex] = s;
+        if (s < lowWater[poolIndex]) {
+            lowWater[poolIndex] = s;
+        }
+        if (buf.getInt(MAGIC_INDEX) != MAGIC) {
+            throw new DtException("A bug may exist where the buffer is written to after release.");
+        }
+        buf.putInt(MAGIC_INDEX, 0);
+        return buf;
+    }
+
+    /**
+     * return false if the stack is full, the caller should release the buffer to the shared pool.
+     * The caller should check double release before call this method.
+     */
+    boolean release(int poolIndex, ByteBuffer buf) {
+        ByteBuffer[] stack = stacks[poolIndex];
+        int s = sizes[poolIndex];
+        if (s >= stack.length) {
+            return false;
+        }
+        buf.clear();
+        buf.putInt(MAGIC_INDEX, MAGIC);
+        stack[s] = buf;
+        sizes[poolIndex] = s + 1;
+        return true;
+    }
+
+    boolean contains(int poolIndex, ByteBuffer buf) {
+        ByteBuffer[] stack = stacks[poolIndex];
+        for (int i = 0, s = sizes[poolIndex]; i < s; i++) {
+            if (stack[i] == buf) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * return the buffers not used since last trim to the shared pools, should be called with the pool lock.
+     */
+    void trim(FixSizeBufferPool[] pools, long nanos) {
+        trim(pools, nanos, lowWater);
+    }
+
+    /**
+     * return all buffers to the shared pools, called when the owner thread is dead.
+     */
+    void trimAll(FixSizeBufferPool[] pools, long nanos) {
+        trim(pools, nanos, sizes);
+    }
+
+    private void trim(FixSizeBufferPool[] pools, long nanos, int[] counts) {
+        for (int i = 0; i < stacks.length; i++) {
+            int n = counts[i];
+            if (n > 0) {
+                ByteBuffer[] stack = stacks[i];
+                int s = sizes[i];
+                for (int j = 0; j < n; j++) {
+                    ByteBuffer buf = stack[j];
+                    // FixSizeBufferPool checks the magic for double release
+                    buf.putInt(MAGIC_INDEX, 0);
+                    pools[i].release(buf, nanos);
+                }
+                System.arraycopy(stack, n, stack, 0, s - n);
+                Arrays.fill(stack, s - n, s, null);
+                sizes[i] = s - n;
+            }
+        }
+        System.arraycopy(sizes, 0, lowWater, 0, sizes.length);
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.codec;
+
+import java.util.Arrays;
+
+/**
+ * A pure java implementation of the lz4 block format, favor speed over compression ratio.
+ * The compressor is not thread safe (it holds a reusable hash table), the decompress method is.
+ *
+ * @author huangli
+ */
+public final class Lz4Codec {
+
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_DISTANCE = 65535;
+    private static final int HASH_LOG = 12;
+    private static final int SKIP_TRIGGER = 6;
+
+    // position + 1 of the last sequence with same hash, 0 means empty
+    private final int[] hashTable = new int[1 << HASH_LOG];
+
+    public static int maxCompressedLength(int srcLen) {
+        return srcLen + srcLen / 255 + 16;
+    }
+
+    private static int readInt(byte[] b, int i) {
+        return (b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8) | ((b[i + 2] & 0xFF) << 16) | (b[i + 3] << 24);
+    }
+
+    private static int hash(int v) {
+        return (v * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static int writeLen(int len, byte[] dest, int op) {
+        while (len >= 255) {
+            dest[op++] = (byte) 255;
+            len -= 255;
+        }
+        dest[op++] = (byte) len;
+        return op;
+    }
+
+    /**
+     * compress src into dest, the dest should have at least maxCompressedLength(srcLen) bytes after destOff.
+     *
+     * @return the compressed length
+     */
+    public int compress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff) {
+        int srcEnd = srcOff + srcLen;
+        int anchor = srcOff;
+        int op = destOff;
+        if (srcLen > MF_LIMIT) {
+            int[] table = this.hashTable;
+            Arrays.fill(table, 0);
+            int mfLimit = srcEnd - MF_LIMIT;
+            int matchLimit = srcEnd - LAST_LITERALS;
+            int ip = srcOff + 1;
+            while (ip < mfLimit) {
+                int seq = readInt(src, ip);
+                int h = hash(seq);
+                int ref = table[h] - 1 + srcOff;
+                table[h] = ip - srcOff + 1;
+                if (ref < srcOff || ip - ref > MAX_DISTANCE || readInt(src, ref) != seq) {
+                    // skip faster in incompressible data
+                    ip += 1 + ((ip - anchor) >>> SKIP_TRIGGER);
+                    continue;
+                }
+                while (ip > anchor && ref > srcOff && src[ip - 1] == src[ref - 1]) {
+                    ip--;
+                    ref--;
+                }
+                int matchLen = MIN_MATCH;
+                while (ip + matchLen < matchLimit && src[ip + matchLen] == src[ref + matchLen]) {
+                    matchLen++;
+                }
+
+                int litLen = ip - anchor;
+                int tokenPos = op++;
+                int token;
+                if (litLen >= 15) {
+                    token = 15 << 4;
+                    op = writeLen(litLen - 15, dest, op);
+                } else {
+                    token = litLen << 4;
+                }
+                System.arraycopy(src, anchor, dest, op, litLen);
+                op += litLen;
+
+                int offset = ip - ref;
+                dest[op++] = (byte) offset;
+                dest[op++] = (byte) (offset >>> 8);
+
+                int ml = matchLen - MIN_MATCH;
+                if (ml >= 15) {
+                    token |= 15;
+                    op = writeLen(ml - 15, dest, op);
+                } else {
+                    token |= ml;
+                }
+                dest[tokenPos] = (byte) token;
+
+                ip += matchLen;
+                anchor = ip;
+                if (ip < mfLimit) {
+                    // fill hash table with position inside the match, improves ratio with little cost
+                    int p = ip - 2;
+                    table[hash(readInt(src, p))] = p - srcOff + 1;
+                }
+            }
+        }
+        // last literals
+        int litLen = srcEnd - anchor;
+        if (litLen >= 15) {
+            dest[op++] = (byte) (15 << 4);
+            op = writeLen(litLen - 15, dest, op);
+        } else {
+            dest[op++] = (byte) (litLen << 4);
+        }
+        System.arraycopy(src, anchor, dest, op, litLen);
+        op += litLen;
+        return op - destOff;
+    }
+
+    /**
+     * decompress src into dest, the decompressed length must be exactly destLen.
+     */
+    public static void decompress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int destLen) {
+        int ip = srcOff;
+        int srcEnd = srcOff + srcLen;
+        int op = destOff;
+        int destEnd = destOff + destLen;
+        while (true) {
+            if (ip >= srcEnd) {
+                throw new CodecException("lz4 input truncated");
+            }
+            int token = src[ip++] & 0xFF;
+            int litLen = token >>> 4;
+            if (litLen == 15) {
+                int b;
+                do {
+                    if (ip >= srcEnd) {
+                        throw new CodecException("lz4 input truncated");
+                    }
+                    b = src[ip++] & 0xFF;
+                    litLen += b;
+                } while (b == 255);
+            }
+            if (litLen > srcEnd - ip || litLen > destEnd - op) {
+                throw new CodecException("lz4 literal length overflow");
+            }
+            System.arraycopy(src, ip, dest, op, litLen);
+            ip += litLen;
+            op += litLen;
+            if (ip == srcEnd) {
+                // the last sequence has no match part
+                break;
+            }
+
+            if (srcEnd - ip < 2) {
+                throw new CodecException("lz4 input truncated");
+            }
+            int offset = (src[ip] & 0xFF) | ((src[ip + 1] & 0xFF) << 8);
+            ip += 2;
+            int ref = op - offset;
+            if (offset == 0 || ref < destOff) {
+                throw new CodecException("lz4 bad offset: " + offset);
+            }
+            int matchLen = token & 0x0F;
+            if (matchLen == 15) {
+                int b;
+                do {
+                    if (ip >= srcEnd) {
+                        throw new CodecException("lz4 input truncated");
+                    }
+                    b = src[ip++] & 0xFF;
+                    matchLen += b;
+                } while (b == 255);
+            }
+            matchLen += MIN_MATCH;
+            if (matchLen > destEnd - op) {
+                throw new CodecException("lz4 match length overflow");
+            }
+            if (offset >= matchLen) {
+                System.arraycopy(dest, ref, dest, op, matchLen);
+                op += matchLen;
+            } else {
+                // overlapped copy
+                for (int i = 0; i < matchLen; i++) {
+                    dest[op++] = dest[ref++];
+                }
+            }
+        }
+        if (op != destEnd) {
+            throw new CodecException("lz4 decompressed length not match: " + (op - destOff) + ", " + destLen);
+        }
+    }
+}
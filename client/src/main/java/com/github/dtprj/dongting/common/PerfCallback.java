@@ -88,6 +88,16 @@ public abstract class PerfCallback implements PerfConsts {
         onEvent(perfType, costTime, count, sum);
     }
 
+    /**
+     * fire with the cost measured by caller using System.nanoTime().
+     */
+    public void fireNanos(int perfType, long costNanos) {
+        if (!accept(perfType)) {
+            return;
+        }
+        onEvent(perfType, useNanos ? costNanos : costNanos / 1_000_000, 1, 0);
+    }
+
     public void fire(int perfType, int count, long sum) {
         if (!accept(perfType)) {
             return;
@@ -32,9 +32,15 @@ public interface PerfConsts {
     int RPC_C_MARK_WRITE = 7;
     int RPC_D_READ = 8;
     int RPC_D_WRITE = 9;
+    // count is packets in one write buffer, sum is bytes of the buffer
+    int RPC_C_WRITE_BATCH = 10;
 
     int FIBER_D_POLL = 20;
     int FIBER_D_WORK = 21;
+    // fiber profile, enabled if FIBER_D_EXEC is accepted, see FiberProfiler
+    int FIBER_D_EXEC = 22;
+    int FIBER_D_READY_WAIT = 23;
+    int FIBER_D_BLOCK = 24;
 
     int RAFT_D_LEADER_RUNNER_FIBER_LATENCY = 30;
     int RAFT_D_ENCODE_AND_WRITE = 31;
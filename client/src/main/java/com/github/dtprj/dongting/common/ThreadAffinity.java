@@ -0,0 +1,157 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.common;
+
+import com.github.dtprj.dongting.log.DtLog;
+import com.github.dtprj.dongting.log.DtLogs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bind thread to cpus, linux only, no JNI/FFM is required. The native thread id is read from /proc/thread-self,
+ * and the binding is done by forking the taskset command (util-linux), so it's only suitable to be called once
+ * when the thread starts, not in the hot path. The cpu list uses the taskset format, such as "0-3,8".
+ * <p>
+ * The binding is best effort. On other os, or if taskset is not installed or fails (for example, the cpus are
+ * not allowed in the container), the thread runs unbound. Only the first failure is logged as warning, the
+ * following ones are logged in debug level, to avoid a warning for every io/dispatcher thread.
+ *
+ * @author huangli
+ */
+public final class ThreadAffinity {
+    private static final DtLog log = DtLogs.getLogger(ThreadAffinity.class);
+
+    private static final boolean LINUX = System.getProperty("os.name", "")
+            .toLowerCase(Locale.ROOT).startsWith("linux");
+
+    private static final AtomicBoolean FAIL_LOGGED = new AtomicBoolean();
+
+    private ThreadAffinity() {
+    }
+
+    /**
+     * bind current thread to the cpus, this method forks a taskset process.
+     *
+     * @return true if success, false if cpuList is empty or the binding fails
+     */
+    public static boolean bindCurrentThread(String cpuList) {
+        if (cpuList == null || cpuList.isEmpty()) {
+            return false;
+        }
+        String threadName = Thread.currentThread().getName();
+        if (!LINUX) {
+            logFail("thread affinity is only supported on linux, ignore it. thread={}", threadName);
+            return false;
+        }
+        try {
+            String tid = currentNativeThreadId();
+            Process p = new ProcessBuilder("taskset", "-p", "-c", cpuList, tid)
+                    .redirectErrorStream(true).start();
+            String output = readAll(p.getInputStream());
+            int code = p.waitFor();
+            if (code != 0) {
+                logFail("bind thread {} to cpu {} fail, exit code {}: {}", threadName, cpuList, code, output);
+                return false;
+            }
+            log.info("thread {}(tid={}) bind to cpu {}", threadName, tid, cpuList);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logFail("bind thread {} to cpu {} interrupted", threadName, cpuList);
+            return false;
+        } catch (Exception e) {
+            logFail("bind thread {} to cpu {} fail: {}", threadName, cpuList, e.toString());
+            return false;
+        }
+    }
+
+    private static void logFail(String format, Object... args) {
+        if (FAIL_LOGGED.compareAndSet(false, true)) {
+            log.warn(format, args);
+        } else if (log.isDebugEnabled()) {
+            log.debug(format, args);
+        }
+    }
+
+    static String currentNativeThreadId() throws Exception {
+        // the link target is "pid/task/tid"
+        Path p = Files.readSymbolicLink(Paths.get("/proc/thread-self"));
+        String s = p.toString();
+        return s.substring(s.lastIndexOf('/') + 1);
+    }
+
+    private static String readAll(InputStream in) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buf = new byte[256];
+        int len;
+        while ((len = in.read(buf)) != -1) {
+            bos.write(buf, 0, len);
+        }
+        return new String(bos.toByteArray(), StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * Return the cpu list of each NUMA node, read from /sys/devices/system/node. If the NUMA info is not
+     * available, return an array contains one element represent all cpus.
+     */
+    public static String[] numaNodeCpuLists() {
+        ArrayList<String> list = new ArrayList<>();
+        File[] nodes = new File("/sys/devices/system/node").listFiles(
+                f -> f.isDirectory() && f.getName().matches("node\\d+"));
+        if (nodes != null) {
+            Arrays.sort(nodes, (a, b) -> Integer.compare(nodeId(a), nodeId(b)));
+            for (File n : nodes) {
+                try {
+                    byte[] bs = Files.readAllBytes(new File(n, "cpulist").toPath());
+                    String s = new String(bs, StandardCharsets.UTF_8).trim();
+                    if (!s.isEmpty()) {
+                        list.add(s);
+                    }
+                } catch (Exception e) {
+                    log.warn("read cpulist of {} fail: {}", n, e.toString());
+                }
+            }
+        }
+        if (list.isEmpty()) {
+            list.add("0-" + (Runtime.getRuntime().availableProcessors() - 1));
+        }
+        return list.toArray(new String[0]);
+    }
+
+    private static int nodeId(File f) {
+        return Integer.parseInt(f.getName().substring(4));
+    }
+
+    /**
+     * select a cpu list for the thread by its index, return null if cpuLists is empty.
+     */
+    public static String select(String[] cpuLists, int index) {
+        if (cpuLists == null || cpuLists.length == 0) {
+            return null;
+        }
+        return cpuLists[Math.abs(index % cpuLists.length)];
+    }
+}
@@ -28,6 +28,7 @@ import com.github.dtprj.dongting.net.NetTimeoutException;
 import com.github.dtprj.dongting.net.NioClientConfig;
 import com.github.dtprj.dongting.net.ReadPacket;
 import com.github.dtprj.dongting.net.RpcCallback;
+import com.github.dtprj.dongting.raft.GroupInfo;
 import com.github.dtprj.dongting.raft.RaftClient;
 import com.github.dtprj.dongting.raft.RaftException;
 import com.github.dtprj.dongting.raft.RaftTimeoutException;
@@ -36,6 +37,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -46,8 +48,18 @@ import java.util.function.Function;
  */
 @SuppressWarnings("Convert2Diamond")
 public class KvClient extends AbstractLifeCircle {
+    // the moved dir may be split again in the target group
+    private static final int MAX_ROUTE_HOPS = 16;
+    private static final long SPLITTING_RETRY_MILLIS = 10;
+    private static final long SPLITTING_RETRY_MAX_MILLIS = 500;
+
     private final RaftClient raftClient;
 
+    // routes learned from CODE_MOVED responses, source groupId -> (moved dir -> target groupId)
+    private final ConcurrentHashMap<Integer, ConcurrentHashMap<String, Integer>> routes = new ConcurrentHashMap<>();
+
+    private boolean bulk;
+
     public KvClient() {
         this(new NioClientConfig());
     }
@@ -79,6 +91,103 @@ public class KvClient extends AbstractLifeCircle {
         };
     }
 
+    /**
+     * Send the request to the group which the key belongs to. If the dir of the key is split to another
+     * group, the route is updated and the request is resent transparently. If the dir is splitting, the
+     * request is retried with backoff until the timeout.
+     */
+    private <T> void send(int groupId, String key, int cmd, ByteArray value, DtTime timeout,
+                          DecoderCallbackCreator<T> dc, RpcCallback<T> c, int retry) {
+        int realGroupId = route(groupId, key);
+        KvReq r = new KvReq(realGroupId, key.getBytes(StandardCharsets.UTF_8), value, null, null, null);
+        r.setBulk(bulk);
+        EncodableBodyWritePacket wf = new EncodableBodyWritePacket(r);
+        wf.setCommand(cmd);
+        raftClient.sendRequest(realGroupId, wf, dc, timeout, new RpcCallback<T>() {
+            @Override
+            public void success(ReadPacket<T> result) {
+                int bc = result.getBizCode();
+                if (bc == KvCodes.CODE_MOVED && !timeout.isTimeout() && updateRoute(realGroupId, result.getExtra())
+                        && route(groupId, key) != realGroupId) {
+                    // resend if the route is changed
+                    send(groupId, key, cmd, value, timeout, dc, c, retry);
+                    return;
+                } else if (bc == KvCodes.CODE_SPLITTING) {
+                    // writes are fenced during split, the time depends on the size of the dir
+                    long delay = Math.min(SPLITTING_RETRY_MILLIS << Math.min(retry, 6), SPLITTING_RETRY_MAX_MILLIS);
+                    if (timeout.rest(TimeUnit.MILLISECONDS) > delay) {
+                        DtUtil.SCHEDULED_SERVICE.schedule(() -> send(groupId, key, cmd, value, timeout,
+                                dc, c, retry + 1), delay, TimeUnit.MILLISECONDS);
+                        return;
+                    }
+                }
+                c.success(result);
+            }
+
+            @Override
+            public void fail(Throwable ex) {
+                c.fail(ex);
+            }
+        });
+    }
+
+    private int route(int groupId, String key) {
+        if (routes.isEmpty()) {
+            return groupId;
+        }
+        for (int i = 0; i < MAX_ROUTE_HOPS; i++) {
+            ConcurrentHashMap<String, Integer> m = routes.get(groupId);
+            Integer target = m == null ? null : findRoute(m, key);
+            if (target == null) {
+                return groupId;
+            }
+            groupId = target;
+        }
+        return groupId;
+    }
+
+    private static Integer findRoute(ConcurrentHashMap<String, Integer> m, String key) {
+        while (true) {
+            Integer g = m.get(key);
+            if (g != null) {
+                return g;
+            }
+            int lastIndexOfSep = key.lastIndexOf('.');
+            if (lastIndexOfSep <= 0) {
+                return null;
+            }
+            key = key.substring(0, lastIndexOfSep);
+        }
+    }
+
+    private boolean updateRoute(int groupId, byte[] extra) {
+        if (extra == null) {
+            return false;
+        }
+        // "targetGroupId,dir"
+        String s = new String(extra, StandardCharsets.UTF_8);
+        int i = s.indexOf(',');
+        if (i <= 0 || i == s.length() - 1) {
+            return false;
+        }
+        int targetGroupId;
+        try {
+            targetGroupId = Integer.parseInt(s.substring(0, i));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (raftClient.getGroup(targetGroupId) == null) {
+            // the split group is created on the same servers, unless the user configured it explicitly
+            GroupInfo gi = raftClient.getGroup(groupId);
+            if (gi == null) {
+                return false;
+            }
+            raftClient.addOrUpdateGroup(targetGroupId, gi.getServers());
+        }
+        routes.computeIfAbsent(groupId, k -> new ConcurrentHashMap<>()).put(s.substring(i + 1), targetGroupId);
+        return true;
+    }
+
     private <T> T waitFuture(CompletableFuture<T> f, DtTime timeout) {
         try {
             return f.get(timeout.getTimeout(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
@@ -103,12 +212,9 @@ public class KvClient extends AbstractLifeCircle {
     public void put(int groupId, String key, byte[] value, DtTime timeout, FutureCallback<Void> callback) {
         Objects.requireNonNull(key);
         Objects.requireNonNull(value);
-        KvReq r = new KvReq(groupId, key.getBytes(StandardCharsets.UTF_8),
-                new ByteArray(value), null, null, null);
-        EncodableBodyWritePacket wf = new EncodableBodyWritePacket(r);
-        wf.setCommand(Commands.DTKV_PUT);
         RpcCallback<Void> c = wrap(callback, KvCodes.CODE_SUCCESS_OVERWRITE, v -> v);
-        raftClient.sendRequest(groupId, wf, DecoderCallbackCreator.VOID_DECODE_CALLBACK_CREATOR, timeout, c);
+        send(groupId, key, Commands.DTKV_PUT, new ByteArray(value), timeout,
+                DecoderCallbackCreator.VOID_DECODE_CALLBACK_CREATOR, c, 0);
     }
 
     public KvNode get(int groupId, String key, DtTime timeout) {
@@ -119,11 +225,6 @@ public class KvClient extends AbstractLifeCircle {
 
     public void get(int groupId, String key, DtTime timeout, FutureCallback<KvNode> callback) {
         Objects.requireNonNull(key);
-        KvReq r = new KvReq(groupId, key.getBytes(StandardCharsets.UTF_8),
-                null, null, null, null);
-        EncodableBodyWritePacket wf = new EncodableBodyWritePacket(r);
-        wf.setCommand(Commands.DTKV_GET);
-
         RpcCallback<KvResp> c = wrap(callback, KvCodes.CODE_NOT_FOUND, resp -> {
             if (resp == null || resp.getResults() == null || resp.getResults().isEmpty()) {
                 return null;
@@ -133,7 +234,7 @@ public class KvClient extends AbstractLifeCircle {
         });
 
         DecoderCallbackCreator<KvResp> dc = ctx -> ctx.toDecoderCallback(ctx.kvRespCallback());
-        raftClient.sendRequest(groupId, wf, dc, timeout, c);
+        send(groupId, key, Commands.DTKV_GET, null, timeout, dc, c, 0);
     }
 
     public List<KvResult> list(int groupId, String key, DtTime timeout) {
@@ -144,15 +245,10 @@ public class KvClient extends AbstractLifeCircle {
 
     public void list(int groupId, String key, DtTime timeout, FutureCallback<List<KvResult>> callback) {
         Objects.requireNonNull(key);
-        KvReq r = new KvReq(groupId, key.getBytes(StandardCharsets.UTF_8),
-                null, null, null, null);
-        EncodableBodyWritePacket wf = new EncodableBodyWritePacket(r);
-        wf.setCommand(Commands.DTKV_LIST);
-
         RpcCallback<KvResp> c = wrap(callback, KvCodes.CODE_NOT_FOUND,
                 resp -> resp == null ? null : resp.getResults());
         DecoderCallbackCreator<KvResp> dc = ctx -> ctx.toDecoderCallback(ctx.kvRespCallback());
-        raftClient.sendRequest(groupId, wf, dc, timeout, c);
+        send(groupId, key, Commands.DTKV_LIST, null, timeout, dc, c, 0);
     }
 
     public void remove(int groupId, String key, DtTime timeout) {
@@ -163,12 +259,9 @@ public class KvClient extends AbstractLifeCircle {
 
     public void remove(int groupId, String key, DtTime timeout, FutureCallback<Void> callback) {
         Objects.requireNonNull(key);
-        KvReq r = new KvReq(groupId, key.getBytes(StandardCharsets.UTF_8),
-                null, null, null, null);
-        EncodableBodyWritePacket wf = new EncodableBodyWritePacket(r);
-        wf.setCommand(Commands.DTKV_REMOVE);
         RpcCallback<Void> c = wrap(callback, KvCodes.CODE_NOT_FOUND, v -> v);
-        raftClient.sendRequest(groupId, wf, DecoderCallbackCreator.VOID_DECODE_CALLBACK_CREATOR, timeout, c);
+        send(groupId, key, Commands.DTKV_REMOVE, null, timeout,
+                DecoderCallbackCreator.VOID_DECODE_CALLBACK_CREATOR, c, 0);
     }
 
     public void mkdir(int groupId, String key, DtTime timeout) {
@@ -179,12 +272,9 @@ public class KvClient extends AbstractLifeCircle {
 
     public void mkdir(int groupId, String key, DtTime timeout, FutureCallback<Void> callback) {
         Objects.requireNonNull(key);
-        KvReq r = new KvReq(groupId, key.getBytes(StandardCharsets.UTF_8),
-                null, null, null, null);
-        EncodableBodyWritePacket wf = new EncodableBodyWritePacket(r);
-        wf.setCommand(Commands.DTKV_MKDIR);
         RpcCallback<Void> c = wrap(callback, KvCodes.CODE_DIR_EXISTS, v -> v);
-        raftClient.sendRequest(groupId, wf, DecoderCallbackCreator.VOID_DECODE_CALLBACK_CREATOR, timeout, c);
+        send(groupId, key, Commands.DTKV_MKDIR, null, timeout,
+                DecoderCallbackCreator.VOID_DECODE_CALLBACK_CREATOR, c, 0);
     }
 
     @Override
@@ -199,4 +289,16 @@ public class KvClient extends AbstractLifeCircle {
     public RaftClient getRaftClient() {
         return raftClient;
     }
+
+    public boolean isBulk() {
+        return bulk;
+    }
+
+    /**
+     * Mark the writes of this client as bulk load, the server schedules them with lower weight than the
+     * interactive writes, and limits them by a separate pending budget. Should be called before the client used.
+     */
+    public void setBulk(boolean bulk) {
+        this.bulk = bulk;
+    }
 }
@@ -33,4 +33,8 @@ public interface KvCodes {
     int CODE_KEY_TOO_LONG = 10;
     int CODE_VALUE_TOO_LONG = 11;
     int CODE_INSTALL_SNAPSHOT = 12;
+    // the dir (or its ancestor) is being split to another group, writes are fenced, retry later
+    int CODE_SPLITTING = 13;
+    // the dir (or its ancestor) is moved to another group, the packet extra is "targetGroupId,dir"
+    int CODE_MOVED = 14;
 }
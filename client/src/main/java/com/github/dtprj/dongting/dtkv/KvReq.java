@@ -39,12 +39,20 @@ public class KvReq extends RaftRpcData implements Encodable {
     private static final int IDX_VALUES_SIZE = 6;
     private static final int IDX_VALUES = 7;
     private static final int IDX_EXPECT_VALUE = 8;
+    private static final int IDX_BULK = 9;
+    private static final int IDX_LIST_OFFSET = 10;
+    private static final int IDX_LIST_LIMIT = 11;
 
     private final byte[] key;
     private final ByteArray value;
     private final ArrayList<byte[]> keys;
     private final ArrayList<? extends ByteArray> values;
     private final ByteArray expectValue;
+    // the write is scheduled as bulk priority class in the server
+    private boolean bulk;
+    // paging of list, limit 0 means no limit
+    private int listOffset;
+    private int listLimit;
 
     private int size;
 
@@ -68,7 +76,10 @@ public class KvReq extends RaftRpcData implements Encodable {
                     + EncodeUtil.actualSizeOfBytes(IDX_KEYS, keys)
                     + PbUtil.accurateUnsignedIntSize(IDX_VALUES_SIZE, values == null ? 0 : values.size())
                     + EncodeUtil.actualSizeOfObjs(IDX_VALUES, values)
-                    + EncodeUtil.actualSize(IDX_EXPECT_VALUE, expectValue);
+                    + EncodeUtil.actualSize(IDX_EXPECT_VALUE, expectValue)
+                    + PbUtil.accurateUnsignedIntSize(IDX_BULK, bulk ? 1 : 0)
+                    + PbUtil.accurateUnsignedIntSize(IDX_LIST_OFFSET, listOffset)
+                    + PbUtil.accurateUnsignedIntSize(IDX_LIST_LIMIT, listLimit);
         }
         return size;
     }
@@ -133,10 +144,22 @@ public class KvReq extends RaftRpcData implements Encodable {
             if (expectValue != null && !EncodeUtil.encode(context, destBuffer, IDX_EXPECT_VALUE, expectValue)) {
                 return false;
             } else {
-                context.stage = EncodeContext.STAGE_END;
-                return true;
+                context.stage = IDX_EXPECT_VALUE;
             }
         }
+        if (context.stage == IDX_EXPECT_VALUE) {
+            int len = PbUtil.accurateUnsignedIntSize(IDX_BULK, bulk ? 1 : 0)
+                    + PbUtil.accurateUnsignedIntSize(IDX_LIST_OFFSET, listOffset)
+                    + PbUtil.accurateUnsignedIntSize(IDX_LIST_LIMIT, listLimit);
+            if (destBuffer.remaining() < len) {
+                return false;
+            }
+            PbUtil.writeUnsignedInt32(destBuffer, IDX_BULK, bulk ? 1 : 0);
+            PbUtil.writeUnsignedInt32(destBuffer, IDX_LIST_OFFSET, listOffset);
+            PbUtil.writeUnsignedInt32(destBuffer, IDX_LIST_LIMIT, listLimit);
+            context.stage = EncodeContext.STAGE_END;
+            return true;
+        }
         throw new CodecException(context);
     }
 
@@ -159,4 +182,28 @@ public class KvReq extends RaftRpcData implements Encodable {
     public ByteArray getExpectValue() {
         return expectValue;
     }
+
+    public boolean isBulk() {
+        return bulk;
+    }
+
+    public void setBulk(boolean bulk) {
+        this.bulk = bulk;
+    }
+
+    public int getListOffset() {
+        return listOffset;
+    }
+
+    public void setListOffset(int listOffset) {
+        this.listOffset = listOffset;
+    }
+
+    public int getListLimit() {
+        return listLimit;
+    }
+
+    public void setListLimit(int listLimit) {
+        this.listLimit = listLimit;
+    }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.dtkv;
+
+import com.github.dtprj.dongting.raft.RaftException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The key to group route table of sharded DtKV, immutable. The route is decided by the first segment
+ * (top level dir) of the key, so a dir subtree is always in one group. A top level dir can be pinned to
+ * a group explicitly, others are hashed to all groups.
+ * <p>
+ * The hash is rendezvous hashing (highest random weight), so when a group is added, only the unpinned dirs
+ * moved to the new group change their route, and when a group is removed, only the dirs of that group move.
+ * The data of the moved dirs is not migrated automatically, so pin the existing dirs of the affected groups
+ * (or split them to the new group) before changing the group list.
+ *
+ * @author huangli
+ */
+public final class KvRouteTable {
+
+    // groupId -> servers, sorted by groupId
+    private final TreeMap<Integer, String> groups;
+    // top level dir -> groupId
+    private final Map<String, Integer> dirs;
+    private final int[] hashGroups;
+
+    public KvRouteTable(Map<Integer, String> groups, Map<String, Integer> dirs) {
+        this.groups = new TreeMap<>(groups);
+        this.dirs = new HashMap<>(dirs);
+        this.hashGroups = new int[groups.size()];
+        int i = 0;
+        for (Integer groupId : this.groups.keySet()) {
+            hashGroups[i++] = groupId;
+        }
+        for (Map.Entry<String, Integer> e : dirs.entrySet()) {
+            if (!groups.containsKey(e.getValue())) {
+                throw new RaftException("dir " + e.getKey() + " routes to unknown group " + e.getValue());
+            }
+        }
+    }
+
+    /**
+     * build the table from the list results of the groups dir and dirs dir in meta group.
+     */
+    static KvRouteTable parse(List<KvResult> groupList, List<KvResult> dirList) {
+        HashMap<Integer, String> groups = new HashMap<>();
+        HashMap<String, Integer> dirs = new HashMap<>();
+        if (groupList != null) {
+            for (KvResult r : groupList) {
+                groups.put(Integer.parseInt(str(r.getKeyInDir().getData())), str(r.getNode().getData()));
+            }
+        }
+        if (dirList != null) {
+            for (KvResult r : dirList) {
+                dirs.put(str(r.getKeyInDir().getData()), Integer.parseInt(str(r.getNode().getData()).trim()));
+            }
+        }
+        return new KvRouteTable(groups, dirs);
+    }
+
+    private static String str(byte[] bs) {
+        return new String(bs, StandardCharsets.UTF_8);
+    }
+
+    public int route(String key) {
+        if (hashGroups.length == 0) {
+            throw new RaftException("route table is empty");
+        }
+        int i = key.indexOf('.');
+        String topDir = i < 0 ? key : key.substring(0, i);
+        Integer groupId = dirs.get(topDir);
+        if (groupId != null) {
+            return groupId;
+        }
+        // String.hashCode is specified, so all clients get same result
+        long dirHash = topDir.hashCode();
+        int[] hashGroups = this.hashGroups;
+        int result = hashGroups[0];
+        long maxWeight = weight(dirHash, result);
+        for (int j = 1; j < hashGroups.length; j++) {
+            long w = weight(dirHash, hashGroups[j]);
+            if (w > maxWeight) {
+                maxWeight = w;
+                result = hashGroups[j];
+            }
+        }
+        return result;
+    }
+
+    private static long weight(long dirHash, int groupId) {
+        // fmix64 of murmur3
+        long h = (dirHash << 32) ^ (groupId & 0xFFFFFFFFL);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public Map<Integer, String> getGroups() {
+        return Collections.unmodifiableMap(groups);
+    }
+}
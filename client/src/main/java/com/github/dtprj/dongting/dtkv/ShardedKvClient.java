@@ -0,0 +1,332 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.dtkv;
+
+import com.github.dtprj.dongting.common.AbstractLifeCircle;
+import com.github.dtprj.dongting.common.DtTime;
+import com.github.dtprj.dongting.common.DtUtil;
+import com.github.dtprj.dongting.common.FutureCallback;
+import com.github.dtprj.dongting.log.DtLog;
+import com.github.dtprj.dongting.log.DtLogs;
+import com.github.dtprj.dongting.net.NioClientConfig;
+import com.github.dtprj.dongting.raft.RaftClient;
+import com.github.dtprj.dongting.raft.RaftException;
+import com.github.dtprj.dongting.raft.RaftTimeoutException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A KvClient which routes keys to groups by a route table, so the caller need not pass the group id.
+ * <p>
+ * The route table is stored in a small meta group:
+ * <ul>
+ *     <li>{@value #ROUTE_GROUPS_DIR}.{groupId} = servers of the group, e.g. "1,127.0.0.1:5001;2,127.0.0.1:5002"</li>
+ *     <li>{@value #ROUTE_DIRS_DIR}.{topLevelDir} = groupId, optional, pin a top level dir to a group</li>
+ * </ul>
+ * The table is loaded when start and refreshed periodically, the leaders of all groups are fetched in
+ * parallel after each refresh, so the first request to a group need not find the leader.
+ *
+ * @see KvRouteTable
+ * @author huangli
+ */
+@SuppressWarnings("Convert2Diamond")
+public class ShardedKvClient extends AbstractLifeCircle {
+    private static final DtLog log = DtLogs.getLogger(ShardedKvClient.class);
+
+    public static final String ROUTE_DIR = "__route";
+    public static final String ROUTE_GROUPS_DIR = ROUTE_DIR + ".groups";
+    public static final String ROUTE_DIRS_DIR = ROUTE_DIR + ".dirs";
+
+    private final KvClient kvClient;
+    private final int metaGroupId;
+    private final String metaServers;
+    private final long refreshIntervalMillis;
+
+    private volatile KvRouteTable routeTable;
+    private ScheduledFuture<?> refreshFuture;
+
+    public ShardedKvClient(int metaGroupId, String metaServers) {
+        this(new NioClientConfig(), metaGroupId, metaServers, 30_000);
+    }
+
+    /**
+     * @param refreshIntervalMillis the interval to reload route table, 0 means only load when start
+     */
+    public ShardedKvClient(NioClientConfig nioConfig, int metaGroupId, String metaServers,
+                           long refreshIntervalMillis) {
+        this.kvClient = new KvClient(nioConfig);
+        this.metaGroupId = metaGroupId;
+        this.metaServers = Objects.requireNonNull(metaServers);
+        this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+
+    @Override
+    protected void doStart() {
+        kvClient.start();
+        kvClient.getRaftClient().addOrUpdateGroup(metaGroupId, metaServers);
+        refreshRoute(new DtTime(10, TimeUnit.SECONDS));
+        if (refreshIntervalMillis > 0) {
+            refreshFuture = DtUtil.SCHEDULED_SERVICE.scheduleWithFixedDelay(() -> {
+                try {
+                    refreshRoute(new DtTime(refreshIntervalMillis, TimeUnit.MILLISECONDS));
+                } catch (Throwable e) {
+                    log.error("refresh route table fail", e);
+                }
+            }, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    protected void doStop(DtTime timeout, boolean force) {
+        if (refreshFuture != null) {
+            refreshFuture.cancel(false);
+        }
+        kvClient.stop(timeout);
+    }
+
+    /**
+     * Reload the route table from the meta group, and prefetch the leaders of all groups.
+     */
+    public void refreshRoute(DtTime timeout) {
+        List<KvResult> groupList = kvClient.list(metaGroupId, ROUTE_GROUPS_DIR, timeout);
+        List<KvResult> dirList = kvClient.list(metaGroupId, ROUTE_DIRS_DIR, timeout);
+        KvRouteTable newTable = KvRouteTable.parse(groupList, dirList);
+        KvRouteTable oldTable = this.routeTable;
+        RaftClient raftClient = kvClient.getRaftClient();
+        ArrayList<CompletableFuture<?>> futures = new ArrayList<>();
+        for (Map.Entry<Integer, String> e : newTable.getGroups().entrySet()) {
+            int groupId = e.getKey();
+            String oldServers = oldTable == null ? null : oldTable.getGroups().get(groupId);
+            if (!e.getValue().equals(oldServers) && groupId != metaGroupId) {
+                raftClient.addOrUpdateGroup(groupId, e.getValue());
+            }
+            futures.add(raftClient.fetchLeader(groupId));
+        }
+        this.routeTable = newTable;
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .get(timeout.rest(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            DtUtil.restoreInterruptStatus();
+            throw new RaftException("interrupted", e);
+        } catch (Exception e) {
+            // the leader will be found when send request
+            log.warn("prefetch leaders fail: {}", e.toString());
+        }
+    }
+
+    public KvRouteTable getRouteTable() {
+        return routeTable;
+    }
+
+    public int route(String key) {
+        Objects.requireNonNull(key);
+        KvRouteTable t = routeTable;
+        if (t == null) {
+            throw new RaftException("route table not loaded");
+        }
+        return t.route(key);
+    }
+
+    public void put(String key, byte[] value, DtTime timeout) {
+        kvClient.put(route(key), key, value, timeout);
+    }
+
+    public void put(String key, byte[] value, DtTime timeout, FutureCallback<Void> callback) {
+        kvClient.put(route(key), key, value, timeout, callback);
+    }
+
+    public KvNode get(String key, DtTime timeout) {
+        return kvClient.get(route(key), key, timeout);
+    }
+
+    public void get(String key, DtTime timeout, FutureCallback<KvNode> callback) {
+        kvClient.get(route(key), key, timeout, callback);
+    }
+
+    public void remove(String key, DtTime timeout) {
+        kvClient.remove(route(key), key, timeout);
+    }
+
+    public void remove(String key, DtTime timeout, FutureCallback<Void> callback) {
+        kvClient.remove(route(key), key, timeout, callback);
+    }
+
+    public void mkdir(String key, DtTime timeout) {
+        kvClient.mkdir(route(key), key, timeout);
+    }
+
+    public void mkdir(String key, DtTime timeout, FutureCallback<Void> callback) {
+        kvClient.mkdir(route(key), key, timeout, callback);
+    }
+
+    /**
+     * List the children of the dir. The root dir (empty key) is scattered to all groups.
+     */
+    public List<KvResult> list(String key, DtTime timeout) {
+        CompletableFuture<List<KvResult>> f = new CompletableFuture<>();
+        list(key, timeout, FutureCallback.fromFuture(f));
+        return waitFuture(f, timeout);
+    }
+
+    public void list(String key, DtTime timeout, FutureCallback<List<KvResult>> callback) {
+        Objects.requireNonNull(key);
+        if (!key.isEmpty()) {
+            kvClient.list(route(key), key, timeout, callback);
+            return;
+        }
+        KvRouteTable t = routeTable;
+        if (t == null) {
+            FutureCallback.callFail(callback, new RaftException("route table not loaded"));
+            return;
+        }
+        Integer[] groupIds = t.getGroups().keySet().toArray(new Integer[0]);
+        @SuppressWarnings("unchecked")
+        List<KvResult>[] results = new List[groupIds.length];
+        gather(groupIds.length, callback, (i, c) -> kvClient.list(groupIds[i], key, timeout,
+                new FutureCallback<List<KvResult>>() {
+                    @Override
+                    public void success(List<KvResult> result) {
+                        results[i] = result;
+                        c.success(null);
+                    }
+
+                    @Override
+                    public void fail(Throwable ex) {
+                        c.fail(ex);
+                    }
+                }), () -> {
+            ArrayList<KvResult> all = new ArrayList<>();
+            for (List<KvResult> r : results) {
+                if (r != null) {
+                    all.addAll(r);
+                }
+            }
+            return all;
+        });
+    }
+
+    /**
+     * Get multiple keys, the keys are scattered to their groups in parallel, the result is in same order
+     * of keys, and the element is null if the key not found.
+     */
+    public List<KvNode> batchGet(List<String> keys, DtTime timeout) {
+        CompletableFuture<List<KvNode>> f = new CompletableFuture<>();
+        batchGet(keys, timeout, FutureCallback.fromFuture(f));
+        return waitFuture(f, timeout);
+    }
+
+    public void batchGet(List<String> keys, DtTime timeout, FutureCallback<List<KvNode>> callback) {
+        KvNode[] results = new KvNode[keys.size()];
+        gather(keys.size(), callback, (i, c) -> get(keys.get(i), timeout, new FutureCallback<KvNode>() {
+            @Override
+            public void success(KvNode result) {
+                results[i] = result;
+                c.success(null);
+            }
+
+            @Override
+            public void fail(Throwable ex) {
+                c.fail(ex);
+            }
+        }), () -> Arrays.asList(results));
+    }
+
+    /**
+     * Put multiple keys, the keys are scattered to their groups in parallel. It's not atomic, some keys
+     * may be written if fail.
+     */
+    public void batchPut(List<String> keys, List<byte[]> values, DtTime timeout) {
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        batchPut(keys, values, timeout, FutureCallback.fromFuture(f));
+        waitFuture(f, timeout);
+    }
+
+    public void batchPut(List<String> keys, List<byte[]> values, DtTime timeout, FutureCallback<Void> callback) {
+        if (keys.size() != values.size()) {
+            throw new IllegalArgumentException("keys size not match values size");
+        }
+        gather(keys.size(), callback, (i, c) -> put(keys.get(i), values.get(i), timeout, c), () -> null);
+    }
+
+    private interface SubTask {
+        void run(int index, FutureCallback<Void> c);
+    }
+
+    private interface ResultBuilder<T> {
+        T build();
+    }
+
+    private static <T> void gather(int count, FutureCallback<T> callback, SubTask task, ResultBuilder<T> builder) {
+        if (count == 0) {
+            FutureCallback.callSuccess(callback, builder.build());
+            return;
+        }
+        AtomicInteger rest = new AtomicInteger(count);
+        FutureCallback<Void> c = new FutureCallback<Void>() {
+            @Override
+            public void success(Void result) {
+                if (rest.decrementAndGet() == 0) {
+                    FutureCallback.callSuccess(callback, builder.build());
+                }
+            }
+
+            @Override
+            public void fail(Throwable ex) {
+                // only the first failure is reported
+                if (rest.getAndSet(-1) > 0) {
+                    FutureCallback.callFail(callback, ex);
+                }
+            }
+        };
+        for (int i = 0; i < count; i++) {
+            try {
+                task.run(i, c);
+            } catch (RuntimeException e) {
+                c.fail(e);
+            }
+        }
+    }
+
+    private static <T> T waitFuture(CompletableFuture<T> f, DtTime timeout) {
+        try {
+            return f.get(timeout.getTimeout(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            DtUtil.restoreInterruptStatus();
+            throw new RaftException("interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RaftException("execution exception", e.getCause());
+        } catch (TimeoutException e) {
+            throw new RaftTimeoutException("timeout: " + timeout.getTimeout(TimeUnit.MILLISECONDS) + "ms", e);
+        } catch (Exception e) {
+            throw new RaftException("execution exception", e);
+        }
+    }
+
+    public KvClient getKvClient() {
+        return kvClient;
+    }
+}
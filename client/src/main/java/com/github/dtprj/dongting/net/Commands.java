@@ -40,10 +40,37 @@ public interface Commands {
     int RAFT_ADMIN_PREPARE_CHANGE = 107;
     int RAFT_ADMIN_COMMIT_CHANGE = 108;
     int RAFT_ADMIN_ABORT_CHANGE = 109;
+    int RAFT_QUERY_FIBER_PROFILE = 110;
+    int RAFT_APPEND_ENTRIES_BATCH = 111; // append requests of multiple groups to same node
+    int RAFT_DONATE_SNAPSHOT = 112; // from leader to a follower, let it send snapshot to the member need install
 
 
     // 120 ~ 139 for dt kv
     int DTKV_REMOVE = 120;
     int DTKV_MKDIR = 121;
     int DTKV_LIST = 122;
+    int DTKV_SPLIT_FENCE = 123; // from admin tool to the source group of a split
+    int DTKV_SPLIT_COMMIT = 124;
+    int DTKV_SPLIT_ABORT = 125;
+
+    /**
+     * Control commands are small and latency sensitive, they are written before normal packets
+     * queued in the same channel, so heartbeats and votes are not queued behind large append requests.
+     * Packets are not split into fragments, so a control command still waits for the packet being written
+     * (up to RaftGroupConfig.maxReplicateBytes for an append request) to finish.
+     */
+    static boolean isHighPriority(int command) {
+        switch (command) {
+            // handshake must be the first packet, it is always enqueued first, and should not be passed by others
+            case CMD_HANDSHAKE:
+            case CMD_HEARTBEAT:
+            case NODE_PING:
+            case RAFT_PING:
+            case RAFT_REQUEST_VOTE:
+            case RAFT_TRANSFER_LEADER:
+                return true;
+            default:
+                return false;
+        }
+    }
 }
@@ -17,6 +17,7 @@ package com.github.dtprj.dongting.net;
 
 import com.github.dtprj.dongting.codec.DecodeContext;
 import com.github.dtprj.dongting.codec.DecoderCallback;
+import com.github.dtprj.dongting.codec.Lz4Codec;
 import com.github.dtprj.dongting.codec.PbCallback;
 import com.github.dtprj.dongting.codec.PbException;
 import com.github.dtprj.dongting.common.BitUtil;
@@ -63,6 +64,10 @@ class DtChannelImpl extends PbCallback<Object> implements DtChannel {
     private ReqProcessor processorForRequest;
     private int currentReadPacketSize;
     private DecoderCallback currentDecoderCallback;
+    private int readCompressType;
+
+    // compress type used to write packets, negotiated in handshake, accessed in io thread
+    int compressType;
 
     final IoChannelQueue subQueue;
 
@@ -115,6 +120,7 @@ class DtChannelImpl extends PbCallback<Object> implements DtChannel {
         requestForResp = null;
         processorForRequest = null;
         currentDecoderCallback = null;
+        readCompressType = Packet.COMPRESS_NONE;
     }
 
     @Override
@@ -167,6 +173,9 @@ class DtChannelImpl extends PbCallback<Object> implements DtChannel {
             case Packet.IDX_BIZ_CODE:
                 packet.bizCode = (int) value;
                 break;
+            case Packet.IDX_COMPRESS:
+                readCompressType = (int) value;
+                break;
         }
         return true;
     }
@@ -211,6 +220,15 @@ class DtChannelImpl extends PbCallback<Object> implements DtChannel {
                 if (currentPos == 0 && currentDecoderCallback != null) {
                     throw new IllegalStateException("currentDecoder is not null");
                 }
+                if (readCompressType != Packet.COMPRESS_NONE) {
+                    byte[] compressed = parseBytes(buf, fieldLen, currentPos);
+                    if (compressed == null) {
+                        // not finished
+                        return true;
+                    }
+                    ByteBuffer raw = decompress(compressed);
+                    return readBody(raw, raw.remaining(), 0, true);
+                }
                 boolean end = buf.remaining() >= fieldLen - currentPos;
                 return readBody(buf, fieldLen, currentPos, end);
             }
@@ -220,6 +238,23 @@ class DtChannelImpl extends PbCallback<Object> implements DtChannel {
 
     }
 
+    private ByteBuffer decompress(byte[] compressed) {
+        if (readCompressType != Packet.COMPRESS_LZ4) {
+            throw new NetException("unknown compress type: " + readCompressType);
+        }
+        if (compressed.length < 4) {
+            throw new NetException("bad compressed body");
+        }
+        int rawSize = ByteBuffer.wrap(compressed).getInt();
+        if (rawSize < 0 || rawSize > nioConfig.getMaxBodySize()) {
+            throw new NetException("decompressed body size " + rawSize
+                    + " exceeds max body size " + nioConfig.getMaxBodySize());
+        }
+        byte[] raw = new byte[rawSize];
+        Lz4Codec.decompress(compressed, 4, compressed.length - 4, raw, 0, rawSize);
+        return ByteBuffer.wrap(raw);
+    }
+
     private boolean readBody(ByteBuffer buf, int fieldLen, int currentPos, boolean end) {
         if (packet.getCommand() <= 0) {
             throw new NetException("command invalid :" + packet.getCommand());
@@ -438,7 +473,8 @@ class DtChannelImpl extends PbCallback<Object> implements DtChannel {
 
     @Override
     public Peer getPeer() {
-        return peer;
+        // return the peer object which user holds
+        return peer == null ? null : peer.primary;
     }
 
     public boolean isClosed() {
@@ -32,6 +32,8 @@ public class HandshakeBody extends PbCallback<HandshakeBody> implements SimpleEn
 
     int majorVersion;
     int minorVersion;
+    // request: compress type supported by client, response: compress type accepted by server
+    int compressType;
     ConfigBody config;
 
     @Override
@@ -65,6 +67,9 @@ public class HandshakeBody extends PbCallback<HandshakeBody> implements SimpleEn
             case 4:
                 minorVersion = (int) value;
                 break;
+            case 5:
+                compressType = (int) value;
+                break;
         }
         return true;
     }
@@ -84,6 +89,7 @@ public class HandshakeBody extends PbCallback<HandshakeBody> implements SimpleEn
                 + PbUtil.accurateFix64Size(2, MAGIC2)
                 + PbUtil.accurateUnsignedIntSize(3, majorVersion)
                 + PbUtil.accurateUnsignedIntSize(4, minorVersion)
+                + PbUtil.accurateUnsignedIntSize(5, compressType)
                 + EncodeUtil.actualSize(8, config);
     }
 
@@ -93,6 +99,7 @@ public class HandshakeBody extends PbCallback<HandshakeBody> implements SimpleEn
         PbUtil.writeFix64(buf, 2, MAGIC2);
         PbUtil.writeUnsignedInt32(buf, 3, majorVersion);
         PbUtil.writeUnsignedInt32(buf, 4, minorVersion);
+        PbUtil.writeUnsignedInt32(buf, 5, compressType);
         EncodeUtil.encode(buf, 8, config);
     }
 }
@@ -53,6 +53,11 @@ class HandshakeProcessor extends ReqProcessor<HandshakeBody> {
         if (config.isServerHint()) {
             hb.config = buildServerHint();
         }
+        HandshakeBody req = packet.getBody();
+        if (req != null && req.compressType == Packet.COMPRESS_LZ4 && config.getCompressThreshold() > 0) {
+            hb.compressType = Packet.COMPRESS_LZ4;
+            dtc.compressType = Packet.COMPRESS_LZ4;
+        }
 
         SimpleWritePacket p = new SimpleWritePacket(hb);
         p.setRespCode(CmdCodes.SUCCESS);
@@ -26,21 +26,40 @@ public class HostPort implements Serializable {
 
     private final String host;
     private final int port;
+    // if true, host is the path of unix domain socket, and port is not used
+    private final boolean unixDomain;
     private String toStr;
 
     public HostPort(String host, int port) {
+        this(host, port, false);
+    }
+
+    private HostPort(String host, int port, boolean unixDomain) {
         this.host = host;
         this.port = port;
+        this.unixDomain = unixDomain;
+    }
+
+    /**
+     * Create a unix domain socket endpoint, requires JDK16+.
+     */
+    public static HostPort unixDomain(String path) {
+        Objects.requireNonNull(path);
+        return new HostPort(path, 0, true);
     }
 
     @Override
     public String toString() {
         if (toStr == null) {
-            toStr = "[" + host + "," + port + "]";
+            toStr = unixDomain ? "[unix:" + host + "]" : "[" + host + "," + port + "]";
         }
         return toStr;
     }
 
+    public boolean isUnixDomain() {
+        return unixDomain;
+    }
+
     public int getPort() {
         return port;
     }
@@ -51,14 +70,15 @@ public class HostPort implements Serializable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(host, port);
+        return Objects.hash(host, port, unixDomain);
     }
 
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof HostPort) {
             HostPort o = (HostPort) obj;
-            return Objects.equals(o.host, this.host) && o.port == this.port;
+            return Objects.equals(o.host, this.host) && o.port == this.port
+                    && o.unixDomain == this.unixDomain;
         }
         return false;
     }
@@ -18,6 +18,7 @@ package com.github.dtprj.dongting.net;
 import com.github.dtprj.dongting.buf.ByteBufferPool;
 import com.github.dtprj.dongting.buf.RefBufferFactory;
 import com.github.dtprj.dongting.codec.EncodeContext;
+import com.github.dtprj.dongting.codec.Lz4Codec;
 import com.github.dtprj.dongting.common.BitUtil;
 import com.github.dtprj.dongting.common.DtTime;
 import com.github.dtprj.dongting.common.PerfCallback;
@@ -51,6 +52,8 @@ class IoChannelQueue {
     private int packetsInBuffer;
 
     private final ArrayDeque<WriteData> subQueue = new ArrayDeque<>();
+    // always drained before subQueue, at packet boundary
+    private final ArrayDeque<WriteData> highQueue = new ArrayDeque<>();
     private int subQueueBytes;
     private boolean writing;
 
@@ -59,12 +62,30 @@ class IoChannelQueue {
 
     private final PerfCallback perfCallback;
 
+    // client side micro-batching, see NioClientConfig.batchWriteDelayNanos
+    private final long batchDelayNanos;
+    private final int batchBytes;
+    boolean batchPending;
+    long batchStartNanos;
+
+    private final int compressThreshold;
+    private Lz4Codec lz4;
+
     public IoChannelQueue(NioConfig config, WorkerStatus workerStatus, DtChannelImpl dtc, RefBufferFactory heapPool) {
         this.directPool = workerStatus.getDirectPool();
         this.workerStatus = workerStatus;
         this.dtc = dtc;
         this.encodeContext = new EncodeContext(heapPool);
         this.perfCallback = config.getPerfCallback();
+        this.compressThreshold = config.getCompressThreshold();
+        if (config instanceof NioClientConfig) {
+            NioClientConfig c = (NioClientConfig) config;
+            this.batchDelayNanos = c.getBatchWriteDelayNanos();
+            this.batchBytes = c.getBatchWriteBytes();
+        } else {
+            this.batchDelayNanos = 0;
+            this.batchBytes = 0;
+        }
     }
 
     public void setRegisterForWrite(Runnable registerForWrite) {
@@ -80,18 +101,52 @@ class IoChannelQueue {
         wf.use = true;
 
         writeData.perfTime = perfCallback.takeTime(PerfConsts.RPC_D_CHANNEL_QUEUE);
-        subQueue.addLast(writeData);
+        boolean high = wf.isHighPriority();
+        if (high) {
+            highQueue.addLast(writeData);
+        } else {
+            subQueue.addLast(writeData);
+        }
 
         // the subQueueBytes is not accurate
         // can't invoke actualSize() here because seq and timeout field is not set yet
         subQueueBytes += writeData.estimateSize;
-        if (subQueue.size() == 1 && !writing) {
-            registerForWrite.run();
+        if (subQueue.size() + highQueue.size() == 1 && !writing) {
+            if (!high && batchDelayNanos > 0 && subQueueBytes < batchBytes) {
+                // hold the write, more packets may come soon
+                batchPending = true;
+                batchStartNanos = System.nanoTime();
+                workerStatus.getWorker().addBatchQueue(this);
+            } else {
+                registerForWrite.run();
+            }
+        } else if (batchPending && (high || subQueueBytes >= batchBytes)) {
+            flushBatch();
         }
         workerStatus.addPacketsToWrite(1);
     }
 
+    /**
+     * return true if the batch is flushed or cancelled, called by NioWorker.
+     */
+    boolean checkBatch(long nanos, boolean force) {
+        if (!batchPending) {
+            return true;
+        }
+        if (force || nanos - batchStartNanos >= batchDelayNanos) {
+            flushBatch();
+            return true;
+        }
+        return false;
+    }
+
+    private void flushBatch() {
+        batchPending = false;
+        registerForWrite.run();
+    }
+
     public void cleanChannelQueue() {
+        batchPending = false;
         if (packetsInBuffer > 0) {
             workerStatus.addPacketsToWrite(-packetsInBuffer);
         }
@@ -105,6 +160,10 @@ class IoChannelQueue {
             lastWriteData.callFail(true, new NetException("channel closed, cancel request still in IoChannelQueue. 1"));
         }
         WriteData wd;
+        while ((wd = highQueue.pollFirst()) != null) {
+            wd.callFail(true, new NetException("channel closed, cancel request still in IoChannelQueue. 2"));
+            workerStatus.addPacketsToWrite(-1);
+        }
         while ((wd = subQueue.pollFirst()) != null) {
             wd.callFail(true, new NetException("channel closed, cancel request still in IoChannelQueue. 2"));
             workerStatus.addPacketsToWrite(-1);
@@ -128,7 +187,8 @@ class IoChannelQueue {
         }
         int subQueueBytes = this.subQueueBytes;
         ArrayDeque<WriteData> subQueue = this.subQueue;
-        if (subQueue.isEmpty() && lastWriteData == null) {
+        ArrayDeque<WriteData> highQueue = this.highQueue;
+        if (subQueue.isEmpty() && highQueue.isEmpty() && lastWriteData == null) {
             // no packet to write
             return null;
         }
@@ -136,10 +196,11 @@ class IoChannelQueue {
 
         WriteData wd = this.lastWriteData;
         try {
-            while (!subQueue.isEmpty() || wd != null) {
+            while (!subQueue.isEmpty() || !highQueue.isEmpty() || wd != null) {
                 int encodeResult;
                 if (wd == null) {
-                    wd = subQueue.pollFirst();
+                    // the packet can't be split, so high priority packets are written after current packet finished
+                    wd = highQueue.isEmpty() ? subQueue.pollFirst() : highQueue.pollFirst();
                     perfCallback.fireTime(PerfConsts.RPC_D_CHANNEL_QUEUE, wd.perfTime);
                     encodeResult = encode(buf, wd, roundTime);
                 } else {
@@ -210,6 +271,7 @@ class IoChannelQueue {
             return null;
         } else {
             this.writeBuffer = buf;
+            perfCallback.fire(PerfConsts.RPC_C_WRITE_BATCH, packetsInBuffer, buf.remaining());
             return buf;
         }
     }
@@ -237,6 +299,13 @@ class IoChannelQueue {
             f.setTimeout(rest);
         }
         encodeContext.reset();
+        if (dtc.compressType == Packet.COMPRESS_LZ4 && f.actualBodySize() >= compressThreshold) {
+            if (lz4 == null) {
+                lz4 = new Lz4Codec();
+            }
+            f.compressBody(encodeContext, lz4);
+            encodeContext.reset();
+        }
         return doEncode(buf, wd);
     }
 
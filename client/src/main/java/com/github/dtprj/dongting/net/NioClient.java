@@ -18,6 +18,7 @@ package com.github.dtprj.dongting.net;
 import com.github.dtprj.dongting.codec.DecoderCallbackCreator;
 import com.github.dtprj.dongting.common.DtTime;
 import com.github.dtprj.dongting.common.DtUtil;
+import com.github.dtprj.dongting.common.ThreadAffinity;
 import com.github.dtprj.dongting.log.BugLog;
 import com.github.dtprj.dongting.log.DtLog;
 import com.github.dtprj.dongting.log.DtLogs;
@@ -44,6 +45,9 @@ public class NioClient extends NioNet {
 
     private final NioClientConfig config;
     final NioWorker worker;
+    final NioWorker[] workers;
+    private int workerIndex;
+    private int peerIndex;
 
     //TODO use set?
     private final CopyOnWriteArrayList<Peer> peers;
@@ -54,15 +58,62 @@ public class NioClient extends NioNet {
     public NioClient(NioClientConfig config) {
         super(config);
         this.config = config;
+        int ioThreads = Math.max(config.getIoThreads(), 1);
+        this.workers = new NioWorker[ioThreads];
+        for (int i = 0; i < ioThreads; i++) {
+            String workerName = ioThreads == 1 ? config.getName() + "IoWorker" : config.getName() + "IoWorker" + i;
+            workers[i] = new NioWorker(nioStatus, workerName, config, this);
+            workers[i].cpuAffinity = ThreadAffinity.select(config.getIoThreadCpuAffinity(), i);
+        }
+        this.worker = workers[0];
         ArrayList<Peer> list = new ArrayList<>();
         if (config.getHostPorts() != null) {
             for (HostPort hp : config.getHostPorts()) {
-                Peer p = new Peer(hp, this);
-                list.add(p);
+                list.add(createPeer(hp));
             }
         }
         this.peers = new CopyOnWriteArrayList<>(list);
-        this.worker = new NioWorker(nioStatus, config.getName() + "IoWorker", config, this);
+    }
+
+    // called in constructor or io thread of first worker
+    private Peer createPeer(HostPort hp) {
+        int count = Math.max(config.getConnectionsPerPeer(), 1);
+        // if io threads bind to cpus, the connection i of every peer use worker i, so the channels of same route key
+        // are served by the same worker
+        int base = count > 1 && config.getIoThreadCpuAffinity() != null ? 0 : peerIndex++;
+        Peer p = new Peer(hp, this, workers[base % workers.length], null);
+        Peer[] connections = new Peer[count];
+        connections[0] = p;
+        for (int i = 1; i < count; i++) {
+            connections[i] = new Peer(hp, this, workers[(base + i) % workers.length], p);
+        }
+        p.connections = connections;
+        return p;
+    }
+
+    private NioWorker selectWorker() {
+        NioWorker[] workers = this.workers;
+        if (workers.length == 1) {
+            return workers[0];
+        }
+        // not thread safe, but it's ok
+        int idx = workerIndex;
+        if (idx >= workers.length) {
+            idx = 0;
+        }
+        // the request without peer uses the channels of the selected worker, if there are more io threads than
+        // connections, skip the workers which have no available channel
+        for (int i = 0; i < workers.length; i++) {
+            NioWorker w = workers[idx];
+            idx = idx + 1 >= workers.length ? 0 : idx + 1;
+            if (w.handshakeChannels > 0) {
+                workerIndex = idx;
+                return w;
+            }
+        }
+        // no available channel, the request fails in the worker
+        workerIndex = idx + 1 >= workers.length ? 0 : idx + 1;
+        return workers[idx];
     }
 
     @Override
@@ -70,9 +121,11 @@ public class NioClient extends NioNet {
         startDeadline = new DtTime(config.getWaitStartTimeout(), TimeUnit.MILLISECONDS);
         startFutures = new ArrayList<>();
         initBizExecutor();
-        worker.start();
+        for (NioWorker w : workers) {
+            w.start();
+        }
         for (Peer peer : peers) {
-            startFutures.add(worker.connect(peer, startDeadline));
+            startFutures.add(connect0(peer, startDeadline));
         }
     }
 
@@ -147,20 +200,20 @@ public class NioClient extends NioNet {
     public <T> ReadPacket<T> sendRequest(Peer peer, WritePacket request, DecoderCallbackCreator<T> decoder, DtTime timeout) {
         Objects.requireNonNull(decoder);
         CompletableFuture<ReadPacket<T>> f = new CompletableFuture<>();
-        send(worker, peer, request, decoder, timeout, RpcCallback.fromFuture(f));
+        send(selectWorker(), peer, request, decoder, timeout, RpcCallback.fromFuture(f));
         return waitFuture(f, timeout);
     }
 
     public <T> void sendRequest(WritePacket request, DecoderCallbackCreator<T> decoder,
                                 DtTime timeout, RpcCallback<T> callback) {
         Objects.requireNonNull(decoder);
-        send(worker, null, request, decoder, timeout, callback);
+        send(selectWorker(), null, request, decoder, timeout, callback);
     }
 
     public <T> void sendRequest(Peer peer, WritePacket request, DecoderCallbackCreator<T> decoder,
                                 DtTime timeout, RpcCallback<T> callback) {
         Objects.requireNonNull(decoder);
-        send(worker, peer, request, decoder, timeout, callback);
+        send(selectWorker(), peer, request, decoder, timeout, callback);
     }
 
     public CompletableFuture<Void> sendOneWay(WritePacket request, DtTime timeout) {
@@ -169,7 +222,7 @@ public class NioClient extends NioNet {
 
     public CompletableFuture<Void> sendOneWay(Peer peer, WritePacket request, DtTime timeout) {
         CompletableFuture<Void> f = new CompletableFuture<>();
-        send(worker, peer, request, null, timeout, new RpcCallback<Object>() {
+        send(selectWorker(), peer, request, null, timeout, new RpcCallback<Object>() {
             @Override
             public void success(ReadPacket<Object> resp) {
                 f.complete(null);
@@ -184,17 +237,21 @@ public class NioClient extends NioNet {
     }
 
     public <T> void sendOneWay(WritePacket request, DtTime timeout, RpcCallback<T> callback) {
-        send(worker, null, request, null, timeout, callback);
+        send(selectWorker(), null, request, null, timeout, callback);
     }
 
     public <T> void sendOneWay(Peer peer, WritePacket request, DtTime timeout, RpcCallback<T> callback) {
-        send(worker, peer, request, null, timeout, callback);
+        send(selectWorker(), peer, request, null, timeout, callback);
     }
 
     @Override
     protected void doStop(DtTime timeout, boolean force) {
         if (!force) {
-            CompletableFuture<Void> pf = worker.prepareStop(timeout);
+            CompletableFuture<?>[] fs = new CompletableFuture[workers.length];
+            for (int i = 0; i < workers.length; i++) {
+                fs[i] = workers[i].prepareStop(timeout);
+            }
+            CompletableFuture<Void> pf = CompletableFuture.allOf(fs);
             try {
                 long rest = timeout.rest(TimeUnit.MILLISECONDS);
                 if (rest > 0) {
@@ -202,22 +259,26 @@ public class NioClient extends NioNet {
                     log.info("client {} pre-stop done", config.getName());
                 } else {
                     log.warn("client {} pre-stop timeout. {}ms", config.getName(), timeout.getTimeout(TimeUnit.MILLISECONDS));
-                    worker.logWorkerStatus();
+                    logWorkerStatus();
                 }
             } catch (InterruptedException e) {
                 DtUtil.restoreInterruptStatus();
             } catch (TimeoutException e) {
                 log.warn("client {} pre-stop timeout. {}ms", config.getName(), timeout.getTimeout(TimeUnit.MILLISECONDS));
-                worker.logWorkerStatus();
+                logWorkerStatus();
             } catch (ExecutionException e) {
                 BugLog.log(e);
             }
         }
-        stopWorker(worker, timeout);
+        for (NioWorker w : workers) {
+            stopWorker(w, timeout);
+        }
         try {
-            long rest = timeout.rest(TimeUnit.MILLISECONDS);
-            if (rest > 0) {
-                worker.getThread().join(rest);
+            for (NioWorker w : workers) {
+                long rest = timeout.rest(TimeUnit.MILLISECONDS);
+                if (rest > 0) {
+                    w.getThread().join(rest);
+                }
             }
         } catch (InterruptedException e) {
             DtUtil.restoreInterruptStatus();
@@ -227,14 +288,20 @@ public class NioClient extends NioNet {
         log.info("client {} stopped", config.getName());
     }
 
+    private void logWorkerStatus() {
+        for (NioWorker w : workers) {
+            w.logWorkerStatus();
+        }
+    }
+
     public List<Peer> getPeers() {
         return Collections.unmodifiableList(peers);
     }
 
     public CompletableFuture<Peer> addPeer(HostPort hostPort) {
         Objects.requireNonNull(hostPort);
-        Peer peer = new Peer(hostPort, this);
         CompletableFuture<Peer> f = new CompletableFuture<>();
+        // the peers list is modified in the first worker thread
         worker.doInIoThread(() -> {
             for (Peer p : peers) {
                 if (p.getEndPoint().equals(hostPort)) {
@@ -242,6 +309,7 @@ public class NioClient extends NioNet {
                     return;
                 }
             }
+            Peer peer = createPeer(hostPort);
             peers.add(peer);
             f.complete(peer);
         }, f);
@@ -262,13 +330,39 @@ public class NioClient extends NioNet {
     }
 
     private void removePeer(Peer peer, CompletableFuture<Void> f) {
-        if (peer.dtChannel != null) {
-            worker.close(peer.dtChannel);
-        }
         peers.remove(peer);
-        peer.cleanWaitingConnectList(wd -> new NetException("peer removed"));
-        peer.status = PeerStatus.removed;
-        f.complete(null);
+        Peer[] connections = peer.connections;
+        if (connections.length == 1 && peer.worker == worker) {
+            removeConnection(peer);
+            f.complete(null);
+            return;
+        }
+        CompletableFuture<?>[] fs = new CompletableFuture[connections.length];
+        for (int i = 0; i < connections.length; i++) {
+            Peer c = connections[i];
+            CompletableFuture<Void> cf = new CompletableFuture<>();
+            c.worker.doInIoThread(() -> {
+                removeConnection(c);
+                cf.complete(null);
+            }, cf);
+            fs[i] = cf;
+        }
+        CompletableFuture.allOf(fs).whenComplete((v, ex) -> {
+            if (ex != null) {
+                f.completeExceptionally(ex);
+            } else {
+                f.complete(null);
+            }
+        });
+    }
+
+    // called in io thread of the connection
+    private void removeConnection(Peer c) {
+        if (c.dtChannel != null) {
+            c.worker.close(c.dtChannel);
+        }
+        c.cleanWaitingConnectList(wd -> new NetException("peer removed"));
+        c.status = PeerStatus.removed;
     }
 
     public CompletableFuture<Void> removePeer(HostPort hp) {
@@ -291,14 +385,17 @@ public class NioClient extends NioNet {
         return f;
     }
 
-    // if ts is null, then clean all
-    void cleanWaitConnectReq(Function<WriteData, NetException> exceptionSupplier) {
+    // called in io thread, only clean connections owned by the worker
+    void cleanWaitConnectReq(NioWorker w, Function<WriteData, NetException> exceptionSupplier) {
         // O(n)
         List<Peer> list = this.peers;
         //noinspection ForLoopReplaceableByForEach
         for (int i = 0, size = list.size(); i < size; i++) {
-            Peer p = list.get(i);
-            p.cleanWaitingConnectList(exceptionSupplier);
+            for (Peer c : list.get(i).connections) {
+                if (c.worker == w) {
+                    c.cleanWaitingConnectList(exceptionSupplier);
+                }
+            }
         }
     }
 
@@ -307,12 +404,32 @@ public class NioClient extends NioNet {
      */
     public CompletableFuture<Void> connect(Peer peer, DtTime deadline) {
         checkOwner(peer);
-        return worker.connect(peer, deadline);
+        return connect0(peer, deadline);
+    }
+
+    private CompletableFuture<Void> connect0(Peer peer, DtTime deadline) {
+        Peer[] connections = peer.connections;
+        if (connections.length == 1) {
+            return peer.worker.connect(peer, deadline);
+        }
+        CompletableFuture<?>[] fs = new CompletableFuture[connections.length];
+        for (int i = 0; i < connections.length; i++) {
+            fs[i] = connections[i].worker.connect(connections[i], deadline);
+        }
+        return CompletableFuture.allOf(fs);
     }
 
     public CompletableFuture<Void> disconnect(Peer peer) {
         checkOwner(peer);
-        return worker.disconnect(peer);
+        Peer[] connections = peer.connections;
+        if (connections.length == 1) {
+            return peer.worker.disconnect(peer);
+        }
+        CompletableFuture<?>[] fs = new CompletableFuture[connections.length];
+        for (int i = 0; i < connections.length; i++) {
+            fs[i] = connections[i].worker.disconnect(connections[i]);
+        }
+        return CompletableFuture.allOf(fs);
     }
 
     private void checkOwner(Peer peer) {
@@ -21,10 +21,25 @@ import java.util.List;
  * @author huangli
  */
 public class NioClientConfig extends NioConfig {
+    public static final int SELECT_ROUND_ROBIN = 0;
+    public static final int SELECT_LEAST_PENDING = 1;
+
     private List<HostPort> hostPorts;
     private int waitStartTimeout = 2000;
     private int[] connectRetryIntervals = {100, 1000, 5000, 10 * 1000, 20 * 1000, 30 * 1000, 60 * 1000};
 
+    private int ioThreads = 1;
+    // each connection of a peer is bound to a io worker, so traffic to the same server can use multi cores
+    private int connectionsPerPeer = 1;
+    // used if the packet has no route key
+    private int connectionSelectPolicy = SELECT_ROUND_ROBIN;
+
+    // hold writes of an idle connection for at most this time (should be a few microseconds),
+    // so several packets can share one write syscall, 0 means disabled
+    private long batchWriteDelayNanos = 0;
+    // if batching is enabled, flush immediately when the queued bytes of a connection reach this threshold
+    private int batchWriteBytes = 16 * 1024;
+
     public NioClientConfig() {
         setName("DtNioClient");
         setBizThreads(Runtime.getRuntime().availableProcessors());
@@ -58,4 +73,44 @@ public class NioClientConfig extends NioConfig {
     public void setConnectRetryIntervals(int[] connectRetryIntervals) {
         this.connectRetryIntervals = connectRetryIntervals;
     }
+
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    public void setIoThreads(int ioThreads) {
+        this.ioThreads = ioThreads;
+    }
+
+    public int getConnectionsPerPeer() {
+        return connectionsPerPeer;
+    }
+
+    public void setConnectionsPerPeer(int connectionsPerPeer) {
+        this.connectionsPerPeer = connectionsPerPeer;
+    }
+
+    public int getConnectionSelectPolicy() {
+        return connectionSelectPolicy;
+    }
+
+    public void setConnectionSelectPolicy(int connectionSelectPolicy) {
+        this.connectionSelectPolicy = connectionSelectPolicy;
+    }
+
+    public long getBatchWriteDelayNanos() {
+        return batchWriteDelayNanos;
+    }
+
+    public void setBatchWriteDelayNanos(long batchWriteDelayNanos) {
+        this.batchWriteDelayNanos = batchWriteDelayNanos;
+    }
+
+    public int getBatchWriteBytes() {
+        return batchWriteBytes;
+    }
+
+    public void setBatchWriteBytes(int batchWriteBytes) {
+        this.batchWriteBytes = batchWriteBytes;
+    }
 }
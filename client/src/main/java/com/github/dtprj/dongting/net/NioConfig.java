@@ -57,6 +57,14 @@ public abstract class NioConfig extends ConfigBase {
 
     private boolean serverHint = true;
 
+    // compress packet body (lz4) if the body size is not less than this value, 0 means disable.
+    // both client and server should enable it, the compression is negotiated in handshake.
+    private int compressThreshold = 0;
+
+    // cpu list (taskset format) of each io thread, the io worker i binds to ioThreadCpuAffinity[i % length].
+    // null means not bind. linux only and best effort (forks taskset), see ThreadAffinity.
+    private String[] ioThreadCpuAffinity;
+
     public int getBizThreads() {
         return bizThreads;
     }
@@ -193,4 +201,19 @@ public abstract class NioConfig extends ConfigBase {
         this.serverHint = serverHint;
     }
 
+    public int getCompressThreshold() {
+        return compressThreshold;
+    }
+
+    public void setCompressThreshold(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    public String[] getIoThreadCpuAffinity() {
+        return ioThreadCpuAffinity;
+    }
+
+    public void setIoThreadCpuAffinity(String[] ioThreadCpuAffinity) {
+        this.ioThreadCpuAffinity = ioThreadCpuAffinity;
+    }
 }
@@ -46,6 +46,7 @@ import java.util.concurrent.locks.ReentrantLock;
 @SuppressWarnings("Convert2Diamond")
 public abstract class NioNet extends AbstractLifeCircle {
     private static final DtLog log = DtLogs.getLogger(NioNet.class);
+    private static final String UNIX_PREFIX = "unix:";
     private final NioConfig config;
     final NioStatus nioStatus;
     protected volatile ExecutorService bizExecutor;
@@ -58,12 +59,15 @@ public abstract class NioNet extends AbstractLifeCircle {
     int pendingBytes;
 
     private final boolean server;
+    private final int selectPolicy;
 
     public NioNet(NioConfig config) {
         this.config = config;
         this.nioStatus = new NioStatus();
         this.perfCallback = config.getPerfCallback();
         this.server = config instanceof NioServerConfig;
+        this.selectPolicy = config instanceof NioClientConfig ?
+                ((NioClientConfig) config).getConnectionSelectPolicy() : NioClientConfig.SELECT_ROUND_ROBIN;
         if (config.getMaxPacketSize() < config.getMaxBodySize() + 128 * 1024) {
             throw new IllegalArgumentException("maxPacketSize should greater than maxBodySize plus 128KB.");
         }
@@ -143,6 +147,9 @@ public abstract class NioNet extends AbstractLifeCircle {
         }
         WriteData wd;
         if (peer != null) {
+            peer = peer.selectConnection(request, selectPolicy);
+            worker = peer.worker;
+            peer.inFlight.incrementAndGet();
             wd = new WriteData(peer, request, timeout, callback, decoder);
         } else {
             wd = new WriteData(dtc, request, timeout, callback, decoder);
@@ -286,7 +293,17 @@ public abstract class NioNet extends AbstractLifeCircle {
         }
     }
 
+    /**
+     * parse 'host:port' format, or 'unix:/path/to/socket' format for unix domain socket.
+     */
     public static HostPort parseHostPort(String hostPortStr) {
+        if (hostPortStr.trim().startsWith(UNIX_PREFIX)) {
+            String path = hostPortStr.trim().substring(UNIX_PREFIX.length()).trim();
+            if (path.isEmpty()) {
+                throw new IllegalArgumentException("no unix domain socket path:" + hostPortStr);
+            }
+            return HostPort.unixDomain(path);
+        }
         int x = hostPortStr.lastIndexOf(':');
         if (x < 0 || x == hostPortStr.length() - 1) {
             throw new IllegalArgumentException("not 'host:port' format:" + hostPortStr);
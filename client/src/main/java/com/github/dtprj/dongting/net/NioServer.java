@@ -21,11 +21,13 @@ import com.github.dtprj.dongting.codec.DecoderCallback;
 import com.github.dtprj.dongting.codec.DecoderCallbackCreator;
 import com.github.dtprj.dongting.common.DtTime;
 import com.github.dtprj.dongting.common.DtUtil;
+import com.github.dtprj.dongting.common.ThreadAffinity;
 import com.github.dtprj.dongting.log.DtLog;
 import com.github.dtprj.dongting.log.DtLogs;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.net.StandardSocketOptions;
 import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.SelectionKey;
@@ -33,6 +35,8 @@ import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.spi.SelectorProvider;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.concurrent.CompletableFuture;
@@ -47,6 +51,9 @@ public class NioServer extends NioNet implements Runnable {
 
     private final NioServerConfig config;
     private ServerSocketChannel ssc;
+    private ServerSocketChannel unixSsc;
+    // the socket file is created by this server, should be removed when stop
+    private boolean unixSocketBound;
     private Selector selector;
     private volatile boolean stop;
     private final Thread acceptThread;
@@ -55,7 +62,7 @@ public class NioServer extends NioNet implements Runnable {
     public NioServer(NioServerConfig config) {
         super(config);
         this.config = config;
-        if (config.getPort() <= 0) {
+        if (config.getPort() <= 0 && config.getUnixDomainSocketPath() == null) {
             throw new IllegalArgumentException("no port");
         }
         acceptThread = new Thread(this);
@@ -63,6 +70,7 @@ public class NioServer extends NioNet implements Runnable {
         workers = new NioWorker[config.getIoThreads()];
         for (int i = 0; i < workers.length; i++) {
             workers[i] = new NioWorker(nioStatus, config.getName() + "IoWorker" + i, config, null);
+            workers[i].cpuAffinity = ThreadAffinity.select(config.getIoThreadCpuAffinity(), i);
         }
         register(Commands.CMD_PING, new PingProcessor());
         register(Commands.CMD_HANDSHAKE, new HandshakeProcessor(config), null);
@@ -71,14 +79,27 @@ public class NioServer extends NioNet implements Runnable {
     @Override
     public void doStart() {
         try {
-            ssc = ServerSocketChannel.open();
-            ssc.configureBlocking(false);
-            ssc.setOption(StandardSocketOptions.SO_REUSEADDR, true);
-            ssc.bind(new InetSocketAddress(config.getPort()), config.getBacklog());
             selector = SelectorProvider.provider().openSelector();
-            ssc.register(selector, SelectionKey.OP_ACCEPT);
-
-            log.info("{} listen at port {}", config.getName(), config.getPort());
+            if (config.getPort() > 0) {
+                ssc = ServerSocketChannel.open();
+                ssc.configureBlocking(false);
+                ssc.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+                ssc.bind(new InetSocketAddress(config.getPort()), config.getBacklog());
+                ssc.register(selector, SelectionKey.OP_ACCEPT);
+                log.info("{} listen at port {}", config.getName(), config.getPort());
+            }
+            String path = config.getUnixDomainSocketPath();
+            if (path != null) {
+                SocketAddress addr = UnixDomainSockets.address(path);
+                // remove the socket file left by last run, otherwise bind fails
+                UnixDomainSockets.removeStaleSocketFile(path);
+                unixSsc = UnixDomainSockets.openServerChannel();
+                unixSsc.configureBlocking(false);
+                unixSsc.bind(addr, config.getBacklog());
+                unixSocketBound = true;
+                unixSsc.register(selector, SelectionKey.OP_ACCEPT);
+                log.info("{} listen at unix domain socket {}", config.getName(), path);
+            }
 
             initBizExecutor();
             for (NioWorker worker : workers) {
@@ -96,7 +117,7 @@ public class NioServer extends NioNet implements Runnable {
         }
         try {
             selector.close();
-            ssc.close();
+            closeServerChannels();
             log.info("accept thread finished: {}", config.getName());
         } catch (Exception e) {
             log.error("close error. name={}, port={}", config.getName(), config.getPort(), e);
@@ -118,7 +139,10 @@ public class NioServer extends NioNet implements Runnable {
                     continue;
                 }
                 if (key.isAcceptable()) {
-                    SocketChannel sc = ssc.accept();
+                    SocketChannel sc = ((ServerSocketChannel) key.channel()).accept();
+                    if (sc == null) {
+                        continue;
+                    }
                     log.debug("accept new socket: {}", sc);
                     workers[sc.hashCode() % workers.length].newChannelAccept(sc);
                 }
@@ -194,15 +218,13 @@ public class NioServer extends NioNet implements Runnable {
         if (acceptThread.isAlive()) {
             stopAcceptThread();
         } else {
-            if (ssc != null && ssc.isOpen()) {
-                try {
-                    if (selector != null) {
-                        selector.close();
-                    }
-                    ssc.close();
-                } catch (IOException e) {
-                    log.error("", e);
+            try {
+                if (selector != null) {
+                    selector.close();
                 }
+                closeServerChannels();
+            } catch (IOException e) {
+                log.error("", e);
             }
         }
         for (NioWorker worker : workers) {
@@ -212,6 +234,19 @@ public class NioServer extends NioNet implements Runnable {
         log.warn("force stop done");
     }
 
+    private void closeServerChannels() throws IOException {
+        if (ssc != null && ssc.isOpen()) {
+            ssc.close();
+        }
+        if (unixSsc != null && unixSsc.isOpen()) {
+            unixSsc.close();
+            if (unixSocketBound) {
+                unixSocketBound = false;
+                Files.deleteIfExists(Paths.get(config.getUnixDomainSocketPath()));
+            }
+        }
+    }
+
     public <T> void sendRequest(DtChannel dtc, WritePacket request, DecoderCallbackCreator<T> decoder,
                                 DtTime timeout, RpcCallback<T> callback) {
         push((DtChannelImpl) dtc, request, decoder, timeout, callback);
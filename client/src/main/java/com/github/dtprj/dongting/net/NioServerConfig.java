@@ -20,6 +20,8 @@ package com.github.dtprj.dongting.net;
  */
 public class NioServerConfig extends NioConfig {
     private int port;
+    // if not null, also listen on this unix domain socket path (requires JDK16+), for co-located clients
+    private String unixDomainSocketPath;
     private int ioThreads;
     private int backlog = 4096;
 
@@ -66,6 +68,14 @@ public class NioServerConfig extends NioConfig {
         this.port = port;
     }
 
+    public String getUnixDomainSocketPath() {
+        return unixDomainSocketPath;
+    }
+
+    public void setUnixDomainSocketPath(String unixDomainSocketPath) {
+        this.unixDomainSocketPath = unixDomainSocketPath;
+    }
+
     public int getIoThreads() {
         return ioThreads;
     }
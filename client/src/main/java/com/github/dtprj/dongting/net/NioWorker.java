@@ -26,6 +26,7 @@ import com.github.dtprj.dongting.common.LongObjMap;
 import com.github.dtprj.dongting.common.Pair;
 import com.github.dtprj.dongting.common.PerfCallback;
 import com.github.dtprj.dongting.common.PerfConsts;
+import com.github.dtprj.dongting.common.ThreadAffinity;
 import com.github.dtprj.dongting.common.Timestamp;
 import com.github.dtprj.dongting.log.BugLog;
 import com.github.dtprj.dongting.log.DtLog;
@@ -33,6 +34,7 @@ import com.github.dtprj.dongting.log.DtLogs;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
@@ -46,7 +48,6 @@ import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Consumer;
 
 /**
  * each worker represent a thread.
@@ -72,6 +73,8 @@ class NioWorker extends AbstractLifeCircle implements Runnable {
 
     private int channelIndex;
     private final ArrayList<DtChannelImpl> channelsList;// client side only
+    // client side only, count of handshake finished channels in channelsList, read by NioClient.selectWorker()
+    volatile int handshakeChannels;
     private final IntObjMap<DtChannelImpl> channels;
     private final IoWorkerQueue ioWorkerQueue;
 
@@ -79,10 +82,12 @@ class NioWorker extends AbstractLifeCircle implements Runnable {
 
     private final LinkedList<DtChannelImpl> incomingConnects;//server side only
     private final LinkedList<ConnectInfo> outgoingConnects;//client side only
+    private final ArrayList<IoChannelQueue> batchQueues = new ArrayList<>();//client side only
     final LongObjMap<WriteData> pendingOutgoingRequests = new LongObjMap<>();
 
     private final ByteBufferPool directPool;
     private final ByteBufferPool heapPool;
+    private final ReleaseBatcher releaseBatcher;
 
     final WorkerStatus workerStatus;
 
@@ -94,6 +99,9 @@ class NioWorker extends AbstractLifeCircle implements Runnable {
 
     private final PerfCallback perfCallback;
 
+    // set before start, null means not bind to cpus
+    String cpuAffinity;
+
     private final ArrayList<Pair<Long, WriteData>> tempSortList = new ArrayList<>();
 
     public NioWorker(NioStatus nioStatus, String workerName, NioConfig config, NioClient client) {
@@ -120,7 +128,9 @@ class NioWorker extends AbstractLifeCircle implements Runnable {
         this.directPool = config.getPoolFactory().createPool(timestamp, true);
         this.heapPool = config.getPoolFactory().createPool(timestamp, false);
 
-        ByteBufferPool releaseSafePool = createReleaseSafePool((TwoLevelPool) heapPool, ioWorkerQueue);
+        TwoLevelPool hp = (TwoLevelPool) heapPool;
+        this.releaseBatcher = new ReleaseBatcher(hp.getSmallPool(), ioWorkerQueue);
+        ByteBufferPool releaseSafePool = hp.toReleaseInOtherThreadInstance(thread, releaseBatcher::release);
         RefBufferFactory refBufferFactory = new RefBufferFactory(releaseSafePool, 800);
 
         workerStatus = new WorkerStatus(this);
@@ -131,18 +141,11 @@ class NioWorker extends AbstractLifeCircle implements Runnable {
         workerStatus.setTs(timestamp);
     }
 
-    private ByteBufferPool createReleaseSafePool(TwoLevelPool heapPool, IoWorkerQueue ioWorkerQueue) {
-        Consumer<ByteBuffer> callback = (buf) -> {
-            boolean b = ioWorkerQueue.scheduleFromBizThread(() -> heapPool.getSmallPool().release(buf));
-            if (!b) {
-                log.warn("schedule ReleaseBufferTask fail");
-            }
-        };
-        return heapPool.toReleaseInOtherThreadInstance(thread, callback);
-    }
-
     @Override
     public void run() {
+        if (cpuAffinity != null) {
+            ThreadAffinity.bindCurrentThread(cpuAffinity);
+        }
         Selector selector = this.selector;
         Timestamp ts = this.timestamp;
         ts.refresh();
@@ -202,6 +205,9 @@ class NioWorker extends AbstractLifeCircle implements Runnable {
                     iterator.remove();
                 }
             }
+            if (!batchQueues.isEmpty()) {
+                checkBatchQueues(status >= STATUS_PREPARE_STOP);
+            }
             if (status >= STATUS_PREPARE_STOP) {
                 ioWorkerQueue.dispatchActions();
                 if (workerStatus.getPacketsToWrite() == 0 && pendingOutgoingRequests.size() == 0) {
@@ -222,6 +228,7 @@ class NioWorker extends AbstractLifeCircle implements Runnable {
                     tryReconnect(ts);
                 }
                 directPool.clean();
+                releaseBatcher.drain();
                 heapPool.clean();
                 lastCleanNanos = ts.getNanoTime();
             }
@@ -248,9 +255,30 @@ class NioWorker extends AbstractLifeCircle implements Runnable {
         return a.getLeft().intValue() - b.getLeft().intValue();
     }
 
+    void addBatchQueue(IoChannelQueue q) {
+        batchQueues.add(q);
+    }
+
+    private void checkBatchQueues(boolean force) {
+        long nanos = System.nanoTime();
+        ArrayList<IoChannelQueue> list = batchQueues;
+        int j = 0;
+        for (int i = 0, size = list.size(); i < size; i++) {
+            IoChannelQueue q = list.get(i);
+            if (!q.checkBatch(nanos, force)) {
+                list.set(j++, q);
+            }
+        }
+        for (int i = list.size() - 1; i >= j; i--) {
+            list.remove(i);
+        }
+    }
+
     private boolean sel(Selector selector, Timestamp ts) {
         PerfCallback c = perfCallback;
-        boolean selNow = this.wakeupCalled || wakeupCalledInOtherThreads.get() > 0;
+        // spin with selectNow while some writes are held for batching
+        boolean batching = !batchQueues.isEmpty();
+        boolean selNow = this.wakeupCalled || wakeupCalledInOtherThreads.get() > 0 || batching;
         long start = selNow ? 0 : c.takeTime(PerfConsts.RPC_D_WORKER_SEL, ts);
         try {
             if (selNow) {
@@ -277,7 +305,10 @@ class NioWorker extends AbstractLifeCircle implements Runnable {
             if (!selNow) {
                 c.fireTime(PerfConsts.RPC_D_WORKER_SEL, start, 1, 0, ts);
             }
-            wakeupCalledInOtherThreads.lazySet(0);
+            if (!batching) {
+                // when spinning, keep it non-zero, so biz threads don't call selector.wakeup() again
+                wakeupCalledInOtherThreads.lazySet(0);
+            }
             wakeupCalled = false;
         }
     }
@@ -372,8 +403,11 @@ class NioWorker extends AbstractLifeCircle implements Runnable {
 
     private DtChannelImpl initNewChannel(SocketChannel sc, Peer peer) throws IOException {
         sc.configureBlocking(false);
-        sc.setOption(StandardSocketOptions.SO_KEEPALIVE, false);
-        sc.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        if (sc.getLocalAddress() instanceof InetSocketAddress) {
+            // tcp options are not supported by unix domain socket
+            sc.setOption(StandardSocketOptions.SO_KEEPALIVE, false);
+            sc.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
 
         // 32 bit channelIndex may overflow, use channels map to keep it unique in every worker
         while (channels.get(channelIndex) != null) {
@@ -432,6 +466,11 @@ class NioWorker extends AbstractLifeCircle implements Runnable {
 
     void finishHandshake(DtChannelImpl dtc) {
         dtc.handshake = true;
+        if (channelsList != null) {
+            // only written in io thread
+            //noinspection NonAtomicOperationOnVolatileField
+            handshakeChannels++;
+        }
         if (incomingConnects != null) {
             //server side
             incomingConnects.remove(dtc);
@@ -488,10 +527,16 @@ class NioWorker extends AbstractLifeCircle implements Runnable {
         SocketChannel sc = null;
         try {
             HostPort hp = peer.getEndPoint();
-            InetSocketAddress addr = new InetSocketAddress(hp.getHost(), hp.getPort());
-            sc = SocketChannel.open();
-            sc.setOption(StandardSocketOptions.SO_KEEPALIVE, false);
-            sc.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            SocketAddress addr;
+            if (hp.isUnixDomain()) {
+                addr = UnixDomainSockets.address(hp.getHost());
+                sc = UnixDomainSockets.openChannel();
+            } else {
+                addr = new InetSocketAddress(hp.getHost(), hp.getPort());
+                sc = SocketChannel.open();
+                sc.setOption(StandardSocketOptions.SO_KEEPALIVE, false);
+                sc.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            }
             sc.configureBlocking(false);
 
             ConnectInfo ci = new ConnectInfo();
@@ -503,8 +548,11 @@ class NioWorker extends AbstractLifeCircle implements Runnable {
             outgoingConnects.add(ci);
             peer.connectInfo = ci;
 
-            sc.register(selector, SelectionKey.OP_CONNECT, ci);
-            sc.connect(addr);
+            SelectionKey key = sc.register(selector, SelectionKey.OP_CONNECT, ci);
+            if (sc.connect(addr)) {
+                // unix domain socket may connect immediately, no OP_CONNECT event will be fired
+                whenConnected(key);
+            }
         } catch (Throwable e) {
             if (sc != null) {
                 closeChannel0(sc);
@@ -584,6 +632,9 @@ class NioWorker extends AbstractLifeCircle implements Runnable {
         cb.maxInPending = config.getMaxInRequests();
         cb.maxInPendingBytes = config.getMaxInBytes();
         hb.config = cb;
+        if (config.getCompressThreshold() > 0) {
+            hb.compressType = Packet.COMPRESS_LZ4;
+        }
         SimpleWritePacket p = new SimpleWritePacket(hb);
 
         p.packetType = PacketType.TYPE_REQ;
@@ -613,6 +664,10 @@ class NioWorker extends AbstractLifeCircle implements Runnable {
             config.writeFence();
         }
 
+        if (resp.getBody().compressType == Packet.COMPRESS_LZ4 && config.getCompressThreshold() > 0) {
+            dtc.compressType = Packet.COMPRESS_LZ4;
+        }
+
         ci.peer.status = PeerStatus.connected;
         ci.peer.resetConnectRetry(workerStatus);
         finishHandshake(dtc);
@@ -756,7 +811,10 @@ class NioWorker extends AbstractLifeCircle implements Runnable {
         channels.remove(dtc.getChannelIndexInWorker());
         if (channelsList != null) {
             // O(n) in client side
-            channelsList.remove(dtc);
+            if (channelsList.remove(dtc) && dtc.handshake) {
+                //noinspection NonAtomicOperationOnVolatileField
+                handshakeChannels--;
+            }
         }
         if (incomingConnects != null) {
             incomingConnects.remove(dtc);
@@ -783,7 +841,7 @@ class NioWorker extends AbstractLifeCircle implements Runnable {
         cleanPendingOutgoingRequests(null, 2);
 
         if (client != null) {
-            client.cleanWaitConnectReq(wd -> {
+            client.cleanWaitConnectReq(this, wd -> {
                 if (wd.getTimeout().isTimeout(timestamp)) {
                     return new NetTimeoutException("wait connect timeout");
                 }
@@ -835,14 +893,16 @@ class NioWorker extends AbstractLifeCircle implements Runnable {
             return;
         }
         List<Peer> peers = client.getPeers();
-        for (Peer p : peers) {
-            if (!p.autoReconnect || p.status != PeerStatus.not_connect) {
-                continue;
-            }
-            if (ts.getNanoTime() - p.lastRetryNanos > 0) {
-                CompletableFuture<Void> f = new CompletableFuture<>();
-                DtTime deadline = new DtTime(5, TimeUnit.SECONDS);
-                doConnect(f, p, deadline, true);
+        for (Peer peer : peers) {
+            for (Peer p : peer.connections) {
+                if (p.worker != this || !p.autoReconnect || p.status != PeerStatus.not_connect) {
+                    continue;
+                }
+                if (ts.getNanoTime() - p.lastRetryNanos > 0) {
+                    CompletableFuture<Void> f = new CompletableFuture<>();
+                    DtTime deadline = new DtTime(5, TimeUnit.SECONDS);
+                    doConnect(f, p, deadline, true);
+                }
             }
         }
     }
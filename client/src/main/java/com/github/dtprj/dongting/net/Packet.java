@@ -27,8 +27,12 @@ public abstract class Packet {
     public static final int IDX_MSG = 6;
     public static final int IDX_TIMEOUT = 7;
     public static final int IDX_EXTRA = 8;
+    public static final int IDX_COMPRESS = 9;
     public static final int IDX_BODY = 15;
 
+    public static final int COMPRESS_NONE = 0;
+    public static final int COMPRESS_LZ4 = 1;
+
     int packetType;
     int command;
     int seq;
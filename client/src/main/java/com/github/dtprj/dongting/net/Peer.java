@@ -21,6 +21,7 @@ import com.github.dtprj.dongting.log.DtLogs;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 /**
@@ -31,6 +32,15 @@ public class Peer {
 
     private final HostPort endPoint;
     final NioClient owner;
+    // the io worker which owns this connection, all fields below are accessed in this worker thread
+    final NioWorker worker;
+    // the peer returned to user, if connectionsPerPeer is 1, it is this
+    final Peer primary;
+    // only the primary peer has this field, index 0 is the primary itself
+    Peer[] connections;
+    private int selectIndex;
+    // requests sent by this connection and not finished, used by least pending select policy
+    final AtomicInteger inFlight = new AtomicInteger();
 
     volatile PeerStatus status;
     DtChannelImpl dtChannel;
@@ -44,18 +54,56 @@ public class Peer {
 
     private LinkedList<WriteData> waitConnectList;
 
-    Peer(HostPort endPoint, NioClient owner) {
+    Peer(HostPort endPoint, NioClient owner, NioWorker worker, Peer primary) {
         Objects.requireNonNull(endPoint);
         Objects.requireNonNull(owner);
+        Objects.requireNonNull(worker);
         this.endPoint = endPoint;
         this.owner = owner;
+        this.worker = worker;
+        this.primary = primary == null ? this : primary;
         this.status = PeerStatus.not_connect;
     }
 
+    /**
+     * select a connection to send the packet, called in biz thread.
+     */
+    Peer selectConnection(WritePacket packet, int policy) {
+        Peer[] connections = this.connections;
+        int len = connections.length;
+        if (len == 1) {
+            return this;
+        }
+        int routeKey = packet.getRouteKey();
+        if (routeKey >= 0) {
+            return connections[routeKey % len];
+        }
+        if (policy == NioClientConfig.SELECT_LEAST_PENDING) {
+            Peer result = connections[0];
+            int min = result.inFlight.get();
+            for (int i = 1; i < len && min > 0; i++) {
+                int x = connections[i].inFlight.get();
+                if (x < min) {
+                    min = x;
+                    result = connections[i];
+                }
+            }
+            return result;
+        } else {
+            // not thread safe, but it's ok
+            int idx = selectIndex;
+            selectIndex = idx + 1 >= len ? 0 : idx + 1;
+            return connections[idx < len ? idx : 0];
+        }
+    }
+
     public HostPort getEndPoint() {
         return endPoint;
     }
 
+    /**
+     * If there are multiple connections per peer, return the status of the first connection.
+     */
     public PeerStatus getStatus() {
         return status;
     }
@@ -0,0 +1,110 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.net;
+
+import com.github.dtprj.dongting.buf.ByteBufferPool;
+import com.github.dtprj.dongting.log.DtLog;
+import com.github.dtprj.dongting.log.DtLogs;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * Collects the buffers of the worker pool released in other threads. Each releasing thread has its own batch,
+ * a full batch is returned to the worker by one task, and the partial batches are drained by the worker in its
+ * periodic clean, so the buffers are not kept by threads with low traffic.
+ *
+ * @author huangli
+ */
+class ReleaseBatcher {
+    private static final DtLog log = DtLogs.getLogger(ReleaseBatcher.class);
+    static final int BATCH_SIZE = 32;
+
+    // not thread safe, only used in worker thread
+    private final ByteBufferPool pool;
+    private final IoWorkerQueue ioWorkerQueue;
+    private final ThreadLocal<Batch> batches = ThreadLocal.withInitial(Batch::new);
+
+    // batches which may have buffers, guarded by this
+    private final ArrayList<Batch> registered = new ArrayList<>();
+
+    private static final class Batch {
+        // guarded by the batch itself
+        ArrayList<ByteBuffer> list = new ArrayList<>(BATCH_SIZE);
+        boolean registered;
+    }
+
+    ReleaseBatcher(ByteBufferPool pool, IoWorkerQueue ioWorkerQueue) {
+        this.pool = pool;
+        this.ioWorkerQueue = ioWorkerQueue;
+    }
+
+    // called in other threads
+    void release(ByteBuffer buf) {
+        Batch b = batches.get();
+        ArrayList<ByteBuffer> full = null;
+        synchronized (b) {
+            b.list.add(buf);
+            if (b.list.size() >= BATCH_SIZE) {
+                full = b.list;
+                b.list = new ArrayList<>(BATCH_SIZE);
+            } else if (!b.registered) {
+                b.registered = true;
+                synchronized (this) {
+                    registered.add(b);
+                }
+            }
+        }
+        if (full != null) {
+            ArrayList<ByteBuffer> list = full;
+            if (!ioWorkerQueue.scheduleFromBizThread(() -> releaseAll(list))) {
+                log.warn("schedule ReleaseBufferTask fail");
+            }
+        }
+    }
+
+    // called in worker thread
+    void drain() {
+        ArrayList<Batch> list;
+        synchronized (this) {
+            if (registered.isEmpty()) {
+                return;
+            }
+            list = new ArrayList<>(registered);
+            registered.clear();
+        }
+        for (int i = 0, s = list.size(); i < s; i++) {
+            Batch b = list.get(i);
+            ArrayList<ByteBuffer> bufs;
+            synchronized (b) {
+                // the owner thread registers it again when it releases next buffer
+                b.registered = false;
+                bufs = b.list;
+                if (bufs.isEmpty()) {
+                    continue;
+                }
+                b.list = new ArrayList<>(BATCH_SIZE);
+            }
+            releaseAll(bufs);
+        }
+    }
+
+    private void releaseAll(ArrayList<ByteBuffer> list) {
+        for (int i = 0, s = list.size(); i < s; i++) {
+            pool.release(list.get(i));
+        }
+    }
+}
@@ -31,6 +31,14 @@ public class ReqContext {
         this.timeout = timeout;
     }
 
+    /**
+     * create a context with the channel and timeout of parent, but write response by another writer.
+     * used to dispatch the sub requests of a batch request.
+     */
+    public ReqContext(ReqContext parent, RespWriter respWriter) {
+        this(parent.dtChannel, respWriter, parent.timeout);
+    }
+
     public DtTime getTimeout() {
         return timeout;
     }
@@ -32,6 +32,11 @@ public class RespWriter {
         this.dtc = dtc;
     }
 
+    // for sub class which collects responses of sub requests, see ReqContext(ReqContext, RespWriter)
+    protected RespWriter() {
+        this(null, null, null);
+    }
+
     // invoke by other threads
     public void writeRespInBizThreads(ReadPacket<?> req, WritePacket resp, DtTime timeout) {
         resp.setSeq(req.getSeq());
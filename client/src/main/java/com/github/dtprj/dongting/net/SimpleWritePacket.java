@@ -36,6 +36,10 @@ public class SimpleWritePacket extends RetryableWritePacket {
         this.body = body;
     }
 
+    public SimpleEncodable getBody() {
+        return body;
+    }
+
     @Override
     protected int calcActualBodySize() {
         return body == null ? 0 : body.actualSize();
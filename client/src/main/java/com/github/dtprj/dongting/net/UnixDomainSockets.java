@@ -0,0 +1,158 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.net;
+
+import com.github.dtprj.dongting.log.DtLog;
+import com.github.dtprj.dongting.log.DtLogs;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Unix domain socket support, requires JDK16+. The client is compiled with java 8, so use reflection here.
+ *
+ * @author huangli
+ */
+final class UnixDomainSockets {
+    private static final DtLog log = DtLogs.getLogger(UnixDomainSockets.class);
+    private static final int S_IFMT = 0170000;
+    private static final int S_IFSOCK = 0140000;
+
+    private static final ProtocolFamily UNIX;
+    private static final Method ADDRESS_OF;
+    private static final Method OPEN_CHANNEL;
+    private static final Method OPEN_SERVER_CHANNEL;
+
+    static {
+        ProtocolFamily unix = null;
+        Method addressOf = null;
+        Method openChannel = null;
+        Method openServerChannel = null;
+        try {
+            unix = StandardProtocolFamily.valueOf("UNIX");
+            addressOf = Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", String.class);
+            openChannel = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+            openServerChannel = ServerSocketChannel.class.getMethod("open", ProtocolFamily.class);
+        } catch (Throwable e) {
+            log.debug("unix domain socket not supported: {}", e.toString());
+            unix = null;
+        }
+        UNIX = unix;
+        ADDRESS_OF = addressOf;
+        OPEN_CHANNEL = openChannel;
+        OPEN_SERVER_CHANNEL = openServerChannel;
+    }
+
+    private UnixDomainSockets() {
+    }
+
+    static boolean isSupported() {
+        return UNIX != null;
+    }
+
+    private static void checkSupported() {
+        if (UNIX == null) {
+            throw new NetException("unix domain socket requires JDK16+");
+        }
+    }
+
+    static SocketAddress address(String path) {
+        checkSupported();
+        try {
+            return (SocketAddress) ADDRESS_OF.invoke(null, path);
+        } catch (InvocationTargetException e) {
+            throw new NetException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new NetException(e);
+        }
+    }
+
+    /**
+     * Remove the socket file left by the last run, so the path can be bound again. Fails if the path is not
+     * a socket file, or a server is still listening on it.
+     */
+    static void removeStaleSocketFile(String path) throws IOException {
+        Path p = Paths.get(path);
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(p, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        if (!isSocketFile(p, attrs)) {
+            throw new NetException("unix domain socket path exists and is not a socket: " + path);
+        }
+        boolean inUse;
+        try (SocketChannel sc = openChannel()) {
+            inUse = sc.connect(address(path));
+        } catch (IOException e) {
+            inUse = false;
+        }
+        if (inUse) {
+            throw new NetException("unix domain socket path is in use: " + path);
+        }
+        log.info("remove stale unix domain socket file: {}", path);
+        Files.deleteIfExists(p);
+    }
+
+    private static boolean isSocketFile(Path p, BasicFileAttributes attrs) {
+        if (!attrs.isOther()) {
+            return false;
+        }
+        try {
+            Object mode = Files.getAttribute(p, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+            return mode instanceof Integer && ((Integer) mode & S_IFMT) == S_IFSOCK;
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+            // the unix attribute view is not available, the connect check is enough
+            return true;
+        }
+    }
+
+    static SocketChannel openChannel() throws IOException {
+        return (SocketChannel) open(OPEN_CHANNEL);
+    }
+
+    static ServerSocketChannel openServerChannel() throws IOException {
+        return (ServerSocketChannel) open(OPEN_SERVER_CHANNEL);
+    }
+
+    private static Object open(Method m) throws IOException {
+        checkSupported();
+        try {
+            return m.invoke(null, UNIX);
+        } catch (InvocationTargetException e) {
+            Throwable c = e.getCause();
+            if (c instanceof IOException) {
+                throw (IOException) c;
+            }
+            throw new NetException(c);
+        } catch (IllegalAccessException e) {
+            throw new NetException(e);
+        }
+    }
+}
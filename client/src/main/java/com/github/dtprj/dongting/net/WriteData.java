@@ -76,6 +76,9 @@ class WriteData {
         if (callback == null) {
             return;
         }
+        if (peer != null) {
+            peer.inFlight.decrementAndGet();
+        }
         try {
             if (data.packetType == PacketType.TYPE_REQ && resp != null && resp.respCode != CmdCodes.SUCCESS) {
                 FutureCallback.callFail(callback, new NetCodeException(resp.respCode, resp.msg, resp.extra));
@@ -91,6 +94,9 @@ class WriteData {
         if (callback == null) {
             return;
         }
+        if (peer != null) {
+            peer.inFlight.decrementAndGet();
+        }
         try {
             if (callClean) {
                 data.clean();
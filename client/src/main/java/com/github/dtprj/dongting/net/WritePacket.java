@@ -15,9 +15,11 @@
  */
 package com.github.dtprj.dongting.net;
 
+import com.github.dtprj.dongting.buf.ByteBufferPool;
 import com.github.dtprj.dongting.codec.CodecException;
 import com.github.dtprj.dongting.codec.Encodable;
 import com.github.dtprj.dongting.codec.EncodeContext;
+import com.github.dtprj.dongting.codec.Lz4Codec;
 import com.github.dtprj.dongting.codec.PbUtil;
 import com.github.dtprj.dongting.log.BugLog;
 import com.github.dtprj.dongting.log.DtLog;
@@ -47,6 +49,21 @@ public abstract class WritePacket extends Packet implements Encodable {
     boolean use;
     private boolean cleaned;
 
+    // packets with same non-negative route key are sent by same connection of a peer, to keep order
+    private int routeKey = -1;
+
+    // high priority packets are written before queued normal packets in the same channel, but not before
+    // the rest of the packet being written, see Commands.isHighPriority()
+    private boolean highPriority;
+
+    // the body encoded (and maybe compressed) before encode, see compressBody(), the buffer is borrowed from
+    // the heap pool of the io worker, and released after encode finished or the packet cleaned
+    private boolean preEncoded;
+    private ByteBuffer preEncodedBody;
+    private ByteBufferPool preEncodedPool;
+    private int preEncodedSize;
+    private int compressType;
+
     private static final int MAX_HEADER_SIZE = 4 // length
             + 1 + 1 // uint32 packet_type = 1;
             + 1 + 5 // uint32 command = 2;
@@ -54,8 +71,9 @@ public abstract class WritePacket extends Packet implements Encodable {
             + 1 + 5 // uint32 resp_code = 4;
             + 1 + 5 // string biz_code = 5;
             // string resp_msg = 6;
-            + 1 + 8; // fixed32 timeout_millis = 7;
-    // string extra = 8;
+            + 1 + 8 // fixed32 timeout_millis = 7;
+            // string extra = 8;
+            + 1 + 1; // uint32 compress = 9;
 
 
     protected abstract int calcActualBodySize();
@@ -101,8 +119,9 @@ public abstract class WritePacket extends Packet implements Encodable {
                     + PbUtil.accurateUnsignedIntSize(IDX_BIZ_CODE, bizCode) // uint32 biz_code = 5;
                     + PbUtil.accurateBytesLength(IDX_MSG, msgBytes) // string resp_msg = 6;
                     + PbUtil.accurateFix64Size(IDX_TIMEOUT, timeout) // fixed64 timeout = 7;
-                    + PbUtil.accurateBytesLength(IDX_EXTRA, extra); // bytes extra = 8;
-            int bodySize = actualBodySize();
+                    + PbUtil.accurateBytesLength(IDX_EXTRA, extra) // bytes extra = 8;
+                    + PbUtil.accurateUnsignedIntSize(IDX_COMPRESS, compressType); // uint32 compress = 9;
+            int bodySize = encodeBodySize();
             if (bodySize > 0) {
                 // bytes body = 15;
                 dumpSize += PbUtil.accurateLengthDelimitedPrefixSize(IDX_BODY, bodySize) + bodySize;
@@ -115,9 +134,10 @@ public abstract class WritePacket extends Packet implements Encodable {
     @Override
     public final boolean encode(EncodeContext context, ByteBuffer buf) {
         int step = context.stage;
+        int bodySize = encodeBodySize();
         if (step == STATUS_INIT) {
             int totalSize = actualSize();
-            int headerSize = totalSize - actualBodySize();
+            int headerSize = totalSize - bodySize;
             if (buf.remaining() < headerSize) {
                 return false;
             } else {
@@ -130,6 +150,7 @@ public abstract class WritePacket extends Packet implements Encodable {
                 PbUtil.writeBytes(buf, IDX_MSG, msgBytes);
                 PbUtil.writeFix64(buf, IDX_TIMEOUT, timeout);
                 PbUtil.writeBytes(buf, IDX_EXTRA, extra);
+                PbUtil.writeUnsignedInt32(buf, IDX_COMPRESS, compressType);
                 if (bodySize > 0) {
                     PbUtil.writeLengthDelimitedPrefix(buf, Packet.IDX_BODY, bodySize);
                 }
@@ -139,7 +160,17 @@ public abstract class WritePacket extends Packet implements Encodable {
         boolean finish = false;
         if (step == STATUS_HEADER_ENCODE_FINISHED) {
             try {
-                if (bodySize > 0) {
+                if (preEncoded) {
+                    int pos = context.pending;
+                    int len = Math.min(buf.remaining(), bodySize - pos);
+                    buf.put(preEncodedBody.array(), preEncodedBody.arrayOffset() + pos, len);
+                    pos += len;
+                    finish = pos == bodySize;
+                    context.pending = pos;
+                    if (finish) {
+                        releasePreEncodedBody();
+                    }
+                } else if (bodySize > 0) {
                     int x = buf.position();
                     finish = encodeBody(context.createOrGetNestedContext(false), buf);
                     x = buf.position() - x;
@@ -172,6 +203,7 @@ public abstract class WritePacket extends Packet implements Encodable {
             return;
         }
         try {
+            releasePreEncodedBody();
             doClean();
         } catch (Throwable e) {
             log.error("clean error", e);
@@ -189,10 +221,88 @@ public abstract class WritePacket extends Packet implements Encodable {
     public void prepareRetry() {
         use = false;
         cleaned = false;
+        if (preEncoded) {
+            // the retry may use another channel which not support compress
+            releasePreEncodedBody();
+            preEncoded = false;
+            preEncodedSize = 0;
+            compressType = COMPRESS_NONE;
+            dumpSize = 0;
+        }
+    }
+
+    private int encodeBodySize() {
+        return preEncoded ? preEncodedSize : actualBodySize();
+    }
+
+    private void releasePreEncodedBody() {
+        ByteBuffer b = preEncodedBody;
+        if (b != null) {
+            preEncodedBody = null;
+            preEncodedPool.release(b);
+        }
+    }
+
+    /**
+     * Encode the whole body and compress it, called in io thread before encode. If the compressed
+     * result is not smaller, the raw encoded body is used and compress field is not set.
+     * The buffers are borrowed from the heap pool of the context.
+     */
+    void compressBody(EncodeContext context, Lz4Codec lz4) {
+        ByteBufferPool pool = context.getHeapPool().getPool();
+        int rawSize = actualBodySize();
+        ByteBuffer raw = pool.borrow(rawSize);
+        try {
+            raw.limit(rawSize);
+            if (!encodeBody(context.createOrGetNestedContext(true), raw) || raw.position() != rawSize) {
+                throw new CodecException(this + " body size not match actual encoded size: "
+                        + rawSize + ", " + raw.position());
+            }
+        } catch (RuntimeException e) {
+            pool.release(raw);
+            throw e;
+        }
+        // 4 bytes raw length + lz4 block
+        ByteBuffer dest = pool.borrow(4 + Lz4Codec.maxCompressedLength(rawSize));
+        int len = 4 + lz4.compress(raw.array(), raw.arrayOffset(), rawSize, dest.array(), dest.arrayOffset() + 4);
+        if (len < rawSize) {
+            dest.putInt(0, rawSize);
+            pool.release(raw);
+            preEncodedBody = dest;
+            preEncodedSize = len;
+            compressType = COMPRESS_LZ4;
+        } else {
+            pool.release(dest);
+            preEncodedBody = raw;
+            preEncodedSize = rawSize;
+            compressType = COMPRESS_NONE;
+        }
+        preEncodedPool = pool;
+        preEncoded = true;
+        dumpSize = 0;
     }
 
     public boolean canRetry() {
         return false;
     }
 
+    public int getRouteKey() {
+        return routeKey;
+    }
+
+    public void setRouteKey(int routeKey) {
+        this.routeKey = routeKey;
+    }
+
+    /**
+     * Return true if set by setHighPriority(true), or the command is a control command, see Commands.isHighPriority().
+     */
+    public boolean isHighPriority() {
+        return highPriority || Commands.isHighPriority(command);
+    }
+
+    public void setHighPriority(boolean highPriority) {
+        this.highPriority = highPriority;
+    }
+
 }
@@ -101,7 +101,12 @@ public class RaftNode {
         for (T s : servers) {
             RaftNode n = mapper.apply(s);
             HostPort hp = n.getHostPort();
-            sb.append(n.getNodeId()).append(",").append(hp.getHost()).append(":").append(hp.getPort()).append(";");
+            sb.append(n.getNodeId()).append(",");
+            if (hp.isUnixDomain()) {
+                sb.append("unix:").append(hp.getHost()).append(";");
+            } else {
+                sb.append(hp.getHost()).append(":").append(hp.getPort()).append(";");
+            }
         }
         return sb.toString();
     }
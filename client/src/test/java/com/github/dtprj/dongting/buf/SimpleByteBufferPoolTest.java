@@ -298,6 +298,80 @@ public class SimpleByteBufferPoolTest {
         threadSafeTest(pool, 128);
     }
 
+    @Test
+    public void testThreadSafeWithThreadCache() throws Exception {
+        SimpleByteBufferPoolConfig c = new SimpleByteBufferPoolConfig(null, false, 0, true);
+        c.setBufSizes(new int[]{16, 32, 64, 128});
+        c.setMaxCount(new int[]{20, 20, 20, 20});
+        c.setMinCount(new int[]{1, 1, 1, 1});
+        c.setTimeoutMillis(1000);
+        c.setThreadCacheBytes(1024);
+        pool = new SimpleByteBufferPool(c);
+        threadSafeTest(pool, 128);
+    }
+
+    @Test
+    public void testThreadCache() throws Exception {
+        SimpleByteBufferPoolConfig c = new SimpleByteBufferPoolConfig(null, false, 0, true);
+        c.setBufSizes(new int[]{16, 32, 64, 128});
+        c.setMaxCount(new int[]{20, 20, 20, 20});
+        c.setMinCount(new int[]{1, 1, 1, 1});
+        c.setTimeoutMillis(100000);
+        c.setThreadCacheBytes(1024);
+        pool = new SimpleByteBufferPool(c);
+
+        ByteBuffer buf1 = pool.borrow(128);
+        pool.release(buf1);
+        assertThrows(DtException.class, () -> pool.release(buf1));
+
+        // buf1 is in the thread cache of current thread
+        ByteBuffer[] other = new ByteBuffer[1];
+        Thread t = new Thread(() -> other[0] = pool.borrow(128));
+        t.start();
+        t.join();
+        assertNotSame(buf1, other[0]);
+        assertSame(buf1, pool.borrow(128));
+        pool.release(buf1);
+
+        pool.clean();
+        // current thread sees the clean, buf1 is idle since now
+        pool.release(pool.borrow(16));
+        pool.clean();
+        // buf1 is not used in the interval, so it's returned to the shared pool
+        pool.release(pool.borrow(16));
+
+        t = new Thread(() -> other[0] = pool.borrow(128));
+        t.start();
+        t.join();
+        assertSame(buf1, other[0]);
+    }
+
+    @Test
+    public void testThreadCacheOfOtherThread() throws Exception {
+        SimpleByteBufferPoolConfig c = new SimpleByteBufferPoolConfig(null, false, 0, true);
+        c.setBufSizes(new int[]{16, 32, 64, 128});
+        c.setMaxCount(new int[]{20, 20, 20, 20});
+        c.setMinCount(new int[]{1, 1, 1, 1});
+        c.setTimeoutMillis(100000);
+        c.setThreadCacheBytes(1024);
+        pool = new SimpleByteBufferPool(c);
+
+        ByteBuffer[] other = new ByteBuffer[1];
+        Thread t = new Thread(() -> {
+            other[0] = pool.borrow(128);
+            pool.release(other[0]);
+        });
+        t.start();
+        t.join();
+        // the buffer is in the cache of the other thread, release it again is detected
+        assertThrows(DtException.class, () -> pool.release(other[0]));
+        assertNotSame(other[0], pool.borrow(128));
+
+        // the owner thread is dead, clean() returns its cache to the shared pool
+        pool.clean();
+        assertSame(other[0], pool.borrow(128));
+    }
+
     public static void threadSafeTest(ByteBufferPool pool, int maxCapacity) throws Exception {
         int threadNum = 2;
         ExecutorService executorService = Executors.newFixedThreadPool(threadNum);
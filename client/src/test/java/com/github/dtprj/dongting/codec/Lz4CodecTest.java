@@ -0,0 +1,106 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author huangli
+ */
+public class Lz4CodecTest {
+
+    private final Lz4Codec codec = new Lz4Codec();
+
+    private int roundTrip(byte[] src, int off, int len) {
+        byte[] dest = new byte[3 + Lz4Codec.maxCompressedLength(len)];
+        int c = codec.compress(src, off, len, dest, 3);
+        byte[] result = new byte[len + 2];
+        Lz4Codec.decompress(dest, 3, c, result, 1, len);
+        assertArrayEquals(Arrays.copyOfRange(src, off, off + len), Arrays.copyOfRange(result, 1, len + 1));
+        return c;
+    }
+
+    @Test
+    public void testSmall() {
+        for (int len = 0; len < 40; len++) {
+            byte[] b = new byte[len];
+            roundTrip(b, 0, len);
+            new Random().nextBytes(b);
+            roundTrip(b, 0, len);
+        }
+    }
+
+    @Test
+    public void testCompressible() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append("key").append(i % 100).append("=value").append(i % 7).append(';');
+        }
+        byte[] b = sb.toString().getBytes(StandardCharsets.UTF_8);
+        int c = roundTrip(b, 0, b.length);
+        assertTrue(c < b.length / 3);
+
+        // long match and overlap copy
+        byte[] zeros = new byte[100_000];
+        c = roundTrip(zeros, 0, zeros.length);
+        assertTrue(c < 1000);
+        roundTrip(b, 7, b.length - 20);
+    }
+
+    @Test
+    public void testRandom() {
+        Random r = new Random();
+        for (int i = 0; i < 50; i++) {
+            byte[] b = new byte[r.nextInt(70_000)];
+            // mix random and repeated segments
+            int pos = 0;
+            while (pos < b.length) {
+                int len = Math.min(b.length - pos, r.nextInt(300) + 1);
+                if (r.nextBoolean() || pos == 0) {
+                    for (int j = 0; j < len; j++) {
+                        b[pos + j] = (byte) r.nextInt(r.nextBoolean() ? 4 : 256);
+                    }
+                } else {
+                    int from = r.nextInt(pos);
+                    for (int j = 0; j < len; j++) {
+                        b[pos + j] = b[from + j];
+                    }
+                }
+                pos += len;
+            }
+            roundTrip(b, 0, b.length);
+        }
+    }
+
+    @Test
+    public void testBadInput() {
+        byte[] b = new byte[1000];
+        Arrays.fill(b, (byte) 'a');
+        byte[] dest = new byte[Lz4Codec.maxCompressedLength(b.length)];
+        int c = codec.compress(b, 0, b.length, dest, 0);
+        assertThrows(CodecException.class, () -> Lz4Codec.decompress(dest, 0, c, new byte[999], 0, 999));
+        assertThrows(CodecException.class, () -> Lz4Codec.decompress(dest, 0, c, new byte[1001], 0, 1001));
+        assertThrows(CodecException.class, () -> Lz4Codec.decompress(dest, 0, c - 1, new byte[1000], 0, 1000));
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.common;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author huangli
+ */
+public class ThreadAffinityTest {
+
+    @Test
+    public void testSelect() {
+        assertNull(ThreadAffinity.select(null, 1));
+        String[] cpus = new String[]{"0-1", "2-3"};
+        assertEquals("0-1", ThreadAffinity.select(cpus, 0));
+        assertEquals("2-3", ThreadAffinity.select(cpus, 3));
+        assertEquals("2-3", ThreadAffinity.select(cpus, -1));
+    }
+
+    @Test
+    public void testNumaNodeCpuLists() {
+        String[] lists = ThreadAffinity.numaNodeCpuLists();
+        assertTrue(lists.length > 0);
+        for (String s : lists) {
+            assertTrue(s.matches("[0-9,\\-]+"), s);
+        }
+    }
+
+    @Test
+    public void testBind() throws Exception {
+        Assumptions.assumeTrue(new File("/proc/thread-self").exists());
+        Assumptions.assumeTrue(new File("/usr/bin/taskset").exists() || new File("/bin/taskset").exists());
+        String[] result = new String[1];
+        Thread t = new Thread(() -> {
+            // bind to all cpus of first node, so it's always valid
+            if (ThreadAffinity.bindCurrentThread(ThreadAffinity.numaNodeCpuLists()[0])) {
+                result[0] = "ok";
+            }
+        });
+        t.start();
+        t.join();
+        assertEquals("ok", result[0]);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.dtkv;
+
+import com.github.dtprj.dongting.raft.RaftException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author huangli
+ */
+public class KvRouteTableTest {
+    @Test
+    void testRoute() {
+        HashMap<Integer, String> groups = new HashMap<>();
+        groups.put(1, "1,127.0.0.1:5001");
+        groups.put(2, "1,127.0.0.1:5001");
+        groups.put(3, "1,127.0.0.1:5001");
+        HashMap<String, Integer> dirs = new HashMap<>();
+        dirs.put("pinned", 3);
+        KvRouteTable t = new KvRouteTable(groups, dirs);
+
+        assertEquals(3, t.route("pinned"));
+        assertEquals(3, t.route("pinned.k1"));
+        HashSet<Integer> used = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            int g = t.route("dir" + i);
+            // same top level dir in same group
+            assertEquals(g, t.route("dir" + i + ".k1.k2"));
+            used.add(g);
+        }
+        assertEquals(3, used.size());
+
+        assertThrows(RaftException.class, () -> new KvRouteTable(new HashMap<>(), new HashMap<>()).route("k"));
+        dirs.put("bad", 4);
+        assertThrows(RaftException.class, () -> new KvRouteTable(groups, dirs));
+        assertTrue(t.getGroups().containsKey(1));
+    }
+
+    @Test
+    void testGroupChange() {
+        HashMap<Integer, String> groups = new HashMap<>();
+        groups.put(1, "1,127.0.0.1:5001");
+        groups.put(2, "1,127.0.0.1:5001");
+        groups.put(3, "1,127.0.0.1:5001");
+        KvRouteTable t1 = new KvRouteTable(groups, new HashMap<>());
+        groups.put(4, "1,127.0.0.1:5001");
+        KvRouteTable t2 = new KvRouteTable(groups, new HashMap<>());
+        groups.remove(2);
+        KvRouteTable t3 = new KvRouteTable(groups, new HashMap<>());
+
+        int moved = 0;
+        for (int i = 0; i < 1000; i++) {
+            String dir = "dir" + i;
+            int g1 = t1.route(dir);
+            int g2 = t2.route(dir);
+            if (g1 != g2) {
+                // only move to the added group
+                assertEquals(4, g2);
+                moved++;
+            }
+            int g3 = t3.route(dir);
+            if (g2 != 2) {
+                // only the dirs of removed group move
+                assertEquals(g2, g3);
+            }
+        }
+        assertTrue(moved > 150 && moved < 350, "moved " + moved);
+    }
+}
@@ -292,6 +292,69 @@ public class NioClientTest {
         generalTest(client, tick(100));
     }
 
+    @Test
+    public void multiConnectionTest() throws Exception {
+        server1 = new BioServer(9000);
+        server2 = new BioServer(9001);
+        NioClientConfig c = new NioClientConfig();
+        c.setReadBufferSize(2048);
+        c.setIoThreads(2);
+        c.setConnectionsPerPeer(3);
+        c.setConnectionSelectPolicy(NioClientConfig.SELECT_LEAST_PENDING);
+        c.setHostPorts(Arrays.asList(new HostPort("127.0.0.1", 9000), new HostPort("127.0.0.1", 9001)));
+        client = new NioClient(c);
+        client.start();
+        client.waitStart();
+        for (Peer p : client.getPeers()) {
+            assertEquals(3, p.connections.length);
+            for (Peer conn : p.connections) {
+                assertSame(p, conn.primary);
+                assertEquals(PeerStatus.connected, conn.status);
+                assertSame(p, conn.dtChannel.getPeer());
+            }
+            assertNotSame(p.connections[0].worker, p.connections[1].worker);
+
+            ByteBufferWritePacket wf = new ByteBufferWritePacket(ByteBuffer.allocate(1));
+            wf.setRouteKey(4);
+            assertSame(p.connections[1], p.selectConnection(wf, NioClientConfig.SELECT_LEAST_PENDING));
+
+            sendSyncByPeer(5000, client, p, tick(500));
+        }
+        generalTest(client, tick(100));
+        TestUtil.waitUtil(() -> client.getPeers().stream().flatMap(p -> Arrays.stream(p.connections))
+                .allMatch(conn -> conn.inFlight.get() == 0));
+
+        Peer p1 = client.getPeers().get(0);
+        client.disconnect(p1).get();
+        for (Peer conn : p1.connections) {
+            assertNull(conn.dtChannel);
+        }
+        // auto connect by rpc request
+        sendSyncByPeer(5000, client, p1, tick(500));
+        client.removePeer(p1).get();
+        for (Peer conn : p1.connections) {
+            assertEquals(PeerStatus.removed, conn.status);
+        }
+        assertEquals(1, client.getPeers().size());
+    }
+
+    @Test
+    public void moreIoThreadsThanConnectionsTest() throws Exception {
+        server1 = new BioServer(9000);
+        NioClientConfig c = new NioClientConfig();
+        c.setReadBufferSize(2048);
+        c.setIoThreads(4);
+        c.setConnectionsPerPeer(1);
+        c.setHostPorts(Collections.singletonList(new HostPort("127.0.0.1", 9000)));
+        client = new NioClient(c);
+        client.start();
+        client.waitStart();
+        // requests without peer go round-robin, the workers without channel should be skipped
+        for (int i = 0; i < 8; i++) {
+            sendSync(5000, client, tick(500));
+        }
+    }
+
     private static void sendSync(int maxBodySize, NioClient client, long timeoutMillis) {
         sendSync(maxBodySize, client, timeoutMillis, new RefBufferDecoderCallback());
         sendSync(maxBodySize, client, timeoutMillis, new IoFullPackByteBufferDecoderCallback());
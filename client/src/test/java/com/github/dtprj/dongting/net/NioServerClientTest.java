@@ -19,18 +19,28 @@ import com.github.dtprj.dongting.buf.RefBuffer;
 import com.github.dtprj.dongting.buf.SimpleByteBufferPool;
 import com.github.dtprj.dongting.codec.RefBufferDecoderCallback;
 import com.github.dtprj.dongting.common.DtTime;
+import com.github.dtprj.dongting.common.PerfCallback;
 import com.github.dtprj.dongting.common.TestUtil;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.File;
 import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -56,6 +66,212 @@ public class NioServerClientTest {
         }
     }
 
+    @Test
+    public void unixDomainTest(@TempDir File dir) throws Exception {
+        Assumptions.assumeTrue(UnixDomainSockets.isSupported());
+        String path = new File(dir, "test.sock").getAbsolutePath();
+        NioServerConfig serverConfig = new NioServerConfig();
+        serverConfig.setUnixDomainSocketPath(path);
+        NioServer server = new NioServer(serverConfig);
+        NioClientConfig clientConfig = new NioClientConfig();
+        clientConfig.setHostPorts(Collections.singletonList(NioNet.parseHostPort("unix:" + path)));
+        NioClient client = new NioClient(clientConfig);
+        try {
+            server.start();
+            client.start();
+            client.waitStart();
+            for (int i = 0; i < 5; i++) {
+                invoke(client);
+            }
+            Peer peer = client.getPeers().get(0);
+            assertTrue(peer.getEndPoint().isUnixDomain());
+            client.disconnect(peer).get();
+            client.connect(peer, new DtTime(1, TimeUnit.SECONDS)).get();
+            invoke(client);
+        } finally {
+            TestUtil.stop(client, server);
+        }
+        assertFalse(new File(path).exists());
+    }
+
+    @Test
+    public void unixDomainPathCheckTest(@TempDir File dir) throws Exception {
+        Assumptions.assumeTrue(UnixDomainSockets.isSupported());
+        File f = new File(dir, "test.sock");
+        String path = f.getAbsolutePath();
+        NioServerConfig serverConfig = new NioServerConfig();
+        serverConfig.setUnixDomainSocketPath(path);
+
+        // not a socket file
+        assertTrue(f.createNewFile());
+        assertThrows(NetException.class, () -> new NioServer(serverConfig).start());
+        assertTrue(f.exists());
+        assertTrue(f.delete());
+
+        // the stale socket file is removed
+        ServerSocketChannel ssc = UnixDomainSockets.openServerChannel();
+        ssc.bind(UnixDomainSockets.address(path));
+        ssc.close();
+        assertTrue(f.exists());
+        NioServer server = new NioServer(serverConfig);
+        try {
+            server.start();
+            // the path is in use
+            assertThrows(NetException.class, () -> new NioServer(serverConfig).start());
+            assertTrue(f.exists());
+        } finally {
+            TestUtil.stop(server);
+        }
+        assertFalse(f.exists());
+    }
+
+    @Test
+    public void batchWriteTest() throws Exception {
+        NioServerConfig serverConfig = new NioServerConfig();
+        serverConfig.setPort(9000);
+        NioServer server = new NioServer(serverConfig);
+        NioClientConfig clientConfig = new NioClientConfig();
+        clientConfig.setHostPorts(Collections.singletonList(new HostPort("127.0.0.1", 9000)));
+        // large delay to make the test stable
+        clientConfig.setBatchWriteDelayNanos(TimeUnit.MILLISECONDS.toNanos(20));
+        AtomicInteger maxBatch = new AtomicInteger();
+        clientConfig.setPerfCallback(new PerfCallback(false) {
+            @Override
+            public boolean accept(int perfType) {
+                return perfType == RPC_C_WRITE_BATCH;
+            }
+
+            @Override
+            public void onEvent(int perfType, long costTime, int count, long sum) {
+                maxBatch.accumulateAndGet(count, Math::max);
+            }
+        });
+        NioClient client = new NioClient(clientConfig);
+        try {
+            server.start();
+            client.start();
+            client.waitStart();
+            ArrayList<CompletableFuture<ReadPacket<RefBuffer>>> list = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                ByteBufferWritePacket wf = new ByteBufferWritePacket(ByteBuffer.allocate(16));
+                wf.setCommand(Commands.CMD_PING);
+                CompletableFuture<ReadPacket<RefBuffer>> f = new CompletableFuture<>();
+                client.sendRequest(wf, ctx -> new RefBufferDecoderCallback(), new DtTime(1, TimeUnit.SECONDS),
+                        RpcCallback.fromFuture(f));
+                list.add(f);
+            }
+            for (CompletableFuture<ReadPacket<RefBuffer>> f : list) {
+                ReadPacket<RefBuffer> rf = f.get(1, TimeUnit.SECONDS);
+                assertEquals(CmdCodes.SUCCESS, rf.getRespCode());
+                rf.getBody().release();
+            }
+            assertTrue(maxBatch.get() > 1);
+        } finally {
+            TestUtil.stop(client, server);
+        }
+    }
+
+    @Test
+    public void compressTest() throws Exception {
+        NioServerConfig serverConfig = new NioServerConfig();
+        serverConfig.setPort(9000);
+        serverConfig.setCompressThreshold(64);
+        NioServer server = new NioServer(serverConfig);
+        NioClientConfig clientConfig = new NioClientConfig();
+        clientConfig.setHostPorts(Collections.singletonList(new HostPort("127.0.0.1", 9000)));
+        clientConfig.setCompressThreshold(64);
+        NioClient client = new NioClient(clientConfig);
+        try {
+            server.start();
+            client.start();
+            client.waitStart();
+            assertEquals(Packet.COMPRESS_LZ4, client.getPeers().get(0).dtChannel.compressType);
+            Random r = new Random();
+            for (int i = 0; i < 20; i++) {
+                ByteBuffer buf = ByteBuffer.allocate(r.nextInt(300_000));
+                // compressible
+                for (int j = 0; j < buf.capacity(); j++) {
+                    buf.put(j, (byte) r.nextInt(i % 2 == 0 ? 4 : 256));
+                }
+                ByteBufferWritePacket wf = new ByteBufferWritePacket(buf);
+                wf.setCommand(Commands.CMD_PING);
+                ReadPacket<RefBuffer> rf = client.sendRequest(wf, ctx -> new RefBufferDecoderCallback(),
+                        new DtTime(1, TimeUnit.SECONDS));
+                assertEquals(CmdCodes.SUCCESS, rf.getRespCode());
+                RefBuffer rc = rf.getBody();
+                if (rc != null) {
+                    assertEquals(buf, rc.getBuffer());
+                    rc.release();
+                }
+            }
+            invoke(client);
+        } finally {
+            TestUtil.stop(client, server);
+        }
+
+        // server not enable compress
+        serverConfig.setCompressThreshold(0);
+        server = new NioServer(serverConfig);
+        client = new NioClient(clientConfig);
+        try {
+            server.start();
+            client.start();
+            client.waitStart();
+            assertEquals(Packet.COMPRESS_NONE, client.getPeers().get(0).dtChannel.compressType);
+            invoke(client);
+        } finally {
+            TestUtil.stop(client, server);
+        }
+    }
+
+    @Test
+    public void priorityTest() throws Exception {
+        NioServerConfig serverConfig = new NioServerConfig();
+        serverConfig.setPort(9000);
+        NioServer server = new NioServer(serverConfig);
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        NioServer.PingProcessor p = new NioServer.PingProcessor() {
+            @Override
+            public WritePacket process(ReadPacket<RefBuffer> packet, ReqContext reqContext) {
+                received.add(packet.getCommand());
+                return super.process(packet, reqContext);
+            }
+        };
+        server.register(12345, p, null);
+        server.register(12346, p, null);
+        NioClientConfig clientConfig = new NioClientConfig();
+        clientConfig.setHostPorts(Collections.singletonList(new HostPort("127.0.0.1", 9000)));
+        NioClient client = new NioClient(clientConfig);
+        try {
+            server.start();
+            client.start();
+            client.waitStart();
+            ArrayList<CompletableFuture<ReadPacket<RefBuffer>>> list = new ArrayList<>();
+            CompletableFuture<Void> sendFuture = new CompletableFuture<>();
+            // send in io thread, so all packets are in the channel queue before write
+            client.worker.doInIoThread(() -> {
+                for (int i = 0; i < 11; i++) {
+                    ByteBufferWritePacket wf = new ByteBufferWritePacket(ByteBuffer.allocate(200 * 1024));
+                    wf.setCommand(i == 10 ? 12346 : 12345);
+                    wf.setHighPriority(i == 10);
+                    CompletableFuture<ReadPacket<RefBuffer>> f = new CompletableFuture<>();
+                    client.sendRequest(wf, ctx -> new RefBufferDecoderCallback(), new DtTime(5, TimeUnit.SECONDS),
+                            RpcCallback.fromFuture(f));
+                    list.add(f);
+                }
+                sendFuture.complete(null);
+            }, sendFuture);
+            sendFuture.get(1, TimeUnit.SECONDS);
+            for (CompletableFuture<ReadPacket<RefBuffer>> f : list) {
+                f.get(5, TimeUnit.SECONDS).getBody().release();
+            }
+            assertEquals(11, received.size());
+            assertEquals(12346, received.get(0));
+        } finally {
+            TestUtil.stop(client, server);
+        }
+    }
+
     static void invoke(NioClient client) {
         Random r = new Random();
         int len = (r.nextInt(10) == 0) ? 0 : r.nextInt(3000);
@@ -0,0 +1,104 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.net;
+
+import com.github.dtprj.dongting.buf.ByteBufferPool;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author huangli
+ */
+public class ReleaseBatcherTest {
+
+    private static class CountPool extends ByteBufferPool {
+        final ArrayList<ByteBuffer> released = new ArrayList<>();
+
+        CountPool() {
+            super(false);
+        }
+
+        @Override
+        public ByteBuffer borrow(int requestSize) {
+            return ByteBuffer.allocate(requestSize);
+        }
+
+        @Override
+        public void release(ByteBuffer buf) {
+            released.add(buf);
+        }
+
+        @Override
+        public ByteBuffer allocate(int requestSize) {
+            return ByteBuffer.allocate(requestSize);
+        }
+
+        @Override
+        public void clean() {
+        }
+
+        @Override
+        public String formatStat() {
+            return "";
+        }
+    }
+
+    @Test
+    public void testFullBatch() {
+        CountPool pool = new CountPool();
+        IoWorkerQueue queue = new IoWorkerQueue(null, new NioClientConfig());
+        ReleaseBatcher batcher = new ReleaseBatcher(pool, queue);
+        for (int i = 0; i < ReleaseBatcher.BATCH_SIZE; i++) {
+            batcher.release(ByteBuffer.allocate(1));
+        }
+        assertEquals(0, pool.released.size());
+        queue.dispatchActions();
+        assertEquals(ReleaseBatcher.BATCH_SIZE, pool.released.size());
+        batcher.drain();
+        assertEquals(ReleaseBatcher.BATCH_SIZE, pool.released.size());
+    }
+
+    @Test
+    public void testDrainPartialBatch() throws Exception {
+        CountPool pool = new CountPool();
+        IoWorkerQueue queue = new IoWorkerQueue(null, new NioClientConfig());
+        ReleaseBatcher batcher = new ReleaseBatcher(pool, queue);
+        Thread t = new Thread(() -> {
+            for (int i = 0; i < 5; i++) {
+                batcher.release(ByteBuffer.allocate(1));
+            }
+        });
+        t.start();
+        t.join();
+        batcher.release(ByteBuffer.allocate(1));
+
+        queue.dispatchActions();
+        assertEquals(0, pool.released.size());
+        batcher.drain();
+        assertEquals(6, pool.released.size());
+
+        // drain again after the batch is de-registered
+        batcher.drain();
+        assertEquals(6, pool.released.size());
+        batcher.release(ByteBuffer.allocate(1));
+        batcher.drain();
+        assertEquals(7, pool.released.size());
+    }
+}
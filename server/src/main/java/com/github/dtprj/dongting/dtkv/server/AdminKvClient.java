@@ -0,0 +1,248 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.dtkv.server;
+
+import com.github.dtprj.dongting.codec.DecoderCallbackCreator;
+import com.github.dtprj.dongting.common.ByteArray;
+import com.github.dtprj.dongting.common.DtTime;
+import com.github.dtprj.dongting.common.DtUtil;
+import com.github.dtprj.dongting.common.FutureCallback;
+import com.github.dtprj.dongting.dtkv.KvClient;
+import com.github.dtprj.dongting.dtkv.KvCodes;
+import com.github.dtprj.dongting.dtkv.KvNode;
+import com.github.dtprj.dongting.dtkv.KvReq;
+import com.github.dtprj.dongting.dtkv.KvResp;
+import com.github.dtprj.dongting.dtkv.KvResult;
+import com.github.dtprj.dongting.log.DtLog;
+import com.github.dtprj.dongting.log.DtLogs;
+import com.github.dtprj.dongting.net.Commands;
+import com.github.dtprj.dongting.net.EncodableBodyWritePacket;
+import com.github.dtprj.dongting.net.NetBizCodeException;
+import com.github.dtprj.dongting.net.NioClientConfig;
+import com.github.dtprj.dongting.net.ReadPacket;
+import com.github.dtprj.dongting.net.RpcCallback;
+import com.github.dtprj.dongting.raft.GroupInfo;
+import com.github.dtprj.dongting.raft.NoSuchGroupException;
+import com.github.dtprj.dongting.raft.RaftClient;
+import com.github.dtprj.dongting.raft.RaftException;
+import com.github.dtprj.dongting.raft.RaftTimeoutException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @author huangli
+ */
+public class AdminKvClient extends KvClient {
+    private static final DtLog log = DtLogs.getLogger(AdminKvClient.class);
+
+    private int copyPageSize = 1000;
+
+    public AdminKvClient() {
+        this(new NioClientConfig());
+    }
+
+    public AdminKvClient(NioClientConfig nioConfig) {
+        super(nioConfig);
+    }
+
+    /**
+     * Split the dir subtree of a group to the target group online. The target group should be created on
+     * the servers (usually the same servers of the source group) by RaftServer.addGroup with a DtKV state
+     * machine before calling this method.
+     * <p>
+     * The writes of the subtree are fenced (clients retry them) while the data is copied, reads are not
+     * affected. After the split committed, the source group responds CODE_MOVED for the subtree, and
+     * KvClient routes the requests of the subtree to the target group transparently.
+     */
+    public void split(int groupId, String dir, int targetGroupId, DtTime timeout) {
+        if (groupId == targetGroupId) {
+            throw new IllegalArgumentException("target group is same as source group: " + groupId);
+        }
+        RaftClient raftClient = getRaftClient();
+        if (raftClient.getGroup(targetGroupId) == null) {
+            GroupInfo gi = raftClient.getGroup(groupId);
+            if (gi == null) {
+                throw new NoSuchGroupException(groupId);
+            }
+            raftClient.addOrUpdateGroup(targetGroupId, gi.getServers());
+        }
+        waitFuture(splitFence(groupId, dir, targetGroupId, timeout), timeout);
+        try {
+            copyDir(groupId, dir, targetGroupId, timeout);
+        } catch (RuntimeException e) {
+            log.error("copy dir {} from group {} to group {} fail, abort split", dir, groupId, targetGroupId, e);
+            splitAbort(groupId, dir, timeout).whenComplete((v, ex) -> {
+                if (ex != null) {
+                    log.error("abort split fail, groupId={}, dir={}", groupId, dir, ex);
+                }
+            });
+            throw e;
+        }
+        waitFuture(splitCommit(groupId, dir, timeout), timeout);
+    }
+
+    private void copyDir(int groupId, String dir, int targetGroupId, DtTime timeout) {
+        // create the ancestors in the target group, the values of them are not copied
+        int i = dir.indexOf('.');
+        while (i > 0) {
+            mkdir(targetGroupId, dir.substring(0, i), timeout);
+            i = dir.indexOf('.', i + 1);
+        }
+        mkdir(targetGroupId, dir, timeout);
+        LinkedList<String> dirs = new LinkedList<>();
+        dirs.add(dir);
+        while (!dirs.isEmpty()) {
+            String d = dirs.removeFirst();
+            // the subtree is fenced, so the order of the children is stable and the offset paging is safe
+            int offset = 0;
+            while (true) {
+                List<KvResult> children = waitFuture(listPage(groupId, d, offset, copyPageSize, timeout), timeout);
+                if (children == null || children.isEmpty()) {
+                    break;
+                }
+                // the children in same page are written in parallel
+                ArrayList<CompletableFuture<Void>> futures = new ArrayList<>(children.size());
+                for (KvResult r : children) {
+                    String key = d + "." + new String(r.getKeyInDir().getData(), StandardCharsets.UTF_8);
+                    KvNode n = r.getNode();
+                    CompletableFuture<Void> f = new CompletableFuture<>();
+                    if (n.isDir()) {
+                        dirs.add(key);
+                        mkdir(targetGroupId, key, timeout, FutureCallback.fromFuture(f));
+                    } else {
+                        put(targetGroupId, key, n.getData(), timeout, FutureCallback.fromFuture(f));
+                    }
+                    futures.add(f);
+                }
+                waitFuture(CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])), timeout);
+                if (children.size() < copyPageSize) {
+                    break;
+                }
+                offset += children.size();
+            }
+        }
+    }
+
+    private CompletableFuture<List<KvResult>> listPage(int groupId, String dir, int offset, int limit,
+                                                       DtTime timeout) {
+        KvReq req = new KvReq(groupId, dir.getBytes(StandardCharsets.UTF_8), null, null, null, null);
+        req.setListOffset(offset);
+        req.setListLimit(limit);
+        EncodableBodyWritePacket p = new EncodableBodyWritePacket(req);
+        p.setCommand(Commands.DTKV_LIST);
+        CompletableFuture<List<KvResult>> f = new CompletableFuture<>();
+        DecoderCallbackCreator<KvResp> dc = ctx -> ctx.toDecoderCallback(ctx.kvRespCallback());
+        getRaftClient().sendRequest(groupId, p, dc, timeout, new RpcCallback<>() {
+            @Override
+            public void success(ReadPacket<KvResp> result) {
+                int bc = result.getBizCode();
+                if (bc == KvCodes.CODE_SUCCESS) {
+                    KvResp resp = result.getBody();
+                    f.complete(resp == null ? null : resp.getResults());
+                } else if (bc == KvCodes.CODE_NOT_FOUND) {
+                    f.complete(null);
+                } else {
+                    f.completeExceptionally(new NetBizCodeException(bc, result.getMsg()));
+                }
+            }
+
+            @Override
+            public void fail(Throwable ex) {
+                f.completeExceptionally(ex);
+            }
+        });
+        return f;
+    }
+
+    public int getCopyPageSize() {
+        return copyPageSize;
+    }
+
+    /**
+     * Set the max children count listed in one request when copying data in split.
+     */
+    public void setCopyPageSize(int copyPageSize) {
+        this.copyPageSize = copyPageSize;
+    }
+
+    /**
+     * Fence the writes of the dir subtree in the source group, the first step of split.
+     */
+    public CompletableFuture<Void> splitFence(int groupId, String dir, int targetGroupId, DtTime timeout) {
+        ByteArray value = new ByteArray(String.valueOf(targetGroupId).getBytes(StandardCharsets.UTF_8));
+        return sendSplitCmd(Commands.DTKV_SPLIT_FENCE, groupId, dir, value, timeout);
+    }
+
+    /**
+     * Mark the dir subtree moved and remove the data in the source group, the last step of split.
+     */
+    public CompletableFuture<Void> splitCommit(int groupId, String dir, DtTime timeout) {
+        return sendSplitCmd(Commands.DTKV_SPLIT_COMMIT, groupId, dir, null, timeout);
+    }
+
+    /**
+     * Remove the fence of the dir subtree if the split is not committed.
+     */
+    public CompletableFuture<Void> splitAbort(int groupId, String dir, DtTime timeout) {
+        return sendSplitCmd(Commands.DTKV_SPLIT_ABORT, groupId, dir, null, timeout);
+    }
+
+    private CompletableFuture<Void> sendSplitCmd(int cmd, int groupId, String dir, ByteArray value, DtTime timeout) {
+        KvReq req = new KvReq(groupId, dir.getBytes(StandardCharsets.UTF_8), value, null, null, null);
+        EncodableBodyWritePacket p = new EncodableBodyWritePacket(req);
+        p.setCommand(cmd);
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        getRaftClient().sendRequest(groupId, p, DecoderCallbackCreator.VOID_DECODE_CALLBACK_CREATOR, timeout,
+                new RpcCallback<>() {
+                    @Override
+                    public void success(ReadPacket<Void> result) {
+                        if (result.getBizCode() == KvCodes.CODE_SUCCESS) {
+                            f.complete(null);
+                        } else {
+                            f.completeExceptionally(new NetBizCodeException(result.getBizCode(), result.getMsg()));
+                        }
+                    }
+
+                    @Override
+                    public void fail(Throwable ex) {
+                        f.completeExceptionally(ex);
+                    }
+                });
+        return f;
+    }
+
+    private static <T> T waitFuture(CompletableFuture<T> f, DtTime timeout) {
+        try {
+            return f.get(timeout.getTimeout(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            DtUtil.restoreInterruptStatus();
+            throw new RaftException("interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RaftException("execution exception", e.getCause());
+        } catch (TimeoutException e) {
+            throw new RaftTimeoutException("timeout: " + timeout.getTimeout(TimeUnit.MILLISECONDS) + "ms", e);
+        } catch (Exception e) {
+            throw new RaftException("execution exception", e);
+        }
+    }
+}
@@ -25,6 +25,7 @@ import com.github.dtprj.dongting.common.DtTime;
 import com.github.dtprj.dongting.common.Pair;
 import com.github.dtprj.dongting.dtkv.KvCodes;
 import com.github.dtprj.dongting.dtkv.KvResult;
+import com.github.dtprj.dongting.fiber.BlockingExecutor;
 import com.github.dtprj.dongting.fiber.Fiber;
 import com.github.dtprj.dongting.fiber.FiberFrame;
 import com.github.dtprj.dongting.fiber.FiberFuture;
@@ -41,7 +42,6 @@ import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.function.Supplier;
 
 /**
@@ -53,8 +53,12 @@ public class DtKV extends AbstractLifeCircle implements StateMachine {
     public static final int BIZ_TYPE_REMOVE = 2;
     public static final int BIZ_TYPE_MKDIR = 3;
     public static final int BIZ_TYPE_LIST = 4;
+    public static final int BIZ_TYPE_SPLIT_FENCE = 5;
+    public static final int BIZ_TYPE_SPLIT_COMMIT = 6;
+    public static final int BIZ_TYPE_SPLIT_ABORT = 7;
 
     private Executor dtkvExecutor;
+    private BlockingExecutor blockingExecutor;
 
     private final FiberGroup mainFiberGroup;
     private final RaftGroupConfigEx config;
@@ -86,8 +90,11 @@ public class DtKV extends AbstractLifeCircle implements StateMachine {
             case BIZ_TYPE_REMOVE:
             case BIZ_TYPE_MKDIR:
             case BIZ_TYPE_LIST:
+            case BIZ_TYPE_SPLIT_COMMIT:
+            case BIZ_TYPE_SPLIT_ABORT:
                 return null;
             case BIZ_TYPE_PUT:
+            case BIZ_TYPE_SPLIT_FENCE:
                 return new ByteArray.Callback();
             default:
                 throw new IllegalArgumentException("unknown bizType " + bizType);
@@ -96,25 +103,18 @@ public class DtKV extends AbstractLifeCircle implements StateMachine {
 
     @Override
     public FiberFuture<Object> exec(long index, RaftInput input) {
-        FiberFuture<Object> f = mainFiberGroup.newFuture("dtkv-exec");
         if (useSeparateExecutor) {
-            dtkvExecutor.execute(() -> {
-                try {
-                    Object r = exec0(index, input);
-                    f.fireComplete(r);
-                } catch (Exception e) {
-                    f.fireCompleteExceptionally(e);
-                }
-            });
+            return blockingExecutor.submit("dtkv-exec", () -> exec0(index, input));
         } else {
+            FiberFuture<Object> f = mainFiberGroup.newFuture("dtkv-exec");
             try {
                 Object r = exec0(index, input);
                 f.complete(r);
             } catch (Exception e) {
                 f.completeExceptionally(e);
             }
+            return f;
         }
-        return f;
     }
 
     private Object exec0(long index, RaftInput input) {
@@ -131,6 +131,14 @@ public class DtKV extends AbstractLifeCircle implements StateMachine {
                 return kvStatus.kvImpl.remove(index, key);
             case BIZ_TYPE_MKDIR:
                 return kvStatus.kvImpl.mkdir(index, key);
+            case BIZ_TYPE_SPLIT_FENCE:
+                // the body is the target group id in decimal string
+                int targetGroupId = Integer.parseInt(input.getBody().toString());
+                return kvStatus.kvImpl.splitFence(index, key, targetGroupId);
+            case BIZ_TYPE_SPLIT_COMMIT:
+                return kvStatus.kvImpl.splitCommit(index, key);
+            case BIZ_TYPE_SPLIT_ABORT:
+                return kvStatus.kvImpl.splitAbort(key);
             default:
                 throw new IllegalArgumentException("unknown bizType " + input.getBizType());
         }
@@ -161,35 +169,49 @@ public class DtKV extends AbstractLifeCircle implements StateMachine {
      * @see com.github.dtprj.dongting.raft.server.RaftGroup#getLeaseReadIndex(DtTime)
      */
     public Pair<Integer, List<KvResult>> list(ByteArray key) {
+        return list(key, 0, 0);
+    }
+
+    /**
+     * list a page of the children, see list(ByteArray). The order of the children is stable only if the dir
+     * is not modified, for example, the writes of the dir are fenced during split.
+     *
+     * @param offset the children to skip
+     * @param limit  max count of the children returned, 0 means no limit
+     */
+    public Pair<Integer, List<KvResult>> list(ByteArray key, int offset, int limit) {
         KvStatus kvStatus = this.kvStatus;
         if (kvStatus.installSnapshot) {
             return new Pair<>(KvCodes.CODE_INSTALL_SNAPSHOT, null);
         }
-        return kvStatus.kvImpl.list(key);
+        return kvStatus.kvImpl.list(key, offset, limit);
+    }
+
+    /**
+     * find the split fence of the key or its ancestor dir, can be called in any threads.
+     */
+    SplitFence findSplitFence(ByteArray key) {
+        return kvStatus.kvImpl.findFence(key);
     }
 
     @Override
     public FiberFuture<Void> installSnapshot(long lastIncludeIndex, int lastIncludeTerm, long offset,
                                              boolean done, ByteBuffer data) {
-        FiberFuture<Void> f = mainFiberGroup.newFuture("dtkv-install-snapshot");
         if (useSeparateExecutor) {
-            dtkvExecutor.execute(() -> {
-                try {
-                    install0(offset, done, data);
-                    f.fireComplete(null);
-                } catch (Exception ex) {
-                    f.fireCompleteExceptionally(ex);
-                }
+            return blockingExecutor.submit("dtkv-install-snapshot", () -> {
+                install0(offset, done, data);
+                return null;
             });
         } else {
+            FiberFuture<Void> f = mainFiberGroup.newFuture("dtkv-install-snapshot");
             try {
                 install0(offset, done, data);
                 f.complete(null);
             } catch (Exception ex) {
                 f.completeExceptionally(ex);
             }
+            return f;
         }
-        return f;
     }
 
     private void install0(long offset, boolean done, ByteBuffer data) {
@@ -228,12 +250,11 @@ public class DtKV extends AbstractLifeCircle implements StateMachine {
         return kvStatus.kvImpl.takeSnapshot(si, cancel, this::doGcInExecutor);
     }
 
+    /**
+     * The tasks are run one by one in submit order, so virtual thread is used if possible.
+     */
     protected Executor createExecutor() {
-        return Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r);
-            t.setName("DtKV-" + config.getGroupId());
-            return t;
-        });
+        return BlockingExecutor.newExecutorService("DtKV-" + config.getGroupId() + "-", 1);
     }
 
     protected void stopExecutor(Executor executor) {
@@ -242,7 +263,7 @@ public class DtKV extends AbstractLifeCircle implements StateMachine {
 
     private void doGcInExecutor(Supplier<Boolean> gcTask) {
         if (useSeparateExecutor) {
-            dtkvExecutor.execute(() -> {
+            blockingExecutor.execute(() -> {
                 if (gcTask.get()) {
                     doGcInExecutor(gcTask);
                 }
@@ -266,6 +287,7 @@ public class DtKV extends AbstractLifeCircle implements StateMachine {
     protected void doStart() {
         if (useSeparateExecutor) {
             dtkvExecutor = createExecutor();
+            blockingExecutor = new BlockingExecutor(mainFiberGroup, dtkvExecutor, true);
         }
     }
 
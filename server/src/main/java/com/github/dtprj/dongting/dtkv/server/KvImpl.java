@@ -61,6 +61,9 @@ class KvImpl {
     // for fast access root dir
     final KvNodeHolder root;
 
+    // dirs split (or being split) to other groups, usually empty or very small
+    final ConcurrentHashMap<ByteArray, SplitFence> fences = new ConcurrentHashMap<>();
+
     // write operations is not atomic, so we need lock although ConcurrentHashMap is used
     private final ReentrantReadWriteLock.ReadLock readLock;
     private final ReentrantReadWriteLock.WriteLock writeLock;
@@ -101,6 +104,38 @@ class KvImpl {
         return KvCodes.CODE_SUCCESS;
     }
 
+    /**
+     * find the fence of the key itself or its nearest ancestor dir, may be called in other threads.
+     */
+    SplitFence findFence(ByteArray key) {
+        if (fences.isEmpty() || key == null) {
+            return null;
+        }
+        while (true) {
+            SplitFence f = fences.get(key);
+            if (f != null) {
+                return f;
+            }
+            int lastIndexOfSep = key.lastIndexOf(SEPARATOR);
+            if (lastIndexOfSep <= 0) {
+                return null;
+            }
+            key = key.sub(0, lastIndexOfSep);
+        }
+    }
+
+    private int checkFence(ByteArray key, boolean write) {
+        SplitFence f = findFence(key);
+        if (f == null) {
+            return KvCodes.CODE_SUCCESS;
+        }
+        if (f.state == SplitFence.STATE_MOVED) {
+            return KvCodes.CODE_MOVED;
+        }
+        // reads are allowed when splitting, the data is still here
+        return write ? KvCodes.CODE_SPLITTING : KvCodes.CODE_SUCCESS;
+    }
+
     /**
      * This method may be called in other threads.
      * <p>
@@ -112,6 +147,10 @@ class KvImpl {
         if (ck != KvCodes.CODE_SUCCESS) {
             return new KvResult(ck);
         }
+        ck = checkFence(key, false);
+        if (ck != KvCodes.CODE_SUCCESS) {
+            return new KvResult(ck);
+        }
         readLock.lock();
         try {
             KvNodeHolder h;
@@ -140,10 +179,18 @@ class KvImpl {
      * the raftIndex parameter, and this does not violate linearizability.
      */
     public Pair<Integer, List<KvResult>> list(ByteArray key) {
+        return list(key, 0, 0);
+    }
+
+    public Pair<Integer, List<KvResult>> list(ByteArray key, int offset, int limit) {
         int ck = checkKey(key, true);
         if (ck != KvCodes.CODE_SUCCESS) {
             return new Pair<>(ck, null);
         }
+        ck = checkFence(key, false);
+        if (ck != KvCodes.CODE_SUCCESS) {
+            return new Pair<>(ck, null);
+        }
         readLock.lock();
         boolean linked;
         List<KvResult> list;
@@ -164,16 +211,25 @@ class KvImpl {
             if (!kvNode.isDir()) {
                 return new Pair<>(KvCodes.CODE_PARENT_NOT_DIR, null);
             }
-            if (kvNode.children.size() > 10) {
+            int max = limit > 0 ? Math.min(limit, kvNode.children.size()) : kvNode.children.size();
+            if (max > 10) {
                 linked = true;
                 list = new LinkedList<>();
             } else {
                 linked = false;
                 list = new ArrayList<>();
             }
+            int skip = offset;
             for (KvNodeHolder child : kvNode.children.values()) {
                 if (!child.latest.removed) {
+                    if (skip > 0) {
+                        skip--;
+                        continue;
+                    }
                     list.add(new KvResult(KvCodes.CODE_SUCCESS, child.latest, child.keyInDir));
+                    if (limit > 0 && list.size() >= limit) {
+                        break;
+                    }
                 }
             }
         } finally {
@@ -202,6 +258,10 @@ class KvImpl {
         if (ck != KvCodes.CODE_SUCCESS) {
             return new KvResult(ck);
         }
+        ck = checkFence(key, true);
+        if (ck != KvCodes.CODE_SUCCESS) {
+            return new KvResult(ck);
+        }
         KvNodeHolder parent;
         int lastIndexOfSep = key.lastIndexOf(SEPARATOR);
         if (lastIndexOfSep > 0) {
@@ -319,6 +379,12 @@ class KvImpl {
 
     void installSnapshotPut(EncodeStatus encodeStatus) {
         // do not need lock, no other requests during install snapshot
+        if (encodeStatus.createIndex == SplitFence.SNAPSHOT_FLAG) {
+            ByteArray dir = new ByteArray(encodeStatus.keyBytes);
+            fences.put(dir, new SplitFence(dir, (int) encodeStatus.createTime, (int) encodeStatus.updateTime,
+                    encodeStatus.updateIndex));
+            return;
+        }
         KvNodeEx n = new KvNodeEx(encodeStatus.createIndex, encodeStatus.createTime, encodeStatus.updateIndex,
                 encodeStatus.updateTime, encodeStatus.valueBytes == null || encodeStatus.valueBytes.length == 0,
                 encodeStatus.valueBytes);
@@ -373,6 +439,10 @@ class KvImpl {
         if (ck != KvCodes.CODE_SUCCESS) {
             return new KvResult(ck);
         }
+        ck = checkFence(key, true);
+        if (ck != KvCodes.CODE_SUCCESS) {
+            return new KvResult(ck);
+        }
         KvNodeHolder h = map.get(key);
         if (h == null) {
             return KvResult.NOT_FOUND;
@@ -391,16 +461,7 @@ class KvImpl {
         }
         writeLock.lock();
         try {
-            if (maxOpenSnapshotIndex > 0) {
-                KvNodeEx newKvNode = new KvNodeEx(n.getCreateIndex(), n.getCreateTime(), index,
-                        ts.getWallClockMillis(), n.isDir(), null);
-                newKvNode.removed = true;
-                h.latest = newKvNode;
-                newKvNode.previous = n;
-                gc(h);
-            } else {
-                removeFromMap(h);
-            }
+            doRemove(index, ts.getWallClockMillis(), h);
             updateParent(index, ts.getWallClockMillis(), h.parent);
         } finally {
             writeLock.unlock();
@@ -408,10 +469,125 @@ class KvImpl {
         return KvResult.SUCCESS;
     }
 
+    private void doRemove(long index, long timestamp, KvNodeHolder h) {
+        KvNodeEx n = h.latest;
+        if (maxOpenSnapshotIndex > 0) {
+            KvNodeEx newKvNode = new KvNodeEx(n.getCreateIndex(), n.getCreateTime(), index,
+                    timestamp, n.isDir(), null);
+            newKvNode.removed = true;
+            h.latest = newKvNode;
+            newKvNode.previous = n;
+            gc(h);
+        } else {
+            removeFromMap(h);
+        }
+    }
+
+    private void removeSubtree(long index, long timestamp, KvNodeHolder h) {
+        KvNodeEx n = h.latest;
+        if (n.isDir() && !n.children.isEmpty()) {
+            // copy it, since the children map is modified when child removed
+            for (KvNodeHolder c : new ArrayList<>(n.children.values())) {
+                if (!c.latest.removed) {
+                    removeSubtree(index, timestamp, c);
+                }
+            }
+        }
+        doRemove(index, timestamp, h);
+    }
+
     public KvResult mkdir(long index, ByteArray key) {
         return doPut(index, key, null);
     }
 
+    /**
+     * Fence the writes of the dir subtree before it is copied to the target group, reads are still allowed.
+     */
+    public KvResult splitFence(long index, ByteArray dir, int targetGroupId) {
+        int ck = checkKey(dir, false);
+        if (ck != KvCodes.CODE_SUCCESS) {
+            return new KvResult(ck);
+        }
+        SplitFence f = findFence(dir);
+        if (f != null) {
+            if (f.dir.equals(dir) && f.state == SplitFence.STATE_SPLITTING && f.targetGroupId == targetGroupId) {
+                // retry of admin tool
+                return KvResult.SUCCESS;
+            }
+            return new KvResult(f.state == SplitFence.STATE_MOVED ? KvCodes.CODE_MOVED : KvCodes.CODE_SPLITTING);
+        }
+        for (SplitFence x : fences.values()) {
+            if (isAncestor(dir, x.dir)) {
+                // a sub dir is already split, it will be routed to wrong group if we move the parent dir
+                return new KvResult(KvCodes.CODE_SPLITTING);
+            }
+        }
+        KvNodeHolder h = map.get(dir);
+        if (h == null || h.latest.removed) {
+            return KvResult.NOT_FOUND;
+        }
+        if (!h.latest.isDir()) {
+            return new KvResult(KvCodes.CODE_PARENT_NOT_DIR);
+        }
+        fences.put(dir, new SplitFence(dir, targetGroupId, SplitFence.STATE_SPLITTING, index));
+        log.info("group {} fence dir {} to split to group {}", groupId, dir, targetGroupId);
+        return KvResult.SUCCESS;
+    }
+
+    /**
+     * The dir subtree is copied to the target group, mark it moved and remove the data.
+     */
+    public KvResult splitCommit(long index, ByteArray dir) {
+        SplitFence f = fences.get(dir);
+        if (f == null) {
+            return KvResult.NOT_FOUND;
+        }
+        if (f.state == SplitFence.STATE_MOVED) {
+            return KvResult.SUCCESS;
+        }
+        fences.put(dir, new SplitFence(dir, f.targetGroupId, SplitFence.STATE_MOVED, index));
+        KvNodeHolder h = map.get(dir);
+        if (h != null && !h.latest.removed) {
+            writeLock.lock();
+            try {
+                long timestamp = ts.getWallClockMillis();
+                removeSubtree(index, timestamp, h);
+                updateParent(index, timestamp, h.parent);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        log.info("group {} dir {} moved to group {}", groupId, dir, f.targetGroupId);
+        return KvResult.SUCCESS;
+    }
+
+    public KvResult splitAbort(ByteArray dir) {
+        SplitFence f = fences.get(dir);
+        if (f == null) {
+            return KvResult.NOT_FOUND;
+        }
+        if (f.state == SplitFence.STATE_MOVED) {
+            return new KvResult(KvCodes.CODE_MOVED);
+        }
+        fences.remove(dir);
+        log.info("group {} split of dir {} aborted", groupId, dir);
+        return KvResult.SUCCESS;
+    }
+
+    private static boolean isAncestor(ByteArray dir, ByteArray key) {
+        byte[] d = dir.getData();
+        byte[] k = key.getData();
+        if (k.length <= d.length || k[d.length] != SEPARATOR) {
+            return false;
+        }
+        for (int i = 0; i < d.length; i++) {
+            if (d[i] != k[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private void updateMinMax() {
         long max = 0;
         long min = Long.MAX_VALUE;
@@ -21,6 +21,7 @@ import com.github.dtprj.dongting.codec.Encodable;
 import com.github.dtprj.dongting.common.ByteArray;
 import com.github.dtprj.dongting.common.FutureCallback;
 import com.github.dtprj.dongting.common.Pair;
+import com.github.dtprj.dongting.dtkv.KvCodes;
 import com.github.dtprj.dongting.dtkv.KvReq;
 import com.github.dtprj.dongting.dtkv.KvResp;
 import com.github.dtprj.dongting.dtkv.KvResult;
@@ -38,6 +39,7 @@ import com.github.dtprj.dongting.raft.server.RaftProcessor;
 import com.github.dtprj.dongting.raft.server.RaftServer;
 import com.github.dtprj.dongting.raft.server.ReqInfo;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 
@@ -88,6 +90,22 @@ public class KvProcessor extends RaftProcessor<KvReq> {
             case Commands.DTKV_LIST:
                 doList(reqInfo, req);
                 break;
+            case Commands.DTKV_SPLIT_FENCE:
+                try {
+                    Integer.parseInt(req.getValue() == null ? "" : req.getValue().toString());
+                } catch (NumberFormatException e) {
+                    EmptyBodyRespPacket errorResp = new EmptyBodyRespPacket(CmdCodes.CLIENT_ERROR);
+                    errorResp.setMsg("bad target group id");
+                    return errorResp;
+                }
+                submitWriteTask(reqInfo, DtKV.BIZ_TYPE_SPLIT_FENCE, new ByteArray(req.getKey()), req.getValue());
+                break;
+            case Commands.DTKV_SPLIT_COMMIT:
+                submitWriteTask(reqInfo, DtKV.BIZ_TYPE_SPLIT_COMMIT, new ByteArray(req.getKey()), null);
+                break;
+            case Commands.DTKV_SPLIT_ABORT:
+                submitWriteTask(reqInfo, DtKV.BIZ_TYPE_SPLIT_ABORT, new ByteArray(req.getKey()), null);
+                break;
             default:
                 throw new RaftException("unknown command: " + frame.getCommand());
         }
@@ -105,6 +123,7 @@ public class KvProcessor extends RaftProcessor<KvReq> {
                     EncodableBodyWritePacket wf = new EncodableBodyWritePacket(resp);
                     wf.setRespCode(CmdCodes.SUCCESS);
                     wf.setBizCode(r.getBizCode());
+                    fillMovedInfo(wf, dtKV, req.getKey());
                     writeResp(reqInfo, wf);
                 } catch (Exception e) {
                     writeErrorResp(reqInfo, e);
@@ -125,11 +144,13 @@ public class KvProcessor extends RaftProcessor<KvReq> {
             public void success(Long result) {
                 try {
                     DtKV dtKV = (DtKV) reqInfo.raftGroup.getStateMachine();
-                    Pair<Integer, List<KvResult>> p = dtKV.list(req.getKey() == null ? null : new ByteArray(req.getKey()));
+                    Pair<Integer, List<KvResult>> p = dtKV.list(req.getKey() == null ? null : new ByteArray(req.getKey()),
+                            req.getListOffset(), req.getListLimit());
                     KvResp resp = new KvResp(p.getRight());
                     EncodableBodyWritePacket wf = new EncodableBodyWritePacket(resp);
                     wf.setRespCode(CmdCodes.SUCCESS);
                     wf.setBizCode(p.getLeft());
+                    fillMovedInfo(wf, dtKV, req.getKey());
                     writeResp(reqInfo, wf);
                 } catch (Exception e) {
                     writeErrorResp(reqInfo, e);
@@ -143,8 +164,25 @@ public class KvProcessor extends RaftProcessor<KvReq> {
         });
     }
 
+    /**
+     * tell the client where the key is moved to, so it can update its route and resend the request.
+     */
+    private static void fillMovedInfo(WritePacket resp, DtKV dtKV, byte[] key) {
+        if (resp.getBizCode() != KvCodes.CODE_MOVED || key == null) {
+            return;
+        }
+        SplitFence f = dtKV.findSplitFence(new ByteArray(key));
+        if (f != null) {
+            String s = f.targetGroupId + "," + new String(f.dir.getData(), StandardCharsets.UTF_8);
+            resp.setExtra(s.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
     private void submitWriteTask(ReqInfo<KvReq> reqInfo, int bizType, Encodable header, Encodable body) {
         RaftInput ri = new RaftInput(bizType, header, body, reqInfo.reqContext.getTimeout(), false);
+        if (reqInfo.reqFrame.getBody().isBulk()) {
+            ri.setPriorityClass(RaftInput.PRIORITY_CLASS_BULK);
+        }
         reqInfo.raftGroup.submitLinearTask(ri, new RC(reqInfo));
     }
 
@@ -161,6 +199,7 @@ public class KvProcessor extends RaftProcessor<KvReq> {
             KvResult r = (KvResult) result;
             EmptyBodyRespPacket resp = new EmptyBodyRespPacket(CmdCodes.SUCCESS);
             resp.setBizCode(r.getBizCode());
+            fillMovedInfo(resp, (DtKV) reqInfo.raftGroup.getStateMachine(), reqInfo.reqFrame.getBody().getKey());
             writeResp(reqInfo, resp);
         }
 
@@ -36,6 +36,9 @@ public class KvReqCallback extends PbCallback<KvReq> {
     private static final int IDX_VALUES_SIZE = 6;
     private static final int IDX_VALUES = 7;
     private static final int IDX_EXPECT_VALUE = 8;
+    private static final int IDX_BULK = 9;
+    private static final int IDX_LIST_OFFSET = 10;
+    private static final int IDX_LIST_LIMIT = 11;
 
     int groupId;
     byte[] key;
@@ -45,6 +48,9 @@ public class KvReqCallback extends PbCallback<KvReq> {
     private int valuesSize;
     ArrayList<ByteArray> values;
     ByteArray expectValue;
+    boolean bulk;
+    int listOffset;
+    int listLimit;
 
     @Override
     protected boolean end(boolean success) {
@@ -56,6 +62,9 @@ public class KvReqCallback extends PbCallback<KvReq> {
         valuesSize = 0;
         values = null;
         expectValue = null;
+        bulk = false;
+        listOffset = 0;
+        listLimit = 0;
         return success;
     }
 
@@ -67,6 +76,12 @@ public class KvReqCallback extends PbCallback<KvReq> {
             keysSize = (int) value;
         } else if (index == IDX_VALUES_SIZE) {
             valuesSize = (int) value;
+        } else if (index == IDX_BULK) {
+            bulk = value != 0;
+        } else if (index == IDX_LIST_OFFSET) {
+            listOffset = (int) value;
+        } else if (index == IDX_LIST_LIMIT) {
+            listLimit = (int) value;
         }
         return true;
     }
@@ -107,6 +122,10 @@ public class KvReqCallback extends PbCallback<KvReq> {
 
     @Override
     protected KvReq getResult() {
-        return new KvReq(groupId, key, value, keys, values, expectValue);
+        KvReq req = new KvReq(groupId, key, value, keys, values, expectValue);
+        req.setBulk(bulk);
+        req.setListOffset(listOffset);
+        req.setListLimit(listLimit);
+        return req;
     }
 }
@@ -35,5 +35,8 @@ public class KvServerUtil {
         nioServer.register(Commands.DTKV_REMOVE, p);
         nioServer.register(Commands.DTKV_MKDIR, p);
         nioServer.register(Commands.DTKV_LIST, p);
+        nioServer.register(Commands.DTKV_SPLIT_FENCE, p);
+        nioServer.register(Commands.DTKV_SPLIT_COMMIT, p);
+        nioServer.register(Commands.DTKV_SPLIT_ABORT, p);
     }
 }
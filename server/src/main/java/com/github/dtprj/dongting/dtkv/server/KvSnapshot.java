@@ -17,7 +17,6 @@ package com.github.dtprj.dongting.dtkv.server;
 
 import com.github.dtprj.dongting.common.ByteArray;
 import com.github.dtprj.dongting.common.IndexedQueue;
-import com.github.dtprj.dongting.dtkv.KvNode;
 import com.github.dtprj.dongting.fiber.FiberFuture;
 import com.github.dtprj.dongting.fiber.FiberGroup;
 import com.github.dtprj.dongting.raft.RaftException;
@@ -25,6 +24,7 @@ import com.github.dtprj.dongting.raft.sm.Snapshot;
 import com.github.dtprj.dongting.raft.sm.SnapshotInfo;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Objects;
@@ -43,7 +43,8 @@ class KvSnapshot extends Snapshot {
     private final Iterator<KvNodeHolder> iterator;
     private final IndexedQueue<KvNodeHolder> stack = new IndexedQueue<>(16);
     private final HashSet<ByteArray> processedDirs = new HashSet<>();
-    private KvNode currentKvNode;
+    private final Iterator<SplitFence> fenceIterator;
+    private boolean currentLoaded;
 
     private final EncodeStatus encodeStatus = new EncodeStatus();
 
@@ -54,6 +55,8 @@ class KvSnapshot extends Snapshot {
         this.gcExecutor = gcExecutor;
         this.lastIncludeRaftIndex = si.getLastIncludedIndex();
         this.iterator = kv.map.values().iterator();
+        // the fences are changed in raft apply, copy them now
+        this.fenceIterator = new ArrayList<>(kv.fences.values()).iterator();
     }
 
     @Override
@@ -65,17 +68,17 @@ class KvSnapshot extends Snapshot {
 
         int startPos = buffer.position();
         while (true) {
-            if (currentKvNode == null) {
+            if (!currentLoaded) {
                 loadNextNode();
             }
-            if (currentKvNode == null) {
+            if (!currentLoaded) {
                 // no more data
                 return FiberFuture.completedFuture(fiberGroup, buffer.position() - startPos);
             }
 
             if (encodeStatus.writeToBuffer(buffer)) {
                 encodeStatus.reset();
-                currentKvNode = null;
+                currentLoaded = false;
             } else {
                 // buffer is full
                 return FiberFuture.completedFuture(fiberGroup, buffer.position() - startPos);
@@ -114,9 +117,19 @@ class KvSnapshot extends Snapshot {
             encodeStatus.createTime = n.getCreateTime();
             encodeStatus.updateIndex = n.getUpdateIndex();
             encodeStatus.updateTime = n.getUpdateTime();
-            currentKvNode = n;
+            currentLoaded = true;
             return;
         }
+        if (fenceIterator.hasNext()) {
+            SplitFence f = fenceIterator.next();
+            encodeStatus.keyBytes = f.dir.getData();
+            encodeStatus.valueBytes = null;
+            encodeStatus.createIndex = SplitFence.SNAPSHOT_FLAG;
+            encodeStatus.createTime = f.targetGroupId;
+            encodeStatus.updateIndex = f.index;
+            encodeStatus.updateTime = f.state;
+            currentLoaded = true;
+        }
     }
 
     private KvNodeEx getNode(KvNodeHolder h) {
@@ -0,0 +1,44 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.dtkv.server;
+
+import com.github.dtprj.dongting.common.ByteArray;
+
+/**
+ * A fence of a dir subtree which is split (or being split) to another raft group.
+ *
+ * @author huangli
+ */
+class SplitFence {
+    static final int STATE_SPLITTING = 1;
+    static final int STATE_MOVED = 2;
+
+    // in snapshot, a fence is saved as a record with createIndex=-1, createTime=targetGroupId,
+    // updateIndex=index, updateTime=state
+    static final long SNAPSHOT_FLAG = -1;
+
+    final ByteArray dir;
+    final int targetGroupId;
+    final int state;
+    final long index;
+
+    SplitFence(ByteArray dir, int targetGroupId, int state, long index) {
+        this.dir = dir;
+        this.targetGroupId = targetGroupId;
+        this.state = state;
+        this.index = index;
+    }
+}
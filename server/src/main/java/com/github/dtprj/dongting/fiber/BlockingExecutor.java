@@ -0,0 +1,217 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.fiber;
+
+import com.github.dtprj.dongting.log.DtLog;
+import com.github.dtprj.dongting.log.DtLogs;
+import com.github.dtprj.dongting.queue.MpscLinkedQueue;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Run blocking code out of the dispatcher thread, and complete the returned FiberFuture in the dispatcher
+ * of the FiberGroup. The completions are collected in a lock-free queue and drained by a reused task, so there is
+ * only one wakeup of the dispatcher for a batch of completions.
+ * <p>
+ * If ordered is true, the tasks run one by one in the submit order, this is required by StateMachine.exec().
+ * <p>
+ * Use newExecutorService() to create a virtual thread executor on JDK21+, it falls back to a platform thread pool
+ * on old JDK.
+ *
+ * @author huangli
+ */
+public class BlockingExecutor {
+    private static final DtLog log = DtLogs.getLogger(BlockingExecutor.class);
+    private static final VarHandle DRAIN_SCHEDULED;
+    private static final VarHandle LANE_RUNNING;
+
+    static {
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup();
+            DRAIN_SCHEDULED = l.findVarHandle(BlockingExecutor.class, "drainScheduled", boolean.class);
+            LANE_RUNNING = l.findVarHandle(BlockingExecutor.class, "laneRunning", boolean.class);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+
+    private final FiberGroup group;
+    private final Executor executor;
+    private final boolean ordered;
+
+    private final MpscLinkedQueue<Task<?>> completeQueue = MpscLinkedQueue.newInstance();
+    private final FiberQueueTask drainTask;
+    @SuppressWarnings({"FieldMayBeFinal", "unused"})
+    private volatile boolean drainScheduled;
+
+    // only used in ordered mode
+    private final ConcurrentLinkedQueue<Runnable> laneQueue;
+    private final Runnable laneRunner;
+    @SuppressWarnings({"FieldMayBeFinal", "unused"})
+    private volatile boolean laneRunning;
+
+    public BlockingExecutor(FiberGroup group, Executor executor, boolean ordered) {
+        this.group = group;
+        this.executor = executor;
+        this.ordered = ordered;
+        this.drainTask = new FiberQueueTask(group) {
+            @Override
+            protected void run() {
+                drain();
+            }
+        };
+        if (ordered) {
+            this.laneQueue = new ConcurrentLinkedQueue<>();
+            this.laneRunner = this::runLane;
+        } else {
+            this.laneQueue = null;
+            this.laneRunner = null;
+        }
+    }
+
+    /**
+     * Run the task in executor, the returned future is completed in the dispatcher thread of the group.
+     */
+    public <T> FiberFuture<T> submit(String futureName, Callable<T> callable) {
+        FiberFuture<T> f = group.newFuture(futureName);
+        execute(new Task<>(f, callable));
+        return f;
+    }
+
+    /**
+     * Run the task in executor without completion notify.
+     */
+    public void execute(Runnable r) {
+        if (ordered) {
+            laneQueue.offer(r);
+            if (!(boolean) LANE_RUNNING.getVolatile(this) && LANE_RUNNING.compareAndSet(this, false, true)) {
+                executor.execute(laneRunner);
+            }
+        } else {
+            executor.execute(r);
+        }
+    }
+
+    private void runLane() {
+        while (true) {
+            Runnable r;
+            while ((r = laneQueue.poll()) != null) {
+                try {
+                    r.run();
+                } catch (Throwable e) {
+                    log.error("blocking task fail", e);
+                }
+            }
+            LANE_RUNNING.setVolatile(this, false);
+            // re-check the task offered after poll() return null
+            if (laneQueue.isEmpty() || !LANE_RUNNING.compareAndSet(this, false, true)) {
+                return;
+            }
+        }
+    }
+
+    private void fireComplete(Task<?> t) {
+        completeQueue.offer(t);
+        if (!(boolean) DRAIN_SCHEDULED.getVolatile(this) && DRAIN_SCHEDULED.compareAndSet(this, false, true)) {
+            // one wakeup for a batch
+            if (!group.dispatcher.shareQueue.offer(drainTask)) {
+                log.warn("dispatcher is shutdown, ignore complete");
+            }
+        }
+    }
+
+    private void drain() {
+        DRAIN_SCHEDULED.setVolatile(this, false);
+        Task<?> t;
+        while ((t = completeQueue.relaxedPoll()) != null) {
+            t.complete();
+        }
+    }
+
+    private class Task<T> implements Runnable {
+        private final FiberFuture<T> future;
+        private final Callable<T> callable;
+        private T result;
+        private Throwable ex;
+
+        Task(FiberFuture<T> future, Callable<T> callable) {
+            this.future = future;
+            this.callable = callable;
+        }
+
+        @Override
+        public void run() {
+            try {
+                result = callable.call();
+            } catch (Throwable e) {
+                ex = e;
+            }
+            fireComplete(this);
+        }
+
+        // run in dispatcher thread
+        void complete() {
+            future.complete0(result, ex);
+        }
+    }
+
+    /**
+     * Create an executor runs each task in a new virtual thread if the JDK supports it (JDK21+), otherwise
+     * create a fixed thread pool with fallbackThreads daemon threads.
+     */
+    public static ExecutorService newExecutorService(String namePrefix, int fallbackThreads) {
+        ExecutorService es = newVirtualThreadExecutor(namePrefix);
+        if (es != null) {
+            return es;
+        }
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory tf = r -> {
+            Thread t = new Thread(r, namePrefix + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        return Executors.newFixedThreadPool(fallbackThreads, tf);
+    }
+
+    /**
+     * return null if virtual thread is not supported. The server is compiled with java 11, so use reflection here.
+     */
+    static ExecutorService newVirtualThreadExecutor(String namePrefix) {
+        if (Runtime.version().feature() < 21) {
+            return null;
+        }
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+            ThreadFactory tf = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method m = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) m.invoke(null, tf);
+        } catch (Throwable e) {
+            log.warn("create virtual thread executor fail: {}", e.toString());
+            return null;
+        }
+    }
+}
@@ -25,6 +25,7 @@ import com.github.dtprj.dongting.common.IndexedQueue;
 import com.github.dtprj.dongting.common.NoopPerfCallback;
 import com.github.dtprj.dongting.common.PerfCallback;
 import com.github.dtprj.dongting.common.PerfConsts;
+import com.github.dtprj.dongting.common.ThreadAffinity;
 import com.github.dtprj.dongting.common.Timestamp;
 import com.github.dtprj.dongting.log.BugLog;
 import com.github.dtprj.dongting.log.DtLog;
@@ -34,7 +35,6 @@ import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
 import java.util.ArrayList;
 import java.util.LinkedList;
-import java.util.PriorityQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -47,18 +47,22 @@ public class Dispatcher extends AbstractLifeCircle {
 
     private final PoolFactory poolFactory;
     final PerfCallback perfCallback;
+    // null if not enabled
+    final FiberProfiler profiler;
 
     final FiberQueue shareQueue = new FiberQueue();
     private final ArrayList<FiberGroup> groups = new ArrayList<>();
     private final ArrayList<FiberGroup> finishedGroups = new ArrayList<>();
     final IndexedQueue<FiberGroup> readyGroups = new IndexedQueue<>(8);
-    final PriorityQueue<Fiber> scheduleQueue = new PriorityQueue<>(this::compareFiberByScheduleTime);
 
     final Timestamp ts = new Timestamp();
+    final TimingWheel timingWheel = new TimingWheel(ts.getNanoTime());
 
     final DispatcherThread thread;
 
     private boolean poll = true;
+    private final IdleStrategy idleStrategy;
+    private String cpuAffinity;
     private long pollTimeout = TimeUnit.MILLISECONDS.toNanos(50);
 
     @SuppressWarnings("FieldMayBeFinal")
@@ -88,9 +92,15 @@ public class Dispatcher extends AbstractLifeCircle {
     }
 
     public Dispatcher(String name, PoolFactory poolFactory, PerfCallback perfCallback) {
+        this(name, poolFactory, perfCallback, IdleStrategy.blocking());
+    }
+
+    public Dispatcher(String name, PoolFactory poolFactory, PerfCallback perfCallback, IdleStrategy idleStrategy) {
         this.thread = new DispatcherThread(this::run, name);
         this.poolFactory = poolFactory;
+        this.idleStrategy = idleStrategy;
         this.perfCallback = perfCallback;
+        this.profiler = perfCallback.accept(PerfConsts.FIBER_D_EXEC) ? new FiberProfiler(perfCallback) : null;
 
         this.thread.setHeapPool(createHeapPoolFactory());
         this.thread.setDirectPool(poolFactory.createPool(ts, true));
@@ -145,6 +155,9 @@ public class Dispatcher extends AbstractLifeCircle {
     }
 
     private void run() {
+        if (cpuAffinity != null) {
+            ThreadAffinity.bindCurrentThread(cpuAffinity);
+        }
         try {
             ArrayList<FiberQueueTask> localData = new ArrayList<>(64);
             ts.refresh();
@@ -196,6 +209,7 @@ public class Dispatcher extends AbstractLifeCircle {
         }
         if (!finishedGroups.isEmpty()) {
             groups.removeAll(finishedGroups);
+            finishedGroups.clear();
         }
 
         // 60 seconds clean once
@@ -210,14 +224,10 @@ public class Dispatcher extends AbstractLifeCircle {
     }
 
     private void processScheduleFibers() {
-        long now = ts.getNanoTime();
-        PriorityQueue<Fiber> scheduleQueue = this.scheduleQueue;
-        while (true) {
-            Fiber f = scheduleQueue.peek();
-            if (f == null || f.scheduleNanoTime - now > 0) {
-                break;
-            }
-            scheduleQueue.poll();
+        TimingWheel timingWheel = this.timingWheel;
+        timingWheel.advance(ts.getNanoTime());
+        Fiber f;
+        while ((f = timingWheel.pollExpired()) != null) {
             if (f.fiberGroup.finished) {
                 if (!f.daemon) {
                     BugLog.getLog().error("group finished, but suspend fiber is not daemon: {}", f.getName());
@@ -280,11 +290,29 @@ public class Dispatcher extends AbstractLifeCircle {
     }
 
     private void execFiber(FiberGroup g, Fiber fiber) {
+        FiberProfiler p = profiler;
+        long startNanos = 0;
+        long startCpuNanos = 0;
+        long readyWaitNanos = -1;
+        if (p != null) {
+            startCpuNanos = p.cpuNanos();
+            startNanos = System.nanoTime();
+            if (fiber.readyNanos != 0) {
+                readyWaitNanos = startNanos - fiber.readyNanos;
+                fiber.readyNanos = 0;
+            }
+        }
         try {
             g.currentFiber = fiber;
             FiberFrame currentFrame = fiber.stackTop;
+            long frameStart = startNanos;
             while (currentFrame != null) {
                 execFrame(fiber, currentFrame);
+                if (p != null) {
+                    long now = System.nanoTime();
+                    p.onFrameExec(currentFrame, now - frameStart);
+                    frameStart = now;
+                }
                 if (fatalError != null) {
                     break;
                 }
@@ -293,6 +321,9 @@ public class Dispatcher extends AbstractLifeCircle {
                         // yield
                         fiber.cleanSchedule();
                         fiber.ready = true;
+                        if (p != null) {
+                            fiber.readyNanos = System.nanoTime();
+                        }
                         fiber.fiberGroup.readyFibersNextRound2.addLast(fiber);
                     }
                     return;
@@ -324,6 +355,9 @@ public class Dispatcher extends AbstractLifeCircle {
         } finally {
             g.currentFiber = null;
             fatalError = null;
+            if (p != null) {
+                p.onFiberExec(fiber, readyWaitNanos, System.nanoTime() - startNanos, p.cpuNanos() - startCpuNanos);
+            }
         }
     }
 
@@ -434,6 +468,7 @@ public class Dispatcher extends AbstractLifeCircle {
         fiber.source = c;
         fiber.scheduleTimeoutMillis = millis;
         fiber.ready = false;
+        markBlock(fiber, c);
         fiber.fiberGroup.dispatcher.addToScheduleQueue(millis, fiber);
         if (c.waiters == null) {
             c.waiters = new LinkedList<>();
@@ -451,6 +486,7 @@ public class Dispatcher extends AbstractLifeCircle {
         fiber.sourceConditions = cs;
         fiber.scheduleTimeoutMillis = millis;
         fiber.ready = false;
+        markBlock(fiber, cs[0]);
         fiber.fiberGroup.dispatcher.addToScheduleQueue(millis, fiber);
         for (FiberCondition c : cs) {
             if (c.waiters == null) {
@@ -469,9 +505,17 @@ public class Dispatcher extends AbstractLifeCircle {
         currentFrame.resumePoint = resumePoint;
         fiber.scheduleTimeoutMillis = millis;
         fiber.ready = false;
+        markBlock(fiber, null);
         fiber.fiberGroup.dispatcher.addToScheduleQueue(millis, fiber);
     }
 
+    private static void markBlock(Fiber fiber, WaitSource source) {
+        if (fiber.fiberGroup.dispatcher.profiler != null) {
+            fiber.blockNanos = System.nanoTime();
+            fiber.blockSource = source;
+        }
+    }
+
     static void sleepUntilShouldStop(long millis, FrameCall<Void> resumePoint) {
         Fiber fiber = getCurrentFiberAndCheck(null);
         checkInterrupt(fiber);
@@ -498,7 +542,7 @@ public class Dispatcher extends AbstractLifeCircle {
     private void addToScheduleQueue(long millis, Fiber fiber) {
         if (millis > 0) {
             fiber.scheduleNanoTime = ts.getNanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
-            scheduleQueue.add(fiber);
+            timingWheel.add(fiber);
         }
     }
 
@@ -542,7 +586,7 @@ public class Dispatcher extends AbstractLifeCircle {
     }
 
     void removeFromScheduleQueue(Fiber f) {
-        scheduleQueue.remove(f);
+        timingWheel.remove(f);
     }
 
     void interrupt(Fiber fiber) {
@@ -575,7 +619,7 @@ public class Dispatcher extends AbstractLifeCircle {
             fiber.interrupted = false;
             fiber.inputEx = new FiberInterruptException("fiber is interrupted during wait " + str);
             if (fiber.scheduleTimeoutMillis > 0) {
-                scheduleQueue.remove(fiber);
+                timingWheel.remove(fiber);
                 fiber.cleanSchedule();
             }
             fiber.fiberGroup.tryMakeFiberReady(fiber, false);
@@ -589,28 +633,19 @@ public class Dispatcher extends AbstractLifeCircle {
             if (!poll || readyGroups.size() > 0) {
                 shareQueue.drainTo(localData);
             } else {
-                Fiber f = scheduleQueue.peek();
-                long t;
-                if (f != null) {
-                    t = Math.min(f.scheduleNanoTime - oldNanos, pollTimeout);
-                } else {
-                    t = pollTimeout;
-                }
+                long t = timingWheel.nextWaitNanos(oldNanos, pollTimeout);
                 if (t > 0) {
                     PerfCallback c = perfCallback;
                     long startTime = c.takeTime(PerfConsts.FIBER_D_POLL, ts);
                     // 100ms clean once
                     cleanPool(100_000_000L);
-                    FiberQueueTask o = shareQueue.poll(t, TimeUnit.NANOSECONDS);
+                    idleStrategy.idle(shareQueue, t, localData);
                     if (c.accept(PerfConsts.FIBER_D_WORK) || c.accept(PerfConsts.FIBER_D_POLL)) {
                         perfCallback.refresh(ts);
                     } else {
                         ts.refresh(1);
                     }
                     c.fireTime(PerfConsts.FIBER_D_POLL, startTime, 1, 0, ts);
-                    if (o != null) {
-                        localData.add(o);
-                    }
                 } else {
                     shareQueue.drainTo(localData);
                 }
@@ -642,9 +677,17 @@ public class Dispatcher extends AbstractLifeCircle {
         }
     }
 
-    private int compareFiberByScheduleTime(Fiber f1, Fiber f2) {
-        long diff = f1.scheduleNanoTime - f2.scheduleNanoTime;
-        return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+    /**
+     * bind the dispatcher thread to the cpus (taskset format, such as "0-3,8"), should be called before start.
+     *
+     * @see ThreadAffinity
+     */
+    public void setCpuAffinity(String cpuAffinity) {
+        this.cpuAffinity = cpuAffinity;
+    }
+
+    public String getCpuAffinity() {
+        return cpuAffinity;
     }
 
     public Timestamp getTs() {
@@ -655,6 +698,14 @@ public class Dispatcher extends AbstractLifeCircle {
         return (boolean) SHOULD_STOP.get(this);
     }
 
+    /**
+     * return null if the PerfCallback of this dispatcher not accept FIBER_D_EXEC. The profiler
+     * should be accessed in dispatcher thread.
+     */
+    public FiberProfiler getProfiler() {
+        return profiler;
+    }
+
     public DispatcherThread getThread() {
         return thread;
     }
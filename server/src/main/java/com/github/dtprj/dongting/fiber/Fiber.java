@@ -28,6 +28,10 @@ public class Fiber extends WaitSource {
 
     long scheduleTimeoutMillis;
     long scheduleNanoTime;
+    // link in the slot of TimingWheel
+    TimingWheel.Slot timerSlot;
+    Fiber timerPrev;
+    Fiber timerNext;
 
     boolean started;
     boolean ready;
@@ -44,6 +48,13 @@ public class Fiber extends WaitSource {
     Object inputObj;
     Throwable inputEx;
 
+    // used by FiberProfiler, 0 if the profiler is disabled
+    long readyNanos;
+    long blockNanos;
+    WaitSource blockSource;
+    // used by FiberProfiler, the key of this fiber as an executing fiber, see WaitSource.profileKey
+    String execProfileKey;
+
     final short signalCountInEachRound;
     // (round << 16) | signalCountInCurrentRound
     int roundInfo;
@@ -16,30 +16,75 @@
 package com.github.dtprj.dongting.fiber;
 
 import com.github.dtprj.dongting.common.IndexedQueue;
+import com.github.dtprj.dongting.log.DtLog;
+import com.github.dtprj.dongting.log.DtLogs;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Collection;
 
 /**
  * This queue is unbound and only block consumer.
+ * <p>
+ * If the channel is created by FiberGroup.newCrossThreadChannel(), the fireOffer() from other threads put data
+ * into a lock-free ring buffer, and the dispatcher drains it in batch by a reused task, no task object is created
+ * for each offer. Fall back to the normal way if the ring buffer is full, and the subsequent offers also use the
+ * normal way until the fallback data is processed, to keep the order of the data from the same producer.
  *
  * @author huangli
  */
 public class FiberChannel<T> {
+    private static final DtLog log = DtLogs.getLogger(FiberChannel.class);
+    private static final VarHandle DRAIN_SCHEDULED;
+    private static final VarHandle OVERFLOW_COUNT;
+
+    static {
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup();
+            DRAIN_SCHEDULED = l.findVarHandle(FiberChannel.class, "drainScheduled", boolean.class);
+            OVERFLOW_COUNT = l.findVarHandle(FiberChannel.class, "overflowCount", int.class);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+
     private final FiberGroup groupOfConsumer;
     private final Dispatcher dispatcherOfConsumer;
     final IndexedQueue<T> queue;
     private final FiberCondition notEmptyCondition;
     private FiberCondition[] notEmptyAndShouldStop;
 
+    // not null if it's a cross thread channel
+    private final MpscRingBuffer<T> ring;
+    private final FiberQueueTask drainTask;
+    // the drainTask is in the share queue of dispatcher
+    @SuppressWarnings({"FieldMayBeFinal", "unused"})
+    private volatile boolean drainScheduled;
+    // the count of data offered by task (not ring) from other threads and not processed yet
+    @SuppressWarnings({"FieldMayBeFinal", "unused"})
+    private volatile int overflowCount;
+
     FiberChannel(FiberGroup groupOfConsumer) {
-        this(groupOfConsumer, 64);
+        this(groupOfConsumer, 64, 0);
     }
 
-    FiberChannel(FiberGroup groupOfConsumer, int initSize) {
+    FiberChannel(FiberGroup groupOfConsumer, int initSize, int ringCapacity) {
         this.groupOfConsumer = groupOfConsumer;
         this.dispatcherOfConsumer = groupOfConsumer.dispatcher;
         this.queue = new IndexedQueue<>(initSize);
         this.notEmptyCondition = groupOfConsumer.newCondition("FiberChannelNotEmpty");
+        if (ringCapacity > 0) {
+            this.ring = new MpscRingBuffer<>(ringCapacity);
+            this.drainTask = new FiberQueueTask(groupOfConsumer) {
+                @Override
+                protected void run() {
+                    drainRing();
+                }
+            };
+        } else {
+            this.ring = null;
+            this.drainTask = null;
+        }
     }
 
     public boolean fireOffer(T data) {
@@ -47,6 +92,74 @@ public class FiberChannel<T> {
     }
 
     public boolean fireOffer(T data, boolean failIfGroupShouldStop) {
+        if (ring == null || Thread.currentThread() == dispatcherOfConsumer.thread) {
+            return fireOfferByTask(data, failIfGroupShouldStop);
+        }
+        FiberGroup g = groupOfConsumer;
+        if (g.finished) {
+            log.warn("data is not accepted because its group is finished: {}", g.getName());
+            return false;
+        } else if (failIfGroupShouldStop && g.isShouldStopPlain()) {
+            log.warn("data is not accepted because its group is shouldStop: {}", g.getName());
+            return false;
+        }
+        if ((int) OVERFLOW_COUNT.getVolatile(this) > 0 || !ring.offer(data)) {
+            return fireOfferOverflow(data, failIfGroupShouldStop);
+        }
+        if (!(boolean) DRAIN_SCHEDULED.getVolatile(this) && DRAIN_SCHEDULED.compareAndSet(this, false, true)) {
+            // one wakeup for a batch
+            return dispatcherOfConsumer.shareQueue.offer(drainTask);
+        }
+        return true;
+    }
+
+    private void drainRing() {
+        DRAIN_SCHEDULED.setVolatile(this, false);
+        // data offered after this point is drained by next task
+        long end = ring.producerIndex();
+        MpscRingBuffer<T> ring = this.ring;
+        while (ring.consumerIndex() < end) {
+            T data = ring.poll();
+            if (data == null) {
+                // not published yet, the producer will schedule drainTask after publish
+                break;
+            }
+            offer0(data);
+        }
+    }
+
+    private boolean fireOfferOverflow(T data, boolean failIfGroupShouldStop) {
+        // the producers put data into ring only if overflowCount is 0, so the data of this producer offered after
+        // this point are not passed this one
+        OVERFLOW_COUNT.getAndAdd(this, 1);
+        FiberQueueTask t = new FiberQueueTask(groupOfConsumer) {
+            @Override
+            protected void run() {
+                // the data in ring may be offered before this one by same producer, process them first.
+                // the slots are claimed before this task is submitted, so the wait for publishing is short
+                long end = ring.producerIndex();
+                while (ring.consumerIndex() < end) {
+                    T d = ring.poll();
+                    if (d == null) {
+                        Thread.onSpinWait();
+                    } else {
+                        offer0(d);
+                    }
+                }
+                offer0(data);
+                OVERFLOW_COUNT.getAndAdd(FiberChannel.this, -1);
+            }
+        };
+        t.failIfGroupShouldStop = failIfGroupShouldStop;
+        if (dispatcherOfConsumer.doInDispatcherThread(t)) {
+            return true;
+        } else {
+            OVERFLOW_COUNT.getAndAdd(this, -1);
+            return false;
+        }
+    }
+
+    private boolean fireOfferByTask(T data, boolean failIfGroupShouldStop) {
         FiberQueueTask t = new FiberQueueTask(groupOfConsumer) {
             @Override
             protected void run() {
@@ -119,6 +232,17 @@ public class FiberChannel<T> {
         return Fiber.resume(queue.removeFirst(), resumePoint);
     }
 
+    /**
+     * take all elements from channel into given collection without waiting.
+     */
+    public void takeAllNow(Collection<T> c) {
+        groupOfConsumer.checkGroup();
+        T data;
+        while ((data = queue.removeFirst()) != null) {
+            c.add(data);
+        }
+    }
+
     /**
      * take all elements from channel into given collection, may invoke resumePoint with empty collection.
      */
@@ -43,13 +43,14 @@ public abstract class FiberFrame<O> implements FrameCall<Void> {
         if (fiber == null) {
             this.fiber = f;
         } else {
-            // this frame is reused
-            if (fiber != f) {
-                throw new FiberException("the frame not belongs to the fiber");
-            }
+            // this frame is reused, a finished frame can be reused by another fiber in same group
             if (!finallyCalled) {
                 throw new FiberException("the fiber frame is in use");
             }
+            if (fiber != f && fiber.fiberGroup != f.fiberGroup) {
+                throw new FiberException("the frame not belongs to the fiber group");
+            }
+            this.fiber = f;
             reset();
         }
     }
@@ -61,6 +62,14 @@ public abstract class FiberFrame<O> implements FrameCall<Void> {
         resumePoint = this;
         frameResult = null;
         frameEx = null;
+        onReuse();
+    }
+
+    /**
+     * Called when a finished frame is called again, before execute(). Subclass that is reused in a loop
+     * should reset its per-call status here.
+     */
+    protected void onReuse() {
     }
 
     protected boolean isGroupShouldStopPlain() {
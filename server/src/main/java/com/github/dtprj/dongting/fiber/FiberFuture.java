@@ -62,6 +62,25 @@ public class FiberFuture<T> extends WaitSource {
         currentFiber.source = null;
     }
 
+    /**
+     * Reset a completed future so it can be used again, this avoids allocating a new future in hot loops.
+     * This method should call in dispatcher thread, and the caller should make sure no one will
+     * complete the old round again.
+     */
+    public void reset() {
+        fiberGroup.checkGroup();
+        if (!done) {
+            throw new FiberException("future not done: " + name);
+        }
+        if (waiters != null && !waiters.isEmpty()) {
+            throw new FiberException("future has waiters: " + name);
+        }
+        done = false;
+        execResult = null;
+        execEx = null;
+        callbackHead = null;
+    }
+
     public T getResult() {
         return execResult;
     }
@@ -119,7 +138,7 @@ public class FiberFuture<T> extends WaitSource {
         }
     }
 
-    private void complete0(T result, Throwable ex) {
+    void complete0(T result, Throwable ex) {
         if (done) {
             return;
         }
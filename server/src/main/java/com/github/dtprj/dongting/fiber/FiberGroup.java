@@ -138,6 +138,15 @@ public class FiberGroup {
         return new FiberChannel<>(this);
     }
 
+    /**
+     * Create a channel which is optimized for fireOffer() from other threads, see {@link FiberChannel}.
+     *
+     * @param ringCapacity the capacity of the lock-free ring buffer, must be power of 2
+     */
+    public <T> FiberChannel<T> newCrossThreadChannel(int ringCapacity) {
+        return new FiberChannel<>(this, 64, ringCapacity);
+    }
+
     public FiberLock newLock(String name) {
         return new FiberLock(name, this);
     }
@@ -195,6 +204,16 @@ public class FiberGroup {
         }
         if (!f.ready) {
             f.ready = true;
+            FiberProfiler p = dispatcher.profiler;
+            if (p != null) {
+                long now = System.nanoTime();
+                f.readyNanos = now;
+                if (f.blockNanos != 0) {
+                    p.onBlocked(f.blockSource, now - f.blockNanos);
+                    f.blockNanos = 0;
+                    f.blockSource = null;
+                }
+            }
             if ((f.roundInfo >>> 16) != dispatcher.round) {
                 f.roundInfo = (dispatcher.round << 16) | f.signalCountInEachRound;
             }
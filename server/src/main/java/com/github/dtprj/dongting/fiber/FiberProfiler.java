@@ -0,0 +1,225 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.fiber;
+
+import com.github.dtprj.dongting.common.PerfCallback;
+import com.github.dtprj.dongting.common.PerfConsts;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Record the run count and time of each fiber and each frame class, the time a fiber waits in ready queue,
+ * and the time a fiber blocks on each wait source (condition, future, channel, join, sleep).
+ * <p>
+ * The fiber exec time is the thread cpu time if the jvm supports it, otherwise it's wall time. Other times are
+ * wall time. The PerfCallback always receives wall time.
+ * <p>
+ * Some fiber and wait source names contain ids (such as "install-1-100"), the digits in the names are replaced
+ * by '#' so the number of keys is bounded. If there are still too many keys, the new ones are merged into
+ * "&lt;others&gt;".
+ * <p>
+ * It's enabled if the PerfCallback of the dispatcher accepts FIBER_D_EXEC, the aggregated values are also fired
+ * to the PerfCallback. All methods should be called in the dispatcher thread.
+ *
+ * @author huangli
+ */
+public class FiberProfiler {
+
+    static final class Stat {
+        final String name;
+        long count;
+        long totalNanos;
+        long maxNanos;
+
+        Stat(String name) {
+            this.name = name;
+        }
+
+        void add(long nanos) {
+            count++;
+            totalNanos += nanos;
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+            }
+        }
+    }
+
+    static final int MAX_KEYS = 1000;
+    static final String OTHERS = "<others>";
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final PerfCallback perfCallback;
+    private final boolean cpuTime;
+
+    private HashMap<String, Stat> fiberStats = new HashMap<>();
+    private HashMap<Class<?>, Stat> frameStats = new HashMap<>();
+    private HashMap<String, Stat> readyWaitStats = new HashMap<>();
+    private HashMap<String, Stat> blockStats = new HashMap<>();
+    private long startNanos = System.nanoTime();
+
+    FiberProfiler(PerfCallback perfCallback) {
+        this.perfCallback = perfCallback;
+        this.cpuTime = THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+    }
+
+    /**
+     * return the cpu time of current thread, or 0 if not supported.
+     */
+    long cpuNanos() {
+        return cpuTime ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0;
+    }
+
+    static String normalize(String name) {
+        // remove the hash code of toString(), such as "join-Fiber:xxx@1b2c3d"
+        int len = name.indexOf('@');
+        if (len < 0) {
+            len = name.length();
+        }
+        StringBuilder sb = null;
+        boolean lastDigit = false;
+        for (int i = 0; i < len; i++) {
+            char c = name.charAt(i);
+            boolean digit = c >= '0' && c <= '9';
+            if (digit && sb == null) {
+                sb = new StringBuilder(len);
+                sb.append(name, 0, i);
+            }
+            if (sb != null) {
+                if (!digit) {
+                    sb.append(c);
+                } else if (!lastDigit) {
+                    sb.append('#');
+                }
+            }
+            lastDigit = digit;
+        }
+        if (sb != null) {
+            return sb.toString();
+        }
+        return len == name.length() ? name : name.substring(0, len);
+    }
+
+    static Stat stat(HashMap<String, Stat> map, String key) {
+        Stat s = map.get(key);
+        if (s == null) {
+            if (map.size() >= MAX_KEYS) {
+                key = OTHERS;
+                s = map.get(key);
+            }
+            if (s == null) {
+                s = new Stat(key);
+                map.put(key, s);
+            }
+        }
+        return s;
+    }
+
+    private static String key(Fiber f) {
+        String k = f.execProfileKey;
+        if (k == null) {
+            k = f.fiberGroup.getName() + "/" + normalize(f.getName());
+            f.execProfileKey = k;
+        }
+        return k;
+    }
+
+    private static String key(WaitSource s) {
+        if (s == null) {
+            return "sleep";
+        }
+        String k = s.profileKey;
+        if (k == null) {
+            String type;
+            if (s instanceof Fiber) {
+                type = "join:";
+            } else if (s instanceof FiberFuture) {
+                type = "future:";
+            } else if (s instanceof Lock) {
+                type = "lock:";
+            } else {
+                type = "condition:";
+            }
+            k = s.fiberGroup.getName() + "/" + type + normalize(s.getName());
+            s.profileKey = k;
+        }
+        return k;
+    }
+
+    void onFiberExec(Fiber f, long readyWaitNanos, long execNanos, long execCpuNanos) {
+        String k = key(f);
+        stat(fiberStats, k).add(cpuTime ? execCpuNanos : execNanos);
+        perfCallback.fireNanos(PerfConsts.FIBER_D_EXEC, execNanos);
+        if (readyWaitNanos >= 0) {
+            stat(readyWaitStats, k).add(readyWaitNanos);
+            perfCallback.fireNanos(PerfConsts.FIBER_D_READY_WAIT, readyWaitNanos);
+        }
+    }
+
+    void onFrameExec(FiberFrame<?> frame, long nanos) {
+        Stat s = frameStats.get(frame.getClass());
+        if (s == null) {
+            s = new Stat(frame.getClass().getName());
+            frameStats.put(frame.getClass(), s);
+        }
+        s.add(nanos);
+    }
+
+    void onBlocked(WaitSource source, long nanos) {
+        stat(blockStats, key(source)).add(nanos);
+        perfCallback.fireNanos(PerfConsts.FIBER_D_BLOCK, nanos);
+    }
+
+    /**
+     * Dump the stats since last dump (or since the profiler created), and reset them.
+     *
+     * @param topN max items of each category, sorted by total time
+     */
+    public String dumpAndReset(int topN) {
+        long now = System.nanoTime();
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append("fiber profile in ").append((now - startNanos) / 1_000_000).append("ms\n");
+        dump(sb, cpuTime ? "fiber exec (cpu time)" : "fiber exec", fiberStats.values(), topN);
+        dump(sb, "frame exec", frameStats.values(), topN);
+        dump(sb, "fiber ready wait", readyWaitStats.values(), topN);
+        dump(sb, "fiber blocked", blockStats.values(), topN);
+        fiberStats = new HashMap<>();
+        frameStats = new HashMap<>();
+        readyWaitStats = new HashMap<>();
+        blockStats = new HashMap<>();
+        startNanos = now;
+        return sb.toString();
+    }
+
+    private static void dump(StringBuilder sb, String title, Iterable<Stat> stats, int topN) {
+        ArrayList<Stat> list = new ArrayList<>();
+        stats.forEach(list::add);
+        list.sort((s1, s2) -> Long.compare(s2.totalNanos, s1.totalNanos));
+        sb.append("--------------------------------------------------\n");
+        sb.append(title).append(": count, total(ms), avg(us), max(us), name\n");
+        for (int i = 0; i < list.size() && i < topN; i++) {
+            Stat s = list.get(i);
+            sb.append(s.count).append(", ")
+                    .append(s.totalNanos / 1_000_000).append(", ")
+                    .append(s.totalNanos / s.count / 1000).append(", ")
+                    .append(s.maxNanos / 1000).append(", ")
+                    .append(s.name).append('\n');
+        }
+    }
+}
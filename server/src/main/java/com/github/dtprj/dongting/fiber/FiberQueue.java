@@ -38,9 +38,12 @@ class FiberQueue {
     final ReentrantLock lock = new ReentrantLock();
     private final Condition notEmpty = lock.newCondition();
 
-    private FiberQueueTask head = TAIL;
+    // volatile, so the spinning consumer can check it without lock
+    private volatile FiberQueueTask head = TAIL;
     private FiberQueueTask tail = TAIL;
     private boolean shutdown;
+    // the consumer is parked in notEmpty, the producer skip the signal if the consumer is not parked (spinning)
+    private boolean consumerWaiting;
 
     public FiberQueue() {
     }
@@ -66,9 +69,12 @@ class FiberQueue {
                 }
             }
             if (head == TAIL) {
-                head = tail = task;
                 task.next = TAIL;
-                notEmpty.signal();
+                tail = task;
+                head = task;
+                if (consumerWaiting) {
+                    notEmpty.signal();
+                }
             } else {
                 tail.next = task;
                 tail = task;
@@ -84,8 +90,13 @@ class FiberQueue {
         lock.lock();
         try {
             if (head == TAIL) {
-                if (!notEmpty.await(timeout, timeUnit)) {
-                    return null;
+                consumerWaiting = true;
+                try {
+                    if (!notEmpty.await(timeout, timeUnit) || head == TAIL) {
+                        return null;
+                    }
+                } finally {
+                    consumerWaiting = false;
                 }
             }
             FiberQueueTask result = head;
@@ -101,22 +112,53 @@ class FiberQueue {
         }
     }
 
-    public void drainTo(ArrayList<FiberQueueTask> list) {
+    /**
+     * wait until the queue is not empty or timeout, then drain all tasks to the list.
+     */
+    public void pollAll(long timeoutNanos, ArrayList<FiberQueueTask> list) throws InterruptedException {
         lock.lock();
         try {
-            FiberQueueTask task = head;
-            while (task != TAIL) {
-                list.add(task);
-                FiberQueueTask tmp = task;
-                task = task.next;
-                tmp.next = null;
+            if (head == TAIL) {
+                consumerWaiting = true;
+                try {
+                    notEmpty.awaitNanos(timeoutNanos);
+                } finally {
+                    consumerWaiting = false;
+                }
             }
-            head = tail = TAIL;
+            drainTo0(list);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isEmptyHint() {
+        return head == TAIL;
+    }
+
+    public void drainTo(ArrayList<FiberQueueTask> list) {
+        lock.lock();
+        try {
+            drainTo0(list);
         } finally {
             lock.unlock();
         }
     }
 
+    private void drainTo0(ArrayList<FiberQueueTask> list) {
+        FiberQueueTask task = head;
+        if (task == TAIL) {
+            return;
+        }
+        while (task != TAIL) {
+            list.add(task);
+            FiberQueueTask tmp = task;
+            task = task.next;
+            tmp.next = null;
+        }
+        head = tail = TAIL;
+    }
+
     boolean hasTask(FiberGroup g) {
         FiberQueueTask task = head;
         while (task != TAIL) {
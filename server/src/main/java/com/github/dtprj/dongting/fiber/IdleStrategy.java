@@ -0,0 +1,147 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.fiber;
+
+import java.util.ArrayList;
+
+/**
+ * Decide how the dispatcher thread waits for new tasks when it's idle. The tasks offered to the dispatcher
+ * in the idle period are drained to the dispatcher in batch.
+ * <p>
+ * The blocking strategy parks the dispatcher thread immediately, every cross thread offer to an idle dispatcher
+ * need an unpark. The spinning strategies check the queue without lock for a while before park, the producer
+ * skips the unpark if the dispatcher is spinning, this reduces park/unpark churn at high submit rate, at the cost
+ * of CPU.
+ * <p>
+ * This is not an extension point, the strategies can only be obtained by the static factory methods.
+ *
+ * @author huangli
+ */
+public abstract class IdleStrategy {
+
+    // subclasses only in this package, idle() relies on the package private api of FiberQueue
+    IdleStrategy() {
+    }
+
+    /**
+     * Wait for tasks in the queue at most timeoutNanos, drain them to the list.
+     */
+    abstract void idle(FiberQueue queue, long timeoutNanos, ArrayList<FiberQueueTask> list)
+            throws InterruptedException;
+
+    /**
+     * park immediately, this is the default strategy and costs no CPU when idle.
+     */
+    public static IdleStrategy blocking() {
+        return new BlockingIdleStrategy();
+    }
+
+    /**
+     * never park, the dispatcher thread occupies a CPU core. Only use it if the cores are dedicated.
+     */
+    public static IdleStrategy busySpin() {
+        return new BusySpinIdleStrategy();
+    }
+
+    /**
+     * spin for given times, then yield for given times, then park.
+     */
+    public static IdleStrategy spinYieldPark(int spins, int yields) {
+        return new SpinYieldParkIdleStrategy(spins, yields, false);
+    }
+
+    /**
+     * like spinYieldPark, but the spin count adapts to the load: doubled if the task arrived in spin phase,
+     * halved if the thread has to park.
+     */
+    public static IdleStrategy adaptive() {
+        return new SpinYieldParkIdleStrategy(SpinYieldParkIdleStrategy.MAX_ADAPTIVE_SPINS, 10, true);
+    }
+
+    static final class BlockingIdleStrategy extends IdleStrategy {
+        @Override
+        void idle(FiberQueue queue, long timeoutNanos, ArrayList<FiberQueueTask> list) throws InterruptedException {
+            queue.pollAll(timeoutNanos, list);
+        }
+    }
+
+    static final class BusySpinIdleStrategy extends IdleStrategy {
+        @Override
+        void idle(FiberQueue queue, long timeoutNanos, ArrayList<FiberQueueTask> list) throws InterruptedException {
+            long deadline = System.nanoTime() + timeoutNanos;
+            int i = 0;
+            while (queue.isEmptyHint()) {
+                Thread.onSpinWait();
+                // check time and interrupt flag in every 64 loops
+                if ((++i & 63) == 0) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    if (System.nanoTime() - deadline >= 0) {
+                        return;
+                    }
+                }
+            }
+            queue.drainTo(list);
+        }
+    }
+
+    static final class SpinYieldParkIdleStrategy extends IdleStrategy {
+        static final int MAX_ADAPTIVE_SPINS = 10_000;
+        private static final int MIN_ADAPTIVE_SPINS = 100;
+
+        private final int yields;
+        private final boolean adaptive;
+        int spins;
+
+        SpinYieldParkIdleStrategy(int spins, int yields, boolean adaptive) {
+            this.spins = spins;
+            this.yields = yields;
+            this.adaptive = adaptive;
+        }
+
+        @Override
+        void idle(FiberQueue queue, long timeoutNanos, ArrayList<FiberQueueTask> list) throws InterruptedException {
+            long start = System.nanoTime();
+            for (int i = 0, spins = this.spins; i < spins; i++) {
+                if (!queue.isEmptyHint()) {
+                    queue.drainTo(list);
+                    if (adaptive) {
+                        this.spins = Math.min(spins << 1, MAX_ADAPTIVE_SPINS);
+                    }
+                    return;
+                }
+                Thread.onSpinWait();
+            }
+            for (int i = 0; i < yields; i++) {
+                if (!queue.isEmptyHint()) {
+                    queue.drainTo(list);
+                    return;
+                }
+                Thread.yield();
+            }
+            if (adaptive) {
+                this.spins = Math.max(spins >>> 1, MIN_ADAPTIVE_SPINS);
+            }
+            long rest = timeoutNanos - (System.nanoTime() - start);
+            if (rest > 0) {
+                queue.pollAll(rest, list);
+            } else {
+                queue.drainTo(list);
+            }
+        }
+    }
+}
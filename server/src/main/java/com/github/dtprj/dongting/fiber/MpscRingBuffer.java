@@ -0,0 +1,123 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.fiber;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Bounded lock-free multi producer single consumer queue, each slot has a sequence to mark it is published.
+ *
+ * @author huangli
+ */
+@SuppressWarnings("unused")
+final class MpscRingBuffer<T> {
+    private static final VarHandle TAIL;
+    private static final VarHandle SEQ = MethodHandles.arrayElementVarHandle(long[].class);
+
+    static {
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup();
+            TAIL = l.findVarHandle(MpscRingBuffer.class, "tail", long.class);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+
+    private final Object[] buffer;
+    // sequences[i] == index means the slot is free for producer at index,
+    // sequences[i] == index + 1 means the slot is published and can be read by consumer
+    private final long[] sequences;
+    private final int mask;
+
+    // 128 bytes padding to avoid false share
+    long p00, p01, p02, p03, p04, p05, p06, p07, p08, p09, p0a, p0b, p0c, p0d, p0e, p0f;
+
+    @SuppressWarnings("unused")
+    private volatile long tail;
+
+    long p10, p11, p12, p13, p14, p15, p16, p17, p18, p19, p1a, p1b, p1c, p1d, p1e, p1f;
+
+    // only accessed by consumer
+    private long head;
+
+    long p20, p21, p22, p23, p24, p25, p26, p27, p28, p29, p2a, p2b, p2c, p2d, p2e, p2f;
+
+    MpscRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be power of 2: " + capacity);
+        }
+        this.buffer = new Object[capacity];
+        this.sequences = new long[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences[i] = i;
+        }
+    }
+
+    /**
+     * called by producers.
+     *
+     * @return false if the buffer is full
+     */
+    boolean offer(T e) {
+        long t;
+        int idx;
+        while (true) {
+            t = (long) TAIL.getVolatile(this);
+            idx = (int) t & mask;
+            long diff = (long) SEQ.getVolatile(sequences, idx) - t;
+            if (diff == 0) {
+                if (TAIL.compareAndSet(this, t, t + 1)) {
+                    break;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+            // else other producer get the slot, retry
+        }
+        buffer[idx] = e;
+        SEQ.setVolatile(sequences, idx, t + 1);
+        return true;
+    }
+
+    /**
+     * called by consumer.
+     *
+     * @return null if the buffer is empty, or the next element is not published yet
+     */
+    @SuppressWarnings("unchecked")
+    T poll() {
+        long h = head;
+        int idx = (int) h & mask;
+        if ((long) SEQ.getVolatile(sequences, idx) != h + 1) {
+            return null;
+        }
+        T e = (T) buffer[idx];
+        buffer[idx] = null;
+        SEQ.setRelease(sequences, idx, h + buffer.length);
+        head = h + 1;
+        return e;
+    }
+
+    long producerIndex() {
+        return (long) TAIL.getVolatile(this);
+    }
+
+    long consumerIndex() {
+        return head;
+    }
+}
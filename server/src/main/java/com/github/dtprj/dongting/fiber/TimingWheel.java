@@ -0,0 +1,250 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.fiber;
+
+/**
+ * Hashed hierarchical timing wheel for the fiber timeout (sleep, await with timeout), the tick is 1ms.
+ * Add and remove are O(1), the fibers are linked in the slot by Fiber.timerPrev/timerNext, no extra objects.
+ * It is only accessed in the dispatcher thread.
+ * <p>
+ * Level 0 has 256 slots of 1 tick, level 1-3 have 64 slots, each slot covers all slots of the lower level.
+ * The fibers in a higher level are moved to lower level (cascade) when level 0 wraps.
+ *
+ * @author huangli
+ */
+class TimingWheel {
+    private static final long TICK_NANOS = 1_000_000;
+    private static final int L0_BITS = 8;
+    private static final int LN_BITS = 6;
+    private static final int LEVELS = 4;
+    private static final int L0_MASK = (1 << L0_BITS) - 1;
+    private static final int LN_MASK = (1 << LN_BITS) - 1;
+    // 2^26 ticks, about 18.6 hours, longer timeout is put into the farthest slot and re-added after cascade
+    private static final long MAX_DELTA = 1L << (L0_BITS + LN_BITS * (LEVELS - 1));
+
+    static final class Slot {
+        Fiber head;
+        Fiber tail;
+    }
+
+    private final Slot[][] slots = new Slot[LEVELS][];
+    private final Slot expired = new Slot();
+    private final long originNanos;
+    // all ticks before currentTick are expired
+    private long currentTick;
+    private int size;
+
+    TimingWheel(long nowNanos) {
+        this.originNanos = nowNanos;
+        for (int i = 0; i < LEVELS; i++) {
+            Slot[] level = new Slot[i == 0 ? 1 << L0_BITS : 1 << LN_BITS];
+            for (int j = 0; j < level.length; j++) {
+                level[j] = new Slot();
+            }
+            slots[i] = level;
+        }
+    }
+
+    private long tick(long nanos) {
+        return (nanos - originNanos) / TICK_NANOS;
+    }
+
+    /**
+     * add the fiber, the expire time is fiber.scheduleNanoTime.
+     */
+    void add(Fiber f) {
+        long expireTick = Math.max(tick(f.scheduleNanoTime), currentTick);
+        long delta = expireTick - currentTick;
+        Slot s;
+        if (delta <= L0_MASK) {
+            s = slots[0][(int) expireTick & L0_MASK];
+        } else {
+            if (delta >= MAX_DELTA) {
+                expireTick = currentTick + MAX_DELTA - 1;
+                delta = MAX_DELTA - 1;
+            }
+            int level = 1;
+            int shift = L0_BITS;
+            while (delta >= 1L << (shift + LN_BITS)) {
+                level++;
+                shift += LN_BITS;
+            }
+            s = slots[level][(int) (expireTick >>> shift) & LN_MASK];
+        }
+        append(s, f);
+        size++;
+    }
+
+    void remove(Fiber f) {
+        Slot s = f.timerSlot;
+        if (s == null) {
+            return;
+        }
+        unlink(s, f);
+        if (s != expired) {
+            size--;
+        }
+    }
+
+    boolean contains(Fiber f) {
+        return f.timerSlot != null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * move all fibers expired before nowNanos to the expired list, then get them by pollExpired().
+     */
+    void advance(long nowNanos) {
+        long nowTick = tick(nowNanos);
+        if (size == 0) {
+            currentTick = Math.max(currentTick, nowTick);
+            return;
+        }
+        while (currentTick < nowTick) {
+            if (size == 0) {
+                currentTick = nowTick;
+                return;
+            }
+            moveAll(slots[0][(int) currentTick & L0_MASK]);
+            currentTick++;
+            if ((currentTick & L0_MASK) == 0) {
+                cascade();
+            }
+        }
+        // the current tick is not finished, only check the expire time of the fibers
+        Slot s = slots[0][(int) currentTick & L0_MASK];
+        Fiber f = s.head;
+        while (f != null) {
+            Fiber next = f.timerNext;
+            if (f.scheduleNanoTime - nowNanos <= 0) {
+                unlink(s, f);
+                size--;
+                append(expired, f);
+            }
+            f = next;
+        }
+    }
+
+    Fiber pollExpired() {
+        Fiber f = expired.head;
+        if (f != null) {
+            unlink(expired, f);
+        }
+        return f;
+    }
+
+    /**
+     * return the nanos to wait before next advance, no more than maxNanos.
+     */
+    long nextWaitNanos(long nowNanos, long maxNanos) {
+        if (size == 0) {
+            return maxNanos;
+        }
+        long endTick = tick(nowNanos + maxNanos);
+        for (long t = currentTick; t <= endTick; t++) {
+            if ((t & L0_MASK) == 0 && t != currentTick) {
+                // wake up to cascade
+                return Math.max(0, Math.min(maxNanos, originNanos + t * TICK_NANOS - nowNanos));
+            }
+            Fiber f = slots[0][(int) t & L0_MASK].head;
+            if (f != null) {
+                long min = f.scheduleNanoTime;
+                for (f = f.timerNext; f != null; f = f.timerNext) {
+                    if (f.scheduleNanoTime - min < 0) {
+                        min = f.scheduleNanoTime;
+                    }
+                }
+                return Math.max(0, Math.min(maxNanos, min - nowNanos));
+            }
+        }
+        return maxNanos;
+    }
+
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            int idx = (int) (currentTick >>> (L0_BITS + (level - 1) * LN_BITS)) & LN_MASK;
+            Slot s = slots[level][idx];
+            Fiber f = s.head;
+            s.head = null;
+            s.tail = null;
+            while (f != null) {
+                Fiber next = f.timerNext;
+                f.timerPrev = null;
+                f.timerNext = null;
+                f.timerSlot = null;
+                size--;
+                add(f);
+                f = next;
+            }
+            if (idx != 0) {
+                break;
+            }
+        }
+    }
+
+    private void moveAll(Slot s) {
+        Fiber f = s.head;
+        if (f == null) {
+            return;
+        }
+        for (Fiber x = f; x != null; x = x.timerNext) {
+            x.timerSlot = expired;
+            size--;
+        }
+        if (expired.tail == null) {
+            expired.head = f;
+        } else {
+            expired.tail.timerNext = f;
+            f.timerPrev = expired.tail;
+        }
+        expired.tail = s.tail;
+        s.head = null;
+        s.tail = null;
+    }
+
+    private static void append(Slot s, Fiber f) {
+        f.timerSlot = s;
+        f.timerNext = null;
+        f.timerPrev = s.tail;
+        if (s.tail == null) {
+            s.head = f;
+        } else {
+            s.tail.timerNext = f;
+        }
+        s.tail = f;
+    }
+
+    private static void unlink(Slot s, Fiber f) {
+        Fiber prev = f.timerPrev;
+        Fiber next = f.timerNext;
+        if (prev == null) {
+            s.head = next;
+        } else {
+            prev.timerNext = next;
+        }
+        if (next == null) {
+            s.tail = prev;
+        } else {
+            next.timerPrev = prev;
+        }
+        f.timerPrev = null;
+        f.timerNext = null;
+        f.timerSlot = null;
+    }
+}
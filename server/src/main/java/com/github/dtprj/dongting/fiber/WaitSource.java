@@ -24,6 +24,8 @@ abstract class WaitSource {
     protected final String name;
     LinkedList<Fiber> waiters;
     protected final FiberGroup fiberGroup;
+    // used by FiberProfiler, the key of this wait source, a Fiber as a join source uses this too
+    String profileKey;
 
     public WaitSource(String name, FiberGroup group) {
         this.fiberGroup = group;
@@ -17,6 +17,7 @@ package com.github.dtprj.dongting.raft.admin;
 
 import com.github.dtprj.dongting.codec.DecoderCallbackCreator;
 import com.github.dtprj.dongting.codec.PbLongCallback;
+import com.github.dtprj.dongting.codec.PbStringCallback;
 import com.github.dtprj.dongting.common.DtTime;
 import com.github.dtprj.dongting.common.DtUtil;
 import com.github.dtprj.dongting.net.Commands;
@@ -132,4 +133,19 @@ public class AdminRaftClient extends RaftClient {
         nioClient.sendRequest(n.getPeer(), req, QueryStatusResp.DECODER, timeout, callback);
         return f;
     }
-}
\ No newline at end of file
+
+    /**
+     * Dump the fiber profile of the dispatcher running the group on the node, and reset the stats.
+     */
+    public CompletableFuture<String> queryFiberProfile(int nodeId, int groupId, DtTime timeout) {
+        RaftNode n = allNodes.get(nodeId);
+        if (n == null) {
+            return DtUtil.failedFuture(new RaftException("node not found: " + nodeId));
+        }
+        PbIntWritePacket req = new PbIntWritePacket(Commands.RAFT_QUERY_FIBER_PROFILE, groupId);
+        CompletableFuture<String> f = new CompletableFuture<>();
+        RpcCallback<String> callback = RpcCallback.fromUnwrapFuture(f);
+        nioClient.sendRequest(n.getPeer(), req, ctx -> ctx.toDecoderCallback(new PbStringCallback()), timeout, callback);
+        return f;
+    }
+}
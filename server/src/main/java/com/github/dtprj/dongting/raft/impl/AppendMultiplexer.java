@@ -0,0 +1,187 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.impl;
+
+import com.github.dtprj.dongting.codec.DecoderCallbackCreator;
+import com.github.dtprj.dongting.common.DtTime;
+import com.github.dtprj.dongting.common.DtUtil;
+import com.github.dtprj.dongting.log.DtLog;
+import com.github.dtprj.dongting.log.DtLogs;
+import com.github.dtprj.dongting.net.CmdCodes;
+import com.github.dtprj.dongting.net.Commands;
+import com.github.dtprj.dongting.net.NetCodeException;
+import com.github.dtprj.dongting.net.NetException;
+import com.github.dtprj.dongting.net.NioClient;
+import com.github.dtprj.dongting.net.ReadPacket;
+import com.github.dtprj.dongting.net.RpcCallback;
+import com.github.dtprj.dongting.raft.rpc.AppendBatchReqWritePacket;
+import com.github.dtprj.dongting.raft.rpc.AppendReqWritePacket;
+import com.github.dtprj.dongting.raft.rpc.AppendResp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Merge append requests of different raft groups to same node into one RAFT_APPEND_ENTRIES_BATCH rpc.
+ * Requests are queued in lanes, one lane for each (node, connection) pair, so the requests of a group are
+ * always sent in order through the same connection.
+ *
+ * @author huangli
+ */
+public class AppendMultiplexer {
+    private static final DtLog log = DtLogs.getLogger(AppendMultiplexer.class);
+
+    static final int MAX_BATCH_BYTES = 1024 * 1024;
+
+    private static final DecoderCallbackCreator<AppendResp> APPEND_RESP_DECODER_CALLBACK_CREATOR = ctx ->
+            ctx.toDecoderCallback(((DecodeContextEx) ctx).appendRespCallback());
+    private static final DecoderCallbackCreator<List<ReadPacket<AppendResp>>> BATCH_RESP_DECODER_CALLBACK_CREATOR =
+            ctx -> ctx.toDecoderCallback(((DecodeContextEx) ctx).appendBatchRespCallback());
+
+    private final NioClient client;
+    private final int connections;
+    private final long windowMicros;
+
+    private final ConcurrentHashMap<Long, Lane> lanes = new ConcurrentHashMap<>();
+
+    public AppendMultiplexer(NioClient client, int connections, long windowMicros) {
+        this.client = client;
+        this.connections = Math.max(connections, 1);
+        this.windowMicros = windowMicros;
+    }
+
+    /**
+     * called in raft thread, the routeKey of the request should be set to group id.
+     */
+    public void send(RaftNodeEx node, AppendReqWritePacket req, DtTime timeout, RpcCallback<AppendResp> callback) {
+        int slot = req.getRouteKey() % connections;
+        long key = ((long) node.getNodeId() << 32) | slot;
+        Lane lane = lanes.get(key);
+        if (lane == null) {
+            lane = lanes.computeIfAbsent(key, k -> new Lane(node, slot));
+        }
+        lane.queue.add(new PendingAppend(req, timeout, callback));
+        if (lane.scheduled.compareAndSet(false, true)) {
+            if (windowMicros > 0) {
+                DtUtil.SCHEDULED_SERVICE.schedule(lane, windowMicros, TimeUnit.MICROSECONDS);
+            } else {
+                DtUtil.SCHEDULED_SERVICE.execute(lane);
+            }
+        }
+    }
+
+    private static final class PendingAppend {
+        final AppendReqWritePacket req;
+        final DtTime timeout;
+        final RpcCallback<AppendResp> callback;
+
+        PendingAppend(AppendReqWritePacket req, DtTime timeout, RpcCallback<AppendResp> callback) {
+            this.req = req;
+            this.timeout = timeout;
+            this.callback = callback;
+        }
+    }
+
+    private final class Lane implements Runnable {
+        private final RaftNodeEx node;
+        private final int slot;
+        private final ConcurrentLinkedQueue<PendingAppend> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Lane(RaftNodeEx node, int slot) {
+            this.node = node;
+            this.slot = slot;
+        }
+
+        @Override
+        public void run() {
+            // reset the flag before drain, so requests added during the flush trigger another run
+            scheduled.set(false);
+            try {
+                flush();
+            } catch (Throwable e) {
+                log.error("flush append requests fail, nodeId={}", node.getNodeId(), e);
+            }
+        }
+
+        private synchronized void flush() {
+            PendingAppend first;
+            while ((first = queue.poll()) != null) {
+                PendingAppend next = queue.peek();
+                if (next == null) {
+                    // only one request, no need to batch
+                    client.sendRequest(node.getPeer(), first.req, APPEND_RESP_DECODER_CALLBACK_CREATOR,
+                            first.timeout, first.callback);
+                    return;
+                }
+                ArrayList<PendingAppend> batch = new ArrayList<>();
+                batch.add(first);
+                int bytes = first.req.actualBodySize();
+                while (next != null && bytes + next.req.actualBodySize() <= MAX_BATCH_BYTES) {
+                    batch.add(queue.poll());
+                    bytes += next.req.actualBodySize();
+                    next = queue.peek();
+                }
+                sendBatch(batch);
+            }
+        }
+
+        private void sendBatch(ArrayList<PendingAppend> batch) {
+            ArrayList<AppendReqWritePacket> reqs = new ArrayList<>(batch.size());
+            for (int size = batch.size(), i = 0; i < size; i++) {
+                reqs.add(batch.get(i).req);
+            }
+            AppendBatchReqWritePacket p = new AppendBatchReqWritePacket(reqs);
+            p.setCommand(Commands.RAFT_APPEND_ENTRIES_BATCH);
+            p.setRouteKey(slot);
+            client.sendRequest(node.getPeer(), p, BATCH_RESP_DECODER_CALLBACK_CREATOR, batch.get(0).timeout,
+                    new RpcCallback<>() {
+                        @Override
+                        public void success(ReadPacket<List<ReadPacket<AppendResp>>> result) {
+                            dispatch(batch, result.getBody());
+                        }
+
+                        @Override
+                        public void fail(Throwable ex) {
+                            for (int size = batch.size(), i = 0; i < size; i++) {
+                                batch.get(i).callback.fail(ex);
+                            }
+                        }
+                    });
+        }
+    }
+
+    private static void dispatch(ArrayList<PendingAppend> batch, List<ReadPacket<AppendResp>> items) {
+        int itemCount = items == null ? 0 : items.size();
+        for (int size = batch.size(), i = 0; i < size; i++) {
+            RpcCallback<AppendResp> cb = batch.get(i).callback;
+            if (i >= itemCount) {
+                cb.fail(new NetException("append batch response item missing"));
+                continue;
+            }
+            ReadPacket<AppendResp> item = items.get(i);
+            if (item.getRespCode() != CmdCodes.SUCCESS) {
+                cb.fail(new NetCodeException(item.getRespCode(), item.getMsg(), null));
+            } else {
+                cb.success(item);
+            }
+        }
+    }
+}
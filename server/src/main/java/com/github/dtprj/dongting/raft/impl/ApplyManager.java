@@ -34,11 +34,13 @@ import com.github.dtprj.dongting.log.DtLogs;
 import com.github.dtprj.dongting.raft.RaftException;
 import com.github.dtprj.dongting.raft.RaftTimeoutException;
 import com.github.dtprj.dongting.raft.server.LogItem;
+import com.github.dtprj.dongting.raft.server.RaftCallback;
 import com.github.dtprj.dongting.raft.server.RaftInput;
 import com.github.dtprj.dongting.raft.sm.StateMachine;
 import com.github.dtprj.dongting.raft.store.RaftLog;
 import com.github.dtprj.dongting.raft.store.StatusManager;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -47,6 +49,8 @@ import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import static java.util.Collections.emptySet;
@@ -82,6 +86,11 @@ public class ApplyManager implements Comparator<Pair<DtTime, CompletableFuture<L
 
     private Fiber applyFiber;
 
+    private static final int MAX_COMPLETION_BATCH = 256;
+    // if not null, the callbacks of applied tasks are collected and invoked in this executor in batch
+    private final ExecutorService completionExecutor;
+    private ArrayList<Completion> completions;
+
     public ApplyManager(GroupComponents gc) {
         this.ts = gc.getRaftStatus().getTs();
         this.raftStatus = gc.getRaftStatus();
@@ -92,6 +101,7 @@ public class ApplyManager implements Comparator<Pair<DtTime, CompletableFuture<L
         this.needApplyCond = fiberGroup.newCondition("needApply");
         this.applyFinishCond = fiberGroup.newCondition("applyFinish");
         this.applyMonitorCond = fiberGroup.newCondition("applyMonitor");
+        this.completionExecutor = gc.getGroupConfig().getCompletionExecutor();
     }
 
     @Override
@@ -109,6 +119,9 @@ public class ApplyManager implements Comparator<Pair<DtTime, CompletableFuture<L
         this.initCommitIndex = raftStatus.getCommitIndex();
         startApplyFiber(fiberGroup);
         new Fiber("waitGroupReadyTimeout", fiberGroup, new WaitGroupReadyTimeoutFrame(), true).start();
+        if (raftStatus.isWitness()) {
+            new Fiber("witnessTruncate", fiberGroup, new WitnessTruncateFrame(), true).start();
+        }
         new Fiber("applyFiberMonitor", fiberGroup, new FiberFrame<>() {
             @Override
             public FrameCallResult execute(Void input) {
@@ -146,6 +159,7 @@ public class ApplyManager implements Comparator<Pair<DtTime, CompletableFuture<L
         } catch (Throwable e) {
             log.error("state machine stop failed", e);
         }
+        flushCompletions();
         processWaitGroupReadyQueue(true, null);
     }
 
@@ -164,7 +178,10 @@ public class ApplyManager implements Comparator<Pair<DtTime, CompletableFuture<L
             case LogItem.TYPE_NORMAL:
             case LogItem.TYPE_LOG_READ: {
                 RaftInput input = rt.getInput();
-                if (input.isReadOnly() && rt.getCallback() == null) {
+                if (raftStatus.isWitness()) {
+                    // the witness has no state machine, only advance the apply index
+                    afterExec(index, rt, null, null);
+                } else if (input.isReadOnly() && rt.getCallback() == null) {
                     // no need to execute read only task if no one wait for result
                     afterExec(index, rt, null, null);
                 } else {
@@ -294,7 +311,9 @@ public class ApplyManager implements Comparator<Pair<DtTime, CompletableFuture<L
             initFutureComplete = true;
             raftStatus.getInitFuture().complete(null);
         }
-        if (execEx == null) {
+        if (completionExecutor != null && rt.getCallback() != null && isBizTask(rt)) {
+            addCompletion(rt, index, execResult, execEx);
+        } else if (execEx == null) {
             rt.callSuccess(execResult);
         } else {
             // assert read only
@@ -306,6 +325,66 @@ public class ApplyManager implements Comparator<Pair<DtTime, CompletableFuture<L
         tryApplyHeartBeat(index);
     }
 
+    // only the callbacks of biz tasks can run in completion executor, the callbacks of config change tasks
+    // (see MemberManager) start fibers, so they should be invoked in raft thread
+    private static boolean isBizTask(RaftTask rt) {
+        return rt.getType() == LogItem.TYPE_NORMAL || rt.getType() == LogItem.TYPE_LOG_READ;
+    }
+
+    private void addCompletion(RaftTask rt, long index, Object execResult, Throwable execEx) {
+        RaftCallback callback = rt.takeCallback();
+        if (callback != null) {
+            if (completions == null) {
+                completions = new ArrayList<>();
+            }
+            completions.add(new Completion(callback, index, execResult, execEx));
+        }
+        // all committed tasks applied (end of this round), or the batch is large enough
+        if (completions != null && (index >= raftStatus.getCommitIndex()
+                || completions.size() >= MAX_COMPLETION_BATCH)) {
+            flushCompletions();
+        }
+    }
+
+    private void flushCompletions() {
+        ArrayList<Completion> list = completions;
+        if (list == null) {
+            return;
+        }
+        completions = null;
+        try {
+            completionExecutor.execute(() -> invokeCompletions(list));
+        } catch (RejectedExecutionException e) {
+            // the executor is shutdown
+            invokeCompletions(list);
+        }
+    }
+
+    private static void invokeCompletions(ArrayList<Completion> list) {
+        for (int size = list.size(), i = 0; i < size; i++) {
+            Completion c = list.get(i);
+            if (c.ex == null) {
+                RaftCallback.callSuccess(c.callback, c.index, c.result);
+            } else {
+                RaftCallback.callFail(c.callback, c.ex);
+            }
+        }
+    }
+
+    private static final class Completion {
+        final RaftCallback callback;
+        final long index;
+        final Object result;
+        final Throwable ex;
+
+        Completion(RaftCallback callback, long index, Object result, Throwable ex) {
+            this.callback = callback;
+            this.index = index;
+            this.result = result;
+            this.ex = ex;
+        }
+    }
+
     private void tryApplyHeartBeat(long appliedIndex) {
         RaftTask t = heartBeatQueue.peekFirst();
         if (t != null && t.getItem().getIndex() == appliedIndex + 1) {
@@ -342,6 +421,7 @@ public class ApplyManager implements Comparator<Pair<DtTime, CompletableFuture<L
         protected FrameCallResult doFinally() {
             log.info("apply fiber exit: groupId={}", raftStatus.getGroupId());
             closeIterator();
+            flushCompletions();
             return Fiber.frameReturn();
         }
 
@@ -356,11 +436,15 @@ public class ApplyManager implements Comparator<Pair<DtTime, CompletableFuture<L
 
         private FrameCallResult execLoop(Void v) {
             if (execCount >= 100) {
+                flushCompletions();
                 return Fiber.yield(this);
             }
             RaftStatusImpl raftStatus = ApplyManager.this.raftStatus;
             long diff = raftStatus.getCommitIndex() - raftStatus.getLastApplying();
             if (diff == 0) {
+                // end of this round, the last tasks may have no callback (heartbeat etc.), or the commit index
+                // may move forward during async exec, so flush here
+                flushCompletions();
                 return needApplyCond.await(this);
             }
             long index = raftStatus.getLastApplying() + 1;
@@ -511,4 +595,25 @@ public class ApplyManager implements Comparator<Pair<DtTime, CompletableFuture<L
             return Fiber.sleep(100, this);
         }
     }
+
+    private class WitnessTruncateFrame extends FiberFrame<Void> {
+        @Override
+        protected FrameCallResult handle(Throwable ex) {
+            log.error("witness truncate log failed, groupId={}", raftStatus.getGroupId(), ex);
+            return Fiber.frameReturn();
+        }
+
+        @Override
+        public FrameCallResult execute(Void input) {
+            if (isGroupShouldStopPlain()) {
+                return Fiber.frameReturn();
+            }
+            if (!raftStatus.isInstallSnapshot()) {
+                // the witness can't rebuild anything from logs, so delete them once applied,
+                // the raft log keeps the logs which index is not persisted yet
+                raftLog.markTruncateByIndex(raftStatus.getLastApplied(), 0);
+            }
+            return Fiber.sleep(gc.getGroupConfig().getWitnessTruncateIntervalMillis(), this);
+        }
+    }
 }
@@ -102,16 +102,28 @@ public class CommitManager {
                     break;
                 }
             }
-            if (raftStatus.getLeaderCommit() > raftStatus.getCommitIndex()) {
-                long newCommitIndex = Math.min(lastPersistIndex, raftStatus.getLeaderCommit());
-                if (newCommitIndex > raftStatus.getCommitIndex()) {
-                    raftStatus.setCommitIndex(newCommitIndex);
-                    applyManager.wakeupApply();
-                }
+            followerCommit(lastPersistIndex);
+        }
+    }
+
+    private void followerCommit(long lastPersistIndex) {
+        RaftStatusImpl raftStatus = this.raftStatus;
+        if (raftStatus.getLeaderCommit() > raftStatus.getCommitIndex()) {
+            long newCommitIndex = Math.min(lastPersistIndex, raftStatus.getLeaderCommit());
+            if (newCommitIndex > raftStatus.getCommitIndex()) {
+                raftStatus.setCommitIndex(newCommitIndex);
+                applyManager.wakeupApply();
             }
         }
     }
 
+    /**
+     * invoke by follower when leader commit index updated without new logs, e.g. by the heartbeat of quiescent group.
+     */
+    public void followerTryCommit() {
+        followerCommit(syncForce ? raftStatus.getLastForceLogIndex() : raftStatus.getLastWriteLogIndex());
+    }
+
     public void tryCommit(long recentMatchIndex) {
         RaftStatusImpl raftStatus = this.raftStatus;
 
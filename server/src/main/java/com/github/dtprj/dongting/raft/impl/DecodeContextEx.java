@@ -17,6 +17,8 @@ package com.github.dtprj.dongting.raft.impl;
 
 import com.github.dtprj.dongting.codec.DecodeContext;
 import com.github.dtprj.dongting.dtkv.server.KvReqCallback;
+import com.github.dtprj.dongting.raft.rpc.AppendBatchReq;
+import com.github.dtprj.dongting.raft.rpc.AppendBatchResp;
 import com.github.dtprj.dongting.raft.rpc.AppendReq;
 import com.github.dtprj.dongting.raft.rpc.AppendResp;
 import com.github.dtprj.dongting.raft.sm.RaftCodecFactory;
@@ -30,6 +32,8 @@ public final class DecodeContextEx extends DecodeContext {
 
     private AppendReq.Callback appendReqCallback;
     private AppendResp.Callback appendRespCallback;
+    private AppendBatchReq.Callback appendBatchReqCallback;
+    private AppendBatchResp.Callback appendBatchRespCallback;
     private KvReqCallback kvReqCallback;
 
     public DecodeContextEx() {
@@ -54,6 +58,20 @@ public final class DecodeContextEx extends DecodeContext {
         return appendRespCallback;
     }
 
+    public AppendBatchReq.Callback appendBatchReqCallback(Function<Integer, RaftCodecFactory> decoderFactory) {
+        if (appendBatchReqCallback == null) {
+            appendBatchReqCallback = new AppendBatchReq.Callback(decoderFactory);
+        }
+        return appendBatchReqCallback;
+    }
+
+    public AppendBatchResp.Callback appendBatchRespCallback() {
+        if (appendBatchRespCallback == null) {
+            appendBatchRespCallback = new AppendBatchResp.Callback();
+        }
+        return appendBatchRespCallback;
+    }
+
     public KvReqCallback kvReqCallback() {
         if (kvReqCallback == null) {
             kvReqCallback = new KvReqCallback();
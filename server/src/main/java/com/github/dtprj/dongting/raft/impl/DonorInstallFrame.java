@@ -0,0 +1,247 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.impl;
+
+import com.github.dtprj.dongting.buf.RefBuffer;
+import com.github.dtprj.dongting.buf.RefBufferFactory;
+import com.github.dtprj.dongting.common.DtTime;
+import com.github.dtprj.dongting.fiber.Fiber;
+import com.github.dtprj.dongting.fiber.FiberFrame;
+import com.github.dtprj.dongting.fiber.FiberFuture;
+import com.github.dtprj.dongting.fiber.FiberGroup;
+import com.github.dtprj.dongting.fiber.FrameCallResult;
+import com.github.dtprj.dongting.log.DtLog;
+import com.github.dtprj.dongting.log.DtLogs;
+import com.github.dtprj.dongting.net.Commands;
+import com.github.dtprj.dongting.net.NioClient;
+import com.github.dtprj.dongting.net.ReadPacket;
+import com.github.dtprj.dongting.net.RpcCallback;
+import com.github.dtprj.dongting.raft.RaftException;
+import com.github.dtprj.dongting.raft.rpc.AppendResp;
+import com.github.dtprj.dongting.raft.rpc.InstallSnapshotReq;
+import com.github.dtprj.dongting.raft.server.RaftGroupConfigEx;
+import com.github.dtprj.dongting.raft.sm.Snapshot;
+import com.github.dtprj.dongting.raft.sm.SnapshotInfo;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Run in a follower (or observer) which is directed by the leader, send the snapshot of local state machine to
+ * the member which need install snapshot. The install requests carry the term and id of the leader, so the
+ * target member processes them just as they are sent by the leader. Return the lastIncludedIndex of the snapshot.
+ *
+ * @author huangli
+ */
+public class DonorInstallFrame extends FiberFrame<Long> {
+    private static final DtLog log = DtLogs.getLogger(DonorInstallFrame.class);
+
+    private final GroupComponents gc;
+    private final RaftStatusImpl raftStatus;
+    private final RaftGroupConfigEx groupConfig;
+    private final RaftMember target;
+    private final int groupId;
+    private final int term;
+    private final int leaderId;
+
+    private boolean cancelled;
+    private Snapshot snapshot;
+    private long nextPosAfterInstallFinish;
+    private long snapshotOffset;
+
+    public DonorInstallFrame(GroupComponents gc, RaftMember target, int term, int leaderId) {
+        this.gc = gc;
+        this.raftStatus = gc.getRaftStatus();
+        this.groupConfig = gc.getGroupConfig();
+        this.target = target;
+        this.groupId = raftStatus.getGroupId();
+        this.term = term;
+        this.leaderId = leaderId;
+    }
+
+    /**
+     * called by the cancel request of the leader.
+     */
+    public void markCancelled() {
+        this.cancelled = true;
+    }
+
+    private boolean shouldStop() {
+        if (cancelled) {
+            log.info("cancelled by leader, stop donate snapshot. group={}, target={}",
+                    groupId, target.getNode().getNodeId());
+            return true;
+        }
+        if (isGroupShouldStopPlain()) {
+            log.debug("group should stop, stop donate snapshot. group={}", groupId);
+            return true;
+        }
+        if (raftStatus.getCurrentTerm() != term) {
+            log.info("term changed, stop donate snapshot. group={}, term={}, oldTerm={}",
+                    groupId, raftStatus.getCurrentTerm(), term);
+            return true;
+        }
+        RaftMember leader = raftStatus.getCurrentLeader();
+        if (leader == null || leader.getNode().getNodeId() != leaderId) {
+            log.info("leader changed, stop donate snapshot. group={}", groupId);
+            return true;
+        }
+        if (raftStatus.isInstallSnapshot()) {
+            log.info("self is installing snapshot, stop donate snapshot. group={}", groupId);
+            return true;
+        }
+        if (!target.getNode().getStatus().isReady()) {
+            log.info("target node not ready, stop donate snapshot. group={}, node={}",
+                    groupId, target.getNode().getNodeId());
+            return true;
+        }
+        return false;
+    }
+
+    private FrameCallResult cancel() {
+        throw new RaftCancelException("donate snapshot cancelled, groupId=" + groupId);
+    }
+
+    @Override
+    protected FrameCallResult doFinally() {
+        if (target.getDonorFrame() == this) {
+            target.setDonorFrame(null);
+        }
+        if (snapshot != null) {
+            snapshot.close();
+            snapshot = null;
+        }
+        return Fiber.frameReturn();
+    }
+
+    @Override
+    public FrameCallResult execute(Void input) {
+        if (shouldStop()) {
+            return cancel();
+        }
+        this.snapshot = gc.getStateMachine().takeSnapshot(new SnapshotInfo(raftStatus));
+        if (snapshot == null) {
+            throw new RaftException("open recent snapshot fail, return null");
+        }
+        FiberFrame<Long> f = gc.getRaftLog().loadNextItemPos(snapshot.getSnapshotInfo().getLastIncludedIndex());
+        return Fiber.call(f, this::afterLoadNextItemPos);
+    }
+
+    private FrameCallResult afterLoadNextItemPos(Long nextPos) {
+        if (shouldStop()) {
+            return cancel();
+        }
+        log.info("begin donate snapshot to member: nodeId={}, groupId={}, lastIncludedIndex={}",
+                target.getNode().getNodeId(), groupId, snapshot.getSnapshotInfo().getLastIncludedIndex());
+        this.nextPosAfterInstallFinish = nextPos;
+        // send the first request, no data
+        return sendInstallSnapshotReq(null, true, false).await(this::afterFirstReqFinished);
+    }
+
+    private FrameCallResult afterFirstReqFinished(Void unused) {
+        if (shouldStop()) {
+            return cancel();
+        }
+        RefBufferFactory heapPool = groupConfig.getFiberGroup().getThread().getHeapPool();
+        Supplier<RefBuffer> bufferCreator = () -> heapPool.create(groupConfig.getReplicateSnapshotBufferSize());
+        SnapshotReader r = new SnapshotReader(snapshot, groupConfig.getSnapshotConcurrency(),
+                groupConfig.getReplicateSnapshotConcurrency(), this::readerCallback, this::shouldStop, bufferCreator);
+        return Fiber.call(r, this::afterReaderFinish);
+    }
+
+    private FiberFuture<Void> readerCallback(RefBuffer buf, Integer readBytes) {
+        buf.getBuffer().clear();
+        buf.getBuffer().limit(readBytes);
+        return sendInstallSnapshotReq(buf, false, false);
+    }
+
+    private FrameCallResult afterReaderFinish(Void unused) {
+        if (shouldStop()) {
+            return cancel();
+        }
+        return sendInstallSnapshotReq(null, false, true).await(this::afterInstallFinish);
+    }
+
+    private FrameCallResult afterInstallFinish(Void unused) {
+        long lastIncludedIndex = snapshot.getSnapshotInfo().getLastIncludedIndex();
+        log.info("donate snapshot to member finished success. nodeId={}, groupId={}, lastIncludedIndex={}",
+                target.getNode().getNodeId(), groupId, lastIncludedIndex);
+        setResult(lastIncludedIndex);
+        return Fiber.frameReturn();
+    }
+
+    private FiberFuture<Void> sendInstallSnapshotReq(RefBuffer data, boolean start, boolean finish) {
+        SnapshotInfo si = snapshot.getSnapshotInfo();
+        InstallSnapshotReq req = new InstallSnapshotReq();
+        req.groupId = groupId;
+        req.term = term;
+        req.leaderId = leaderId;
+        req.senderId = gc.getServerConfig().getNodeId();
+        req.lastIncludedIndex = si.getLastIncludedIndex();
+        req.lastIncludedTerm = si.getLastIncludedTerm();
+        req.offset = snapshotOffset;
+
+        if (start) {
+            req.members.addAll(si.getMembers());
+            req.observers.addAll(si.getObservers());
+            req.preparedMembers.addAll(si.getPreparedMembers());
+            req.preparedObservers.addAll(si.getPreparedObservers());
+            req.lastConfigChangeIndex = si.getLastConfigChangeIndex();
+        }
+        if (finish) {
+            req.done = true;
+            req.nextWritePos = nextPosAfterInstallFinish;
+        }
+        req.data = data;
+
+        // data buffer released in WritePacket
+        InstallSnapshotReq.InstallReqWritePacket wf = new InstallSnapshotReq.InstallReqWritePacket(req);
+        wf.setCommand(Commands.RAFT_INSTALL_SNAPSHOT);
+        wf.setRouteKey(groupId);
+        FiberGroup fg = groupConfig.getFiberGroup();
+        FiberFuture<Void> f = fg.newFuture("donate-" + groupId + "-" + req.offset);
+        DtTime timeout = new DtTime(gc.getServerConfig().getRpcTimeout(), TimeUnit.MILLISECONDS);
+        RpcCallback<AppendResp> callback = RpcCallback.fromHandlerAsync(fg.getExecutor(),
+                (resp, ex) -> afterInstallRpc(resp, ex, f));
+        NioClient client = gc.getReplicateManager().client;
+        client.sendRequest(target.getNode().getPeer(), wf, AbstractLeaderRepFrame.APPEND_RESP_DECODER_CALLBACK_CREATOR,
+                timeout, callback);
+        int bytes = data == null ? 0 : data.getBuffer().remaining();
+        snapshotOffset += bytes;
+        log.debug("donate snapshot data to member {}. groupId={}, offset={}, bytes={}, done={}",
+                target.getNode().getNodeId(), groupId, req.offset, bytes, req.done);
+        return f;
+    }
+
+    private void afterInstallRpc(ReadPacket<AppendResp> rf, Throwable ex, FiberFuture<Void> f) {
+        if (ex != null) {
+            f.completeExceptionally(ex);
+            return;
+        }
+        AppendResp respBody = rf.getBody();
+        if (!respBody.success) {
+            f.completeExceptionally(new RaftException("install snapshot fail. remoteNode="
+                    + target.getNode().getNodeId() + ", groupId=" + groupId + ", msg=" + rf.getMsg()));
+            return;
+        }
+        if (respBody.term != term) {
+            f.completeExceptionally(new RaftException("remote node term not match. remoteNode="
+                    + target.getNode().getNodeId() + ", groupId=" + groupId + ", remoteTerm=" + respBody.term));
+            return;
+        }
+        f.complete(null);
+    }
+}
@@ -42,6 +42,7 @@ public class GroupComponents {
     private ReplicateManager replicateManager;
 
     private NodeManager nodeManager;
+    private AppendMultiplexer appendMultiplexer;
     private PendingStat serverStat;
 
     private RaftLog raftLog;
@@ -139,6 +140,14 @@ public class GroupComponents {
         this.nodeManager = nodeManager;
     }
 
+    public AppendMultiplexer getAppendMultiplexer() {
+        return appendMultiplexer;
+    }
+
+    public void setAppendMultiplexer(AppendMultiplexer appendMultiplexer) {
+        this.appendMultiplexer = appendMultiplexer;
+    }
+
     public PendingStat getServerStat() {
         return serverStat;
     }
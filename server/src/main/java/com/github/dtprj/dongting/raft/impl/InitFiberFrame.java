@@ -80,7 +80,8 @@ public class InitFiberFrame extends FiberFrame<Void> {
             processor.startProcessFiber(channel);
         }
 
-        gc.getLinearTaskRunner().init(fg.newChannel());
+        // tasks are submitted by io threads or biz threads
+        gc.getLinearTaskRunner().init(fg.newCrossThreadChannel(1024));
 
         return Fiber.call(gc.getStatusManager().initStatusFile(), this::afterInitStatusFile);
     }
@@ -97,6 +98,9 @@ public class InitFiberFrame extends FiberFrame<Void> {
         if (cancelInit()) {
             return Fiber.frameReturn();
         }
+        if (raftStatus.isWitness() && !raftStatus.isInstallSnapshot()) {
+            return afterWitnessInit();
+        }
         if (raftStatus.isInstallSnapshot() || gc.getSnapshotManager() == null) {
             if (raftStatus.isInstallSnapshot()) {
                 log.info("install snapshot, skip recover, groupId={}", groupConfig.getGroupId());
@@ -111,6 +115,16 @@ public class InitFiberFrame extends FiberFrame<Void> {
         }
     }
 
+    private FrameCallResult afterWitnessInit() {
+        // the witness has no snapshot and state machine, all committed logs are treated as applied
+        long commitIndex = raftStatus.getCommitIndex();
+        log.info("witness skip snapshot recover, commitIndex={}, groupId={}", commitIndex, groupConfig.getGroupId());
+        raftStatus.setLastApplied(commitIndex);
+        raftStatus.setLastApplying(commitIndex);
+        return Fiber.call(gc.getRaftLog().init(),
+                initResult -> afterRaftLogInit(initResult, 0, commitIndex));
+    }
+
     private FrameCallResult afterSnapshotManagerInit(Snapshot snapshot) {
         if (cancelInit()) {
             return Fiber.frameReturn();
@@ -205,7 +219,9 @@ public class InitFiberFrame extends FiberFrame<Void> {
         gc.getCommitManager().startCommitFiber();
         gc.getVoteManager().startVoteFiber();
         gc.getApplyManager().init(getFiberGroup());
-        gc.getSnapshotManager().startFiber();
+        if (!raftStatus.isWitness()) {
+            gc.getSnapshotManager().startFiber();
+        }
         return Fiber.frameReturn();
     }
 
@@ -0,0 +1,268 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.impl;
+
+import com.github.dtprj.dongting.common.AbstractLifeCircle;
+import com.github.dtprj.dongting.common.DtTime;
+import com.github.dtprj.dongting.common.DtUtil;
+import com.github.dtprj.dongting.log.DtLog;
+import com.github.dtprj.dongting.log.DtLogs;
+import com.github.dtprj.dongting.raft.server.RaftServerConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Periodically transfer leadership of groups led by this node to less loaded members, so the leader work of
+ * all groups is spread over the cluster. Each node only moves the groups it leads, the load of other nodes is
+ * computed from the leader info of local groups.
+ *
+ * @author huangli
+ */
+public class LeaderBalancer extends AbstractLifeCircle {
+    private static final DtLog log = DtLogs.getLogger(LeaderBalancer.class);
+
+    // a group applying 1000 logs per second is counted as one more leader, lease read is much cheaper than write
+    static final double WRITE_WEIGHT = 1.0 / 1000;
+    static final double READ_WEIGHT = 1.0 / 4000;
+
+    private final RaftServerConfig config;
+    private final int selfNodeId;
+    private final ConcurrentHashMap<Integer, RaftGroupImpl> raftGroups;
+    private final NodeManager nodeManager;
+
+    private ScheduledFuture<?> scheduledFuture;
+    private final AtomicInteger pendingTransfers = new AtomicInteger();
+
+    // below fields only accessed in schedule thread
+    private final HashMap<Integer, long[]> lastCounters = new HashMap<>();
+    private long lastRunNanos;
+
+    public LeaderBalancer(RaftServerConfig config, ConcurrentHashMap<Integer, RaftGroupImpl> raftGroups,
+                          NodeManager nodeManager) {
+        this.config = config;
+        this.selfNodeId = config.getNodeId();
+        this.raftGroups = raftGroups;
+        this.nodeManager = nodeManager;
+    }
+
+    @Override
+    protected void doStart() {
+        long interval = config.getLeaderBalanceIntervalMillis();
+        this.scheduledFuture = DtUtil.SCHEDULED_SERVICE.scheduleWithFixedDelay(
+                this::run, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected void doStop(DtTime timeout, boolean force) {
+        if (scheduledFuture != null) {
+            scheduledFuture.cancel(false);
+        }
+    }
+
+    private void run() {
+        try {
+            if (pendingTransfers.get() > 0) {
+                // rate limit, wait the transfers of last round finished
+                return;
+            }
+            List<GroupLoad> loads = collectLoads();
+            if (loads == null) {
+                return;
+            }
+            List<Move> moves = plan(selfNodeId, loads, config.getLeaderBalanceThreshold(),
+                    config.getLeaderBalanceMaxTransfers());
+            for (Move m : moves) {
+                if (config.isLeaderBalanceDryRun()) {
+                    log.info("leader balance dry run, groupId={}, from={}, to={}, groupLoad={}",
+                            m.groupId, selfNodeId, m.targetNodeId, m.load);
+                } else {
+                    transfer(m);
+                }
+            }
+        } catch (Throwable e) {
+            log.error("leader balance fail", e);
+        }
+    }
+
+    private List<GroupLoad> collectLoads() {
+        long now = System.nanoTime();
+        double seconds = lastRunNanos == 0 ? 0 : (now - lastRunNanos) / 1_000_000_000.0;
+        lastRunNanos = now;
+        ArrayList<GroupLoad> loads = new ArrayList<>(raftGroups.size());
+        // remove the counters of the removed groups
+        lastCounters.keySet().retainAll(raftGroups.keySet());
+        boolean leaderUnknown = false;
+        for (RaftGroupImpl g : raftGroups.values()) {
+            RaftStatusImpl raftStatus = g.getGroupComponents().getRaftStatus();
+            ShareStatus ss = raftStatus.getShareStatus();
+            long[] counters = lastCounters.computeIfAbsent(g.getGroupId(), k -> new long[2]);
+            long applied = ss.lastApplied;
+            long reads = g.getLeaseReadCount();
+            double load = 1;
+            if (seconds > 0) {
+                load += Math.max(0, applied - counters[0]) / seconds * WRITE_WEIGHT
+                        + Math.max(0, reads - counters[1]) / seconds * READ_WEIGHT;
+            }
+            counters[0] = applied;
+            counters[1] = reads;
+
+            if (!ss.groupReady || ss.currentLeader == null) {
+                leaderUnknown = true;
+                continue;
+            }
+            int leaderId = ss.currentLeader.getNode().getNodeId();
+            // not thread safe, but it's ok, the transfer is checked again in raft thread
+            Set<Integer> members = raftStatus.getNodeIdOfMembers();
+            int[] candidates = new int[members.size()];
+            int count = 0;
+            for (int nodeId : members) {
+                if (nodeId != leaderId && isNodeReady(nodeId)
+                        && !raftStatus.getNodeIdOfWitnesses().contains(nodeId)) {
+                    candidates[count++] = nodeId;
+                }
+            }
+            loads.add(new GroupLoad(g.getGroupId(), leaderId, load, count == candidates.length
+                    ? candidates : Arrays.copyOf(candidates, count)));
+        }
+        // leader of some group is unknown (maybe in election), skip this round
+        return leaderUnknown ? null : loads;
+    }
+
+    private boolean isNodeReady(int nodeId) {
+        RaftNodeEx node = nodeManager.allNodesEx.get(nodeId);
+        return node != null && node.getStatus().isReady();
+    }
+
+    private void transfer(Move m) {
+        RaftGroupImpl g = raftGroups.get(m.groupId);
+        if (g == null) {
+            return;
+        }
+        log.info("leader balance, transfer leadership, groupId={}, from={}, to={}, groupLoad={}",
+                m.groupId, selfNodeId, m.targetNodeId, m.load);
+        pendingTransfers.incrementAndGet();
+        try {
+            g.transferLeadership(m.targetNodeId, config.getRpcTimeout()).whenComplete((v, ex) -> {
+                pendingTransfers.decrementAndGet();
+                if (ex != null) {
+                    log.warn("leader balance transfer fail, groupId={}, to={}: {}", m.groupId,
+                            m.targetNodeId, ex.toString());
+                }
+            });
+        } catch (Exception e) {
+            pendingTransfers.decrementAndGet();
+            log.warn("leader balance transfer fail, groupId={}, to={}: {}", m.groupId, m.targetNodeId, e.toString());
+        }
+    }
+
+    /**
+     * Compute the leadership transfers of groups led by selfNodeId. This method is pure, so it can be used to
+     * simulate the balance of a cluster.
+     *
+     * @param threshold  only move when the load difference of two nodes exceeds this value
+     * @param maxMoves   max moves returned
+     */
+    public static List<Move> plan(int selfNodeId, List<GroupLoad> groups, double threshold, int maxMoves) {
+        HashMap<Integer, double[]> nodeLoads = new HashMap<>();
+        for (GroupLoad g : groups) {
+            nodeLoads.computeIfAbsent(g.leaderId, k -> new double[1])[0] += g.load;
+            for (int c : g.candidates) {
+                nodeLoads.computeIfAbsent(c, k -> new double[1]);
+            }
+        }
+        double[] selfLoad = nodeLoads.get(selfNodeId);
+        ArrayList<Move> moves = new ArrayList<>();
+        if (selfLoad == null) {
+            return moves;
+        }
+        double avg = 0;
+        for (double[] l : nodeLoads.values()) {
+            avg += l[0];
+        }
+        avg /= nodeLoads.size();
+        boolean[] moved = new boolean[groups.size()];
+        // only move from node above average to node below average, avoid useless moves between light nodes
+        while (moves.size() < maxMoves && selfLoad[0] > avg) {
+            int bestGroup = -1;
+            int bestTarget = -1;
+            double bestGap = 0;
+            for (int i = 0; i < groups.size(); i++) {
+                GroupLoad g = groups.get(i);
+                if (moved[i] || g.leaderId != selfNodeId) {
+                    continue;
+                }
+                for (int c : g.candidates) {
+                    double targetLoad = nodeLoads.get(c)[0];
+                    double gap = selfLoad[0] - targetLoad;
+                    if (gap <= threshold || targetLoad >= avg) {
+                        continue;
+                    }
+                    // the gap of the two nodes after move, should be smaller than before
+                    double newGap = Math.abs(gap - 2 * g.load);
+                    if (newGap < gap && (bestGroup == -1 || newGap < bestGap)) {
+                        bestGroup = i;
+                        bestTarget = c;
+                        bestGap = newGap;
+                    }
+                }
+            }
+            if (bestGroup == -1) {
+                break;
+            }
+            GroupLoad g = groups.get(bestGroup);
+            moved[bestGroup] = true;
+            selfLoad[0] -= g.load;
+            nodeLoads.get(bestTarget)[0] += g.load;
+            moves.add(new Move(g.groupId, bestTarget, g.load));
+        }
+        return moves;
+    }
+
+    public static class GroupLoad {
+        public final int groupId;
+        public final int leaderId;
+        public final double load;
+        // ready voting members except the leader
+        public final int[] candidates;
+
+        public GroupLoad(int groupId, int leaderId, double load, int[] candidates) {
+            this.groupId = groupId;
+            this.leaderId = leaderId;
+            this.load = load;
+            this.candidates = candidates;
+        }
+    }
+
+    public static class Move {
+        public final int groupId;
+        public final int targetNodeId;
+        public final double load;
+
+        public Move(int groupId, int targetNodeId, double load) {
+            this.groupId = groupId;
+            this.targetNodeId = targetNodeId;
+            this.load = load;
+        }
+    }
+}
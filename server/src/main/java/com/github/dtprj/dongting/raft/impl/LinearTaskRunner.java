@@ -36,6 +36,7 @@ import com.github.dtprj.dongting.raft.server.RaftInput;
 import com.github.dtprj.dongting.raft.server.RaftServerConfig;
 import com.github.dtprj.dongting.raft.store.RaftLog;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -60,6 +61,11 @@ public class LinearTaskRunner {
 
     private final PerfCallback perfCallback;
 
+    // tasks not appended in previous rounds, index is the priority class of RaftInput
+    private final ArrayDeque<RaftTask>[] classQueues;
+    private final int[] classRoundLimits;
+    private int queuedTasks;
+
     public LinearTaskRunner(GroupComponents gc) {
         this.gc = gc;
         this.serverConfig = gc.getServerConfig();
@@ -67,6 +73,16 @@ public class LinearTaskRunner {
         this.raftStatus = gc.getRaftStatus();
         this.ts = raftStatus.getTs();
         this.perfCallback = gc.getGroupConfig().getPerfCallback();
+
+        int[] weights = groupConfig.getPriorityClassWeights();
+        //noinspection unchecked
+        this.classQueues = new ArrayDeque[RaftInput.PRIORITY_CLASS_COUNT];
+        this.classRoundLimits = new int[RaftInput.PRIORITY_CLASS_COUNT];
+        for (int i = 0; i < classQueues.length; i++) {
+            classQueues[i] = new ArrayDeque<>();
+            int w = weights != null && i < weights.length ? weights[i] : 1;
+            classRoundLimits[i] = Math.max(1, w * groupConfig.getTaskRoundQuantum());
+        }
     }
 
     public void postInit() {
@@ -92,12 +108,22 @@ public class LinearTaskRunner {
         @Override
         public FrameCallResult execute(Void input) {
             list.clear();
+            if (queuedTasks > 0) {
+                // some tasks are not appended in last round, don't wait
+                taskChannel.takeAllNow(list);
+                return afterTakeAll(null);
+            }
             return taskChannel.takeAll(list, serverConfig.getHeartbeatInterval(),
                     true, this::afterTakeAll);
         }
 
         private FrameCallResult afterTakeAll(Void unused) {
             if (isGroupShouldStopPlain()) {
+                for (ArrayDeque<RaftTask> q : classQueues) {
+                    list.addAll(q);
+                    q.clear();
+                }
+                queuedTasks = 0;
                 for (RaftTask rt : list) {
                     RaftUtil.release(rt.getInput());
                     rt.callFail(new RaftException("raft group is stopping"));
@@ -116,9 +142,16 @@ public class LinearTaskRunner {
                 // use HandlerFrame to catch it, but no need to handle it
                 return Fiber.call(new HandlerFrame<>(f), p -> afterTakeAll(null));
             }
+            schedule(list);
             if (!list.isEmpty()) {
                 return Fiber.call(raftExec(list), this);
             } else if (raftStatus.getRole() == RaftRole.leader) {
+                if (serverConfig.isQuiescent() && raftStatus.isGroupReady()) {
+                    // not write heartbeat log, followers are kept alive by node ping
+                    RaftUtil.resetElectTimer(raftStatus);
+                    gc.getMemberManager().leaderQuiescentHeartbeat();
+                    return Fiber.resume(null, this);
+                }
                 RaftInput input = createHeartBeatInput();
                 RaftTask task = new RaftTask(ts, LogItem.TYPE_HEARTBEAT, input, null);
                 return Fiber.call(raftExec(Collections.singletonList(task)), this);
@@ -128,6 +161,52 @@ public class LinearTaskRunner {
         }
     }
 
+    /**
+     * Select the tasks to append in this round. If more than one priority class has tasks, each class appends
+     * at most (weight * taskRoundQuantum) tasks, higher priority class first, and the rest are kept to next round.
+     * If only one class has tasks, all of them are appended.
+     */
+    void schedule(ArrayList<RaftTask> list) {
+        if (queuedTasks == 0 && singleClass(list)) {
+            // fast path
+            return;
+        }
+        for (int size = list.size(), i = 0; i < size; i++) {
+            RaftTask t = list.get(i);
+            classQueues[t.getInput().getPriorityClass()].addLast(t);
+        }
+        queuedTasks += list.size();
+        list.clear();
+        int busyClasses = 0;
+        for (ArrayDeque<RaftTask> q : classQueues) {
+            if (!q.isEmpty()) {
+                busyClasses++;
+            }
+        }
+        for (int c = 0; c < classQueues.length; c++) {
+            ArrayDeque<RaftTask> q = classQueues[c];
+            int n = busyClasses > 1 ? Math.min(q.size(), classRoundLimits[c]) : q.size();
+            for (int i = 0; i < n; i++) {
+                list.add(q.pollFirst());
+            }
+        }
+        queuedTasks -= list.size();
+    }
+
+    private static boolean singleClass(ArrayList<RaftTask> list) {
+        int size = list.size();
+        if (size <= 1) {
+            return true;
+        }
+        int c = list.get(0).getInput().getPriorityClass();
+        for (int i = 1; i < size; i++) {
+            if (list.get(i).getInput().getPriorityClass() != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public void submitRaftTaskInBizThread(int raftLogType, RaftInput input, RaftCallback callback) {
         RaftTask t = new RaftTask(raftStatus.getTs(), raftLogType, input, callback);
         input.setPerfTime(perfCallback.takeTime(PerfConsts.RAFT_D_LEADER_RUNNER_FIBER_LATENCY));
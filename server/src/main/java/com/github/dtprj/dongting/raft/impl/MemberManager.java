@@ -35,6 +35,7 @@ import com.github.dtprj.dongting.net.SimpleWritePacket;
 import com.github.dtprj.dongting.raft.QueryStatusResp;
 import com.github.dtprj.dongting.raft.RaftException;
 import com.github.dtprj.dongting.raft.RaftNode;
+import com.github.dtprj.dongting.raft.rpc.GroupHeartbeat;
 import com.github.dtprj.dongting.raft.rpc.RaftPing;
 import com.github.dtprj.dongting.raft.rpc.TransferLeaderReq;
 import com.github.dtprj.dongting.raft.server.LogItem;
@@ -848,6 +849,87 @@ public class MemberManager {
     }
 
 
+    /**
+     * invoke by leader in quiescent mode when the group is idle, instead of writing a heartbeat log.
+     * the heartbeat is sent to followers by next node ping, see NodeManager.
+     */
+    public void leaderQuiescentHeartbeat() {
+        RaftStatusImpl raftStatus = this.raftStatus;
+        GroupHeartbeat hb = new GroupHeartbeat(groupId, raftStatus.getCurrentTerm(), raftStatus.getCommitIndex());
+        addGroupHeartbeat(raftStatus.getMembers(), hb);
+        addGroupHeartbeat(raftStatus.getPreparedMembers(), hb);
+
+        raftStatus.getSelf().setLastConfirmReqNanos(raftStatus.getTs().getNanoTime());
+        updateLeaseIfApplied(raftStatus);
+    }
+
+    private void addGroupHeartbeat(List<RaftMember> list, GroupHeartbeat hb) {
+        for (int len = list.size(), i = 0; i < len; i++) {
+            RaftNodeEx node = list.get(i).getNode();
+            if (!node.isSelf()) {
+                node.addGroupHeartbeat(hb);
+            }
+        }
+    }
+
+    private static void updateLeaseIfApplied(RaftStatusImpl raftStatus) {
+        RaftUtil.updateLease(raftStatus);
+        // if there are logs not applied, copy after apply, or the lease read may see stale data
+        if (raftStatus.getLastApplied() >= raftStatus.getCommitIndex()) {
+            raftStatus.copyShareStatus();
+        }
+    }
+
+    /**
+     * invoke by leader when follower accepted the heartbeat sent by node ping.
+     */
+    public void leaderProcessHeartbeatAck(int nodeId, int term, long reqNanos) {
+        RaftStatusImpl raftStatus = this.raftStatus;
+        if (raftStatus.getRole() != RaftRole.leader || raftStatus.getCurrentTerm() != term) {
+            return;
+        }
+        RaftMember m = findExistMember(nodeId);
+        if (m != null && reqNanos - m.getLastConfirmReqNanos() > 0) {
+            m.setLastConfirmReqNanos(reqNanos);
+            updateLeaseIfApplied(raftStatus);
+        }
+    }
+
+    /**
+     * invoke by follower when receive heartbeat of a quiescent group by node ping.
+     *
+     * @return true if the heartbeat is accepted
+     */
+    public boolean followerProcessHeartbeat(int leaderId, int term, long leaderCommit) {
+        RaftStatusImpl raftStatus = this.raftStatus;
+        if (!isValidCandidate(leaderId) || term != raftStatus.getCurrentTerm()) {
+            // if the term is not match, wait the leader to replicate logs or start a new election
+            return false;
+        }
+        switch (raftStatus.getRole()) {
+            case follower:
+                gc.getVoteManager().cancelVote("receive node heartbeat from leader");
+                RaftUtil.resetElectTimer(raftStatus);
+                RaftUtil.updateLeader(raftStatus, leaderId);
+                break;
+            case candidate:
+                String r = "candidate receive node heartbeat from leader";
+                gc.getVoteManager().cancelVote(r);
+                RaftUtil.resetElectTimer(raftStatus);
+                RaftUtil.changeToFollower(raftStatus, leaderId, r);
+                break;
+            default:
+                return false;
+        }
+        // the heartbeat has no log match check, only if the last local log is written by current leader,
+        // the local logs are prefix of the leader's logs, and the leader commit index can be used.
+        if (raftStatus.getLastLogTerm() == term && leaderCommit > raftStatus.getLeaderCommit()) {
+            raftStatus.setLeaderCommit(leaderCommit);
+            gc.getCommitManager().followerTryCommit();
+        }
+        return true;
+    }
+
     public boolean isValidCandidate(int nodeId) {
         RaftMember leader = raftStatus.getCurrentLeader();
         if (leader != null && leader.getNode().getNodeId() == nodeId) {
@@ -861,6 +943,13 @@ public class MemberManager {
                 || raftStatus.getNodeIdOfPreparedMembers().contains(nodeId);
     }
 
+    /**
+     * a witness votes and counts toward quorum, but never becomes leader.
+     */
+    public static boolean electable(RaftStatusImpl raftStatus, int nodeId) {
+        return validCandidate(raftStatus, nodeId) && !raftStatus.getNodeIdOfWitnesses().contains(nodeId);
+    }
+
     public void transferLeadership(int nodeId, CompletableFuture<Void> f, DtTime deadline) {
         if (!groupConfig.getFiberGroup().fireFiber("transfer-leader",
                 new TranferLeaderFiberFrame(nodeId, f, deadline))) {
@@ -923,6 +1012,11 @@ public class MemberManager {
                 RaftUtil.clearTransferLeaderCondition(raftStatus);
                 return Fiber.frameReturn();
             }
+            if (!electable(raftStatus, nodeId)) {
+                f.completeExceptionally(new RaftException("can't transfer leadership to witness: " + nodeId));
+                RaftUtil.clearTransferLeaderCondition(raftStatus);
+                return Fiber.frameReturn();
+            }
 
             if (deadline.isTimeout()) {
                 f.completeExceptionally(new RaftException("transfer leader timeout"));
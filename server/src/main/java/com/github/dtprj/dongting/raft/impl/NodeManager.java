@@ -19,8 +19,11 @@ import com.github.dtprj.dongting.common.AbstractLifeCircle;
 import com.github.dtprj.dongting.common.DtTime;
 import com.github.dtprj.dongting.common.DtUtil;
 import com.github.dtprj.dongting.common.IntObjMap;
+import com.github.dtprj.dongting.fiber.Fiber;
+import com.github.dtprj.dongting.fiber.FiberFrame;
 import com.github.dtprj.dongting.fiber.FiberFuture;
 import com.github.dtprj.dongting.fiber.FiberGroup;
+import com.github.dtprj.dongting.fiber.FrameCallResult;
 import com.github.dtprj.dongting.log.DtLog;
 import com.github.dtprj.dongting.log.DtLogs;
 import com.github.dtprj.dongting.net.Commands;
@@ -31,6 +34,7 @@ import com.github.dtprj.dongting.net.RpcCallback;
 import com.github.dtprj.dongting.net.SimpleWritePacket;
 import com.github.dtprj.dongting.raft.RaftException;
 import com.github.dtprj.dongting.raft.RaftNode;
+import com.github.dtprj.dongting.raft.rpc.GroupHeartbeat;
 import com.github.dtprj.dongting.raft.rpc.NodePing;
 import com.github.dtprj.dongting.raft.server.RaftServerConfig;
 
@@ -44,6 +48,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -62,6 +67,8 @@ public class NodeManager extends AbstractLifeCircle {
 
     private List<RaftNode> allRaftNodesOnlyForInit;
 
+    private ConcurrentHashMap<Integer, RaftGroupImpl> raftGroups;
+
     private ScheduledFuture<?> scheduledFuture;
 
     int currentReadyNodes;
@@ -79,6 +86,10 @@ public class NodeManager extends AbstractLifeCircle {
 
         this.allNodesEx = new IntObjMap<>(allRaftNodes.size() * 2, 0.75f);
         this.allRaftNodesOnlyForInit = allRaftNodes;
+        if (config.isQuiescent()) {
+            // node ping carries heartbeats of quiescent groups
+            this.pingIntervalMillis = (int) config.getHeartbeatInterval();
+        }
     }
 
     private CompletableFuture<RaftNodeEx> addToNioClient(RaftNode node) {
@@ -101,6 +112,7 @@ public class NodeManager extends AbstractLifeCircle {
     }
 
     public void initNodes(ConcurrentHashMap<Integer, RaftGroupImpl> raftGroups) {
+        this.raftGroups = raftGroups;
         ArrayList<CompletableFuture<RaftNodeEx>> futures = new ArrayList<>();
         for (RaftNode n : allRaftNodesOnlyForInit) {
             futures.add(addToNioClient(n));
@@ -160,12 +172,18 @@ public class NodeManager extends AbstractLifeCircle {
         nodeEx.setPinging(true);
 
         DtTime timeout = new DtTime(config.getRpcTimeout(), TimeUnit.MILLISECONDS);
-        SimpleWritePacket packet = new SimpleWritePacket(new NodePing(selfNodeId, nodeEx.getNodeId(), uuid));
+        NodePing ping = new NodePing(selfNodeId, nodeEx.getNodeId(), uuid);
+        ping.groupHeartbeats = nodeEx.drainGroupHeartbeats();
+        long reqNanos = System.nanoTime();
+        SimpleWritePacket packet = new SimpleWritePacket(ping);
         packet.setCommand(Commands.NODE_PING);
         CompletableFuture<ReadPacket<NodePing>> f = new CompletableFuture<>();
         client.sendRequest(nodeEx.getPeer(), packet, ctx -> ctx.toDecoderCallback(new NodePing()),
                 timeout, RpcCallback.fromFuture(f));
-        CompletableFuture<Void> f2 = f.thenAccept(rf -> whenRpcFinish(rf, nodeEx));
+        CompletableFuture<Void> f2 = f.thenAccept(rf -> {
+            whenRpcFinish(rf, nodeEx);
+            processHeartbeatAck(rf.getBody(), nodeEx, reqNanos);
+        });
         // we should set connecting status in schedule thread
         return f2.whenCompleteAsync((v, ex) ->
                 processResultInScheduleThread(nodeEx, ex, extraCallback), DtUtil.SCHEDULED_SERVICE);
@@ -196,6 +214,65 @@ public class NodeManager extends AbstractLifeCircle {
         }
     }
 
+    // run in io thread
+    private void processHeartbeatAck(NodePing resp, RaftNodeEx nodeEx, long reqNanos) {
+        List<GroupHeartbeat> list = resp.groupHeartbeats;
+        if (list == null || raftGroups == null) {
+            return;
+        }
+        for (int len = list.size(), i = 0; i < len; i++) {
+            GroupHeartbeat hb = list.get(i);
+            RaftGroupImpl g = raftGroups.get(hb.groupId);
+            if (g == null) {
+                continue;
+            }
+            MemberManager mm = g.getGroupComponents().getMemberManager();
+            g.getFiberGroup().fireFiber("heartbeatAck", new FiberFrame<>() {
+                @Override
+                public FrameCallResult execute(Void input) {
+                    mm.leaderProcessHeartbeatAck(nodeEx.getNodeId(), hb.term, reqNanos);
+                    return Fiber.frameReturn();
+                }
+            });
+        }
+    }
+
+    /**
+     * process heartbeats of quiescent groups in each group fiber, the callback is invoked (in any thread) after all
+     * heartbeats processed, and the accepted ones are marked by GroupHeartbeat.accept.
+     */
+    public void processGroupHeartbeats(int leaderId, List<GroupHeartbeat> list, Runnable callback) {
+        AtomicInteger remain = new AtomicInteger(list.size());
+        for (int len = list.size(), i = 0; i < len; i++) {
+            GroupHeartbeat hb = list.get(i);
+            RaftGroupImpl g = raftGroups == null ? null : raftGroups.get(hb.groupId);
+            boolean fired = false;
+            if (g != null) {
+                MemberManager mm = g.getGroupComponents().getMemberManager();
+                fired = g.getFiberGroup().fireFiber("groupHeartbeat", new FiberFrame<>() {
+                    @Override
+                    public FrameCallResult execute(Void input) {
+                        if (!isGroupShouldStopPlain()) {
+                            hb.accept = mm.followerProcessHeartbeat(leaderId, hb.term, hb.commitIndex);
+                        }
+                        return Fiber.frameReturn();
+                    }
+
+                    @Override
+                    protected FrameCallResult doFinally() {
+                        if (remain.decrementAndGet() == 0) {
+                            callback.run();
+                        }
+                        return Fiber.frameReturn();
+                    }
+                });
+            }
+            if (!fired && remain.decrementAndGet() == 0) {
+                callback.run();
+            }
+        }
+    }
+
     private void processResultInScheduleThread(RaftNodeEx nodeEx, Throwable ex, Consumer<Throwable> extraCallback) {
         nodeEx.setPinging(false);
         if (ex != null) {
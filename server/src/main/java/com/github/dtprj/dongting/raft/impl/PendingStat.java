@@ -15,6 +15,8 @@
  */
 package com.github.dtprj.dongting.raft.impl;
 
+import com.github.dtprj.dongting.raft.server.RaftInput;
+
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
 
@@ -29,6 +31,13 @@ public class PendingStat {
 
     static final VarHandle PENDING_REQUESTS;
     static final VarHandle PENDING_BYTES;
+    private static final VarHandle INT_ARRAY = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle LONG_ARRAY = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // index is the priority class of RaftInput
+    private final int[] classRequests = new int[RaftInput.PRIORITY_CLASS_COUNT];
+    private final long[] classBytes = new long[RaftInput.PRIORITY_CLASS_COUNT];
+    private final long[] classRejects = new long[RaftInput.PRIORITY_CLASS_COUNT];
 
     static {
         try {
@@ -58,4 +67,31 @@ public class PendingStat {
         return (long) PENDING_BYTES.get(this);
     }
 
+    /**
+     * add pending requests and bytes of the priority class, return the pending requests before add.
+     */
+    int addClassPending(int priorityClass, int requests, long bytes) {
+        LONG_ARRAY.getAndAddRelease(classBytes, priorityClass, bytes);
+        return (int) INT_ARRAY.getAndAddRelease(classRequests, priorityClass, requests);
+    }
+
+    void incrClassRejects(int priorityClass) {
+        LONG_ARRAY.getAndAddRelease(classRejects, priorityClass, 1L);
+    }
+
+    public int getPendingRequests(int priorityClass) {
+        return (int) INT_ARRAY.getOpaque(classRequests, priorityClass);
+    }
+
+    public long getPendingBytes(int priorityClass) {
+        return (long) LONG_ARRAY.getOpaque(classBytes, priorityClass);
+    }
+
+    /**
+     * the count of tasks rejected by flow control of the priority class.
+     */
+    public long getRejects(int priorityClass) {
+        return (long) LONG_ARRAY.getOpaque(classRejects, priorityClass);
+    }
+
 }
@@ -16,6 +16,7 @@
 package com.github.dtprj.dongting.raft.impl;
 
 import com.github.dtprj.dongting.common.DtTime;
+import com.github.dtprj.dongting.common.DtUtil;
 import com.github.dtprj.dongting.common.FlowControlException;
 import com.github.dtprj.dongting.common.FutureCallback;
 import com.github.dtprj.dongting.common.Timestamp;
@@ -38,6 +39,7 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * @author huangli
@@ -52,6 +54,8 @@ public class RaftGroupImpl extends RaftGroup {
     private final FiberGroup fiberGroup;
 
     private final Timestamp readTimestamp = new Timestamp();
+    // updated by many biz threads, only used to estimate read load by LeaderBalancer
+    private final LongAdder leaseReadCount = new LongAdder();
     private final GroupComponents gc;
     private CompletableFuture<Void> shutdownFuture;
 
@@ -89,12 +93,14 @@ public class RaftGroupImpl extends RaftGroup {
             RaftUtil.release(input);
             throw new RaftException("raft group thread is stop");
         }
+        int priorityClass = input.getPriorityClass();
         int currentPendingWrites = (int) PendingStat.PENDING_REQUESTS.getAndAddRelease(serverStat, 1);
         if (currentPendingWrites >= groupConfig.getMaxPendingRaftTasks()) {
             RaftUtil.release(input);
             String msg = "submitRaftTask failed: too many pending writes, currentPendingWrites=" + currentPendingWrites;
             log.warn(msg);
             PendingStat.PENDING_REQUESTS.getAndAddRelease(serverStat, -1);
+            serverStat.incrClassRejects(priorityClass);
             throw new FlowControlException(msg);
         }
         long size = input.getFlowControlSize();
@@ -104,14 +110,33 @@ public class RaftGroupImpl extends RaftGroup {
             String msg = "too many pending write bytes,currentPendingWriteBytes="
                     + currentPendingWriteBytes + ", currentRequestBytes=" + size;
             log.warn(msg);
+            PendingStat.PENDING_REQUESTS.getAndAddRelease(serverStat, -1);
             PendingStat.PENDING_BYTES.getAndAddRelease(serverStat, -size);
+            serverStat.incrClassRejects(priorityClass);
             throw new FlowControlException(msg);
         }
+        int classPendingWrites = serverStat.addClassPending(priorityClass, 1, size);
+        if (priorityClass == RaftInput.PRIORITY_CLASS_BULK) {
+            long classPendingBytes = serverStat.getPendingBytes(priorityClass);
+            if (classPendingWrites >= groupConfig.getMaxPendingBulkRaftTasks()
+                    || classPendingBytes > groupConfig.getMaxPendingBulkTaskBytes()) {
+                RaftUtil.release(input);
+                String msg = "too many pending bulk writes, pendingBulkWrites=" + classPendingWrites
+                        + ", pendingBulkWriteBytes=" + classPendingBytes;
+                log.warn(msg);
+                PendingStat.PENDING_REQUESTS.getAndAddRelease(serverStat, -1);
+                PendingStat.PENDING_BYTES.getAndAddRelease(serverStat, -size);
+                serverStat.addClassPending(priorityClass, -1, -size);
+                serverStat.incrClassRejects(priorityClass);
+                throw new FlowControlException(msg);
+            }
+        }
         RaftCallback wrapper = new RaftCallback() {
             @Override
             public void success(long raftIndex, Object result) {
                 PendingStat.PENDING_REQUESTS.getAndAddRelease(serverStat, -1);
                 PendingStat.PENDING_BYTES.getAndAddRelease(serverStat, -size);
+                serverStat.addClassPending(priorityClass, -1, -size);
                 RaftCallback.callSuccess(callback, raftIndex, result);
             }
 
@@ -119,6 +144,7 @@ public class RaftGroupImpl extends RaftGroup {
             public void fail(Throwable ex) {
                 PendingStat.PENDING_REQUESTS.getAndAddRelease(serverStat, -1);
                 PendingStat.PENDING_BYTES.getAndAddRelease(serverStat, -size);
+                serverStat.addClassPending(priorityClass, -1, -size);
                 RaftCallback.callFail(callback, ex);
             }
         };
@@ -139,6 +165,8 @@ public class RaftGroupImpl extends RaftGroup {
             return;
         }
 
+        leaseReadCount.increment();
+
         // NOTICE : timestamp is not thread safe
         if (ss.groupReady) {
             readTimestamp.refresh(1);
@@ -176,6 +204,9 @@ public class RaftGroupImpl extends RaftGroup {
     @Override
     public CompletableFuture<Long> fireSaveSnapshot() {
         checkStatus();
+        if (gc.getRaftStatus().isWitness()) {
+            return DtUtil.failedFuture(new RaftException("witness member has no snapshot"));
+        }
         CompletableFuture<Long> f = new CompletableFuture<>();
         gc.getFiberGroup().getExecutor().execute(() -> {
             try {
@@ -265,4 +296,8 @@ public class RaftGroupImpl extends RaftGroup {
     public void setShutdownFuture(CompletableFuture<Void> shutdownFuture) {
         this.shutdownFuture = shutdownFuture;
     }
+
+    public long getLeaseReadCount() {
+        return leaseReadCount.sum();
+    }
 }
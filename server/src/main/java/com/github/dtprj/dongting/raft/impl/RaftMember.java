@@ -38,6 +38,10 @@ public class RaftMember {
     private int nodeEpoch;
     private Fiber replicateFiber;
     private boolean installSnapshot;
+    // the last install snapshot from donor failed, the leader should send the snapshot by itself
+    private boolean skipSnapshotDonor;
+    // used in the donor, the running donation to this member
+    private DonorInstallFrame donorFrame;
 
     public RaftMember(RaftNodeEx node, FiberGroup fg) {
         this.node = node;
@@ -118,6 +122,22 @@ public class RaftMember {
         this.installSnapshot = installSnapshot;
     }
 
+    public boolean isSkipSnapshotDonor() {
+        return skipSnapshotDonor;
+    }
+
+    public void setSkipSnapshotDonor(boolean skipSnapshotDonor) {
+        this.skipSnapshotDonor = skipSnapshotDonor;
+    }
+
+    public DonorInstallFrame getDonorFrame() {
+        return donorFrame;
+    }
+
+    public void setDonorFrame(DonorInstallFrame donorFrame) {
+        this.donorFrame = donorFrame;
+    }
+
     public int getNodeEpoch() {
         return nodeEpoch;
     }
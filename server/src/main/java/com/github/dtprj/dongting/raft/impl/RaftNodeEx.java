@@ -18,6 +18,10 @@ package com.github.dtprj.dongting.raft.impl;
 import com.github.dtprj.dongting.net.HostPort;
 import com.github.dtprj.dongting.net.Peer;
 import com.github.dtprj.dongting.raft.RaftNode;
+import com.github.dtprj.dongting.raft.rpc.GroupHeartbeat;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author huangli
@@ -30,6 +34,10 @@ public class RaftNodeEx extends RaftNode {
 
     private volatile NodeStatus status = new NodeStatus(false, 0);
 
+    // heartbeats of quiescent groups wait to send by next node ping, key is group id.
+    // put by raft group fibers, drained by NodeManager in schedule thread.
+    private final ConcurrentHashMap<Integer, GroupHeartbeat> pendingHeartbeats = new ConcurrentHashMap<>();
+
     public RaftNodeEx(int id, HostPort hostPort, boolean self, Peer peer) {
         super(id, hostPort, peer);
         this.self = self;
@@ -63,4 +71,21 @@ public class RaftNodeEx extends RaftNode {
         this.status = status;
     }
 
+    public void addGroupHeartbeat(GroupHeartbeat hb) {
+        pendingHeartbeats.put(hb.groupId, hb);
+    }
+
+    ArrayList<GroupHeartbeat> drainGroupHeartbeats() {
+        if (pendingHeartbeats.isEmpty()) {
+            return null;
+        }
+        ArrayList<GroupHeartbeat> list = new ArrayList<>(pendingHeartbeats.size());
+        for (GroupHeartbeat hb : pendingHeartbeats.values()) {
+            if (pendingHeartbeats.remove(hb.groupId, hb)) {
+                list.add(hb);
+            }
+        }
+        return list;
+    }
+
 }
@@ -24,6 +24,7 @@ import com.github.dtprj.dongting.raft.RaftNode;
 import com.github.dtprj.dongting.raft.server.RaftStatus;
 
 import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
@@ -37,6 +38,7 @@ public class RaftStatusImpl extends RaftStatus {
     private volatile ShareStatus shareStatus;
 
     private boolean installSnapshot;
+    private int installSenderId;
 
     private RaftRole role; // shared
     private RaftMember currentLeader; // shared
@@ -54,6 +56,9 @@ public class RaftStatusImpl extends RaftStatus {
     private Set<Integer> nodeIdOfObservers;
     private Set<Integer> nodeIdOfPreparedMembers;
     private Set<Integer> nodeIdOfPreparedObservers;
+    private Set<Integer> nodeIdOfWitnesses = Collections.emptySet();
+    // self is a witness
+    private boolean witness;
     private long lastConfigChangeIndex;
 
     private List<RaftMember> replicateList;
@@ -258,6 +263,22 @@ public class RaftStatusImpl extends RaftStatus {
         this.nodeIdOfObservers = nodeIdOfObservers;
     }
 
+    public Set<Integer> getNodeIdOfWitnesses() {
+        return nodeIdOfWitnesses;
+    }
+
+    public void setNodeIdOfWitnesses(Set<Integer> nodeIdOfWitnesses) {
+        this.nodeIdOfWitnesses = nodeIdOfWitnesses;
+    }
+
+    public boolean isWitness() {
+        return witness;
+    }
+
+    public void setWitness(boolean witness) {
+        this.witness = witness;
+    }
+
     public Set<Integer> getNodeIdOfPreparedMembers() {
         return nodeIdOfPreparedMembers;
     }
@@ -321,6 +342,14 @@ public class RaftStatusImpl extends RaftStatus {
         this.installSnapshot = installSnapshot;
     }
 
+    public int getInstallSenderId() {
+        return installSenderId;
+    }
+
+    public void setInstallSenderId(int installSenderId) {
+        this.installSenderId = installSenderId;
+    }
+
     public long[] getLeaseComputeArray() {
         return leaseComputeArray;
     }
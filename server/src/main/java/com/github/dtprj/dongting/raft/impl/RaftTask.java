@@ -79,4 +79,15 @@ public class RaftTask {
         }
         invokeCallback = true;
     }
+
+    /**
+     * mark the callback as invoked and return it (null if already invoked), the caller invokes it in other thread.
+     */
+    public RaftCallback takeCallback() {
+        if (invokeCallback) {
+            return null;
+        }
+        invokeCallback = true;
+        return callback;
+    }
 }
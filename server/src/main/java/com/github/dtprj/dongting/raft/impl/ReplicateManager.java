@@ -18,6 +18,7 @@ package com.github.dtprj.dongting.raft.impl;
 import com.github.dtprj.dongting.buf.RefBuffer;
 import com.github.dtprj.dongting.buf.RefBufferFactory;
 import com.github.dtprj.dongting.codec.DecoderCallbackCreator;
+import com.github.dtprj.dongting.codec.PbLongCallback;
 import com.github.dtprj.dongting.common.DtTime;
 import com.github.dtprj.dongting.common.DtUtil;
 import com.github.dtprj.dongting.common.Pair;
@@ -29,6 +30,7 @@ import com.github.dtprj.dongting.fiber.FiberCondition;
 import com.github.dtprj.dongting.fiber.FiberFrame;
 import com.github.dtprj.dongting.fiber.FiberFuture;
 import com.github.dtprj.dongting.fiber.FiberGroup;
+import com.github.dtprj.dongting.fiber.FrameCall;
 import com.github.dtprj.dongting.fiber.FrameCallResult;
 import com.github.dtprj.dongting.log.BugLog;
 import com.github.dtprj.dongting.log.DtLog;
@@ -39,16 +41,21 @@ import com.github.dtprj.dongting.net.NetCodeException;
 import com.github.dtprj.dongting.net.NioClient;
 import com.github.dtprj.dongting.net.ReadPacket;
 import com.github.dtprj.dongting.net.RpcCallback;
+import com.github.dtprj.dongting.net.SimpleWritePacket;
 import com.github.dtprj.dongting.raft.RaftException;
 import com.github.dtprj.dongting.raft.rpc.AppendProcessor;
 import com.github.dtprj.dongting.raft.rpc.AppendReqWritePacket;
 import com.github.dtprj.dongting.raft.rpc.AppendResp;
+import com.github.dtprj.dongting.raft.rpc.DonateSnapshotReq;
 import com.github.dtprj.dongting.raft.rpc.InstallSnapshotReq;
 import com.github.dtprj.dongting.raft.server.LogItem;
 import com.github.dtprj.dongting.raft.server.RaftGroupConfigEx;
 import com.github.dtprj.dongting.raft.server.RaftServerConfig;
+import com.github.dtprj.dongting.raft.sm.DefaultSnapshotManager;
+import com.github.dtprj.dongting.raft.sm.FileSnapshot;
 import com.github.dtprj.dongting.raft.sm.Snapshot;
 import com.github.dtprj.dongting.raft.sm.SnapshotInfo;
+import com.github.dtprj.dongting.raft.sm.SnapshotManager;
 import com.github.dtprj.dongting.raft.sm.StateMachine;
 import com.github.dtprj.dongting.raft.store.RaftLog;
 import com.github.dtprj.dongting.raft.store.StatusManager;
@@ -56,7 +63,6 @@ import com.github.dtprj.dongting.raft.store.StatusManager;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
@@ -66,7 +72,7 @@ import java.util.function.Supplier;
 public class ReplicateManager {
 
     final NioClient client;
-    private final GroupComponents gc;
+    final GroupComponents gc;
     final int groupId;
     private final RaftStatusImpl raftStatus;
     final RaftGroupConfigEx groupConfig;
@@ -74,6 +80,7 @@ public class ReplicateManager {
 
     RaftLog raftLog;
     StateMachine stateMachine;
+    AppendMultiplexer appendMultiplexer;
     private CommitManager commitManager;
     private StatusManager statusManager;
 
@@ -89,6 +96,7 @@ public class ReplicateManager {
     public void postInit() {
         this.raftLog = gc.getRaftLog();
         this.stateMachine = gc.getStateMachine();
+        this.appendMultiplexer = gc.getAppendMultiplexer();
         this.commitManager = gc.getCommitManager();
         this.statusManager = gc.getStatusManager();
     }
@@ -207,6 +215,7 @@ class LeaderRepFrame extends AbstractLeaderRepFrame {
     private final RaftGroupConfigEx groupConfig;
     private final RaftServerConfig serverConfig;
     private final NioClient client;
+    private final AppendMultiplexer appendMultiplexer;
     private final ReplicateManager replicateManager;
     private final CommitManager commitManager;
     private final RaftLog raftLog;
@@ -225,6 +234,9 @@ class LeaderRepFrame extends AbstractLeaderRepFrame {
     private final Timestamp ts;
     private final PerfCallback perfCallback;
 
+    // cached FrameCall, the frame loops in the whole replicate fiber
+    private final FrameCall<List<LogItem>> afterLogLoadCall = this::resumeAfterLogLoad;
+
     public LeaderRepFrame(ReplicateManager replicateManager, CommitManager commitManager, RaftMember member) {
         super(replicateManager, member);
         this.groupConfig = replicateManager.groupConfig;
@@ -236,6 +248,7 @@ class LeaderRepFrame extends AbstractLeaderRepFrame {
 
         this.raftLog = replicateManager.raftLog;
         this.client = replicateManager.client;
+        this.appendMultiplexer = replicateManager.appendMultiplexer;
         this.replicateManager = replicateManager;
         this.commitManager = commitManager;
 
@@ -332,7 +345,7 @@ class LeaderRepFrame extends AbstractLeaderRepFrame {
             }
             FiberFrame<List<LogItem>> nextFrame = replicateIterator.next(nextIndex, Math.min(limit, 1024),
                     groupConfig.getSingleReplicateLimit());
-            return Fiber.call(nextFrame, this::resumeAfterLogLoad);
+            return Fiber.call(nextFrame, afterLogLoadCall);
         }
     }
 
@@ -365,6 +378,8 @@ class LeaderRepFrame extends AbstractLeaderRepFrame {
 
         AppendReqWritePacket req = new AppendReqWritePacket();
         req.setCommand(Commands.RAFT_APPEND_ENTRIES);
+        // keep order of append requests in same group
+        req.setRouteKey(groupId);
         req.groupId = groupId;
         req.term = raftStatus.getCurrentTerm();
         req.leaderId = serverConfig.getNodeId();
@@ -382,27 +397,62 @@ class LeaderRepFrame extends AbstractLeaderRepFrame {
             LogItem item = items.get(i);
             bytes += item.getActualBodySize();
         }
-        long finalBytes = bytes;
-        Executor ge = groupConfig.getFiberGroup().getExecutor();
+        AppendCallback callback = new AppendCallback(prevLogIndex, firstItem.getPrevLogTerm(), leaseStartNanos,
+                items.size(), bytes, perfStartTime);
         // release in AppendReqWritePacket
-        client.sendRequest(member.getNode().getPeer(), req, APPEND_RESP_DECODER_CALLBACK_CREATOR, timeout,
-                new RpcCallback<>() {
-                    @Override
-                    public void success(ReadPacket<AppendResp> result) {
-                        ge.execute(() -> afterAppendRpc(result, null, prevLogIndex,
-                                firstItem.getPrevLogTerm(), leaseStartNanos, items.size(), finalBytes, perfStartTime));
-                    }
-
-                    @Override
-                    public void fail(Throwable ex) {
-                        ge.execute(() -> afterAppendRpc(null, ex, prevLogIndex,
-                                firstItem.getPrevLogTerm(), leaseStartNanos, items.size(), finalBytes, perfStartTime));
-                    }
-                });
+        if (appendMultiplexer != null) {
+            appendMultiplexer.send(member.getNode(), req, timeout, callback);
+        } else {
+            client.sendRequest(member.getNode().getPeer(), req, APPEND_RESP_DECODER_CALLBACK_CREATOR, timeout,
+                    callback);
+        }
         pendingItems += items.size();
         pendingBytes += bytes;
     }
 
+    /**
+     * The callback of an append request, and the task to process the result in the fiber group. There may be
+     * multiple append requests in flight, so it's created for each request, but not capture another lambda.
+     */
+    private class AppendCallback implements RpcCallback<AppendResp>, Runnable {
+        private final long prevLogIndex;
+        private final int prevLogTerm;
+        private final long leaseStartNanos;
+        private final int itemCount;
+        private final long bytes;
+        private final long perfStartTime;
+
+        private ReadPacket<AppendResp> result;
+        private Throwable ex;
+
+        AppendCallback(long prevLogIndex, int prevLogTerm, long leaseStartNanos, int itemCount, long bytes,
+                       long perfStartTime) {
+            this.prevLogIndex = prevLogIndex;
+            this.prevLogTerm = prevLogTerm;
+            this.leaseStartNanos = leaseStartNanos;
+            this.itemCount = itemCount;
+            this.bytes = bytes;
+            this.perfStartTime = perfStartTime;
+        }
+
+        @Override
+        public void success(ReadPacket<AppendResp> result) {
+            this.result = result;
+            groupConfig.getFiberGroup().getExecutor().execute(this);
+        }
+
+        @Override
+        public void fail(Throwable ex) {
+            this.ex = ex;
+            groupConfig.getFiberGroup().getExecutor().execute(this);
+        }
+
+        @Override
+        public void run() {
+            afterAppendRpc(result, ex, prevLogIndex, prevLogTerm, leaseStartNanos, itemCount, bytes, perfStartTime);
+        }
+    }
+
     void afterAppendRpc(ReadPacket<AppendResp> rf, Throwable ex, long prevLogIndex, int prevLogTerm,
                         long leaseStartNanos, int itemCount, long bytes, long perfStartTime) {
         perfCallback.fireTime(PerfConsts.RAFT_D_REPLICATE_RPC, perfStartTime, itemCount, bytes);
@@ -600,6 +650,12 @@ class LeaderInstallFrame extends AbstractLeaderRepFrame {
     private Snapshot snapshot;
     private long nextPosAfterInstallFinish;
     private long snapshotOffset;
+    // not 0 means send the raw file of the latest saved snapshot
+    private int fileBufferSize;
+    // the witness has no state machine, only send the snapshot position and member config
+    private final boolean witness;
+    // not null when waiting the donor
+    private RaftMember donor;
 
     public LeaderInstallFrame(ReplicateManager replicateManager, RaftMember member) {
         super(replicateManager, member);
@@ -610,10 +666,15 @@ class LeaderInstallFrame extends AbstractLeaderRepFrame {
         this.client = replicateManager.client;
         this.replicateManager = replicateManager;
         this.heapPool = groupConfig.getFiberGroup().getThread().getHeapPool();
+        this.witness = raftStatus.getNodeIdOfWitnesses().contains(member.getNode().getNodeId());
     }
 
     @Override
     protected FrameCallResult handle(Throwable ex) throws Throwable {
+        if (donor != null) {
+            // the donate rpc failed or the wait timeout
+            return donateFail(ex);
+        }
         log.error("install snapshot error: group={}, remoteId={}", groupId, member.getNode().getNodeId(), ex);
         return Fiber.frameReturn();
     }
@@ -632,7 +693,13 @@ class LeaderInstallFrame extends AbstractLeaderRepFrame {
         if (shouldStopReplicate()) {
             return Fiber.frameReturn();
         }
-        this.snapshot = stateMachine.takeSnapshot(new SnapshotInfo(raftStatus));
+        if (groupConfig.isInstallSnapshotFromFollower() && !member.isSkipSnapshotDonor() && !witness) {
+            RaftMember donor = selectDonor();
+            if (donor != null) {
+                return donateSnapshot(donor);
+            }
+        }
+        this.snapshot = openSnapshot();
         if (snapshot == null) {
             log.error("open recent snapshot fail, return null");
             return Fiber.frameReturn();
@@ -641,6 +708,125 @@ class LeaderInstallFrame extends AbstractLeaderRepFrame {
         return Fiber.call(f, result -> afterLoadNextItemPos(result, snapshot));
     }
 
+    private Snapshot openSnapshot() throws Exception {
+        SnapshotManager sm = replicateManager.gc.getSnapshotManager();
+        if (groupConfig.isInstallSnapshotByFile() && !witness && sm instanceof DefaultSnapshotManager) {
+            FileSnapshot fs = ((DefaultSnapshotManager) sm).openLatestSnapshot();
+            if (fs != null) {
+                fileBufferSize = fs.getBufferSize();
+                return fs;
+            }
+            log.info("no saved snapshot file, install from state machine. groupId={}", groupId);
+        }
+        return stateMachine.takeSnapshot(new SnapshotInfo(raftStatus));
+    }
+
+    private RaftMember selectDonor() {
+        RaftMember donor = null;
+        List<RaftMember> list = raftStatus.getReplicateList();
+        for (int size = list.size(), i = 0; i < size; i++) {
+            RaftMember m = list.get(i);
+            if (m == member || m.getNode().isSelf() || !m.isReady() || m.isInstallSnapshot()) {
+                continue;
+            }
+            if (replicateManager.gc.getMemberManager().inLegacyMember(m)
+                    || raftStatus.getNodeIdOfWitnesses().contains(m.getNode().getNodeId())) {
+                continue;
+            }
+            // the donor sends the snapshot of its state machine, it should have all committed logs
+            if (m.getMatchIndex() < raftStatus.getCommitIndex()) {
+                continue;
+            }
+            if (donor == null || m.getMatchIndex() > donor.getMatchIndex()) {
+                donor = m;
+            }
+        }
+        return donor;
+    }
+
+    private FrameCallResult donateSnapshot(RaftMember donor) {
+        this.donor = donor;
+        log.info("let member {} send snapshot to member {}, groupId={}", donor.getNode().getNodeId(),
+                member.getNode().getNodeId(), groupId);
+        DonateSnapshotReq req = new DonateSnapshotReq();
+        req.groupId = groupId;
+        req.term = raftStatus.getCurrentTerm();
+        req.leaderId = serverConfig.getNodeId();
+        req.targetNodeId = member.getNode().getNodeId();
+        SimpleWritePacket wf = new SimpleWritePacket(req);
+        wf.setCommand(Commands.RAFT_DONATE_SNAPSHOT);
+        FiberGroup fg = groupConfig.getFiberGroup();
+        FiberFuture<Long> f = fg.newFuture("donate-" + groupId + "-" + member.getNode().getNodeId());
+        DtTime timeout = new DtTime(groupConfig.getDonateSnapshotTimeoutMillis(), TimeUnit.MILLISECONDS);
+        RpcCallback<Long> callback = RpcCallback.fromHandlerAsync(fg.getExecutor(), (rf, ex) -> {
+            if (ex != null) {
+                f.completeExceptionally(ex);
+            } else {
+                f.complete(rf.getBody());
+            }
+        });
+        client.sendRequest(donor.getNode().getPeer(), wf, PbLongCallback.CALLBACK_CREATOR, timeout, callback);
+        // the rpc fails after the timeout, wait a little longer in case of the response is lost in the fiber group
+        return f.await(timeout.getTimeout(TimeUnit.MILLISECONDS) + 1000, this::afterDonate);
+    }
+
+    private FrameCallResult afterDonate(Long lastIncludedIndex) {
+        if (lastIncludedIndex == null) {
+            return donateFail(null);
+        }
+        RaftMember d = donor;
+        this.donor = null;
+        if (shouldStopReplicate()) {
+            // the donor has finished, nothing to cancel
+            return Fiber.frameReturn();
+        }
+        log.info("install snapshot for member by donor finished success. nodeId={}, donor={}, groupId={}",
+                member.getNode().getNodeId(), d.getNode().getNodeId(), groupId);
+        finishInstall(lastIncludedIndex);
+        replicateManager.tryStartReplicateFibers();
+        return Fiber.frameReturn();
+    }
+
+    private FrameCallResult donateFail(Throwable ex) {
+        RaftMember d = donor;
+        this.donor = null;
+        log.warn("member {} send snapshot to member {} failed, the leader will send it. groupId={}, ex={}",
+                d.getNode().getNodeId(), member.getNode().getNodeId(), groupId, String.valueOf(ex));
+        // the donor may be still running, the target rejects its chunks after the leader starts a new install,
+        // cancel it to save the resources
+        cancelDonate(d);
+        member.setSkipSnapshotDonor(true);
+        incrementEpoch();
+        return Fiber.frameReturn();
+    }
+
+    private void cancelDonate(RaftMember d) {
+        DonateSnapshotReq req = new DonateSnapshotReq();
+        req.groupId = groupId;
+        req.term = term;
+        req.leaderId = serverConfig.getNodeId();
+        req.targetNodeId = member.getNode().getNodeId();
+        req.cancel = true;
+        SimpleWritePacket wf = new SimpleWritePacket(req);
+        wf.setCommand(Commands.RAFT_DONATE_SNAPSHOT);
+        DtTime timeout = new DtTime(serverConfig.getRpcTimeout(), TimeUnit.MILLISECONDS);
+        int donorId = d.getNode().getNodeId();
+        RpcCallback<Long> callback = RpcCallback.fromHandler((rf, ex) -> {
+            if (ex != null) {
+                log.warn("cancel donate snapshot fail, groupId={}, donor={}, ex={}", groupId, donorId, ex.toString());
+            }
+        });
+        client.sendRequest(d.getNode().getPeer(), wf, PbLongCallback.CALLBACK_CREATOR, timeout, callback);
+    }
+
+    private void finishInstall(long lastIncludedIndex) {
+        incrementEpoch();
+        member.setInstallSnapshot(false);
+        member.setSkipSnapshotDonor(false);
+        member.setMatchIndex(lastIncludedIndex);
+        member.setNextIndex(lastIncludedIndex + 1);
+    }
+
     private FrameCallResult afterLoadNextItemPos(Long nextPos, Snapshot snapshot) {
         if (shouldStopReplicate()) {
             return Fiber.frameReturn();
@@ -658,9 +844,19 @@ class LeaderInstallFrame extends AbstractLeaderRepFrame {
         if (shouldStopReplicate()) {
             return Fiber.frameReturn();
         }
-        Supplier<RefBuffer> bufferCreator = () -> heapPool.create(groupConfig.getReplicateSnapshotBufferSize());
-
-        int readConcurrency = groupConfig.getSnapshotConcurrency();
+        if (witness) {
+            return afterReaderFinish(null);
+        }
+        Supplier<RefBuffer> bufferCreator;
+        int readConcurrency;
+        if (fileBufferSize > 0) {
+            // the file is sent as raw bytes, so use larger chunks to reduce rpc count
+            bufferCreator = () -> heapPool.create(groupConfig.getInstallSnapshotFileChunkSize());
+            readConcurrency = groupConfig.getDiskSnapshotConcurrency();
+        } else {
+            bufferCreator = () -> heapPool.create(groupConfig.getReplicateSnapshotBufferSize());
+            readConcurrency = groupConfig.getSnapshotConcurrency();
+        }
         int writeConcurrency = groupConfig.getReplicateSnapshotConcurrency();
         SnapshotReader r = new SnapshotReader(snapshot, readConcurrency, writeConcurrency, this::readerCallback,
                 this::shouldStopReplicate, bufferCreator);
@@ -695,9 +891,11 @@ class LeaderInstallFrame extends AbstractLeaderRepFrame {
         req.groupId = groupId;
         req.term = raftStatus.getCurrentTerm();
         req.leaderId = serverConfig.getNodeId();
+        req.senderId = serverConfig.getNodeId();
         req.lastIncludedIndex = si.getLastIncludedIndex();
         req.lastIncludedTerm = si.getLastIncludedTerm();
         req.offset = snapshotOffset;
+        req.fileBufferSize = fileBufferSize;
 
         if (start) {
             req.members.addAll(si.getMembers());
@@ -715,6 +913,7 @@ class LeaderInstallFrame extends AbstractLeaderRepFrame {
         // data buffer released in WritePacket
         InstallSnapshotReq.InstallReqWritePacket wf = new InstallSnapshotReq.InstallReqWritePacket(req);
         wf.setCommand(Commands.RAFT_INSTALL_SNAPSHOT);
+        wf.setRouteKey(groupId);
         FiberGroup fg = groupConfig.getFiberGroup();
         FiberFuture<Void> f = fg.newFuture("install-" + groupId + "-" + req.offset);
         DtTime timeout = new DtTime(serverConfig.getRpcTimeout(), TimeUnit.MILLISECONDS);
@@ -756,10 +955,7 @@ class LeaderInstallFrame extends AbstractLeaderRepFrame {
         if (req.done) {
             log.info("install snapshot for member finished success. nodeId={}, groupId={}",
                     member.getNode().getNodeId(), groupId);
-            incrementEpoch();
-            member.setInstallSnapshot(false);
-            member.setMatchIndex(req.lastIncludedIndex);
-            member.setNextIndex(req.lastIncludedIndex + 1);
+            finishInstall(req.lastIncludedIndex);
         }
         f.complete(null);
     }
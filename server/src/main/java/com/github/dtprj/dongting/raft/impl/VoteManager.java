@@ -134,7 +134,7 @@ public class VoteManager {
     }
 
     private void tryStartPreVote() {
-        if (!MemberManager.validCandidate(raftStatus, config.getNodeId())) {
+        if (!MemberManager.electable(raftStatus, config.getNodeId())) {
             log.info("not valid candidate, can't start pre vote. groupId={}, term={}",
                     groupId, raftStatus.getCurrentTerm());
             return;
@@ -263,7 +263,8 @@ public class VoteManager {
                 return Fiber.frameReturn();
             }
             RaftStatusImpl raftStatus = VoteManager.this.raftStatus;
-            if (raftStatus.getRole() == RaftRole.observer || raftStatus.getRole() == RaftRole.none) {
+            if (raftStatus.getRole() == RaftRole.observer || raftStatus.getRole() == RaftRole.none
+                    || raftStatus.isWitness()) {
                 return sleepToNextElectTime();
             }
             //if (raftStatus.getRole() == RaftRole.leader && raftStatus.getLeaseStartNanos()
@@ -407,7 +408,7 @@ public class VoteManager {
                         resp.voteGranted);
                 return true;
             }
-            if (MemberManager.validCandidate(raftStatus, config.getNodeId())) {
+            if (MemberManager.electable(raftStatus, config.getNodeId())) {
                 return false;
             } else {
                 log.error("not valid candidate, cancel vote. groupId={}, term={}",
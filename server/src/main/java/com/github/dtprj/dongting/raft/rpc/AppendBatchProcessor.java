@@ -0,0 +1,175 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.rpc;
+
+import com.github.dtprj.dongting.codec.DecodeContext;
+import com.github.dtprj.dongting.codec.DecoderCallback;
+import com.github.dtprj.dongting.common.DtTime;
+import com.github.dtprj.dongting.common.DtUtil;
+import com.github.dtprj.dongting.net.CmdCodes;
+import com.github.dtprj.dongting.net.Commands;
+import com.github.dtprj.dongting.net.EmptyBodyRespPacket;
+import com.github.dtprj.dongting.net.ReadPacket;
+import com.github.dtprj.dongting.net.ReqContext;
+import com.github.dtprj.dongting.net.ReqProcessor;
+import com.github.dtprj.dongting.net.RespWriter;
+import com.github.dtprj.dongting.net.SimpleWritePacket;
+import com.github.dtprj.dongting.net.WritePacket;
+import com.github.dtprj.dongting.raft.impl.DecodeContextEx;
+
+import java.util.ArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Split the batch into append requests of each group and dispatch them to AppendProcessor, the batch response is
+ * written after all sub requests finished.
+ * <p>
+ * AppendProcessor writes no response in some cases (group stopping, request timeout, etc.), and a group may be
+ * slow in fsync. To avoid one group stalls the others until the rpc timeout, the batch response is also written
+ * when half of the rest timeout elapsed, the sub requests not finished get an error item, and the leader will
+ * retry them.
+ *
+ * @author huangli
+ */
+public class AppendBatchProcessor extends ReqProcessor<AppendBatchReq> {
+
+    private final AppendProcessor appendProcessor;
+
+    public AppendBatchProcessor(AppendProcessor appendProcessor) {
+        this.appendProcessor = appendProcessor;
+    }
+
+    /**
+     * run in io thread.
+     */
+    @Override
+    public WritePacket process(ReadPacket<AppendBatchReq> packet, ReqContext reqContext) {
+        AppendBatchReq batch = packet.getBody();
+        if (batch == null) {
+            EmptyBodyRespPacket errorResp = new EmptyBodyRespPacket(CmdCodes.CLIENT_ERROR);
+            errorResp.setMsg("empty append batch");
+            return errorResp;
+        }
+        ArrayList<AppendReq> reqs = batch.reqs;
+        BatchRespWriter batchWriter = new BatchRespWriter(packet, reqContext.getRespWriter(),
+                reqContext.getTimeout(), reqs.size());
+        if (reqs.isEmpty()) {
+            return batchWriter.createResp();
+        }
+        for (int size = reqs.size(), i = 0; i < size; i++) {
+            ReadPacket<Object> sub = new ReadPacket<>();
+            sub.setCommand(Commands.RAFT_APPEND_ENTRIES);
+            sub.setBody(reqs.get(i));
+            ReqContext subContext = new ReqContext(reqContext, new SubRespWriter(batchWriter, i));
+            WritePacket resp = appendProcessor.process(sub, subContext);
+            if (resp != null) {
+                batchWriter.finish(i, resp);
+            }
+        }
+        batchWriter.scheduleDeadline();
+        return null;
+    }
+
+    @Override
+    public DecoderCallback<AppendBatchReq> createDecoderCallback(int command, DecodeContext context) {
+        AppendBatchReq.Callback c = ((DecodeContextEx) context).appendBatchReqCallback(
+                appendProcessor.getDecoderFactory());
+        return context.toDecoderCallback(c);
+    }
+
+    static class BatchRespWriter {
+        private final ReadPacket<?> req;
+        private final RespWriter respWriter;
+        private final DtTime timeout;
+        private final WritePacket[] items;
+
+        // guarded by this, finish() may be invoked in different threads
+        private int remain;
+        private boolean written;
+        private ScheduledFuture<?> deadlineFuture;
+
+        BatchRespWriter(ReadPacket<?> req, RespWriter respWriter, DtTime timeout, int count) {
+            this.req = req;
+            this.respWriter = respWriter;
+            this.timeout = timeout;
+            this.items = new WritePacket[count];
+            this.remain = count;
+        }
+
+        synchronized void finish(int index, WritePacket resp) {
+            if (written || items[index] != null) {
+                // the deadline passed, the item is already filled with error
+                return;
+            }
+            items[index] = resp;
+            if (--remain == 0) {
+                write();
+            }
+        }
+
+        synchronized void scheduleDeadline() {
+            if (written) {
+                return;
+            }
+            long wait = timeout.rest(TimeUnit.NANOSECONDS) / 2;
+            deadlineFuture = DtUtil.SCHEDULED_SERVICE.schedule(this::expire, wait, TimeUnit.NANOSECONDS);
+        }
+
+        synchronized void expire() {
+            if (written) {
+                return;
+            }
+            for (int i = 0; i < items.length; i++) {
+                if (items[i] == null) {
+                    EmptyBodyRespPacket p = new EmptyBodyRespPacket(CmdCodes.SYS_ERROR);
+                    p.setMsg("append not finished before batch deadline");
+                    items[i] = p;
+                }
+            }
+            write();
+        }
+
+        private void write() {
+            written = true;
+            if (deadlineFuture != null) {
+                deadlineFuture.cancel(false);
+            }
+            respWriter.writeRespInBizThreads(req, createResp(), timeout);
+        }
+
+        WritePacket createResp() {
+            SimpleWritePacket p = new SimpleWritePacket(new AppendBatchResp(items));
+            p.setRespCode(CmdCodes.SUCCESS);
+            return p;
+        }
+    }
+
+    private static class SubRespWriter extends RespWriter {
+        private final BatchRespWriter batchWriter;
+        private final int index;
+
+        SubRespWriter(BatchRespWriter batchWriter, int index) {
+            this.batchWriter = batchWriter;
+            this.index = index;
+        }
+
+        @Override
+        public void writeRespInBizThreads(ReadPacket<?> req, WritePacket resp, DtTime timeout) {
+            batchWriter.finish(index, resp);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.rpc;
+
+import com.github.dtprj.dongting.codec.PbCallback;
+import com.github.dtprj.dongting.raft.impl.RaftUtil;
+import com.github.dtprj.dongting.raft.sm.RaftCodecFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.function.Function;
+
+/**
+ * @author huangli
+ */
+//message AppendEntriesBatchReq {
+//  repeated AppendEntriesReq reqs = 1;
+//}
+public class AppendBatchReq {
+
+    // the element is null if the codec factory of the group is not found
+    public final ArrayList<AppendReq> reqs = new ArrayList<>();
+
+    public static class Callback extends PbCallback<AppendBatchReq> {
+
+        private final AppendReq.Callback reqCallback;
+        private AppendBatchReq result;
+
+        public Callback(Function<Integer, RaftCodecFactory> decoderFactory) {
+            this.reqCallback = new AppendReq.Callback(decoderFactory);
+        }
+
+        @Override
+        protected void begin(int len) {
+            result = new AppendBatchReq();
+        }
+
+        @Override
+        protected boolean end(boolean success) {
+            if (!success) {
+                for (AppendReq req : result.reqs) {
+                    if (req != null) {
+                        RaftUtil.release(req.logs);
+                    }
+                }
+            }
+            result = null;
+            return success;
+        }
+
+        @Override
+        public boolean readBytes(int index, ByteBuffer buf, int fieldLen, int currentPos) {
+            if (index == 1) {
+                boolean end = buf.remaining() >= fieldLen - currentPos;
+                AppendReq req = parseNested(buf, fieldLen, currentPos, currentPos == 0 ? reqCallback : null);
+                if (end) {
+                    result.reqs.add(req);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public AppendBatchReq getResult() {
+            return result;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.rpc;
+
+import com.github.dtprj.dongting.codec.EncodeContext;
+import com.github.dtprj.dongting.codec.PbUtil;
+import com.github.dtprj.dongting.net.WritePacket;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * @author huangli
+ */
+//message AppendEntriesBatchReq {
+//  repeated AppendEntriesReq reqs = 1;
+//}
+public class AppendBatchReqWritePacket extends WritePacket {
+
+    private final List<AppendReqWritePacket> reqs;
+
+    private int encodeReqIndex;
+    private boolean prefixWritten;
+
+    public AppendBatchReqWritePacket(List<AppendReqWritePacket> reqs) {
+        this.reqs = reqs;
+    }
+
+    @Override
+    protected int calcActualBodySize() {
+        int x = 0;
+        for (int size = reqs.size(), i = 0; i < size; i++) {
+            int s = reqs.get(i).actualBodySize();
+            x += PbUtil.accurateLengthDelimitedPrefixSize(1, s) + s;
+        }
+        return x;
+    }
+
+    @Override
+    protected boolean encodeBody(EncodeContext context, ByteBuffer dest) {
+        while (encodeReqIndex < reqs.size()) {
+            AppendReqWritePacket req = reqs.get(encodeReqIndex);
+            if (!prefixWritten) {
+                int s = req.actualBodySize();
+                if (dest.remaining() < PbUtil.accurateLengthDelimitedPrefixSize(1, s)) {
+                    return false;
+                }
+                PbUtil.writeLengthDelimitedPrefix(dest, 1, s);
+                prefixWritten = true;
+            }
+            if (!req.encodeBody(context, dest)) {
+                return false;
+            }
+            prefixWritten = false;
+            encodeReqIndex++;
+        }
+        return true;
+    }
+
+    @Override
+    protected void doClean() {
+        for (int size = reqs.size(), i = 0; i < size; i++) {
+            reqs.get(i).clean();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.rpc;
+
+import com.github.dtprj.dongting.codec.EncodeUtil;
+import com.github.dtprj.dongting.codec.PbCallback;
+import com.github.dtprj.dongting.codec.PbUtil;
+import com.github.dtprj.dongting.codec.SimpleEncodable;
+import com.github.dtprj.dongting.net.ReadPacket;
+import com.github.dtprj.dongting.net.SimpleWritePacket;
+import com.github.dtprj.dongting.net.WritePacket;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The response of AppendBatchReq, items are in same order of the sub requests.
+ *
+ * @author huangli
+ */
+//message AppendEntriesBatchResp {
+//  repeated AppendEntriesBatchRespItem items = 1;
+//}
+//message AppendEntriesBatchRespItem {
+//  uint32 resp_code = 1;
+//  string msg = 2;
+//  AppendEntriesResp body = 3;
+//}
+public class AppendBatchResp implements SimpleEncodable {
+
+    private final WritePacket[] items;
+    private final int[] itemSizes;
+    private final byte[][] itemMsgs;
+
+    public AppendBatchResp(WritePacket[] items) {
+        this.items = items;
+        this.itemSizes = new int[items.length];
+        this.itemMsgs = new byte[items.length][];
+        for (int i = 0; i < items.length; i++) {
+            WritePacket p = items[i];
+            String msg = p.getMsg();
+            if (msg != null && !msg.isEmpty()) {
+                itemMsgs[i] = msg.getBytes(StandardCharsets.UTF_8);
+            }
+            itemSizes[i] = PbUtil.accurateUnsignedIntSize(1, p.getRespCode())
+                    + PbUtil.accurateBytesLength(2, itemMsgs[i])
+                    + EncodeUtil.actualSize(3, body(p));
+        }
+    }
+
+    private static SimpleEncodable body(WritePacket p) {
+        return p instanceof SimpleWritePacket ? ((SimpleWritePacket) p).getBody() : null;
+    }
+
+    @Override
+    public int actualSize() {
+        int x = 0;
+        for (int s : itemSizes) {
+            x += PbUtil.accurateLengthDelimitedPrefixSize(1, s) + s;
+        }
+        return x;
+    }
+
+    @Override
+    public void encode(ByteBuffer buf) {
+        for (int i = 0; i < items.length; i++) {
+            WritePacket p = items[i];
+            PbUtil.writeLengthDelimitedPrefix(buf, 1, itemSizes[i]);
+            PbUtil.writeUnsignedInt32(buf, 1, p.getRespCode());
+            PbUtil.writeBytes(buf, 2, itemMsgs[i]);
+            EncodeUtil.encode(buf, 3, body(p));
+        }
+    }
+
+    public static class Callback extends PbCallback<List<ReadPacket<AppendResp>>> {
+
+        private final ItemCallback itemCallback = new ItemCallback();
+        private ArrayList<ReadPacket<AppendResp>> result;
+
+        @Override
+        protected void begin(int len) {
+            result = new ArrayList<>();
+        }
+
+        @Override
+        protected boolean end(boolean success) {
+            result = null;
+            return success;
+        }
+
+        @Override
+        public boolean readBytes(int index, ByteBuffer buf, int fieldLen, int currentPos) {
+            if (index == 1) {
+                boolean end = buf.remaining() >= fieldLen - currentPos;
+                ReadPacket<AppendResp> item = parseNested(buf, fieldLen, currentPos,
+                        currentPos == 0 ? itemCallback : null);
+                if (end) {
+                    result.add(item);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public List<ReadPacket<AppendResp>> getResult() {
+            return result;
+        }
+    }
+
+    private static class ItemCallback extends PbCallback<ReadPacket<AppendResp>> {
+        private final AppendResp.Callback respCallback = new AppendResp.Callback();
+        private ReadPacket<AppendResp> item;
+
+        @Override
+        protected void begin(int len) {
+            item = new ReadPacket<>();
+        }
+
+        @Override
+        protected boolean end(boolean success) {
+            item = null;
+            return success;
+        }
+
+        @Override
+        public boolean readVarNumber(int index, long value) {
+            if (index == 1) {
+                item.setRespCode((int) value);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean readBytes(int index, ByteBuffer buf, int fieldLen, int currentPos) {
+            if (index == 2) {
+                String msg = parseUTF8(buf, fieldLen, currentPos);
+                if (msg != null) {
+                    item.setMsg(msg);
+                }
+            } else if (index == 3) {
+                AppendResp resp = parseNested(buf, fieldLen, currentPos, currentPos == 0 ? respCallback : null);
+                if (resp != null) {
+                    item.setBody(resp);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        protected ReadPacket<AppendResp> getResult() {
+            return item;
+        }
+    }
+}
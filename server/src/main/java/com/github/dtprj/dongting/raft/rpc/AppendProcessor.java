@@ -45,7 +45,10 @@ import com.github.dtprj.dongting.raft.server.RaftGroup;
 import com.github.dtprj.dongting.raft.server.RaftInput;
 import com.github.dtprj.dongting.raft.server.RaftServer;
 import com.github.dtprj.dongting.raft.server.ReqInfo;
+import com.github.dtprj.dongting.raft.sm.DefaultSnapshotManager;
 import com.github.dtprj.dongting.raft.sm.RaftCodecFactory;
+import com.github.dtprj.dongting.raft.sm.SnapshotInfo;
+import com.github.dtprj.dongting.raft.sm.SnapshotManager;
 import com.github.dtprj.dongting.raft.store.StatusManager;
 
 import java.nio.ByteBuffer;
@@ -77,6 +80,10 @@ public class AppendProcessor extends RaftSequenceProcessor<Object> {
         };
     }
 
+    Function<Integer, RaftCodecFactory> getDecoderFactory() {
+        return decoderFactory;
+    }
+
     @SuppressWarnings({"rawtypes", "unchecked"})
     @Override
     protected int getGroupId(ReadPacket frame) {
@@ -485,6 +492,8 @@ class InstallFiberFrame extends AbstractAppendFrame<InstallSnapshotReq> {
     }
 
     private FrameCallResult startInstall(RaftStatusImpl raftStatus) {
+        // the latest started install wins, the chunks of the old one (maybe sent by a cancelled donor) are rejected
+        raftStatus.setInstallSenderId(reqInfo.reqFrame.getBody().senderId);
         if (!markInstall) {
             log.info("start install snapshot, groupId={}", groupId);
             raftStatus.setInstallSnapshot(true);
@@ -508,6 +517,10 @@ class InstallFiberFrame extends AbstractAppendFrame<InstallSnapshotReq> {
     }
 
     private FrameCallResult applyConfigChange(Void unused) {
+        // the uncommitted logs in tail cache are replaced by the snapshot, otherwise the next append request
+        // will be rejected since LinearTaskRunner.lastIndex() still returns the old last index
+        gc.getRaftStatus().getTailCache().cleanAll();
+
         MemberManager mm = reqInfo.raftGroup.getGroupComponents().getMemberManager();
         InstallSnapshotReq req = reqInfo.reqFrame.getBody();
 
@@ -515,7 +528,24 @@ class InstallFiberFrame extends AbstractAppendFrame<InstallSnapshotReq> {
 
         FiberFrame<Void> f = mm.applyConfigFrame("install snapshot config change",
                 req.members, req.observers, req.preparedMembers, req.preparedObservers);
-        return Fiber.call(f, v -> releaseAndWriteResp(null));
+        return Fiber.call(f, v -> afterConfigApplied(req));
+    }
+
+    private FrameCallResult afterConfigApplied(InstallSnapshotReq req) throws Exception {
+        if (req.fileBufferSize > 0) {
+            SnapshotInfo si = new SnapshotInfo(req.lastIncludedIndex, req.lastIncludedTerm, req.members,
+                    req.observers, req.preparedMembers, req.preparedObservers, req.lastConfigChangeIndex);
+            fileSnapshotManager().beginFileInstall(si, req.fileBufferSize);
+        }
+        return releaseAndWriteResp(null);
+    }
+
+    private DefaultSnapshotManager fileSnapshotManager() {
+        SnapshotManager sm = gc.getSnapshotManager();
+        if (!(sm instanceof DefaultSnapshotManager)) {
+            throw new RaftException("install snapshot by file is not supported: " + sm.getClass().getName());
+        }
+        return (DefaultSnapshotManager) sm;
     }
 
     private FrameCallResult doInstall(RaftStatusImpl raftStatus, InstallSnapshotReq req) {
@@ -523,10 +553,31 @@ class InstallFiberFrame extends AbstractAppendFrame<InstallSnapshotReq> {
             log.error("not in install snapshot state, groupId={}", groupId);
             return releaseAndWriteResp(new RaftException("not in install snapshot state"));
         }
+        if (req.senderId != raftStatus.getInstallSenderId()) {
+            log.warn("install snapshot sender not match, groupId={}, senderId={}, expectSenderId={}",
+                    groupId, req.senderId, raftStatus.getInstallSenderId());
+            return releaseAndWriteResp(new RaftException("install snapshot sender not match"));
+        }
         boolean done = req.done;
         ByteBuffer buf = req.data == null ? null : req.data.getBuffer();
         log.info("apply snapshot, groupId={}, offset={}, bytes={}, done={}", groupId,
                 req.offset, buf == null ? 0 : buf.remaining(), done);
+        if (req.fileBufferSize > 0) {
+            // the raw snapshot file is written to disk, and the state machine is recovered from it when done
+            if (done) {
+                return Fiber.call(fileSnapshotManager().finishFileInstall(), v -> finishInstall(req, raftStatus));
+            }
+            FiberFuture<Void> f = fileSnapshotManager().writeFileInstallData(req.offset, buf);
+            f.registerCallback((v, ex) -> releaseAndWriteResp(ex));
+            return Fiber.frameReturn();
+        }
+        if (raftStatus.isWitness()) {
+            // the witness has no state machine, only the snapshot position is used
+            if (done) {
+                return Fiber.resume(null, v -> finishInstall(req, raftStatus));
+            }
+            return releaseAndWriteResp(null);
+        }
         FiberFuture<Void> f = gc.getStateMachine().installSnapshot(req.lastIncludedIndex,
                 req.lastIncludedTerm, req.offset, done, buf);
         if (done) {
@@ -571,7 +622,10 @@ class InstallFiberFrame extends AbstractAppendFrame<InstallSnapshotReq> {
         // Have no logs before lastIncludedIndex, so save snapshot immediately.
         // Restart before snapshot is saved will cause install snapshot (since it can't recover state machine).
         // The save is async and FiberFuture returned by saveSnapshot() is not used.
-        gc.getSnapshotManager().saveSnapshot();
+        // If installed by file, the snapshot file is already saved. The witness has nothing to save.
+        if (reqInfo.reqFrame.getBody().fileBufferSize == 0 && !gc.getRaftStatus().isWitness()) {
+            gc.getSnapshotManager().saveSnapshot();
+        }
 
         return releaseAndWriteResp(null);
     }
@@ -0,0 +1,142 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.rpc;
+
+import com.github.dtprj.dongting.codec.DecodeContext;
+import com.github.dtprj.dongting.codec.DecoderCallback;
+import com.github.dtprj.dongting.fiber.Fiber;
+import com.github.dtprj.dongting.fiber.FiberFrame;
+import com.github.dtprj.dongting.fiber.FrameCallResult;
+import com.github.dtprj.dongting.log.DtLog;
+import com.github.dtprj.dongting.log.DtLogs;
+import com.github.dtprj.dongting.net.PbLongWritePacket;
+import com.github.dtprj.dongting.net.ReadPacket;
+import com.github.dtprj.dongting.raft.RaftException;
+import com.github.dtprj.dongting.raft.impl.DonorInstallFrame;
+import com.github.dtprj.dongting.raft.impl.GroupComponents;
+import com.github.dtprj.dongting.raft.impl.RaftMember;
+import com.github.dtprj.dongting.raft.impl.RaftRole;
+import com.github.dtprj.dongting.raft.impl.RaftStatusImpl;
+import com.github.dtprj.dongting.raft.server.RaftServer;
+
+/**
+ * Process the request from leader, send local snapshot to the member which need install snapshot.
+ * The transfer runs in a new fiber, so this processor fiber is not blocked.
+ *
+ * @author huangli
+ */
+public class DonateSnapshotProcessor extends RaftSequenceProcessor<DonateSnapshotReq> {
+
+    private static final DtLog log = DtLogs.getLogger(DonateSnapshotProcessor.class);
+
+    public DonateSnapshotProcessor(RaftServer raftServer) {
+        super(raftServer);
+    }
+
+    @Override
+    protected int getGroupId(ReadPacket<DonateSnapshotReq> frame) {
+        return frame.getBody().groupId;
+    }
+
+    @Override
+    protected FiberFrame<Void> processInFiberGroup(ReqInfoEx<DonateSnapshotReq> reqInfo) {
+        DonateSnapshotReq req = reqInfo.reqFrame.getBody();
+        GroupComponents gc = reqInfo.raftGroup.getGroupComponents();
+        RaftStatusImpl raftStatus = gc.getRaftStatus();
+        if (raftStatus.getRole() != RaftRole.follower && raftStatus.getRole() != RaftRole.observer) {
+            log.error("not follower or observer, groupId={}, role={}", req.groupId, raftStatus.getRole());
+            throw new RaftException("not follower or observer");
+        }
+        if (raftStatus.getCurrentTerm() != req.term) {
+            log.error("term check fail, groupId={}, reqTerm={}, localTerm={}",
+                    req.groupId, req.term, raftStatus.getCurrentTerm());
+            throw new RaftException("term check fail");
+        }
+        RaftMember leader = raftStatus.getCurrentLeader();
+        if (leader == null || leader.getNode().getNodeId() != req.leaderId) {
+            log.error("leader check fail, groupId={}, reqLeaderId={}", req.groupId, req.leaderId);
+            throw new RaftException("leader check fail");
+        }
+        if (req.cancel) {
+            return cancelDonate(reqInfo, raftStatus, req);
+        }
+        if (raftStatus.isWitness()) {
+            log.error("self is witness, groupId={}", req.groupId);
+            throw new RaftException("self is witness");
+        }
+        if (raftStatus.isInstallSnapshot()) {
+            log.error("self is installing snapshot, groupId={}", req.groupId);
+            throw new RaftException("self is installing snapshot");
+        }
+        RaftMember target = null;
+        for (RaftMember m : raftStatus.getReplicateList()) {
+            if (m.getNode().getNodeId() == req.targetNodeId && !m.getNode().isSelf()) {
+                target = m;
+                break;
+            }
+        }
+        if (target == null) {
+            log.error("target node not found, groupId={}, targetNodeId={}", req.groupId, req.targetNodeId);
+            throw new RaftException("target node not found");
+        }
+
+        if (target.getDonorFrame() != null) {
+            // the leader retries, only one donation to the target is allowed
+            target.getDonorFrame().markCancelled();
+        }
+        DonorInstallFrame donorFrame = new DonorInstallFrame(gc, target, req.term, req.leaderId);
+        target.setDonorFrame(donorFrame);
+        FiberFrame<Void> ff = new FiberFrame<>() {
+            @Override
+            public FrameCallResult execute(Void input) {
+                return Fiber.call(donorFrame, this::afterDonate);
+            }
+
+            private FrameCallResult afterDonate(Long lastIncludedIndex) {
+                writeResp(reqInfo, new PbLongWritePacket(lastIncludedIndex));
+                return Fiber.frameReturn();
+            }
+
+            @Override
+            protected FrameCallResult handle(Throwable ex) {
+                log.warn("donate snapshot failed, groupId={}, targetNodeId={}, ex={}",
+                        req.groupId, req.targetNodeId, ex.toString());
+                writeErrorResp(reqInfo, ex);
+                return Fiber.frameReturn();
+            }
+        };
+        Fiber f = new Fiber("donate-" + req.targetNodeId, gc.getFiberGroup(), ff, true);
+        f.start();
+        return FiberFrame.voidCompletedFrame();
+    }
+
+    private FiberFrame<Void> cancelDonate(ReqInfoEx<DonateSnapshotReq> reqInfo, RaftStatusImpl raftStatus,
+                                          DonateSnapshotReq req) {
+        for (RaftMember m : raftStatus.getReplicateList()) {
+            if (m.getNode().getNodeId() == req.targetNodeId && m.getDonorFrame() != null) {
+                log.info("cancel donate snapshot, groupId={}, targetNodeId={}", req.groupId, req.targetNodeId);
+                m.getDonorFrame().markCancelled();
+            }
+        }
+        writeResp(reqInfo, new PbLongWritePacket(0));
+        return FiberFrame.voidCompletedFrame();
+    }
+
+    @Override
+    public DecoderCallback<DonateSnapshotReq> createDecoderCallback(int command, DecodeContext context) {
+        return context.toDecoderCallback(new DonateSnapshotReq.Callback());
+    }
+}
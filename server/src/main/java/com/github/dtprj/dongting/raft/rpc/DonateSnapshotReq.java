@@ -0,0 +1,93 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.rpc;
+
+import com.github.dtprj.dongting.codec.PbCallback;
+import com.github.dtprj.dongting.codec.PbUtil;
+import com.github.dtprj.dongting.codec.SimpleEncodable;
+import com.github.dtprj.dongting.raft.RaftRpcData;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @author huangli
+ */
+//message DonateSnapshotReq {
+//uint32 group_id = 1;
+//uint32 term = 2;
+//uint32 leader_id = 3;
+//uint32 target_node_id = 4; // the member which need install snapshot
+//bool cancel = 5; // cancel the running donation to the target
+//}
+public class DonateSnapshotReq extends RaftRpcData implements SimpleEncodable {
+    // public int groupId;
+    // public int term;
+    public int leaderId;
+    public int targetNodeId;
+    public boolean cancel;
+
+    public DonateSnapshotReq() {
+    }
+
+    @Override
+    public int actualSize() {
+        return PbUtil.accurateUnsignedIntSize(1, groupId)
+                + PbUtil.accurateUnsignedIntSize(2, term)
+                + PbUtil.accurateUnsignedIntSize(3, leaderId)
+                + PbUtil.accurateUnsignedIntSize(4, targetNodeId)
+                + PbUtil.accurateUnsignedIntSize(5, cancel ? 1 : 0);
+    }
+
+    @Override
+    public void encode(ByteBuffer buf) {
+        PbUtil.writeUnsignedInt32(buf, 1, groupId);
+        PbUtil.writeUnsignedInt32(buf, 2, term);
+        PbUtil.writeUnsignedInt32(buf, 3, leaderId);
+        PbUtil.writeUnsignedInt32(buf, 4, targetNodeId);
+        PbUtil.writeUnsignedInt32(buf, 5, cancel ? 1 : 0);
+    }
+
+    static final class Callback extends PbCallback<DonateSnapshotReq> {
+        private final DonateSnapshotReq req = new DonateSnapshotReq();
+
+        @Override
+        public boolean readVarNumber(int index, long value) {
+            switch (index) {
+                case 1:
+                    req.groupId = (int) value;
+                    break;
+                case 2:
+                    req.term = (int) value;
+                    break;
+                case 3:
+                    req.leaderId = (int) value;
+                    break;
+                case 4:
+                    req.targetNodeId = (int) value;
+                    break;
+                case 5:
+                    req.cancel = value != 0;
+                    break;
+            }
+            return true;
+        }
+
+        @Override
+        public DonateSnapshotReq getResult() {
+            return req;
+        }
+    }
+}
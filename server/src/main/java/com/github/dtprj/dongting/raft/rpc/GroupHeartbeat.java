@@ -0,0 +1,77 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.rpc;
+
+import com.github.dtprj.dongting.codec.PbCallback;
+import com.github.dtprj.dongting.codec.PbUtil;
+import com.github.dtprj.dongting.codec.SimpleEncodable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The heartbeat of a quiescent raft group, carried by NodePing. In request, it's the leader's term and commit index,
+ * in response, only the groups accepted the heartbeat are returned.
+ *
+ * @author huangli
+ */
+public class GroupHeartbeat extends PbCallback<GroupHeartbeat> implements SimpleEncodable {
+    public int groupId;
+    public int term;
+    public long commitIndex;
+
+    // not encoded, set by the receiver
+    public boolean accept;
+
+    public GroupHeartbeat() {
+    }
+
+    public GroupHeartbeat(int groupId, int term, long commitIndex) {
+        this.groupId = groupId;
+        this.term = term;
+        this.commitIndex = commitIndex;
+    }
+
+    @Override
+    public boolean readVarNumber(int index, long value) {
+        if (index == 1) {
+            this.groupId = (int) value;
+        } else if (index == 2) {
+            this.term = (int) value;
+        } else if (index == 3) {
+            this.commitIndex = value;
+        }
+        return true;
+    }
+
+    @Override
+    public int actualSize() {
+        return PbUtil.accurateUnsignedIntSize(1, groupId)
+                + PbUtil.accurateUnsignedIntSize(2, term)
+                + PbUtil.accurateUnsignedLongSize(3, commitIndex);
+    }
+
+    @Override
+    public void encode(ByteBuffer buf) {
+        PbUtil.writeUnsignedInt32(buf, 1, groupId);
+        PbUtil.writeUnsignedInt32(buf, 2, term);
+        PbUtil.writeUnsignedInt64(buf, 3, commitIndex);
+    }
+
+    @Override
+    public GroupHeartbeat getResult() {
+        return this;
+    }
+}
@@ -41,6 +41,8 @@ import java.nio.ByteBuffer;
 //  repeated fixed32 prepared_members = 11[packed = false];
 //  repeated fixed32 prepared_observers = 12[packed = false];
 //  fixed64 last_config_change_index = 13;
+//  uint32 file_buffer_size = 14; // not 0 means the data is raw content of snapshot file
+//  uint32 sender_id = 16; // the leader or the donor, chunks from other sender are rejected by the target
 
 //  bytes data = 15;
 public class InstallSnapshotReq extends RaftConfigRpcData {
@@ -58,6 +60,10 @@ public class InstallSnapshotReq extends RaftConfigRpcData {
     // public final Set<Integer> preparedMembers = new HashSet<>();
     // public final Set<Integer> preparedObservers = new HashSet<>();
     public long lastConfigChangeIndex;
+    // the buffer size of the saved snapshot file, not 0 means the data is raw content of the file
+    public int fileBufferSize;
+    // the node which sends the snapshot, it's the leader or a donor follower
+    public int senderId;
 
     public RefBuffer data;
 
@@ -89,6 +95,12 @@ public class InstallSnapshotReq extends RaftConfigRpcData {
                 case 7:
                     result.done = value != 0;
                     break;
+                case 14:
+                    result.fileBufferSize = (int) value;
+                    break;
+                case 16:
+                    result.senderId = (int) value;
+                    break;
             }
             return true;
         }
@@ -173,6 +185,8 @@ public class InstallSnapshotReq extends RaftConfigRpcData {
             x += PbUtil.accurateFix32Size(11, req.preparedMembers);
             x += PbUtil.accurateFix32Size(12, req.preparedObservers);
             x += PbUtil.accurateFix64Size(13, req.lastConfigChangeIndex);
+            x += PbUtil.accurateUnsignedIntSize(14, req.fileBufferSize);
+            x += PbUtil.accurateUnsignedIntSize(16, req.senderId);
 
             RefBuffer rb = req.data;
             if (rb != null && rb.getBuffer().hasRemaining()) {
@@ -206,6 +220,8 @@ public class InstallSnapshotReq extends RaftConfigRpcData {
                     PbUtil.writeFix32(dest, 11, req.preparedMembers);
                     PbUtil.writeFix32(dest, 12, req.preparedObservers);
                     PbUtil.writeFix64(dest, 13, req.lastConfigChangeIndex);
+                    PbUtil.writeUnsignedInt32(dest, 14, req.fileBufferSize);
+                    PbUtil.writeUnsignedInt32(dest, 16, req.senderId);
                     if (bufferSize > 0) {
                         PbUtil.writeLengthDelimitedPrefix(dest, 15, bufferSize);
                     }
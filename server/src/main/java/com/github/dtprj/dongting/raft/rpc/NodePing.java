@@ -17,9 +17,12 @@ package com.github.dtprj.dongting.raft.rpc;
 
 import com.github.dtprj.dongting.codec.PbCallback;
 import com.github.dtprj.dongting.codec.PbUtil;
+import com.github.dtprj.dongting.codec.EncodeUtil;
 import com.github.dtprj.dongting.codec.SimpleEncodable;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -30,6 +33,8 @@ public class NodePing extends PbCallback<NodePing> implements SimpleEncodable {
     public int remoteNodeId;
     public long uuidHigh;
     public long uuidLow;
+    // heartbeats of quiescent groups, see RaftServerConfig.setQuiescent()
+    public List<GroupHeartbeat> groupHeartbeats;
 
     public NodePing() {
     }
@@ -46,7 +51,19 @@ public class NodePing extends PbCallback<NodePing> implements SimpleEncodable {
         return PbUtil.accurateUnsignedIntSize(1, localNodeId)
                 + PbUtil.accurateUnsignedIntSize(2, remoteNodeId)
                 + PbUtil.accurateFix64Size(3, uuidHigh)
-                + PbUtil.accurateFix64Size(4, uuidLow);
+                + PbUtil.accurateFix64Size(4, uuidLow)
+                + groupHeartbeatsSize();
+    }
+
+    private int groupHeartbeatsSize() {
+        if (groupHeartbeats == null) {
+            return 0;
+        }
+        int size = 0;
+        for (int len = groupHeartbeats.size(), i = 0; i < len; i++) {
+            size += EncodeUtil.actualSize(5, groupHeartbeats.get(i));
+        }
+        return size;
     }
 
     @Override
@@ -55,6 +72,11 @@ public class NodePing extends PbCallback<NodePing> implements SimpleEncodable {
         PbUtil.writeUnsignedInt32(buf, 2, remoteNodeId);
         PbUtil.writeFix64(buf, 3, uuidHigh);
         PbUtil.writeFix64(buf, 4, uuidLow);
+        if (groupHeartbeats != null) {
+            for (int len = groupHeartbeats.size(), i = 0; i < len; i++) {
+                EncodeUtil.encode(buf, 5, groupHeartbeats.get(i));
+            }
+        }
     }
 
     @Override
@@ -77,6 +99,20 @@ public class NodePing extends PbCallback<NodePing> implements SimpleEncodable {
         return true;
     }
 
+    @Override
+    public boolean readBytes(int index, ByteBuffer buf, int fieldLen, int currentPos) {
+        if (index == 5) {
+            GroupHeartbeat hb = parseNested(buf, fieldLen, currentPos, currentPos == 0 ? new GroupHeartbeat() : null);
+            if (hb != null) {
+                if (groupHeartbeats == null) {
+                    groupHeartbeats = new ArrayList<>();
+                }
+                groupHeartbeats.add(hb);
+            }
+        }
+        return true;
+    }
+
     @Override
     public NodePing getResult() {
         return this;
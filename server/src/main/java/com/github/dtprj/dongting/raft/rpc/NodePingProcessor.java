@@ -27,6 +27,9 @@ import com.github.dtprj.dongting.net.SimpleWritePacket;
 import com.github.dtprj.dongting.net.WritePacket;
 import com.github.dtprj.dongting.raft.impl.NodeManager;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @author huangli
  */
@@ -49,15 +52,39 @@ public class NodePingProcessor extends ReqProcessor<NodePing> {
                 p = new EmptyBodyRespPacket(CmdCodes.BIZ_ERROR);
                 p.setMsg("node not found: " + reqPing.localNodeId);
             } else {
-                NodePing respPing = new NodePing(selfNodeId, reqPing.localNodeId, nodeManager.getUuid());
-                p = new SimpleWritePacket(respPing);
-                p.setRespCode(CmdCodes.SUCCESS);
+                List<GroupHeartbeat> hbs = reqPing.groupHeartbeats;
+                if (hbs != null && !hbs.isEmpty()) {
+                    nodeManager.processGroupHeartbeats(reqPing.localNodeId, hbs,
+                            () -> writeResp(packet, reqContext, hbs));
+                    return;
+                }
+                p = createResp(reqPing, null);
             }
             reqContext.getRespWriter().writeRespInBizThreads(packet, p, reqContext.getTimeout());
         });
         return null;
     }
 
+    private WritePacket createResp(NodePing reqPing, List<GroupHeartbeat> accepted) {
+        NodePing respPing = new NodePing(selfNodeId, reqPing.localNodeId, nodeManager.getUuid());
+        respPing.groupHeartbeats = accepted;
+        WritePacket p = new SimpleWritePacket(respPing);
+        p.setRespCode(CmdCodes.SUCCESS);
+        return p;
+    }
+
+    private void writeResp(ReadPacket<NodePing> packet, ReqContext reqContext, List<GroupHeartbeat> hbs) {
+        ArrayList<GroupHeartbeat> accepted = new ArrayList<>();
+        for (int len = hbs.size(), i = 0; i < len; i++) {
+            GroupHeartbeat hb = hbs.get(i);
+            if (hb.accept) {
+                accepted.add(hb);
+            }
+        }
+        WritePacket p = createResp(packet.getBody(), accepted);
+        reqContext.getRespWriter().writeRespInBizThreads(packet, p, reqContext.getTimeout());
+    }
+
     @Override
     public DecoderCallback<NodePing> createDecoderCallback(int command, DecodeContext context) {
         return context.toDecoderCallback(new NodePing());
@@ -0,0 +1,64 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.rpc;
+
+import com.github.dtprj.dongting.codec.DecodeContext;
+import com.github.dtprj.dongting.codec.DecoderCallback;
+import com.github.dtprj.dongting.codec.PbIntCallback;
+import com.github.dtprj.dongting.fiber.FiberFrame;
+import com.github.dtprj.dongting.fiber.FiberProfiler;
+import com.github.dtprj.dongting.net.CmdCodes;
+import com.github.dtprj.dongting.net.Commands;
+import com.github.dtprj.dongting.net.PbStrWritePacket;
+import com.github.dtprj.dongting.net.ReadPacket;
+import com.github.dtprj.dongting.raft.server.RaftServer;
+
+/**
+ * Dump the fiber profile of the dispatcher which runs the raft group, the stats are reset after dump.
+ * If the dispatcher is shared by multiple groups, all of them are included.
+ *
+ * @author huangli
+ */
+public class QueryFiberProfileProcessor extends RaftSequenceProcessor<Integer> {
+
+    private static final int TOP_N = 50;
+
+    public QueryFiberProfileProcessor(RaftServer raftServer) {
+        super(raftServer);
+    }
+
+    @Override
+    public DecoderCallback<Integer> createDecoderCallback(int command, DecodeContext context) {
+        return context.toDecoderCallback(new PbIntCallback());
+    }
+
+    @Override
+    protected int getGroupId(ReadPacket<Integer> frame) {
+        Integer x = frame.getBody();
+        return x == null ? 0 : x;
+    }
+
+    @Override
+    protected FiberFrame<Void> processInFiberGroup(ReqInfoEx<Integer> reqInfo) {
+        FiberProfiler p = reqInfo.raftGroup.getFiberGroup().getDispatcher().getProfiler();
+        String s = p == null ? "fiber profiler is not enabled, the PerfCallback should accept FIBER_D_EXEC"
+                : p.dumpAndReset(TOP_N);
+        PbStrWritePacket wf = new PbStrWritePacket(Commands.RAFT_QUERY_FIBER_PROFILE, s);
+        wf.setRespCode(CmdCodes.SUCCESS);
+        writeResp(reqInfo, wf);
+        return FiberFrame.voidCompletedFrame();
+    }
+}
@@ -18,7 +18,10 @@ package com.github.dtprj.dongting.raft.server;
 import com.github.dtprj.dongting.buf.DefaultPoolFactory;
 import com.github.dtprj.dongting.buf.PoolFactory;
 import com.github.dtprj.dongting.common.DtTime;
+import com.github.dtprj.dongting.common.PerfCallback;
+import com.github.dtprj.dongting.common.ThreadAffinity;
 import com.github.dtprj.dongting.fiber.Dispatcher;
+import com.github.dtprj.dongting.fiber.IdleStrategy;
 import com.github.dtprj.dongting.raft.sm.DefaultSnapshotManager;
 import com.github.dtprj.dongting.raft.sm.RaftCodecFactory;
 import com.github.dtprj.dongting.raft.sm.SnapshotManager;
@@ -27,6 +30,7 @@ import com.github.dtprj.dongting.raft.store.DefaultRaftLog;
 import com.github.dtprj.dongting.raft.store.RaftLog;
 import com.github.dtprj.dongting.raft.store.StatusManager;
 
+import java.util.IdentityHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -39,6 +43,17 @@ public abstract class DefaultRaftFactory implements RaftFactory {
     private ExecutorService ioExecutor;
     protected PoolFactory poolFactory;
 
+    // raft groups share a fixed number of dispatchers (threads), <=0 means create a dispatcher for each group
+    private int dispatcherPoolSize = 0;
+    private Dispatcher[] dispatcherPool;
+    // group count of each dispatcher in the pool, a dispatcher is stopped after the last group removed
+    private final IdentityHashMap<Dispatcher, Integer> dispatcherGroups = new IdentityHashMap<>();
+    // the dispatcher fires perf events to a single callback, so the groups in the pool should use the same one
+    private PerfCallback poolPerfCallback;
+
+    private String[] dispatcherCpuAffinity;
+    private String blockIoCpuAffinity;
+
     public DefaultRaftFactory() {
         this.poolFactory = createPoolFactory();
     }
@@ -47,11 +62,25 @@ public abstract class DefaultRaftFactory implements RaftFactory {
         return new DefaultPoolFactory();
     }
 
+    /**
+     * Create the idle strategy for a new dispatcher, the default strategy parks the dispatcher thread immediately
+     * when it's idle. Override this method to use a spinning strategy if the CPU cores are enough.
+     */
+    protected IdleStrategy createIdleStrategy() {
+        return IdleStrategy.blocking();
+    }
+
     @Override
     public ExecutorService createBlockIoExecutor(RaftServerConfig serverConfig) {
         AtomicInteger count = new AtomicInteger();
-        ioExecutor = Executors.newFixedThreadPool(serverConfig.getBlockIoThreads(),
-                r -> new Thread(r, "raft-io-" + count.incrementAndGet()));
+        String cpus = blockIoCpuAffinity;
+        ioExecutor = Executors.newFixedThreadPool(serverConfig.getBlockIoThreads(), r -> {
+            Runnable task = cpus == null ? r : () -> {
+                ThreadAffinity.bindCurrentThread(cpus);
+                r.run();
+            };
+            return new Thread(task, "raft-io-" + count.incrementAndGet());
+        });
         return ioExecutor;
     }
 
@@ -72,19 +101,129 @@ public abstract class DefaultRaftFactory implements RaftFactory {
         return new DefaultSnapshotManager(groupConfig, stateMachine);
     }
 
+    public int getDispatcherPoolSize() {
+        return dispatcherPoolSize;
+    }
+
+    /**
+     * Set the max dispatcher count used by all raft groups, should be called before the raft server created.
+     * The default value is 0, which means each group has its own dispatcher. The groups sharing the dispatchers
+     * should use the same PerfCallback.
+     */
+    public void setDispatcherPoolSize(int dispatcherPoolSize) {
+        this.dispatcherPoolSize = dispatcherPoolSize;
+    }
+
+    public String[] getDispatcherCpuAffinity() {
+        return dispatcherCpuAffinity;
+    }
+
+    /**
+     * Bind dispatchers to cpus (taskset format), the dispatcher i in the pool binds to cpuLists[i % length].
+     * If the pool is disabled, the dispatcher of group g binds to cpuLists[g % length].
+     * <p>
+     * To co-locate a group's dispatcher with the io worker serving its replicate channels, use the same cpu lists
+     * (for example ThreadAffinity.numaNodeCpuLists()) in RaftServerConfig.setIoThreadCpuAffinity(), and set
+     * replicateConnections to a multiple of the cpu lists count. The group g is pinned to replicate connection
+     * g % replicateConnections and its io worker, and the group is assigned to a dispatcher in the same cpu list.
+     * The io workers of replicate server are assigned to incoming connections by the acceptor, they are not
+     * co-located.
+     */
+    public void setDispatcherCpuAffinity(String[] dispatcherCpuAffinity) {
+        this.dispatcherCpuAffinity = dispatcherCpuAffinity;
+    }
+
+    public String getBlockIoCpuAffinity() {
+        return blockIoCpuAffinity;
+    }
+
+    /**
+     * Bind all block io threads to the cpus (taskset format), should be called before the raft server created.
+     */
+    public void setBlockIoCpuAffinity(String blockIoCpuAffinity) {
+        this.blockIoCpuAffinity = blockIoCpuAffinity;
+    }
+
+    /**
+     * Assign the group to the dispatcher which has the fewest groups. New dispatcher is created if the pool
+     * is not full, so every group has its own dispatcher if the group count not exceeds the pool size.
+     * If dispatcherCpuAffinity is set, the dispatchers bound to the same cpus with the group are preferred.
+     * The group is not moved to another dispatcher after assigned, so the groups created after some groups removed
+     * fill the dispatchers with fewer groups first.
+     */
     @Override
-    public Dispatcher createDispatcher(RaftGroupConfig groupConfig) {
-        return new Dispatcher("raft-dispatcher-" + groupConfig.getGroupId(), poolFactory,
-                groupConfig.getPerfCallback());
+    public synchronized Dispatcher createDispatcher(RaftGroupConfig groupConfig) {
+        String[] affinity = dispatcherCpuAffinity;
+        if (dispatcherPoolSize <= 0) {
+            Dispatcher d = new Dispatcher("raft-dispatcher-" + groupConfig.getGroupId(), poolFactory,
+                    groupConfig.getPerfCallback(), createIdleStrategy());
+            d.setCpuAffinity(ThreadAffinity.select(affinity, groupConfig.getGroupId()));
+            return d;
+        }
+        if (dispatcherPool == null) {
+            dispatcherPool = new Dispatcher[dispatcherPoolSize];
+        }
+        if (dispatcherGroups.isEmpty()) {
+            poolPerfCallback = groupConfig.getPerfCallback();
+        } else if (poolPerfCallback != groupConfig.getPerfCallback()) {
+            throw new IllegalArgumentException("the groups sharing dispatchers should use the same PerfCallback: "
+                    + groupConfig.getGroupId());
+        }
+        int preferred = -1;
+        if (affinity != null && affinity.length > 0 && dispatcherPool.length >= affinity.length) {
+            preferred = Math.abs(groupConfig.getGroupId() % affinity.length);
+        }
+        int index = -1;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < dispatcherPool.length; i++) {
+            if (preferred >= 0 && i % affinity.length != preferred) {
+                continue;
+            }
+            Dispatcher d = dispatcherPool[i];
+            if (d == null) {
+                // not created yet or already stopped
+                d = new Dispatcher("raft-dispatcher-" + i, poolFactory, poolPerfCallback,
+                        createIdleStrategy());
+                d.setCpuAffinity(ThreadAffinity.select(affinity, i));
+                dispatcherPool[i] = d;
+                index = i;
+                min = 0;
+                break;
+            }
+            int count = dispatcherGroups.get(d);
+            if (count < min) {
+                min = count;
+                index = i;
+            }
+        }
+        Dispatcher d = dispatcherPool[index];
+        dispatcherGroups.put(d, min + 1);
+        return d;
     }
 
     @Override
-    public void startDispatcher(Dispatcher dispatcher) {
-        dispatcher.start();
+    public synchronized void startDispatcher(Dispatcher dispatcher) {
+        // the shared dispatcher is started by the first group
+        if (dispatcher.getStatus() == Dispatcher.STATUS_NOT_START) {
+            dispatcher.start();
+        }
     }
 
     @Override
-    public void stopDispatcher(Dispatcher dispatcher, DtTime timeout) {
+    public synchronized void stopDispatcher(Dispatcher dispatcher, DtTime timeout) {
+        Integer count = dispatcherGroups.get(dispatcher);
+        if (count != null) {
+            if (count > 1) {
+                dispatcherGroups.put(dispatcher, count - 1);
+                return;
+            }
+            dispatcherGroups.remove(dispatcher);
+            for (int i = 0; i < dispatcherPool.length; i++) {
+                if (dispatcherPool[i] == dispatcher) {
+                    dispatcherPool[i] = null;
+                }
+            }
+        }
         dispatcher.stop(timeout);
     }
 }
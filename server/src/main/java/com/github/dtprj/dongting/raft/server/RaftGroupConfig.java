@@ -27,6 +27,9 @@ public class RaftGroupConfig extends ConfigBase {
     private final int groupId;
     private final String nodeIdOfMembers;
     private final String nodeIdOfObservers;
+    // subset of members, a witness votes and counts toward quorum, but never applies logs or saves snapshots,
+    // and never becomes leader. all nodes of the group should use same config.
+    private String nodeIdOfWitnesses;
     private String dataDir = "./data";
     private String statusFile = "raft.status";
     private int[] ioRetryInterval = new int[]{100, 1000, 3000, 5000, 10000, 20000};
@@ -40,6 +43,13 @@ public class RaftGroupConfig extends ConfigBase {
 
     private int maxPendingRaftTasks = 50000;
     private long maxPendingTaskBytes = 256 * 1024 * 1024;
+    // budget of RaftInput.PRIORITY_CLASS_BULK, so bulk loading can't use up the budget of interactive writes
+    private int maxPendingBulkRaftTasks = 10000;
+    private long maxPendingBulkTaskBytes = 64 * 1024 * 1024;
+    // if more than one priority class has queued tasks, the linear task runner appends at most
+    // (weight * taskRoundQuantum) tasks of each class in one round, and higher priority class first
+    private int[] priorityClassWeights = new int[]{8, 1};
+    private int taskRoundQuantum = 64;
 
     private int idxCacheSize = 16 * 1024;
     private int idxFlushThreshold = 8 * 1024;
@@ -58,6 +68,18 @@ public class RaftGroupConfig extends ConfigBase {
 
     private boolean saveSnapshotWhenClose = true;
 
+    // let an up-to-date follower (or observer) send the snapshot to the member which need install snapshot,
+    // so the leader's disk and network are not occupied by the bulk data
+    private boolean installSnapshotFromFollower = false;
+    private long donateSnapshotTimeoutMillis = 30 * 60 * 1000;
+    // the leader sends the raw file of the latest saved snapshot, the receiver writes it to disk directly
+    // and then recovers from it, rather than decoding each chunk
+    private boolean installSnapshotByFile = false;
+    private int installSnapshotFileChunkSize = 1024 * 1024;
+
+    // the witness deletes applied logs periodically, since it has no state machine to rebuild
+    private long witnessTruncateIntervalMillis = 10 * 1000;
+
     RaftGroupConfig(int groupId, String nodeIdOfMembers, String nodeIdOfObservers) {
         this.groupId = groupId;
         this.nodeIdOfMembers = nodeIdOfMembers;
@@ -80,6 +102,14 @@ public class RaftGroupConfig extends ConfigBase {
         return nodeIdOfObservers;
     }
 
+    public String getNodeIdOfWitnesses() {
+        return nodeIdOfWitnesses;
+    }
+
+    public void setNodeIdOfWitnesses(String nodeIdOfWitnesses) {
+        this.nodeIdOfWitnesses = nodeIdOfWitnesses;
+    }
+
     public String getDataDir() {
         return dataDir;
     }
@@ -152,6 +182,38 @@ public class RaftGroupConfig extends ConfigBase {
         this.maxPendingTaskBytes = maxPendingTaskBytes;
     }
 
+    public int getMaxPendingBulkRaftTasks() {
+        return maxPendingBulkRaftTasks;
+    }
+
+    public void setMaxPendingBulkRaftTasks(int maxPendingBulkRaftTasks) {
+        this.maxPendingBulkRaftTasks = maxPendingBulkRaftTasks;
+    }
+
+    public long getMaxPendingBulkTaskBytes() {
+        return maxPendingBulkTaskBytes;
+    }
+
+    public void setMaxPendingBulkTaskBytes(long maxPendingBulkTaskBytes) {
+        this.maxPendingBulkTaskBytes = maxPendingBulkTaskBytes;
+    }
+
+    public int[] getPriorityClassWeights() {
+        return priorityClassWeights;
+    }
+
+    public void setPriorityClassWeights(int[] priorityClassWeights) {
+        this.priorityClassWeights = priorityClassWeights;
+    }
+
+    public int getTaskRoundQuantum() {
+        return taskRoundQuantum;
+    }
+
+    public void setTaskRoundQuantum(int taskRoundQuantum) {
+        this.taskRoundQuantum = taskRoundQuantum;
+    }
+
     public int getRaftPingCheck() {
         return raftPingCheck;
     }
@@ -248,6 +310,46 @@ public class RaftGroupConfig extends ConfigBase {
         this.saveSnapshotWhenClose = saveSnapshotWhenClose;
     }
 
+    public boolean isInstallSnapshotFromFollower() {
+        return installSnapshotFromFollower;
+    }
+
+    public void setInstallSnapshotFromFollower(boolean installSnapshotFromFollower) {
+        this.installSnapshotFromFollower = installSnapshotFromFollower;
+    }
+
+    public long getDonateSnapshotTimeoutMillis() {
+        return donateSnapshotTimeoutMillis;
+    }
+
+    public void setDonateSnapshotTimeoutMillis(long donateSnapshotTimeoutMillis) {
+        this.donateSnapshotTimeoutMillis = donateSnapshotTimeoutMillis;
+    }
+
+    public boolean isInstallSnapshotByFile() {
+        return installSnapshotByFile;
+    }
+
+    public void setInstallSnapshotByFile(boolean installSnapshotByFile) {
+        this.installSnapshotByFile = installSnapshotByFile;
+    }
+
+    public int getInstallSnapshotFileChunkSize() {
+        return installSnapshotFileChunkSize;
+    }
+
+    public void setInstallSnapshotFileChunkSize(int installSnapshotFileChunkSize) {
+        this.installSnapshotFileChunkSize = installSnapshotFileChunkSize;
+    }
+
+    public long getWitnessTruncateIntervalMillis() {
+        return witnessTruncateIntervalMillis;
+    }
+
+    public void setWitnessTruncateIntervalMillis(long witnessTruncateIntervalMillis) {
+        this.witnessTruncateIntervalMillis = witnessTruncateIntervalMillis;
+    }
+
     public boolean isDisableConfigChange() {
         return disableConfigChange;
     }
@@ -28,6 +28,7 @@ public class RaftGroupConfigEx extends RaftGroupConfig {
     private Timestamp ts;
     private RaftStatus raftStatus;
     private ExecutorService blockIoExecutor;
+    private ExecutorService completionExecutor;
     private FiberGroup fiberGroup;
 
     public RaftGroupConfigEx(int groupId, String nodeIdOfMembers, String nodeIdOfObservers) {
@@ -65,4 +66,12 @@ public class RaftGroupConfigEx extends RaftGroupConfig {
     public void setBlockIoExecutor(ExecutorService blockIoExecutor) {
         this.blockIoExecutor = blockIoExecutor;
     }
+
+    public ExecutorService getCompletionExecutor() {
+        return completionExecutor;
+    }
+
+    public void setCompletionExecutor(ExecutorService completionExecutor) {
+        this.completionExecutor = completionExecutor;
+    }
 }
@@ -23,6 +23,12 @@ import com.github.dtprj.dongting.common.RefCount;
  * @author huangli
  */
 public final class RaftInput {
+    // latency sensitive writes, the default class
+    public static final int PRIORITY_CLASS_INTERACTIVE = 0;
+    // bulk loading writes, which have a separate pending budget and lower weight in linear task runner
+    public static final int PRIORITY_CLASS_BULK = 1;
+    public static final int PRIORITY_CLASS_COUNT = 2;
+
     private final int bizType;
     private final DtTime deadline;
     private final boolean readOnly;
@@ -32,6 +38,8 @@ public final class RaftInput {
     private final boolean headReleasable;
     private final boolean bodyReleasable;
 
+    private int priorityClass = PRIORITY_CLASS_INTERACTIVE;
+
     // this field is reused
     private long perfTime;
 
@@ -89,6 +97,17 @@ public final class RaftInput {
         return bodyReleasable;
     }
 
+    public int getPriorityClass() {
+        return priorityClass;
+    }
+
+    public void setPriorityClass(int priorityClass) {
+        if (priorityClass < 0 || priorityClass >= PRIORITY_CLASS_COUNT) {
+            throw new IllegalArgumentException("invalid priority class: " + priorityClass);
+        }
+        this.priorityClass = priorityClass;
+    }
+
     public long getPerfTime() {
         return perfTime;
     }
@@ -36,11 +36,13 @@ import com.github.dtprj.dongting.net.NioServer;
 import com.github.dtprj.dongting.net.NioServerConfig;
 import com.github.dtprj.dongting.raft.RaftException;
 import com.github.dtprj.dongting.raft.RaftNode;
+import com.github.dtprj.dongting.raft.impl.AppendMultiplexer;
 import com.github.dtprj.dongting.raft.impl.ApplyManager;
 import com.github.dtprj.dongting.raft.impl.CommitManager;
 import com.github.dtprj.dongting.raft.impl.DecodeContextEx;
 import com.github.dtprj.dongting.raft.impl.GroupComponents;
 import com.github.dtprj.dongting.raft.impl.InitFiberFrame;
+import com.github.dtprj.dongting.raft.impl.LeaderBalancer;
 import com.github.dtprj.dongting.raft.impl.LinearTaskRunner;
 import com.github.dtprj.dongting.raft.impl.MemberManager;
 import com.github.dtprj.dongting.raft.impl.NodeManager;
@@ -54,8 +56,11 @@ import com.github.dtprj.dongting.raft.impl.TailCache;
 import com.github.dtprj.dongting.raft.impl.VoteManager;
 import com.github.dtprj.dongting.raft.rpc.AdminConfigChangeProcessor;
 import com.github.dtprj.dongting.raft.rpc.AdminTransferLeaderProcessor;
+import com.github.dtprj.dongting.raft.rpc.AppendBatchProcessor;
 import com.github.dtprj.dongting.raft.rpc.AppendProcessor;
+import com.github.dtprj.dongting.raft.rpc.DonateSnapshotProcessor;
 import com.github.dtprj.dongting.raft.rpc.NodePingProcessor;
+import com.github.dtprj.dongting.raft.rpc.QueryFiberProfileProcessor;
 import com.github.dtprj.dongting.raft.rpc.QueryStatusProcessor;
 import com.github.dtprj.dongting.raft.rpc.RaftPingProcessor;
 import com.github.dtprj.dongting.raft.rpc.RaftSequenceProcessor;
@@ -73,7 +78,10 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 
@@ -93,6 +101,9 @@ public class RaftServer extends AbstractLifeCircle {
     private final RaftServerConfig serverConfig;
 
     private final NodeManager nodeManager;
+    private final AppendMultiplexer appendMultiplexer;
+    private final LeaderBalancer leaderBalancer;
+    private final ExecutorService completionExecutor;
 
     private final ReentrantLock changeLock = new ReentrantLock();
 
@@ -135,17 +146,27 @@ public class RaftServer extends AbstractLifeCircle {
         NioClientConfig repClientConfig = new NioClientConfig();
         repClientConfig.setName("RaftRepClient" + serverConfig.getNodeId());
         repClientConfig.setConnectRetryIntervals(null); //use node ping
+        repClientConfig.setIoThreads(serverConfig.getReplicateConnections());
+        repClientConfig.setConnectionsPerPeer(serverConfig.getReplicateConnections());
+        repClientConfig.setIoThreadCpuAffinity(serverConfig.getIoThreadCpuAffinity());
         setupNioConfig(repClientConfig);
         customReplicateNioClient(repClientConfig);
         replicateNioClient = new NioClient(repClientConfig);
 
         nodeManager = new NodeManager(serverConfig, allRaftServers, replicateNioClient,
                 RaftUtil.getElectQuorum(allRaftServers.size()));
+        appendMultiplexer = serverConfig.isAppendBatch() ? new AppendMultiplexer(replicateNioClient,
+                serverConfig.getReplicateConnections(), serverConfig.getAppendBatchWindowMicros()) : null;
+        leaderBalancer = serverConfig.getLeaderBalanceIntervalMillis() > 0 ?
+                new LeaderBalancer(serverConfig, raftGroups, nodeManager) : null;
+        completionExecutor = serverConfig.getCompletionThreads() > 0 ?
+                createCompletionExecutor(serverConfig.getCompletionThreads()) : null;
 
         NioServerConfig repServerConfig = new NioServerConfig();
         repServerConfig.setPort(serverConfig.getReplicatePort());
         repServerConfig.setName("RaftRepServer" + serverConfig.getNodeId());
         repServerConfig.setBizThreads(0);
+        repServerConfig.setIoThreadCpuAffinity(serverConfig.getIoThreadCpuAffinity());
         // use multi io threads
         setupNioConfig(repServerConfig);
         customReplicateNioServer(repServerConfig);
@@ -156,19 +177,23 @@ public class RaftServer extends AbstractLifeCircle {
         AppendProcessor appendProcessor = new AppendProcessor(this);
         addRaftGroupProcessor(replicateNioServer, Commands.RAFT_APPEND_ENTRIES, appendProcessor);
         addRaftGroupProcessor(replicateNioServer, Commands.RAFT_INSTALL_SNAPSHOT, appendProcessor);
+        replicateNioServer.register(Commands.RAFT_APPEND_ENTRIES_BATCH, new AppendBatchProcessor(appendProcessor));
         addRaftGroupProcessor(replicateNioServer, Commands.RAFT_REQUEST_VOTE, new VoteProcessor(this));
         addRaftGroupProcessor(replicateNioServer, Commands.RAFT_ADMIN_TRANSFER_LEADER, new AdminTransferLeaderProcessor(this));
         addRaftGroupProcessor(replicateNioServer, Commands.RAFT_TRANSFER_LEADER, new TransferLeaderProcessor(this));
+        addRaftGroupProcessor(replicateNioServer, Commands.RAFT_DONATE_SNAPSHOT, new DonateSnapshotProcessor(this));
         QueryStatusProcessor queryStatusProcessor = new QueryStatusProcessor(this);
         addRaftGroupProcessor(replicateNioServer, Commands.RAFT_QUERY_STATUS, queryStatusProcessor);
+        addRaftGroupProcessor(replicateNioServer, Commands.RAFT_QUERY_FIBER_PROFILE, new QueryFiberProfileProcessor(this));
         AdminConfigChangeProcessor adminConfigChangeProcessor = new AdminConfigChangeProcessor(this);
         addRaftGroupProcessor(replicateNioServer, Commands.RAFT_ADMIN_PREPARE_CHANGE, adminConfigChangeProcessor);
         addRaftGroupProcessor(replicateNioServer, Commands.RAFT_ADMIN_COMMIT_CHANGE, adminConfigChangeProcessor);
         addRaftGroupProcessor(replicateNioServer, Commands.RAFT_ADMIN_ABORT_CHANGE, adminConfigChangeProcessor);
 
-        if (serverConfig.getServicePort() > 0) {
+        if (serverConfig.getServicePort() > 0 || serverConfig.getServiceUnixDomainSocketPath() != null) {
             NioServerConfig serviceServerConfig = new NioServerConfig();
             serviceServerConfig.setPort(serverConfig.getServicePort());
+            serviceServerConfig.setUnixDomainSocketPath(serverConfig.getServiceUnixDomainSocketPath());
             serviceServerConfig.setName("RaftServiceServer" + serverConfig.getNodeId());
             serviceServerConfig.setBizThreads(0);
             // use multi io threads
@@ -244,6 +269,21 @@ public class RaftServer extends AbstractLifeCircle {
             nodeIdOfObservers = Collections.emptySet();
         }
 
+        Set<Integer> nodeIdOfWitnesses;
+        if (rgc.getNodeIdOfWitnesses() != null && !rgc.getNodeIdOfWitnesses().trim().isEmpty()) {
+            nodeIdOfWitnesses = parseMemberIds(allNodeIds, rgc.getNodeIdOfWitnesses(), rgc.getGroupId());
+            for (int id : nodeIdOfWitnesses) {
+                if (!nodeIdOfMembers.contains(id)) {
+                    throw new IllegalArgumentException("witness is not member: " + id);
+                }
+            }
+            if (nodeIdOfWitnesses.size() == nodeIdOfMembers.size()) {
+                throw new IllegalArgumentException("all members are witnesses in group: " + rgc.getGroupId());
+            }
+        } else {
+            nodeIdOfWitnesses = Collections.emptySet();
+        }
+
         boolean isMember = nodeIdOfMembers.contains(serverConfig.getNodeId());
         boolean isObserver = nodeIdOfObservers.contains(serverConfig.getNodeId());
         if (!isMember && !isObserver) {
@@ -256,6 +296,8 @@ public class RaftServer extends AbstractLifeCircle {
         raftStatus.setTailCache(new TailCache(rgc, raftStatus));
         raftStatus.setNodeIdOfMembers(nodeIdOfMembers);
         raftStatus.setNodeIdOfObservers(nodeIdOfObservers);
+        raftStatus.setNodeIdOfWitnesses(nodeIdOfWitnesses);
+        raftStatus.setWitness(nodeIdOfWitnesses.contains(serverConfig.getNodeId()));
         raftStatus.setGroupId(rgc.getGroupId());
 
         RaftGroupConfigEx rgcEx = createGroupConfigEx(rgc, raftStatus, fiberGroup);
@@ -284,6 +326,7 @@ public class RaftServer extends AbstractLifeCircle {
         gc.setCommitManager(commitManager);
         gc.setApplyManager(applyManager);
         gc.setNodeManager(nodeManager);
+        gc.setAppendMultiplexer(appendMultiplexer);
         gc.setServerStat(serverStat);
         gc.setSnapshotManager(raftFactory.createSnapshotManager(rgcEx, stateMachine));
         gc.setStatusManager(statusManager);
@@ -297,19 +340,30 @@ public class RaftServer extends AbstractLifeCircle {
         linearTaskRunner.postInit();
 
         for (RaftSequenceProcessor<?> processor : raftSequenceProcessors) {
-            FiberChannel<Object> channel = fiberGroup.newChannel();
+            // requests are offered by io threads
+            FiberChannel<Object> channel = fiberGroup.newCrossThreadChannel(1024);
             gc.getProcessorChannels().put(processor.getTypeId(), channel);
         }
 
         return new RaftGroupImpl(gc);
     }
 
+    private static ExecutorService createCompletionExecutor(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "raft-completion-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
     private RaftGroupConfigEx createGroupConfigEx(RaftGroupConfig rgc, RaftStatusImpl raftStatus,
                                                   FiberGroup fiberGroup) {
         RaftGroupConfigEx rgcEx = (RaftGroupConfigEx) rgc;
         rgcEx.setTs(raftStatus.getTs());
         rgcEx.setRaftStatus(raftStatus);
         rgcEx.setBlockIoExecutor(raftFactory.createBlockIoExecutor(serverConfig));
+        rgcEx.setCompletionExecutor(completionExecutor);
         rgcEx.setFiberGroup(fiberGroup);
         return rgcEx;
     }
@@ -450,6 +504,9 @@ public class RaftServer extends AbstractLifeCircle {
                         if (serviceNioServer != null) {
                             serviceNioServer.start();
                         }
+                        if (leaderBalancer != null) {
+                            leaderBalancer.start();
+                        }
                         allGroupReadyFuture.complete(null);
                     } catch (Exception serviceNioServerStartEx) {
                         allGroupReadyFuture.completeExceptionally(serviceNioServerStartEx);
@@ -485,6 +542,9 @@ public class RaftServer extends AbstractLifeCircle {
             if (serviceNioServer != null) {
                 serviceNioServer.stop(timeout, true);
             }
+            if (leaderBalancer != null) {
+                leaderBalancer.stop(timeout, true);
+            }
             ArrayList<CompletableFuture<Void>> futures = new ArrayList<>();
             raftGroups.forEach((groupId, g) -> futures.add(stopGroup(g, timeout,
                     g.getGroupComponents().getGroupConfig().isSaveSnapshotWhenClose())));
@@ -506,6 +566,9 @@ public class RaftServer extends AbstractLifeCircle {
                     replicateNioClient.stop(timeout, true);
                 }
                 raftFactory.shutdownBlockIoExecutor();
+                if (completionExecutor != null) {
+                    completionExecutor.shutdown();
+                }
             }
         } catch (RuntimeException | Error e) {
             log.error("stop raft server failed", e);
@@ -529,7 +592,7 @@ public class RaftServer extends AbstractLifeCircle {
 
                 private FrameCallResult afterShouldShutdown(Void v) {
                     FiberFuture<Long> f;
-                    if (saveSnapshot) {
+                    if (saveSnapshot && !gc.getRaftStatus().isWitness()) {
                         f = gc.getSnapshotManager().saveSnapshot();
                     } else {
                         f = FiberFuture.completedFuture(getFiberGroup(), 0L);
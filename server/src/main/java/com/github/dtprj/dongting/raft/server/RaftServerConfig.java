@@ -28,18 +28,47 @@ public class RaftServerConfig {
     private int replicatePort;
     // use for client access, 0 indicates not start the client service server
     private int servicePort;
+    // if not null, the service server also listens on this unix domain socket path, for co-located clients
+    private String serviceUnixDomainSocketPath;
     private int nodeId;
     private long electTimeout = 15 * 1000;
     private long rpcTimeout = 5 * 1000;
     private long connectTimeout = 2000;
     private long heartbeatInterval = 2000;
+    // if true, idle groups not write heartbeat log, the leader lease is kept by batched node ping
+    private boolean quiescent;
+    // if true, append requests of different groups to same node are merged into one rpc
+    private boolean appendBatch;
+    // the max delay to wait for more append requests to merge, 0 means only merge requests that already queued
+    private long appendBatchWindowMicros = 100;
+
+    // interval of leader balance, 0 means disable leader balance
+    private long leaderBalanceIntervalMillis;
+    // only transfer leadership when the load difference of two nodes exceeds this value,
+    // the load of a group is 1 plus a small weight of its write/read rate
+    private double leaderBalanceThreshold = 1;
+    // max leadership transfers issued by a node in one round
+    private int leaderBalanceMaxTransfers = 1;
+    // if true, the balancer only logs the planed transfers
+    private boolean leaderBalanceDryRun;
 
     private boolean checkSelf = true;
 
     private int blockIoThreads = Math.max(Runtime.getRuntime().availableProcessors() * 2, 4);
 
+    // threads to invoke callbacks of applied raft tasks (write responses etc.) in batch, so the raft dispatcher
+    // is not occupied by them, 0 means invoke callbacks in raft dispatcher thread. the callbacks of config change
+    // tasks are always invoked in raft dispatcher thread
+    private int completionThreads = 0;
+
+    // connections (and io threads) of replicate client to each node, each raft group is pinned to one connection
+    private int replicateConnections = 1;
+
     private PoolFactory poolFactory = new DefaultPoolFactory();
 
+    // cpu lists (taskset format) of replicate client/server io threads, see NioConfig.setIoThreadCpuAffinity()
+    private String[] ioThreadCpuAffinity;
+
     public String getServers() {
         return servers;
     }
@@ -64,6 +93,14 @@ public class RaftServerConfig {
         this.servicePort = servicePort;
     }
 
+    public String getServiceUnixDomainSocketPath() {
+        return serviceUnixDomainSocketPath;
+    }
+
+    public void setServiceUnixDomainSocketPath(String serviceUnixDomainSocketPath) {
+        this.serviceUnixDomainSocketPath = serviceUnixDomainSocketPath;
+    }
+
     public int getNodeId() {
         return nodeId;
     }
@@ -96,6 +133,62 @@ public class RaftServerConfig {
         this.heartbeatInterval = heartbeatInterval;
     }
 
+    public boolean isQuiescent() {
+        return quiescent;
+    }
+
+    public void setQuiescent(boolean quiescent) {
+        this.quiescent = quiescent;
+    }
+
+    public boolean isAppendBatch() {
+        return appendBatch;
+    }
+
+    public void setAppendBatch(boolean appendBatch) {
+        this.appendBatch = appendBatch;
+    }
+
+    public long getAppendBatchWindowMicros() {
+        return appendBatchWindowMicros;
+    }
+
+    public void setAppendBatchWindowMicros(long appendBatchWindowMicros) {
+        this.appendBatchWindowMicros = appendBatchWindowMicros;
+    }
+
+    public long getLeaderBalanceIntervalMillis() {
+        return leaderBalanceIntervalMillis;
+    }
+
+    public void setLeaderBalanceIntervalMillis(long leaderBalanceIntervalMillis) {
+        this.leaderBalanceIntervalMillis = leaderBalanceIntervalMillis;
+    }
+
+    public double getLeaderBalanceThreshold() {
+        return leaderBalanceThreshold;
+    }
+
+    public void setLeaderBalanceThreshold(double leaderBalanceThreshold) {
+        this.leaderBalanceThreshold = leaderBalanceThreshold;
+    }
+
+    public int getLeaderBalanceMaxTransfers() {
+        return leaderBalanceMaxTransfers;
+    }
+
+    public void setLeaderBalanceMaxTransfers(int leaderBalanceMaxTransfers) {
+        this.leaderBalanceMaxTransfers = leaderBalanceMaxTransfers;
+    }
+
+    public boolean isLeaderBalanceDryRun() {
+        return leaderBalanceDryRun;
+    }
+
+    public void setLeaderBalanceDryRun(boolean leaderBalanceDryRun) {
+        this.leaderBalanceDryRun = leaderBalanceDryRun;
+    }
+
     public long getConnectTimeout() {
         return connectTimeout;
     }
@@ -127,4 +220,28 @@ public class RaftServerConfig {
     public void setBlockIoThreads(int blockIoThreads) {
         this.blockIoThreads = blockIoThreads;
     }
+
+    public int getCompletionThreads() {
+        return completionThreads;
+    }
+
+    public void setCompletionThreads(int completionThreads) {
+        this.completionThreads = completionThreads;
+    }
+
+    public int getReplicateConnections() {
+        return replicateConnections;
+    }
+
+    public void setReplicateConnections(int replicateConnections) {
+        this.replicateConnections = replicateConnections;
+    }
+
+    public String[] getIoThreadCpuAffinity() {
+        return ioThreadCpuAffinity;
+    }
+
+    public void setIoThreadCpuAffinity(String[] ioThreadCpuAffinity) {
+        this.ioThreadCpuAffinity = ioThreadCpuAffinity;
+    }
 }
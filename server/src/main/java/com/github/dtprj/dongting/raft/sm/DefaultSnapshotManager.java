@@ -41,6 +41,7 @@ import com.github.dtprj.dongting.raft.store.ForceFrame;
 import com.github.dtprj.dongting.raft.store.StatusFile;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousFileChannel;
 import java.nio.file.StandardOpenOption;
@@ -91,6 +92,15 @@ public class DefaultSnapshotManager implements SnapshotManager {
     private final LinkedList<Pair<File, File>> snapshotFiles = new LinkedList<>();
     private final LinkedList<Pair<Long, FiberFuture<Long>>> saveRequest = new LinkedList<>();
 
+    // info of the last one in snapshotFiles
+    private SnapshotInfo lastSavedInfo;
+    private int lastSavedBufferSize;
+
+    // the snapshot file which is receiving from the leader, see beginFileInstall()
+    private DtFile installDataFile;
+    private SnapshotInfo installInfo;
+    private int installBufferSize;
+
     public DefaultSnapshotManager(RaftGroupConfigEx groupConfig, StateMachine stateMachine) {
         this.groupConfig = groupConfig;
         this.ioExecutor = groupConfig.getBlockIoExecutor();
@@ -163,6 +173,8 @@ public class DefaultSnapshotManager implements SnapshotManager {
             SnapshotInfo si = new SnapshotInfo(lastIndex, lastTerm, members, observers, preparedMembers,
                     preparedObservers, lastConfigChangeIndex);
 
+            lastSavedInfo = si;
+            lastSavedBufferSize = bufferSize;
             FileSnapshot s = new FileSnapshot(groupConfig, si, last.getRight(), bufferSize);
             log.info("open snapshot file {}", last.getRight());
             setResult(s);
@@ -248,6 +260,142 @@ public class DefaultSnapshotManager implements SnapshotManager {
         }
     }
 
+    private static String newBaseName(long id) {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss");
+        return sdf.format(new Date()) + "_" + id;
+    }
+
+    private void fillIdxProps(Map<String, String> p, SnapshotInfo si, int bufferSize, long startTime) {
+        p.put(KEY_LAST_INDEX, String.valueOf(si.getLastIncludedIndex()));
+        p.put(KEY_LAST_TERM, String.valueOf(si.getLastIncludedTerm()));
+        p.put(KEY_MEMBERS, RaftUtil.setToStr(si.getMembers()));
+        p.put(KEY_OBSERVERS, RaftUtil.setToStr(si.getObservers()));
+        p.put(KEY_PREPARED_MEMBERS, RaftUtil.setToStr(si.getPreparedMembers()));
+        p.put(KEY_PREPARED_OBSERVERS, RaftUtil.setToStr(si.getPreparedObservers()));
+        p.put(KEY_LAST_CONFIG_CHANGE_INDEX, String.valueOf(si.getLastConfigChangeIndex()));
+        p.put(KEY_BUFFER_SIZE, String.valueOf(bufferSize));
+        p.put(KEY_NEXT_ID, String.valueOf(nextId));
+
+        // just for human reading
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,SSS");
+        p.put("saveStartTime", sdf.format(new Date(startTime)));
+        p.put("saveEndTime", sdf.format(new Date()));
+    }
+
+    /**
+     * Open the latest saved snapshot file, the raw content is sent to the member which need install snapshot.
+     * Return null if there is no saved snapshot.
+     */
+    public FileSnapshot openLatestSnapshot() throws IOException {
+        if (lastSavedInfo == null || snapshotFiles.isEmpty()) {
+            return null;
+        }
+        return new FileSnapshot(groupConfig, lastSavedInfo, snapshotFiles.getLast().getRight(), lastSavedBufferSize);
+    }
+
+    /**
+     * Called in the member which receives the raw snapshot file from the leader, the data is written to a
+     * new snapshot file by writeFileInstallData(), and the state machine is recovered from it by
+     * finishFileInstall().
+     */
+    public void beginFileInstall(SnapshotInfo si, int bufferSize) throws IOException {
+        abortFileInstall();
+        File dataFile = new File(snapshotDir, newBaseName(nextId++) + DATA_SUFFIX);
+        HashSet<StandardOpenOption> options = new HashSet<>();
+        options.add(StandardOpenOption.CREATE_NEW);
+        options.add(StandardOpenOption.WRITE);
+        AsynchronousFileChannel channel = AsynchronousFileChannel.open(dataFile.toPath(), options,
+                groupConfig.getFiberGroup().getExecutor());
+        log.info("begin receive snapshot file: {}", dataFile.getPath());
+        this.installDataFile = new DtFile(dataFile, channel, groupConfig.getFiberGroup());
+        this.installInfo = si;
+        this.installBufferSize = bufferSize;
+    }
+
+    private void abortFileInstall() {
+        if (installDataFile != null) {
+            log.warn("abort unfinished snapshot file: {}", installDataFile.getFile().getPath());
+            DtUtil.close(installDataFile.getChannel());
+            deleteInIoExecutor(installDataFile.getFile());
+            installDataFile = null;
+            installInfo = null;
+        }
+    }
+
+    public FiberFuture<Void> writeFileInstallData(long offset, ByteBuffer buf) {
+        if (installDataFile == null) {
+            return FiberFuture.failedFuture(groupConfig.getFiberGroup(),
+                    new RaftException("install snapshot file not started"));
+        }
+        if (buf == null || !buf.hasRemaining()) {
+            return FiberFuture.completedFuture(groupConfig.getFiberGroup(), null);
+        }
+        AsyncIoTask t = new AsyncIoTask(groupConfig.getFiberGroup(), installDataFile);
+        return t.write(buf, offset);
+    }
+
+    public FiberFrame<Void> finishFileInstall() {
+        return new FinishFileInstallFrame();
+    }
+
+    private class FinishFileInstallFrame extends FiberFrame<Void> {
+        private final long startTime = System.currentTimeMillis();
+        private DtFile dataFile;
+        private SnapshotInfo si;
+        private int bufferSize;
+        private File idxFile;
+        private StatusFile statusFile;
+        private boolean success;
+
+        @Override
+        protected FrameCallResult doFinally() {
+            if (dataFile != null) {
+                DtUtil.close(dataFile.getChannel());
+            }
+            DtUtil.close(statusFile);
+            if (!success && dataFile != null) {
+                deleteInIoExecutor(dataFile.getFile());
+                deleteInIoExecutor(idxFile);
+            }
+            return Fiber.frameReturn();
+        }
+
+        @Override
+        public FrameCallResult execute(Void input) {
+            if (installDataFile == null) {
+                throw new RaftException("install snapshot file not started");
+            }
+            this.dataFile = installDataFile;
+            this.si = installInfo;
+            this.bufferSize = installBufferSize;
+            installDataFile = null;
+            installInfo = null;
+            ForceFrame ff = new ForceFrame(dataFile.getChannel(), ioExecutor, true);
+            return Fiber.call(ff, this::writeIdxFile);
+        }
+
+        private FrameCallResult writeIdxFile(Void v) {
+            idxFile = new File(snapshotDir, FileUtil.baseName(dataFile.getFile()) + IDX_SUFFIX);
+            statusFile = new StatusFile(idxFile, groupConfig);
+            return Fiber.call(statusFile.init(), this::saveIdxFile);
+        }
+
+        private FrameCallResult saveIdxFile(Void v) {
+            fillIdxProps(statusFile.getProperties(), si, bufferSize, startTime);
+            return statusFile.update(true).await(this::recover);
+        }
+
+        private FrameCallResult recover(Void v) throws Exception {
+            success = true;
+            log.info("snapshot file received: {}", dataFile.getFile().getPath());
+            snapshotFiles.addLast(new Pair<>(idxFile, dataFile.getFile()));
+            lastSavedInfo = si;
+            lastSavedBufferSize = bufferSize;
+            FileSnapshot s = new FileSnapshot(groupConfig, si, dataFile.getFile(), bufferSize);
+            return Fiber.call(new RecoverFiberFrame(groupConfig, stateMachine, s), this::justReturn);
+        }
+    }
+
     @Override
     public FiberFuture<Long> saveSnapshot() {
         FiberFuture<Long> f = groupConfig.getFiberGroup().newFuture("saveSnapshot-" + groupConfig.getGroupId());
@@ -330,8 +478,7 @@ public class DefaultSnapshotManager implements SnapshotManager {
             log.info("begin save snapshot {}. groupId={}, lastIndex={}, lastTerm={}", id,
                     groupConfig.getGroupId(), snapshotInfo.getLastIncludedIndex(), snapshotInfo.getLastIncludedTerm());
 
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss");
-            String baseName = sdf.format(new Date()) + "_" + id;
+            String baseName = newBaseName(id);
             File dataFile = new File(snapshotDir, baseName + DATA_SUFFIX);
             this.newIdxFile = new File(snapshotDir, baseName + IDX_SUFFIX);
 
@@ -406,22 +553,7 @@ public class DefaultSnapshotManager implements SnapshotManager {
         }
 
         private FrameCallResult saveIdxFile(Void unused) {
-            SnapshotInfo si = readSnapshot.getSnapshotInfo();
-            Map<String, String> p = statusFile.getProperties();
-            p.put(KEY_LAST_INDEX, String.valueOf(si.getLastIncludedIndex()));
-            p.put(KEY_LAST_TERM, String.valueOf(si.getLastIncludedTerm()));
-            p.put(KEY_MEMBERS, RaftUtil.setToStr(si.getMembers()));
-            p.put(KEY_OBSERVERS, RaftUtil.setToStr(si.getObservers()));
-            p.put(KEY_PREPARED_MEMBERS, RaftUtil.setToStr(si.getPreparedMembers()));
-            p.put(KEY_PREPARED_OBSERVERS, RaftUtil.setToStr(si.getPreparedObservers()));
-            p.put(KEY_LAST_CONFIG_CHANGE_INDEX, String.valueOf(si.getLastConfigChangeIndex()));
-            p.put(KEY_BUFFER_SIZE, String.valueOf(bufferSize));
-            p.put(KEY_NEXT_ID, String.valueOf(nextId));
-
-            // just for human reading
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,SSS");
-            statusFile.getProperties().put("saveStartTime", sdf.format(new Date(startTime)));
-            statusFile.getProperties().put("saveEndTime", sdf.format(new Date()));
+            fillIdxProps(statusFile.getProperties(), readSnapshot.getSnapshotInfo(), bufferSize, startTime);
 
             return statusFile.update(true).await(this::finish2);
         }
@@ -430,6 +562,8 @@ public class DefaultSnapshotManager implements SnapshotManager {
             success = true;
             log.info("snapshot status file write success: {}", newIdxFile.getPath());
             snapshotFiles.addLast(new Pair<>(newIdxFile, newDataFile.getFile()));
+            lastSavedInfo = readSnapshot.getSnapshotInfo();
+            lastSavedBufferSize = bufferSize;
             return Fiber.frameReturn();
         }
 
@@ -23,6 +23,7 @@ import com.github.dtprj.dongting.fiber.FiberCondition;
 import com.github.dtprj.dongting.fiber.FiberFrame;
 import com.github.dtprj.dongting.fiber.FiberFuture;
 import com.github.dtprj.dongting.fiber.FiberGroup;
+import com.github.dtprj.dongting.fiber.FrameCall;
 import com.github.dtprj.dongting.fiber.FrameCallResult;
 import com.github.dtprj.dongting.log.DtLog;
 import com.github.dtprj.dongting.log.DtLogs;
@@ -203,6 +204,14 @@ public class ChainWriter {
     }
 
     private class ForceLoopFrame extends FiberFrame<Void> {
+
+        // force loop runs in a single fiber, reuse the frames to avoid allocation per force
+        private ForceFrame forceFrame;
+        private RetryFrame<Void> retryFrame;
+        private final FrameCall<Void> afterForceCall = this::afterForce;
+        private WriteTask currentTask;
+        private long perfStartTime;
+
         @Override
         protected FrameCallResult handle(Throwable ex) {
             error = true;
@@ -248,16 +257,22 @@ public class ChainWriter {
                     log.warn("file {} should delete or deleted, ignore force", logFile.getFile());
                     return Fiber.resume(null, this);
                 }
-                ForceFrame ff = new ForceFrame(task.getDtFile().getChannel(), config.getBlockIoExecutor(), false);
-                RetryFrame<Void> rf = new RetryFrame<>(ff, config.getIoRetryInterval(),
-                        true, ChainWriter.this::shouldCancelRetry);
-                WriteTask finalTask = task;
-                long perfStartTime = perfCallback.takeTime(forcePerfType);
-                return Fiber.call(rf, v -> afterForce(finalTask, perfStartTime));
+                if (forceFrame == null) {
+                    forceFrame = new ForceFrame(task.getDtFile().getChannel(), config.getBlockIoExecutor(), false);
+                    retryFrame = new RetryFrame<>(forceFrame, config.getIoRetryInterval(),
+                            true, ChainWriter.this::shouldCancelRetry);
+                } else {
+                    forceFrame.setChannel(task.getDtFile().getChannel());
+                }
+                this.currentTask = task;
+                this.perfStartTime = perfCallback.takeTime(forcePerfType);
+                return Fiber.call(retryFrame, afterForceCall);
             }
         }
 
-        private FrameCallResult afterForce(WriteTask task, long perfStartTime) {
+        private FrameCallResult afterForce(Void v) {
+            WriteTask task = currentTask;
+            currentTask = null;
             perfCallback.fireTime(forcePerfType, perfStartTime, task.perfForceItemCount, task.perfForceBytes);
             forceTaskCount--;
 
@@ -24,6 +24,7 @@ import com.github.dtprj.dongting.common.ByteArray;
 import com.github.dtprj.dongting.fiber.DispatcherThread;
 import com.github.dtprj.dongting.fiber.Fiber;
 import com.github.dtprj.dongting.fiber.FiberFrame;
+import com.github.dtprj.dongting.fiber.FrameCall;
 import com.github.dtprj.dongting.fiber.FrameCallResult;
 import com.github.dtprj.dongting.log.BugLog;
 import com.github.dtprj.dongting.raft.RaftException;
@@ -40,7 +41,6 @@ import com.github.dtprj.dongting.raft.sm.RaftCodecFactory;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.function.Supplier;
 import java.util.zip.CRC32C;
@@ -78,6 +78,9 @@ class FileLogLoader implements RaftLog.LogIterator {
     private long bufferEndPos;
     private LogFile logFile;
 
+    // the iterator is used in a loop, reuse the frame between next calls
+    private NextFrame nextFrame;
+
     FileLogLoader(IdxOps idxFiles, LogFileQueue logFiles, RaftGroupConfigEx groupConfig, RaftCodecFactory codecFactory,
                   Supplier<Boolean> cancelIndicator) {
         this(idxFiles, logFiles, groupConfig, codecFactory, cancelIndicator, 256 * 1024);
@@ -121,7 +124,15 @@ class FileLogLoader implements RaftLog.LogIterator {
         if (nextIndex != -1 && index != nextIndex) {
             throw new RaftException("index not match: " + index + "," + nextIndex);
         }
-        return new NextFrame(index, limit, bytesLimit);
+        NextFrame f = nextFrame;
+        if (f == null || f.running) {
+            f = new NextFrame();
+            if (nextFrame == null) {
+                nextFrame = f;
+            }
+        }
+        f.prepare(index, limit, bytesLimit);
+        return f;
     }
 
     private class NextFrame extends FiberFrame<List<LogItem>> {
@@ -129,22 +140,35 @@ class FileLogLoader implements RaftLog.LogIterator {
         private static final int RESULT_FINISH = 12;
         private static final int RESULT_NEED_LOAD = 13;
 
-        // status of single next call
-        private final long startIndex;
-        private final int limit;
-        private final int bytesLimit;
+        // status of single next call, reset in prepare()
+        private long startIndex;
+        private int limit;
+        private int bytesLimit;
 
         private int totalReadBytes;
         private int currentReadBytes;
-        private final List<LogItem> result = new LinkedList<>();
-        private int state = STATE_ITEM_HEADER;
+        private ArrayList<LogItem> result;
+        private int state;
         private LogItem item;
         private long itemStartPos;
 
-        NextFrame(long startIndex, int limit, int bytesLimit) {
+        private boolean running;
+
+        private final FrameCall<Long> resumeAfterFirstPosLoadCall = this::resumeAfterFirstPosLoad;
+        private final FrameCall<Void> resumeAfterLoadCall = this::resumeAfterLoad;
+
+        void prepare(long startIndex, int limit, int bytesLimit) {
             this.startIndex = startIndex;
             this.limit = limit;
             this.bytesLimit = bytesLimit;
+            this.totalReadBytes = 0;
+            this.currentReadBytes = 0;
+            // the result list is returned to caller, so it can't be reused
+            this.result = new ArrayList<>();
+            this.state = STATE_ITEM_HEADER;
+            this.item = null;
+            this.itemStartPos = 0;
+            this.running = true;
         }
 
         @Override
@@ -156,13 +180,16 @@ class FileLogLoader implements RaftLog.LogIterator {
         @Override
         protected FrameCallResult doFinally() {
             decodeContext.reset(decoder);
+            result = null;
+            item = null;
+            running = false;
             return Fiber.frameReturn();
         }
 
         @Override
         public FrameCallResult execute(Void input) {
             if (nextIndex == -1) {
-                return Fiber.call(idxFiles.loadLogPos(startIndex), this::resumeAfterFirstPosLoad);
+                return Fiber.call(idxFiles.loadLogPos(startIndex), resumeAfterFirstPosLoadCall);
             } else {
                 if (readBuffer.hasRemaining()) {
                     return parseContent();
@@ -198,7 +225,7 @@ class FileLogLoader implements RaftLog.LogIterator {
                     throw new RaftException("error state:" + state);
                 }
                 if (r == RESULT_FINISH) {
-                    setResult(new ArrayList<>(result));
+                    setResult(result);
                     return Fiber.frameReturn();
                 } else if (r == RESULT_NEED_LOAD) {
                     return loadLogFromStore();
@@ -228,7 +255,7 @@ class FileLogLoader implements RaftLog.LogIterator {
             bufferStartPos = pos - buf.position();
             bufferEndPos = pos + buf.remaining();
             AsyncIoTask t = new AsyncIoTask(groupConfig.getFiberGroup(), logFile);
-            return t.read(buf, fileStartPos).await(this::resumeAfterLoad);
+            return t.read(buf, fileStartPos).await(resumeAfterLoadCall);
         }
 
         private FrameCallResult resumeAfterLoad(Void v) {
@@ -18,6 +18,7 @@ package com.github.dtprj.dongting.raft.store;
 import com.github.dtprj.dongting.fiber.Fiber;
 import com.github.dtprj.dongting.fiber.FiberFrame;
 import com.github.dtprj.dongting.fiber.FiberFuture;
+import com.github.dtprj.dongting.fiber.FrameCall;
 import com.github.dtprj.dongting.fiber.FrameCallResult;
 import com.github.dtprj.dongting.log.DtLog;
 import com.github.dtprj.dongting.log.DtLogs;
@@ -32,29 +33,67 @@ public class ForceFrame extends FiberFrame<Void> {
 
     private static final DtLog log = DtLogs.getLogger(ForceFrame.class);
 
-    private final AsynchronousFileChannel channel;
+    private AsynchronousFileChannel channel;
     private final Executor ioExecutor;
     private final boolean meta;
 
+    // the frame can be reused, so cache the io task (which holds the future), see prepareTask()
+    private ForceTask task;
+    private final FrameCall<Void> afterForceCall = this::afterForce;
+
     public ForceFrame(AsynchronousFileChannel channel, Executor ioExecutor, boolean meta) {
         this.channel = channel;
         this.ioExecutor = ioExecutor;
         this.meta = meta;
     }
 
+    /**
+     * change the channel to force, should call before the frame is called again.
+     */
+    public void setChannel(AsynchronousFileChannel channel) {
+        this.channel = channel;
+    }
+
     @Override
     public final FrameCallResult execute(Void input) throws Throwable {
-        FiberFuture<Void> f = getFiberGroup().newFuture("forceFile");
-        ioExecutor.execute(() -> {
+        ForceTask t = prepareTask();
+        t.channel = channel;
+        ioExecutor.execute(t);
+        return t.future.await(afterForceCall);
+    }
+
+    private ForceTask prepareTask() {
+        ForceTask t = task;
+        if (t != null && t.future.isDone()) {
+            // the io thread not access the task after the future completed
+            t.future.reset();
+        } else {
+            // the first call, or the last force is not finished (interrupted), can't reuse the task and future
+            t = new ForceTask(getFiberGroup().newFuture("forceFile"));
+            task = t;
+        }
+        return t;
+    }
+
+    private class ForceTask implements Runnable {
+        private final FiberFuture<Void> future;
+        private AsynchronousFileChannel channel;
+
+        ForceTask(FiberFuture<Void> future) {
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            AsynchronousFileChannel c = channel;
             try {
-                channel.force(meta);
-                f.fireComplete(null);
+                c.force(meta);
+                future.fireComplete(null);
             } catch (Throwable e) {
-                log.error("force file failed: {}", channel);
-                f.fireCompleteExceptionally(e);
+                log.error("force file failed: {}", c);
+                future.fireCompleteExceptionally(e);
             }
-        });
-        return f.await(this::afterForce);
+        }
     }
 
     protected FrameCallResult afterForce(Void v) {
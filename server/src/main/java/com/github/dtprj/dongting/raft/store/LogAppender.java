@@ -24,6 +24,7 @@ import com.github.dtprj.dongting.fiber.DispatcherThread;
 import com.github.dtprj.dongting.fiber.Fiber;
 import com.github.dtprj.dongting.fiber.FiberFrame;
 import com.github.dtprj.dongting.fiber.FiberFuture;
+import com.github.dtprj.dongting.fiber.FrameCall;
 import com.github.dtprj.dongting.fiber.FrameCallResult;
 import com.github.dtprj.dongting.log.BugLog;
 import com.github.dtprj.dongting.log.DtLog;
@@ -91,6 +92,13 @@ class LogAppender {
 
         private final List<LogItem> taskList;
 
+        // loop status, use fields and cached FrameCall instead of capturing lambda in each round
+        private int taskIndex;
+        private long perfStartTime;
+        private final FrameCall<Void> afterIdxReadyCall = this::afterIdxReady;
+        private final FrameCall<Void> afterWritePosReadyCall = this::afterWritePosReady;
+        private final FrameCall<Void> ensureWritePosReadyCall = this::ensureWritePosReady;
+
         WriteFiberFrame(List<LogItem> taskList) {
             this.taskList = taskList;
         }
@@ -115,25 +123,26 @@ class LogAppender {
                 return Fiber.frameReturn();
             }
             if (idxOps.needWaitFlush()) {
-                long start = perfCallback.takeTime(PerfConsts.RAFT_D_IDX_BLOCK);
-                return Fiber.call(idxOps.waitFlush(), v -> afterIdxReady(start));
+                perfStartTime = perfCallback.takeTime(PerfConsts.RAFT_D_IDX_BLOCK);
+                return Fiber.call(idxOps.waitFlush(), afterIdxReadyCall);
             }
-            return ensureWritePosReady(0);
+            taskIndex = 0;
+            return ensureWritePosReady(null);
         }
 
-        private FrameCallResult afterIdxReady(long perfStartTime) {
+        private FrameCallResult afterIdxReady(Void v) {
             perfCallback.fireTime(PerfConsts.RAFT_D_IDX_BLOCK, perfStartTime);
             return Fiber.resume(null, this);
         }
 
-        private FrameCallResult ensureWritePosReady(int taskIndex) {
+        private FrameCallResult ensureWritePosReady(Void v) {
             if (shouldReturn()) {
                 return Fiber.frameReturn();
             }
-            return Fiber.call(logFileQueue.ensureWritePosReady(nextPersistPos), v -> afterWritePosReady(taskIndex));
+            return Fiber.call(logFileQueue.ensureWritePosReady(nextPersistPos), afterWritePosReadyCall);
         }
 
-        private FrameCallResult afterWritePosReady(int taskIndex) {
+        private FrameCallResult afterWritePosReady(Void v) {
             if (shouldReturn()) {
                 return Fiber.frameReturn();
             }
@@ -211,8 +220,8 @@ class LogAppender {
                 return Fiber.frameReturn();
             } else {
                 // continue loop
-                int newTaskIndex = taskIndex + count;
-                return Fiber.resume(null, v -> ensureWritePosReady(newTaskIndex));
+                this.taskIndex = taskIndex + count;
+                return Fiber.resume(null, ensureWritePosReadyCall);
             }
         }
 
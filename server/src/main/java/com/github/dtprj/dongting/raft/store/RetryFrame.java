@@ -21,6 +21,7 @@ import com.github.dtprj.dongting.fiber.Fiber;
 import com.github.dtprj.dongting.fiber.FiberCancelException;
 import com.github.dtprj.dongting.fiber.FiberFrame;
 import com.github.dtprj.dongting.fiber.FiberInterruptException;
+import com.github.dtprj.dongting.fiber.FrameCall;
 import com.github.dtprj.dongting.fiber.FrameCallResult;
 import com.github.dtprj.dongting.fiber.HandlerFrame;
 import com.github.dtprj.dongting.log.DtLog;
@@ -35,15 +36,19 @@ public class RetryFrame<O> extends FiberFrame<O> {
 
     private static final DtLog log = DtLogs.getLogger(RetryFrame.class);
 
-    private final FiberFrame<O> subFrame;
+    private final HandlerFrame<O> handlerFrame;
     private final int[] retryIntervals;
     private final boolean retryForever;
     private final Supplier<Boolean> cancelRetry;
     private int retryCount;
     private Throwable lastSubFrameEx;
 
+    // the frame may be reused in loop, cache the FrameCall instead of creating them in each call
+    private final FrameCall<Pair<O, Throwable>> resumeCall = this::resume;
+    private final FrameCall<Void> retryCall = this::retry;
+
     public RetryFrame(FiberFrame<O> subFrame, int[] retryIntervals, boolean retryForever, Supplier<Boolean> cancelRetry) {
-        this.subFrame = subFrame;
+        this.handlerFrame = new HandlerFrame<>(subFrame);
         this.retryIntervals = retryIntervals;
         this.retryForever = retryForever;
         this.cancelRetry = cancelRetry;
@@ -51,7 +56,13 @@ public class RetryFrame<O> extends FiberFrame<O> {
 
     @Override
     public FrameCallResult execute(Void input) {
-        return Fiber.call(new HandlerFrame<>(subFrame), this::resume);
+        return Fiber.call(handlerFrame, resumeCall);
+    }
+
+    @Override
+    protected void onReuse() {
+        retryCount = 0;
+        lastSubFrameEx = null;
     }
 
     private FrameCallResult resume(Pair<O, Throwable> result) throws Throwable {
@@ -75,7 +86,7 @@ public class RetryFrame<O> extends FiberFrame<O> {
             if (sleepTime > 0) {
                 log.error("io error, {}th retry scheduled after {} ms", retryCount + 1, sleepTime, subFrameEx);
                 this.lastSubFrameEx = subFrameEx;
-                return Fiber.sleepUntilShouldStop(sleepTime, this::retry);
+                return Fiber.sleepUntilShouldStop(sleepTime, retryCall);
             } else {
                 log.error("io error, retryCount={}", retryCount, subFrameEx);
                 throw subFrameEx;
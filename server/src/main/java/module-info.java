@@ -2,6 +2,7 @@ module dongting.server {
     requires transitive dongting.client;
     requires jdk.jfr;
     requires java.sql;
+    requires java.management;
 
     exports com.github.dtprj.dongting.fiber;
     exports com.github.dtprj.dongting.raft.server;
@@ -305,4 +305,36 @@ public class DtKVTest extends BaseFiberTest {
             }
         });
     }
+
+    private KvResult exec(DtKV dtkv, int bizType, int index, String key, String value) {
+        RaftInput i = new RaftInput(bizType, new ByteArray(key.getBytes()),
+                value == null ? null : new ByteArray(value.getBytes()), new DtTime(1, TimeUnit.SECONDS), false);
+        FiberFuture<Object> f = dtkv.exec(index, i);
+        assertTrue(f.isDone());
+        return (KvResult) f.getResult();
+    }
+
+    @Test
+    void testSplitSnapshot() throws Exception {
+        doInFiber(() -> {
+            mkdir(ver++, "d1");
+            put(ver++, "d1.k1", "d1.k1_v");
+            mkdir(ver++, "d2");
+            put(ver++, "d2.k1", "d2.k1_v");
+            assertEquals(KvCodes.CODE_SUCCESS, exec(kv, DtKV.BIZ_TYPE_SPLIT_FENCE, ver++, "d1", "2").getBizCode());
+            assertEquals(KvCodes.CODE_SUCCESS, exec(kv, DtKV.BIZ_TYPE_SPLIT_COMMIT, ver++, "d1", null).getBizCode());
+            assertEquals(KvCodes.CODE_SUCCESS, exec(kv, DtKV.BIZ_TYPE_SPLIT_FENCE, ver++, "d2", "3").getBizCode());
+            KvSnapshot s = takeSnapshot();
+            DtKV newKv = copyTo(s);
+            s.close();
+
+            assertEquals(KvCodes.CODE_MOVED, get(newKv, "d1.k1").getBizCode());
+            assertEquals(2, newKv.findSplitFence(new ByteArray("d1.k1".getBytes())).targetGroupId);
+            assertEquals("d2.k1_v", getStr(newKv, "d2.k1"));
+            assertEquals(KvCodes.CODE_SPLITTING, exec(newKv, DtKV.BIZ_TYPE_PUT, ver++, "d2.k1", "x").getBizCode());
+            assertEquals(KvCodes.CODE_SUCCESS, exec(newKv, DtKV.BIZ_TYPE_SPLIT_ABORT, ver++, "d2", null).getBizCode());
+            assertEquals(KvCodes.CODE_SUCCESS_OVERWRITE, exec(newKv, DtKV.BIZ_TYPE_PUT, ver++, "d2.k1", "x").getBizCode());
+            newKv.stop(new DtTime(1, TimeUnit.SECONDS));
+        });
+    }
 }
@@ -25,6 +25,7 @@ import com.github.dtprj.dongting.raft.test.TestUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.HashSet;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -186,6 +187,30 @@ class KvImplTest {
         assertEquals(11, list.getRight().size());
     }
 
+    @Test
+    void testListPage() {
+        for (int i = 0; i < 25; i++) {
+            kv.put(i + 1, ba("key" + i), ("value" + i).getBytes());
+        }
+        kv.remove(26, ba("key3"));
+        HashSet<String> keys = new HashSet<>();
+        int offset = 0;
+        while (true) {
+            Pair<Integer, List<KvResult>> list = kv.list(ba(""), offset, 10);
+            assertEquals(KvCodes.CODE_SUCCESS, list.getLeft());
+            for (KvResult r : list.getRight()) {
+                keys.add(r.getKeyInDir().toString());
+            }
+            if (list.getRight().size() < 10) {
+                break;
+            }
+            offset += list.getRight().size();
+        }
+        assertEquals(24, keys.size());
+        assertFalse(keys.contains("key3"));
+        assertEquals(0, kv.list(ba(""), 30, 10).getRight().size());
+    }
+
     @Test
     void testListInDir() {
         kv.mkdir(1, ba("parent"));
@@ -377,5 +402,51 @@ class KvImplTest {
         assertNodeCount(2, "key1");
     }
 
+    @Test
+    void testSplit() {
+        kv.mkdir(ver++, ba("d1"));
+        kv.mkdir(ver++, ba("d1.dd1"));
+        kv.put(ver++, ba("d1.dd1.k1"), "a".getBytes());
+        kv.put(ver++, ba("d1.k1"), "b".getBytes());
+        kv.put(ver++, ba("k1"), "c".getBytes());
+
+        assertEquals(KvCodes.CODE_PARENT_NOT_DIR, kv.splitFence(ver++, ba("k1"), 2).getBizCode());
+        assertEquals(KvCodes.CODE_NOT_FOUND, kv.splitFence(ver++, ba("d2"), 2).getBizCode());
+        assertEquals(KvCodes.CODE_SUCCESS, kv.splitFence(ver++, ba("d1"), 2).getBizCode());
+        // retry
+        assertEquals(KvCodes.CODE_SUCCESS, kv.splitFence(ver++, ba("d1"), 2).getBizCode());
+        assertEquals(KvCodes.CODE_SPLITTING, kv.splitFence(ver++, ba("d1.dd1"), 3).getBizCode());
+
+        // writes fenced, reads allowed
+        assertEquals(KvCodes.CODE_SPLITTING, kv.put(ver++, ba("d1.k1"), "x".getBytes()).getBizCode());
+        assertEquals(KvCodes.CODE_SPLITTING, kv.remove(ver++, ba("d1.dd1.k1")).getBizCode());
+        assertEquals(KvCodes.CODE_SPLITTING, kv.mkdir(ver++, ba("d1.dd2")).getBizCode());
+        assertArrayEquals("b".getBytes(), kv.get(ba("d1.k1")).getNode().getData());
+        assertEquals(2, kv.list(ba("d1")).getRight().size());
+        assertEquals(KvCodes.CODE_SUCCESS_OVERWRITE, kv.put(ver++, ba("k1"), "c2".getBytes()).getBizCode());
+
+        assertEquals(KvCodes.CODE_SUCCESS, kv.splitAbort(ba("d1")).getBizCode());
+        assertEquals(KvCodes.CODE_NOT_FOUND, kv.splitAbort(ba("d1")).getBizCode());
+        assertEquals(KvCodes.CODE_SUCCESS_OVERWRITE, kv.put(ver++, ba("d1.k1"), "b2".getBytes()).getBizCode());
+
+        assertEquals(KvCodes.CODE_SUCCESS, kv.splitFence(ver++, ba("d1"), 2).getBizCode());
+        takeSnapshot();
+        assertEquals(KvCodes.CODE_SUCCESS, kv.splitCommit(ver++, ba("d1")).getBizCode());
+        assertEquals(KvCodes.CODE_SUCCESS, kv.splitCommit(ver++, ba("d1")).getBizCode());
+        assertEquals(KvCodes.CODE_MOVED, kv.splitAbort(ba("d1")).getBizCode());
+
+        assertEquals(KvCodes.CODE_MOVED, kv.get(ba("d1")).getBizCode());
+        assertEquals(KvCodes.CODE_MOVED, kv.get(ba("d1.dd1.k1")).getBizCode());
+        assertEquals(KvCodes.CODE_MOVED, kv.list(ba("d1.dd1")).getLeft());
+        assertEquals(KvCodes.CODE_MOVED, kv.put(ver++, ba("d1.k2"), "x".getBytes()).getBizCode());
+        assertEquals(KvCodes.CODE_MOVED, kv.mkdir(ver++, ba("d1")).getBizCode());
+        assertEquals(2, kv.findFence(ba("d1.dd1.k1")).targetGroupId);
+        assertNull(kv.findFence(ba("d10")));
+        assertNull(kv.findFence(ba("k1")));
+
+        // the data of moved dir is removed
+        assertEquals(1, kv.list(ba("")).getRight().size());
+        assertEquals(KvCodes.CODE_SUCCESS, kv.get(ba("k1")).getBizCode());
+        assertEquals(KvCodes.CODE_SUCCESS, kv.mkdir(ver++, ba("d10")).getBizCode());
+    }
 }
-
@@ -60,8 +60,12 @@ public class KvReqTest {
             keys.add(("test_key" + i).getBytes());
             values.add(new StrEncoder("test_value" + i));
         }
-        return new KvReq(1, "test_key".getBytes(), new StrEncoder("test_value"),
+        KvReq req = new KvReq(1, "test_key".getBytes(), new StrEncoder("test_value"),
                 keys, values, new StrEncoder("test_expect_value"));
+        req.setBulk(true);
+        req.setListOffset(2);
+        req.setListLimit(3);
+        return req;
     }
 
     @Test
@@ -99,6 +103,9 @@ public class KvReqTest {
 
     private void compare1(KvReq expect, DtKv.KvReq req) {
         Assertions.assertEquals(expect.groupId, req.getGroupId());
+        Assertions.assertEquals(expect.isBulk(), req.getBulk());
+        Assertions.assertEquals(expect.getListOffset(), req.getListOffset());
+        Assertions.assertEquals(expect.getListLimit(), req.getListLimit());
         Assertions.assertEquals(new String(expect.getKey()), req.getKey());
         Assertions.assertEquals(((StrEncoder) expect.getValue()).getStr(), req.getValue().toStringUtf8());
         Assertions.assertEquals(((StrEncoder) expect.getExpectValue()).getStr(), req.getExpectValue().toStringUtf8());
@@ -111,6 +118,9 @@ public class KvReqTest {
 
     private void compare2(KvReq expect, KvReq r) {
         Assertions.assertEquals(expect.groupId, r.groupId);
+        Assertions.assertEquals(expect.isBulk(), r.isBulk());
+        Assertions.assertEquals(expect.getListOffset(), r.getListOffset());
+        Assertions.assertEquals(expect.getListLimit(), r.getListLimit());
         Assertions.assertArrayEquals(expect.getKey(), r.getKey());
         Assertions.assertArrayEquals(((StrEncoder) expect.getValue()).getStr().getBytes(), r.getValue().getData());
         Assertions.assertArrayEquals(((StrEncoder) expect.getExpectValue()).getStr().getBytes(), r.getExpectValue().getData());
@@ -0,0 +1,97 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.fiber;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author huangli
+ */
+public class BlockingExecutorTest extends AbstractFiberTest {
+
+    private final ExecutorService es = BlockingExecutor.newExecutorService("blocking-test-", 4);
+
+    @AfterEach
+    public void shutdownExecutor() {
+        es.shutdown();
+    }
+
+    @Test
+    public void testOrdered() throws Exception {
+        BlockingExecutor be = new BlockingExecutor(fiberGroup, es, true);
+        int count = 1000;
+        ArrayList<Integer> execOrder = new ArrayList<>();
+        doInFiber(new FiberFrame<>() {
+            private int i;
+            private FiberFuture<Integer> last;
+
+            @Override
+            public FrameCallResult execute(Void input) {
+                for (i = 0; i < count; i++) {
+                    int x = i;
+                    last = be.submit("f" + x, () -> {
+                        // the lane runs one task at a time, no need to sync
+                        execOrder.add(x);
+                        return x;
+                    });
+                }
+                return last.await(this::resume);
+            }
+
+            private FrameCallResult resume(Integer r) {
+                assertSame(dispatcher.thread, Thread.currentThread());
+                assertEquals(count - 1, r);
+                return Fiber.frameReturn();
+            }
+        });
+        assertEquals(count, execOrder.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, execOrder.get(i));
+        }
+    }
+
+    @Test
+    public void testEx() throws Exception {
+        BlockingExecutor be = new BlockingExecutor(fiberGroup, es, false);
+        doInFiber(new FiberFrame<>() {
+            @Override
+            public FrameCallResult execute(Void input) {
+                FiberFuture<Void> f = be.submit("ex", () -> {
+                    throw new ArithmeticException("mock error");
+                });
+                return f.await(this::resume);
+            }
+
+            private FrameCallResult resume(Void v) {
+                throw new AssertionError("should not reach here");
+            }
+
+            @Override
+            protected FrameCallResult handle(Throwable ex) {
+                assertTrue(ex instanceof ArithmeticException);
+                return Fiber.frameReturn();
+            }
+        });
+    }
+}
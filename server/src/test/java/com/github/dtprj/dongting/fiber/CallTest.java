@@ -91,4 +91,51 @@ public class CallTest extends AbstractFiberTest {
         assertTrue(f2Called.get());
         assertEquals(100, f2Result.get());
     }
+
+    @Test
+    public void testReuseFrame() {
+        AtomicInteger reuseCount = new AtomicInteger();
+        AtomicInteger sum = new AtomicInteger();
+        FiberFrame<Integer> sub = new FiberFrame<>() {
+            private int count;
+
+            @Override
+            public FrameCallResult execute(Void input) {
+                count++;
+                setResult(count);
+                return Fiber.frameReturn();
+            }
+
+            @Override
+            protected void onReuse() {
+                reuseCount.incrementAndGet();
+                count = 0;
+            }
+        };
+        AtomicInteger finishCount = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            // the second fiber reuse the frame finished by the first fiber
+            fiberGroup.fireFiber("f" + i, new FiberFrame<>() {
+                private int loop;
+
+                @Override
+                public FrameCallResult execute(Void input) {
+                    if (loop++ == 3) {
+                        finishCount.incrementAndGet();
+                        return Fiber.frameReturn();
+                    }
+                    return Fiber.call(sub, this::resume);
+                }
+
+                private FrameCallResult resume(Integer r) {
+                    sum.addAndGet(r);
+                    return Fiber.resume(null, this);
+                }
+            });
+            int expect = i + 1;
+            TestUtil.waitUtil(() -> finishCount.get() == expect);
+        }
+        assertEquals(6, sum.get());
+        assertEquals(5, reuseCount.get());
+    }
 }
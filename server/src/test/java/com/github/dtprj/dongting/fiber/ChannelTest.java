@@ -142,4 +142,51 @@ public class ChannelTest extends AbstractFiberTest {
         Assertions.assertTrue(latch2.await(2, TimeUnit.SECONDS));
         Assertions.assertTrue(System.nanoTime() - t < Duration.ofMillis(Tick.tick(10)).toNanos());
     }
+
+    @Test
+    public void testCrossThreadOffer() throws Exception {
+        // small ring, so some data fall back to the normal way
+        FiberChannel<int[]> channel = fiberGroup.newCrossThreadChannel(8);
+        int threads = 4;
+        int count = 5000;
+        int[] next = new int[threads];
+        AtomicReference<String> error = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(threads * count);
+        fiberGroup.fireFiber("consumer", new FiberFrame<>() {
+            @Override
+            public FrameCallResult execute(Void input) {
+                return channel.take(true, this::resume);
+            }
+
+            private FrameCallResult resume(int[] data) {
+                if (data == null && fiberGroup.isShouldStop()) {
+                    return Fiber.frameReturn();
+                }
+                if (data != null) {
+                    // data of same producer should be in order
+                    if (next[data[0]] != data[1]) {
+                        error.compareAndSet(null, "thread " + data[0] + " expect " + next[data[0]] + ", but " + data[1]);
+                    }
+                    next[data[0]] = data[1] + 1;
+                    latch.countDown();
+                }
+                return Fiber.resume(null, this);
+            }
+        });
+        Thread[] ts = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            int threadIndex = i;
+            ts[i] = new Thread(() -> {
+                for (int j = 0; j < count; j++) {
+                    Assertions.assertTrue(channel.fireOffer(new int[]{threadIndex, j}));
+                }
+            });
+            ts[i].start();
+        }
+        for (Thread t : ts) {
+            t.join();
+        }
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assertions.assertNull(error.get());
+    }
 }
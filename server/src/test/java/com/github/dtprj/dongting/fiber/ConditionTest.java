@@ -253,7 +253,7 @@ public class ConditionTest extends AbstractFiberTest {
                 assertSame(c3, fiber.source);
             }
             assertNull(fiber.sourceConditions);
-            assertFalse(dispatcher.scheduleQueue.contains(fiber));
+            assertFalse(dispatcher.timingWheel.contains(fiber));
             c3.signal();
         });
     }
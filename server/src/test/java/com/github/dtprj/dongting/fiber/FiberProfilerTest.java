@@ -0,0 +1,170 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.fiber;
+
+import com.github.dtprj.dongting.buf.DefaultPoolFactory;
+import com.github.dtprj.dongting.common.PerfCallback;
+import com.github.dtprj.dongting.common.PerfConsts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author huangli
+ */
+public class FiberProfilerTest {
+
+    private Dispatcher dispatcher;
+    private FiberGroup fiberGroup;
+    private final AtomicInteger execEvents = new AtomicInteger();
+    private final AtomicInteger blockEvents = new AtomicInteger();
+
+    @BeforeEach
+    public void setup() throws Exception {
+        PerfCallback c = new PerfCallback(true) {
+            @Override
+            public boolean accept(int perfType) {
+                return perfType == PerfConsts.FIBER_D_EXEC || perfType == PerfConsts.FIBER_D_BLOCK;
+            }
+
+            @Override
+            public void onEvent(int perfType, long costTime, int count, long sum) {
+                if (perfType == PerfConsts.FIBER_D_EXEC) {
+                    execEvents.incrementAndGet();
+                } else {
+                    blockEvents.incrementAndGet();
+                }
+            }
+        };
+        dispatcher = new Dispatcher("test", new DefaultPoolFactory(), c);
+        dispatcher.start();
+        fiberGroup = new FiberGroup("pg", dispatcher);
+        dispatcher.startGroup(fiberGroup).get();
+    }
+
+    @AfterEach
+    public void shutdown() throws Exception {
+        AbstractFiberTest.shutdownDispatcher(dispatcher, fiberGroup);
+    }
+
+    private static class SleepFrame extends FiberFrame<Void> {
+        @Override
+        public FrameCallResult execute(Void input) {
+            return Fiber.sleep(2, this::resume);
+        }
+
+        private FrameCallResult resume(Void v) {
+            return Fiber.frameReturn();
+        }
+    }
+
+    @Test
+    public void testDump() throws Exception {
+        assertNotNull(dispatcher.getProfiler());
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        FiberCondition c = fiberGroup.newCondition("testCond");
+        fiberGroup.fireFiber("waiter", new FiberFrame<>() {
+            @Override
+            public FrameCallResult execute(Void input) {
+                return c.await(this::afterAwait);
+            }
+
+            private FrameCallResult afterAwait(Void v) {
+                f.complete(null);
+                return Fiber.frameReturn();
+            }
+        });
+        fiberGroup.fireFiber("worker", new FiberFrame<>() {
+            @Override
+            public FrameCallResult execute(Void input) {
+                return Fiber.call(new SleepFrame(), this::afterSleep);
+            }
+
+            private FrameCallResult afterSleep(Void v) {
+                c.signal();
+                return Fiber.frameReturn();
+            }
+        });
+        f.get(5, TimeUnit.SECONDS);
+
+        CompletableFuture<String> dump = new CompletableFuture<>();
+        fiberGroup.getExecutor().execute(() -> dump.complete(dispatcher.getProfiler().dumpAndReset(100)));
+        String s = dump.get(5, TimeUnit.SECONDS);
+        assertTrue(s.contains("pg/worker"), s);
+        assertTrue(s.contains("pg/waiter"), s);
+        assertTrue(s.contains(SleepFrame.class.getName()), s);
+        assertTrue(s.contains("pg/condition:testCond"), s);
+        assertTrue(s.contains("sleep"), s);
+        assertTrue(execEvents.get() > 0);
+        assertTrue(blockEvents.get() > 0);
+    }
+
+    @Test
+    public void testJoinKey() throws Exception {
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        fiberGroup.fireFiber("joiner", new FiberFrame<>() {
+            @Override
+            public FrameCallResult execute(Void input) {
+                Fiber t = new Fiber("target", fiberGroup, new SleepFrame());
+                t.start();
+                return t.join(this::afterJoin);
+            }
+
+            private FrameCallResult afterJoin(Void v) {
+                f.complete(null);
+                return Fiber.frameReturn();
+            }
+        });
+        f.get(5, TimeUnit.SECONDS);
+
+        CompletableFuture<String> dump = new CompletableFuture<>();
+        fiberGroup.getExecutor().execute(() -> dump.complete(dispatcher.getProfiler().dumpAndReset(100)));
+        String s = dump.get(5, TimeUnit.SECONDS);
+        // the target fiber is both an executing fiber and a wait source, the keys should not be mixed
+        assertTrue(s.contains("pg/target"), s);
+        assertTrue(s.contains("pg/join:target"), s);
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals("install-#-#", FiberProfiler.normalize("install-1-1024"));
+        assertEquals("noRw-#.log", FiberProfiler.normalize("noRw-00000001.log"));
+        assertEquals("join-Fiber:worker", FiberProfiler.normalize("join-Fiber:worker@1b2c3d"));
+        assertEquals("applyFiber", FiberProfiler.normalize("applyFiber"));
+    }
+
+    @Test
+    public void testMaxKeys() {
+        HashMap<String, FiberProfiler.Stat> map = new HashMap<>();
+        for (int i = 0; i < FiberProfiler.MAX_KEYS + 10; i++) {
+            FiberProfiler.stat(map, "k" + Integer.toHexString(i)).add(1);
+        }
+        assertEquals(FiberProfiler.MAX_KEYS + 1, map.size());
+        assertEquals(10, map.get(FiberProfiler.OTHERS).count);
+        // existing key is still recorded by itself
+        FiberProfiler.stat(map, "k0").add(1);
+        assertEquals(2, map.get("k0").count);
+    }
+}
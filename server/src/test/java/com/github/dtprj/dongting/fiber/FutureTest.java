@@ -19,6 +19,7 @@ import com.github.dtprj.dongting.raft.test.TestUtil;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -563,4 +564,52 @@ public class FutureTest extends AbstractFiberTest {
         assertNull(futureResult.get());
         assertTrue(f.isCancelled());
     }
+
+    @Test
+    public void testReset() throws Exception {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        fiberGroup.fireFiber("f", new FiberFrame<>() {
+            private FiberFuture<Integer> f;
+
+            @Override
+            public FrameCallResult execute(Void input) {
+                f = fiberGroup.newFuture("reuse");
+                try {
+                    f.reset();
+                    result.complete("reset not done future should fail");
+                    return Fiber.frameReturn();
+                } catch (FiberException e) {
+                    // expected
+                }
+                f.complete(1);
+                return f.await(this::resume1);
+            }
+
+            private FrameCallResult resume1(Integer r) {
+                f.reset();
+                Assertions.assertFalse(f.isDone());
+                Assertions.assertNull(f.getResult());
+                fiberGroup.fireFiber("completer", new FiberFrame<>() {
+                    @Override
+                    public FrameCallResult execute(Void input) {
+                        f.complete(r + 1);
+                        return Fiber.frameReturn();
+                    }
+                });
+                return f.await(this::resume2);
+            }
+
+            private FrameCallResult resume2(Integer r) {
+                result.complete(r);
+                return Fiber.frameReturn();
+            }
+
+            @Override
+            protected FrameCallResult handle(Throwable ex) {
+                result.complete(ex);
+                return Fiber.frameReturn();
+            }
+        });
+        Assertions.assertEquals(2, result.get(5, TimeUnit.SECONDS));
+    }
 }
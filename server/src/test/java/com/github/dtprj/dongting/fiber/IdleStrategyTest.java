@@ -0,0 +1,99 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.fiber;
+
+import com.github.dtprj.dongting.buf.DefaultPoolFactory;
+import com.github.dtprj.dongting.common.NoopPerfCallback;
+import com.github.dtprj.dongting.raft.test.TestUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author huangli
+ */
+public class IdleStrategyTest {
+
+    private void testStrategy(IdleStrategy s) throws Exception {
+        Dispatcher dispatcher = new Dispatcher("idle-test", new DefaultPoolFactory(), NoopPerfCallback.INSTANCE, s);
+        FiberGroup group = new FiberGroup("idle-test-group", dispatcher);
+        dispatcher.start();
+        try {
+            dispatcher.startGroup(group).get();
+            AtomicInteger count = new AtomicInteger();
+            for (int i = 0; i < 100; i++) {
+                group.fireFiber("f" + i, new FiberFrame<>() {
+                    @Override
+                    public FrameCallResult execute(Void input) {
+                        count.incrementAndGet();
+                        return Fiber.frameReturn();
+                    }
+                });
+                if (i % 10 == 0) {
+                    // let the dispatcher become idle
+                    Thread.sleep(1);
+                }
+            }
+            TestUtil.waitUtil(() -> count.get() == 100);
+        } finally {
+            AbstractFiberTest.shutdownDispatcher(dispatcher, group);
+        }
+    }
+
+    @Test
+    public void testBlocking() throws Exception {
+        testStrategy(IdleStrategy.blocking());
+    }
+
+    @Test
+    public void testBusySpin() throws Exception {
+        testStrategy(IdleStrategy.busySpin());
+    }
+
+    @Test
+    public void testSpinYieldPark() throws Exception {
+        testStrategy(IdleStrategy.spinYieldPark(100, 2));
+    }
+
+    @Test
+    public void testAdaptive() throws Exception {
+        testStrategy(IdleStrategy.adaptive());
+    }
+
+    @Test
+    public void testAdaptiveSpins() throws Exception {
+        IdleStrategy.SpinYieldParkIdleStrategy s = (IdleStrategy.SpinYieldParkIdleStrategy) IdleStrategy.adaptive();
+        FiberQueue q = new FiberQueue();
+        ArrayList<FiberQueueTask> list = new ArrayList<>();
+        int spins = s.spins;
+        s.idle(q, 1000, list);
+        assertTrue(list.isEmpty());
+        assertEquals(spins / 2, s.spins);
+
+        q.offer(new FiberQueueTask(null) {
+            @Override
+            protected void run() {
+            }
+        });
+        s.idle(q, 1000, list);
+        assertEquals(1, list.size());
+        assertEquals(spins, s.spins);
+    }
+}
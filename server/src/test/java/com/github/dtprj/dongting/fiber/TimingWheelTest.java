@@ -0,0 +1,141 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.fiber;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author huangli
+ */
+public class TimingWheelTest {
+
+    private static final long MS = 1_000_000;
+    private static final long BASE = 123456789L;
+
+    private FiberGroup group;
+    private TimingWheel wheel;
+
+    @BeforeEach
+    public void setup() {
+        group = new FiberGroup("g", new Dispatcher("d"));
+        wheel = new TimingWheel(BASE);
+    }
+
+    private Fiber add(long expireNanos) {
+        Fiber f = new Fiber("f", group, new EmptyFiberFrame());
+        f.scheduleNanoTime = expireNanos;
+        wheel.add(f);
+        return f;
+    }
+
+    private ArrayList<Fiber> advance(long now) {
+        wheel.advance(now);
+        ArrayList<Fiber> list = new ArrayList<>();
+        Fiber f;
+        while ((f = wheel.pollExpired()) != null) {
+            list.add(f);
+        }
+        return list;
+    }
+
+    @Test
+    public void testSimple() {
+        Fiber f1 = add(BASE + 5 * MS + 100);
+        Fiber f2 = add(BASE + 5 * MS + 200);
+        Fiber f3 = add(BASE + 7 * MS);
+        assertEquals(3, wheel.size());
+        assertTrue(advance(BASE + 5 * MS).isEmpty());
+        assertEquals(100, wheel.nextWaitNanos(BASE + 5 * MS, 50 * MS));
+
+        ArrayList<Fiber> list = advance(BASE + 5 * MS + 100);
+        assertEquals(1, list.size());
+        assertSame(f1, list.get(0));
+        assertFalse(wheel.contains(f1));
+        assertTrue(wheel.contains(f2));
+
+        wheel.remove(f2);
+        assertFalse(wheel.contains(f2));
+        assertEquals(1, wheel.size());
+        assertEquals(2 * MS, wheel.nextWaitNanos(BASE + 5 * MS, 50 * MS));
+
+        list = advance(BASE + 8 * MS);
+        assertEquals(1, list.size());
+        assertSame(f3, list.get(0));
+        assertEquals(0, wheel.size());
+        assertEquals(50 * MS, wheel.nextWaitNanos(BASE + 8 * MS, 50 * MS));
+    }
+
+    @Test
+    public void testCascade() {
+        Fiber f1 = add(BASE + 300 * MS);
+        Fiber f2 = add(BASE + 20_000 * MS);
+        Fiber f3 = add(BASE + 2_000_000 * MS);
+        long now = BASE;
+        ArrayList<Fiber> expired = new ArrayList<>();
+        while (expired.size() < 3) {
+            now += 7 * MS;
+            ArrayList<Fiber> list = advance(now);
+            for (Fiber f : list) {
+                assertTrue(f.scheduleNanoTime <= now);
+                assertTrue(now - f.scheduleNanoTime < 7 * MS);
+            }
+            // nothing expired is left
+            assertTrue(wheel.nextWaitNanos(now, 50 * MS) > 0);
+            expired.addAll(list);
+        }
+        assertSame(f1, expired.get(0));
+        assertSame(f2, expired.get(1));
+        assertSame(f3, expired.get(2));
+        assertNull(wheel.pollExpired());
+    }
+
+    @Test
+    public void testRandom() {
+        Random r = new Random();
+        ArrayList<Fiber> all = new ArrayList<>();
+        long now = BASE;
+        for (int i = 0; i < 2000; i++) {
+            all.add(add(now + r.nextInt(100_000) * MS + r.nextInt(1_000_000)));
+        }
+        for (int i = 0; i < 200; i++) {
+            wheel.remove(all.remove(r.nextInt(all.size())));
+        }
+        int count = 0;
+        while (count < all.size()) {
+            now += r.nextInt(3000) * MS;
+            for (Fiber f : advance(now)) {
+                assertTrue(f.scheduleNanoTime <= now);
+                count++;
+            }
+            for (Fiber f : all) {
+                if (f.scheduleNanoTime <= now) {
+                    assertFalse(wheel.contains(f));
+                }
+            }
+        }
+        assertEquals(0, wheel.size());
+    }
+}
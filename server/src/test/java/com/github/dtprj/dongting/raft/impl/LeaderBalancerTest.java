@@ -0,0 +1,121 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.impl;
+
+import com.github.dtprj.dongting.raft.impl.LeaderBalancer.GroupLoad;
+import com.github.dtprj.dongting.raft.impl.LeaderBalancer.Move;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author huangli
+ */
+public class LeaderBalancerTest {
+
+    private static int[] others(int leader, int nodeCount) {
+        int[] r = new int[nodeCount - 1];
+        int i = 0;
+        for (int n = 1; n <= nodeCount; n++) {
+            if (n != leader) {
+                r[i++] = n;
+            }
+        }
+        return r;
+    }
+
+    // run balance rounds on all nodes until no more moves, return rounds
+    private static int simulate(List<GroupLoad> groups, int nodeCount, int maxMoves) {
+        for (int round = 1; round < 10000; round++) {
+            boolean moved = false;
+            for (int node = 1; node <= nodeCount; node++) {
+                List<Move> moves = LeaderBalancer.plan(node, groups, 1, maxMoves);
+                for (Move m : moves) {
+                    for (int i = 0; i < groups.size(); i++) {
+                        GroupLoad g = groups.get(i);
+                        if (g.groupId == m.groupId) {
+                            groups.set(i, new GroupLoad(g.groupId, m.targetNodeId, g.load,
+                                    others(m.targetNodeId, nodeCount)));
+                        }
+                    }
+                    moved = true;
+                }
+            }
+            if (!moved) {
+                return round;
+            }
+        }
+        throw new AssertionError("not converged");
+    }
+
+    private static double[] nodeLoads(List<GroupLoad> groups, int nodeCount) {
+        double[] loads = new double[nodeCount + 1];
+        for (GroupLoad g : groups) {
+            loads[g.leaderId] += g.load;
+        }
+        return loads;
+    }
+
+    @Test
+    public void testLeaderCount() {
+        ArrayList<GroupLoad> groups = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            groups.add(new GroupLoad(i, 1, 1, others(1, 3)));
+        }
+        simulate(groups, 3, 10);
+        double[] loads = nodeLoads(groups, 3);
+        for (int n = 1; n <= 3; n++) {
+            assertEquals(100, loads[n], 1);
+        }
+    }
+
+    @Test
+    public void testWeightedLoad() {
+        ArrayList<GroupLoad> groups = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            // some hot groups
+            double load = i % 10 == 0 ? 6 : 1;
+            groups.add(new GroupLoad(i, 1 + i % 2, load, others(1 + i % 2, 3)));
+        }
+        simulate(groups, 3, 5);
+        double[] loads = nodeLoads(groups, 3);
+        double max = Math.max(loads[1], Math.max(loads[2], loads[3]));
+        double min = Math.min(loads[1], Math.min(loads[2], loads[3]));
+        assertTrue(max - min <= 6, "max=" + max + ", min=" + min);
+    }
+
+    @Test
+    public void testOnlyMoveSelfAndCandidates() {
+        ArrayList<GroupLoad> groups = new ArrayList<>();
+        // node 3 is not ready, so it is not a candidate
+        for (int i = 0; i < 10; i++) {
+            groups.add(new GroupLoad(i, 1, 1, new int[]{2}));
+        }
+        List<Move> moves = LeaderBalancer.plan(2, groups, 1, 10);
+        assertEquals(0, moves.size());
+        moves = LeaderBalancer.plan(1, groups, 1, 3);
+        assertEquals(3, moves.size());
+        for (Move m : moves) {
+            assertEquals(2, m.targetNodeId);
+        }
+        moves = LeaderBalancer.plan(1, groups, 1, 100);
+        assertEquals(5, moves.size());
+    }
+}
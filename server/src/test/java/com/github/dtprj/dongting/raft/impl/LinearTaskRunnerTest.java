@@ -0,0 +1,112 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.impl;
+
+import com.github.dtprj.dongting.common.Timestamp;
+import com.github.dtprj.dongting.raft.server.LogItem;
+import com.github.dtprj.dongting.raft.server.RaftGroupConfigEx;
+import com.github.dtprj.dongting.raft.server.RaftInput;
+import com.github.dtprj.dongting.raft.server.RaftServerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author huangli
+ */
+public class LinearTaskRunnerTest {
+
+    private final Timestamp ts = new Timestamp();
+    private LinearTaskRunner runner;
+
+    @BeforeEach
+    public void setup() {
+        RaftGroupConfigEx groupConfig = new RaftGroupConfigEx(1, "1", "");
+        groupConfig.setPriorityClassWeights(new int[]{2, 1});
+        groupConfig.setTaskRoundQuantum(2);
+        GroupComponents gc = new GroupComponents();
+        gc.setServerConfig(new RaftServerConfig());
+        gc.setGroupConfig(groupConfig);
+        gc.setRaftStatus(new RaftStatusImpl(ts));
+        runner = new LinearTaskRunner(gc);
+    }
+
+    private RaftTask task(int priorityClass) {
+        RaftInput input = new RaftInput(0, null, null, null, false);
+        input.setPriorityClass(priorityClass);
+        return new RaftTask(ts, LogItem.TYPE_NORMAL, input, null);
+    }
+
+    private static int count(ArrayList<RaftTask> list, int priorityClass) {
+        int c = 0;
+        for (RaftTask t : list) {
+            if (t.getInput().getPriorityClass() == priorityClass) {
+                c++;
+            }
+        }
+        return c;
+    }
+
+    @Test
+    public void testSingleClass() {
+        ArrayList<RaftTask> list = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            list.add(task(RaftInput.PRIORITY_CLASS_BULK));
+        }
+        runner.schedule(list);
+        assertEquals(100, list.size());
+    }
+
+    @Test
+    public void testWeighted() {
+        ArrayList<RaftTask> list = new ArrayList<>();
+        RaftTask first = task(RaftInput.PRIORITY_CLASS_INTERACTIVE);
+        for (int i = 0; i < 10; i++) {
+            list.add(task(RaftInput.PRIORITY_CLASS_BULK));
+            list.add(i == 0 ? first : task(RaftInput.PRIORITY_CLASS_INTERACTIVE));
+        }
+
+        runner.schedule(list);
+        // interactive limit is 2 * 2, bulk limit is 1 * 2, interactive first
+        assertEquals(6, list.size());
+        assertEquals(first, list.get(0));
+        assertEquals(4, count(list, RaftInput.PRIORITY_CLASS_INTERACTIVE));
+        assertEquals(RaftInput.PRIORITY_CLASS_BULK, list.get(5).getInput().getPriorityClass());
+
+        list.clear();
+        runner.schedule(list);
+        assertEquals(4, count(list, RaftInput.PRIORITY_CLASS_INTERACTIVE));
+        assertEquals(2, count(list, RaftInput.PRIORITY_CLASS_BULK));
+
+        list.clear();
+        runner.schedule(list);
+        assertEquals(2, count(list, RaftInput.PRIORITY_CLASS_INTERACTIVE));
+        assertEquals(2, count(list, RaftInput.PRIORITY_CLASS_BULK));
+
+        // only bulk tasks left, append all of them
+        list.clear();
+        runner.schedule(list);
+        assertEquals(4, count(list, RaftInput.PRIORITY_CLASS_BULK));
+        assertEquals(4, list.size());
+
+        list.clear();
+        runner.schedule(list);
+        assertEquals(0, list.size());
+    }
+}
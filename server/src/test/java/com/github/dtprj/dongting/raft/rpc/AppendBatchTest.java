@@ -0,0 +1,233 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.rpc;
+
+import com.github.dtprj.dongting.codec.DecodeContext;
+import com.github.dtprj.dongting.codec.DecoderCallback;
+import com.github.dtprj.dongting.codec.Encodable;
+import com.github.dtprj.dongting.codec.EncodeContext;
+import com.github.dtprj.dongting.codec.PbParser;
+import com.github.dtprj.dongting.common.ByteArray;
+import com.github.dtprj.dongting.common.DtTime;
+import com.github.dtprj.dongting.net.CmdCodes;
+import com.github.dtprj.dongting.net.EmptyBodyRespPacket;
+import com.github.dtprj.dongting.net.ReadPacket;
+import com.github.dtprj.dongting.net.RespWriter;
+import com.github.dtprj.dongting.net.SimpleWritePacket;
+import com.github.dtprj.dongting.net.WritePacket;
+import com.github.dtprj.dongting.raft.server.LogItem;
+import com.github.dtprj.dongting.raft.sm.RaftCodecFactory;
+import com.github.dtprj.dongting.util.CodecTestUtil;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author huangli
+ */
+public class AppendBatchTest {
+
+    private final RaftCodecFactory raftCodecFactory = new RaftCodecFactory() {
+        @Override
+        public DecoderCallback<? extends Encodable> createBodyCallback(int bizType, DecodeContext context) {
+            return new ByteArray.Callback();
+        }
+
+        @Override
+        public DecoderCallback<? extends Encodable> createHeaderCallback(int bizType, DecodeContext context) {
+            return new ByteArray.Callback();
+        }
+    };
+
+    private AppendReqWritePacket createReq(int groupId, int logCount) {
+        AppendReqWritePacket f = new AppendReqWritePacket();
+        f.groupId = groupId;
+        f.term = 4;
+        f.leaderId = 2;
+        f.prevLogIndex = 100;
+        f.prevLogTerm = 3;
+        f.leaderCommit = 99;
+        ArrayList<LogItem> logs = new ArrayList<>();
+        f.logs = logs;
+        Random r = new Random();
+        for (int i = 0; i < logCount; i++) {
+            LogItem log = new LogItem();
+            log.setBizType(1);
+            log.setIndex(101 + i);
+            log.setTerm(4);
+            log.setType(LogItem.TYPE_NORMAL);
+            byte[] body = new byte[r.nextInt(50) + 1];
+            r.nextBytes(body);
+            log.setBody(new ByteArray(body));
+            logs.add(log);
+        }
+        return f;
+    }
+
+    @Test
+    public void testReqSmallBuffer() {
+        for (int loop = 0; loop < 50; loop++) {
+            ArrayList<AppendReqWritePacket> reqs = new ArrayList<>();
+            reqs.add(createReq(1, 2));
+            reqs.add(createReq(2, 0));
+            reqs.add(createReq(3, 3));
+            AppendBatchReqWritePacket f = new AppendBatchReqWritePacket(reqs);
+            EncodeContext context = new EncodeContext(null);
+            DecodeContext decodeContext = CodecTestUtil.decodeContext();
+            PbParser p = new PbParser();
+            p.prepareNext(decodeContext, new AppendBatchReq.Callback(g -> raftCodecFactory), f.actualBodySize());
+            Random r = new Random();
+            int actualBodySize = f.actualBodySize();
+            AppendBatchReq result = null;
+            for (int encodeBytes = 0; encodeBytes < actualBodySize; ) {
+                ByteBuffer buf = ByteBuffer.allocate(r.nextInt(30) + 1);
+                f.encodeBody(context, buf);
+                buf.flip();
+                encodeBytes += buf.remaining();
+                if (buf.remaining() > 0) {
+                    result = (AppendBatchReq) p.parse(buf);
+                }
+            }
+            assertNotNull(result);
+            assertEquals(reqs.size(), result.reqs.size());
+            for (int i = 0; i < reqs.size(); i++) {
+                AppendReqWritePacket expect = reqs.get(i);
+                AppendReq actual = result.reqs.get(i);
+                assertEquals(expect.groupId, actual.groupId);
+                assertEquals(expect.prevLogIndex, actual.prevLogIndex);
+                assertEquals(expect.logs.size(), actual.logs.size());
+                for (int j = 0; j < expect.logs.size(); j++) {
+                    assertEquals(expect.logs.get(j).getIndex(), actual.logs.get(j).getIndex());
+                    assertArrayEquals(((ByteArray) expect.logs.get(j).getBody()).getData(),
+                            ((ByteArray) actual.logs.get(j).getBody()).getData());
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testResp() {
+        AppendResp r1 = new AppendResp();
+        r1.term = 5;
+        r1.success = true;
+        SimpleWritePacket p1 = new SimpleWritePacket(r1);
+        p1.setRespCode(CmdCodes.SUCCESS);
+
+        EmptyBodyRespPacket p2 = new EmptyBodyRespPacket(CmdCodes.RAFT_GROUP_NOT_FOUND);
+        p2.setMsg("group not found");
+
+        AppendResp r3 = new AppendResp();
+        r3.term = 6;
+        r3.appendCode = AppendProcessor.APPEND_LOG_NOT_MATCH;
+        r3.suggestTerm = 3;
+        r3.suggestIndex = 1000;
+        SimpleWritePacket p3 = new SimpleWritePacket(r3);
+        p3.setRespCode(CmdCodes.SUCCESS);
+
+        AppendBatchResp resp = new AppendBatchResp(new WritePacket[]{p1, p2, p3});
+        ByteBuffer buf = ByteBuffer.allocate(resp.actualSize());
+        resp.encode(buf);
+        assertEquals(resp.actualSize(), buf.position());
+        buf.flip();
+
+        PbParser p = new PbParser();
+        p.prepareNext(CodecTestUtil.decodeContext(), new AppendBatchResp.Callback(), resp.actualSize());
+        List<ReadPacket<AppendResp>> list = (List<ReadPacket<AppendResp>>) p.parse(buf);
+        assertEquals(3, list.size());
+
+        assertEquals(CmdCodes.SUCCESS, list.get(0).getRespCode());
+        assertEquals(5, list.get(0).getBody().term);
+        assertTrue(list.get(0).getBody().success);
+
+        assertEquals(CmdCodes.RAFT_GROUP_NOT_FOUND, list.get(1).getRespCode());
+        assertEquals("group not found", list.get(1).getMsg());
+        assertNull(list.get(1).getBody());
+
+        AppendResp a3 = list.get(2).getBody();
+        assertEquals(6, a3.term);
+        assertFalse(a3.success);
+        assertEquals(AppendProcessor.APPEND_LOG_NOT_MATCH, a3.appendCode);
+        assertEquals(3, a3.suggestTerm);
+        assertEquals(1000, a3.suggestIndex);
+    }
+
+    @Test
+    public void testBatchDeadline() throws Exception {
+        CompletableFuture<WritePacket> written = new CompletableFuture<>();
+        RespWriter rw = new RespWriter() {
+            @Override
+            public void writeRespInBizThreads(ReadPacket<?> req, WritePacket resp, DtTime timeout) {
+                assertFalse(written.isDone());
+                written.complete(resp);
+            }
+        };
+        AppendBatchProcessor.BatchRespWriter w = new AppendBatchProcessor.BatchRespWriter(new ReadPacket<>(), rw,
+                new DtTime(50, TimeUnit.MILLISECONDS), 3);
+        AppendResp r = new AppendResp();
+        r.term = 5;
+        r.success = true;
+        SimpleWritePacket p = new SimpleWritePacket(r);
+        p.setRespCode(CmdCodes.SUCCESS);
+        w.finish(0, p);
+        w.scheduleDeadline();
+        // the other 2 sub requests get no response, the batch is written at the deadline
+        AppendBatchResp resp = (AppendBatchResp) ((SimpleWritePacket) written.get(1, TimeUnit.SECONDS)).getBody();
+        // the late response is ignored
+        w.finish(1, p);
+
+        ByteBuffer buf = ByteBuffer.allocate(resp.actualSize());
+        resp.encode(buf);
+        buf.flip();
+        PbParser parser = new PbParser();
+        parser.prepareNext(CodecTestUtil.decodeContext(), new AppendBatchResp.Callback(), resp.actualSize());
+        @SuppressWarnings("unchecked")
+        List<ReadPacket<AppendResp>> list = (List<ReadPacket<AppendResp>>) parser.parse(buf);
+        assertEquals(3, list.size());
+        assertEquals(CmdCodes.SUCCESS, list.get(0).getRespCode());
+        assertEquals(CmdCodes.SYS_ERROR, list.get(1).getRespCode());
+        assertEquals(CmdCodes.SYS_ERROR, list.get(2).getRespCode());
+    }
+
+    @Test
+    public void testBatchAllFinished() {
+        ArrayList<WritePacket> written = new ArrayList<>();
+        RespWriter rw = new RespWriter() {
+            @Override
+            public void writeRespInBizThreads(ReadPacket<?> req, WritePacket resp, DtTime timeout) {
+                written.add(resp);
+            }
+        };
+        AppendBatchProcessor.BatchRespWriter w = new AppendBatchProcessor.BatchRespWriter(new ReadPacket<>(), rw,
+                new DtTime(10, TimeUnit.SECONDS), 2);
+        EmptyBodyRespPacket p = new EmptyBodyRespPacket(CmdCodes.RAFT_GROUP_NOT_FOUND);
+        w.finish(0, p);
+        w.scheduleDeadline();
+        assertEquals(0, written.size());
+        w.finish(1, p);
+        assertEquals(1, written.size());
+        // the deadline task is cancelled, expire after written has no effect
+        w.expire();
+        assertEquals(1, written.size());
+    }
+}
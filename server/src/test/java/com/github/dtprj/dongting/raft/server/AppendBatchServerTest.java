@@ -0,0 +1,79 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.server;
+
+import com.github.dtprj.dongting.common.ByteArray;
+import com.github.dtprj.dongting.common.DtTime;
+import com.github.dtprj.dongting.dtkv.server.DtKV;
+import com.github.dtprj.dongting.raft.test.TestUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author huangli
+ */
+public class AppendBatchServerTest extends ServerTestBase {
+
+    @Test
+    void test() throws Exception {
+        appendBatch = true;
+        String servers = "1,127.0.0.1:4001;2,127.0.0.1:4002;3,127.0.0.1:4003";
+        String members = "1,2,3";
+        ServerInfo[] sis = new ServerInfo[3];
+        sis[0] = createServer(1, servers, members, "");
+        sis[1] = createServer(2, servers, members, "");
+        sis[2] = createServer(3, servers, members, "");
+        for (ServerInfo si : sis) {
+            waitStart(si);
+        }
+
+        ServerInfo leader = waitLeaderElectAndGetLeaderId(sis);
+        TestUtil.waitUtil(() -> leader.gc.getRaftStatus().isGroupReady());
+
+        // submit concurrently, so several append requests may be merged
+        int count = 50;
+        CompletableFuture<?>[] futures = new CompletableFuture[count];
+        for (int i = 0; i < count; i++) {
+            CompletableFuture<Long> f = new CompletableFuture<>();
+            RaftInput ri = new RaftInput(DtKV.BIZ_TYPE_PUT, new ByteArray(("key" + i).getBytes()),
+                    new ByteArray(("value" + i).getBytes()), new DtTime(3, TimeUnit.SECONDS), false);
+            leader.group.submitLinearTask(ri, new RaftCallback() {
+                @Override
+                public void success(long raftIndex, Object result) {
+                    f.complete(raftIndex);
+                }
+
+                @Override
+                public void fail(Throwable ex) {
+                    f.completeExceptionally(ex);
+                }
+            });
+            futures[i] = f;
+        }
+        CompletableFuture.allOf(futures).get(5, TimeUnit.SECONDS);
+
+        long lastIndex = leader.gc.getRaftStatus().getLastLogIndex();
+        for (ServerInfo si : sis) {
+            TestUtil.waitUtil(() -> si.gc.getRaftStatus().getCommitIndex() >= lastIndex);
+        }
+
+        for (ServerInfo si : sis) {
+            waitStop(si);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.server;
+
+import com.github.dtprj.dongting.common.ByteArray;
+import com.github.dtprj.dongting.common.DtTime;
+import com.github.dtprj.dongting.dtkv.server.DtKV;
+import com.github.dtprj.dongting.raft.test.TestUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author huangli
+ */
+public class CompletionServerTest extends ServerTestBase {
+
+    @Test
+    void test() throws Exception {
+        completionThreads = 1;
+        ServerInfo s1 = createServer(1, "1,127.0.0.1:4001", "1", "");
+        waitStart(s1);
+        TestUtil.waitUtil(() -> s1.gc.getRaftStatus().isGroupReady());
+
+        int count = 50;
+        CompletableFuture<?>[] futures = new CompletableFuture[count];
+        for (int i = 0; i < count; i++) {
+            CompletableFuture<String> f = new CompletableFuture<>();
+            RaftInput ri = new RaftInput(DtKV.BIZ_TYPE_PUT, new ByteArray(("key" + i).getBytes()),
+                    new ByteArray(("value" + i).getBytes()), new DtTime(3, TimeUnit.SECONDS), false);
+            s1.group.submitLinearTask(ri, new RaftCallback() {
+                @Override
+                public void success(long raftIndex, Object result) {
+                    f.complete(Thread.currentThread().getName());
+                }
+
+                @Override
+                public void fail(Throwable ex) {
+                    f.completeExceptionally(ex);
+                }
+            });
+            futures[i] = f;
+        }
+        CompletableFuture.allOf(futures).get(5, TimeUnit.SECONDS);
+        for (CompletableFuture<?> f : futures) {
+            // the callbacks are not invoked in raft dispatcher thread
+            assertTrue(((String) f.get()).startsWith("raft-completion-"));
+        }
+
+        waitStop(s1);
+    }
+
+    @Test
+    void testHeartBeatLast() throws Exception {
+        completionThreads = 1;
+        ServerInfo s1 = createServer(1, "1,127.0.0.1:4001", "1", "");
+        waitStart(s1);
+        TestUtil.waitUtil(() -> s1.gc.getRaftStatus().isGroupReady());
+
+        for (int i = 0; i < 20; i++) {
+            CompletableFuture<Long> f = new CompletableFuture<>();
+            RaftInput ri = new RaftInput(DtKV.BIZ_TYPE_PUT, new ByteArray(("key" + i).getBytes()),
+                    new ByteArray(("value" + i).getBytes()), new DtTime(3, TimeUnit.SECONDS), false);
+            s1.group.submitLinearTask(ri, new RaftCallback() {
+                @Override
+                public void success(long raftIndex, Object result) {
+                    f.complete(raftIndex);
+                }
+
+                @Override
+                public void fail(Throwable ex) {
+                    f.completeExceptionally(ex);
+                }
+            });
+            // the heartbeat (no callback) is usually the last entry of the apply round
+            s1.gc.getLinearTaskRunner().issueHeartBeat();
+            f.get(2, TimeUnit.SECONDS);
+        }
+
+        waitStop(s1);
+    }
+
+    @Test
+    void testConfigChange() throws Exception {
+        completionThreads = 1;
+        ServerInfo s1 = createServer(1, "1,127.0.0.1:4001", "1", "");
+        waitStart(s1);
+        TestUtil.waitUtil(() -> s1.gc.getRaftStatus().isGroupReady());
+
+        // the callbacks of config change tasks start fibers, they should not run in the completion threads
+        long prepareIndex = s1.group.leaderPrepareJointConsensus(Set.of(1), Set.of(), Set.of(1), Set.of())
+                .get(5, TimeUnit.SECONDS);
+        long commitIndex = s1.group.leaderCommitJointConsensus(prepareIndex).get(5, TimeUnit.SECONDS);
+        assertTrue(commitIndex > prepareIndex);
+
+        waitStop(s1);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.server;
+
+import com.github.dtprj.dongting.common.DtTime;
+import com.github.dtprj.dongting.common.PerfCallback;
+import com.github.dtprj.dongting.fiber.Dispatcher;
+import com.github.dtprj.dongting.raft.sm.StateMachine;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author huangli
+ */
+public class DefaultRaftFactoryTest {
+
+    private static DefaultRaftFactory createFactory() {
+        return new DefaultRaftFactory() {
+            @Override
+            public StateMachine createStateMachine(RaftGroupConfigEx groupConfig) {
+                return null;
+            }
+        };
+    }
+
+    private static RaftGroupConfig groupConfig(int groupId) {
+        return RaftGroupConfig.newInstance(groupId, "1", "");
+    }
+
+    @Test
+    public void testSharedDispatcher() {
+        DefaultRaftFactory f = createFactory();
+        f.setDispatcherPoolSize(2);
+        Dispatcher d1 = f.createDispatcher(groupConfig(1));
+        Dispatcher d2 = f.createDispatcher(groupConfig(2));
+        Dispatcher d3 = f.createDispatcher(groupConfig(3));
+        assertNotSame(d1, d2);
+        assertSame(d1, d3);
+
+        f.startDispatcher(d1);
+        f.startDispatcher(d2);
+        f.startDispatcher(d3);
+        assertEquals(Dispatcher.STATUS_RUNNING, d1.getStatus());
+
+        DtTime timeout = new DtTime(1, TimeUnit.SECONDS);
+        f.stopDispatcher(d1, timeout);
+        // d1 still has group 3
+        assertEquals(Dispatcher.STATUS_RUNNING, d1.getStatus());
+        f.stopDispatcher(d2, timeout);
+        assertEquals(Dispatcher.STATUS_STOPPED, d2.getStatus());
+
+        // the stopped dispatcher is replaced
+        Dispatcher d4 = f.createDispatcher(groupConfig(4));
+        assertNotSame(d1, d4);
+        assertNotSame(d2, d4);
+        f.startDispatcher(d4);
+        // the least loaded one
+        Dispatcher d5 = f.createDispatcher(groupConfig(5));
+        assertSame(d1, d5);
+        Dispatcher d6 = f.createDispatcher(groupConfig(6));
+        assertSame(d4, d6);
+
+        f.stopDispatcher(d3, timeout);
+        f.stopDispatcher(d5, timeout);
+        assertEquals(Dispatcher.STATUS_STOPPED, d1.getStatus());
+        f.stopDispatcher(d4, timeout);
+        f.stopDispatcher(d6, timeout);
+        assertEquals(Dispatcher.STATUS_STOPPED, d4.getStatus());
+    }
+
+    @Test
+    public void testSpreadGroups() {
+        DefaultRaftFactory f = createFactory();
+        f.setDispatcherPoolSize(4);
+        IdentityHashMap<Dispatcher, List<Integer>> map = new IdentityHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            map.computeIfAbsent(f.createDispatcher(groupConfig(i)), k -> new ArrayList<>()).add(i);
+        }
+        assertEquals(4, map.size());
+        for (List<Integer> groups : map.values()) {
+            assertEquals(5, groups.size());
+        }
+
+        // remove 3 groups from one dispatcher, the new groups are assigned to it until it's balanced
+        Dispatcher d = map.keySet().iterator().next();
+        DtTime timeout = new DtTime(1, TimeUnit.SECONDS);
+        for (int i = 0; i < 3; i++) {
+            f.stopDispatcher(d, timeout);
+        }
+        for (int i = 0; i < 3; i++) {
+            assertSame(d, f.createDispatcher(groupConfig(100 + i)));
+        }
+        Dispatcher next = f.createDispatcher(groupConfig(103));
+        Dispatcher next2 = f.createDispatcher(groupConfig(104));
+        assertNotSame(next, next2);
+    }
+
+    @Test
+    public void testDispatcherPerGroup() {
+        DefaultRaftFactory f = createFactory();
+        // the pool is disabled by default
+        assertEquals(0, f.getDispatcherPoolSize());
+        Dispatcher d1 = f.createDispatcher(groupConfig(1));
+        Dispatcher d2 = f.createDispatcher(groupConfig(2));
+        assertNotSame(d1, d2);
+    }
+
+    @Test
+    public void testDispatcherAffinity() {
+        DefaultRaftFactory f = createFactory();
+        f.setDispatcherPoolSize(4);
+        f.setDispatcherCpuAffinity(new String[]{"0", "1"});
+        Dispatcher d1 = f.createDispatcher(groupConfig(1));
+        Dispatcher d3 = f.createDispatcher(groupConfig(3));
+        Dispatcher d5 = f.createDispatcher(groupConfig(5));
+        Dispatcher d2 = f.createDispatcher(groupConfig(2));
+        // odd groups use dispatcher 1 and 3, which bind to cpu 1
+        assertEquals("1", d1.getCpuAffinity());
+        assertEquals("1", d3.getCpuAffinity());
+        assertNotSame(d1, d3);
+        assertSame(d1, d5);
+        assertEquals("0", d2.getCpuAffinity());
+    }
+
+    @Test
+    public void testMixedPerfCallback() {
+        DefaultRaftFactory f = createFactory();
+        f.setDispatcherPoolSize(2);
+        f.createDispatcher(groupConfig(1));
+        RaftGroupConfig c = groupConfig(2);
+        c.setPerfCallback(new PerfCallback(true) {
+            @Override
+            public boolean accept(int perfType) {
+                return false;
+            }
+
+            @Override
+            public void onEvent(int perfType, long costTime, int count, long sum) {
+            }
+        });
+        assertThrows(IllegalArgumentException.class, () -> f.createDispatcher(c));
+    }
+}
@@ -20,13 +20,22 @@ import com.github.dtprj.dongting.dtkv.KvClient;
 import com.github.dtprj.dongting.dtkv.KvCodes;
 import com.github.dtprj.dongting.dtkv.KvNode;
 import com.github.dtprj.dongting.dtkv.KvResult;
+import com.github.dtprj.dongting.dtkv.ShardedKvClient;
+import com.github.dtprj.dongting.dtkv.server.AdminKvClient;
+import com.github.dtprj.dongting.net.NioClientConfig;
+import com.github.dtprj.dongting.raft.RaftException;
+import com.github.dtprj.dongting.raft.impl.PendingStat;
+import com.github.dtprj.dongting.raft.test.TestUtil;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * @author huangli
@@ -62,4 +71,145 @@ public class DtKVServerTest extends ServerTestBase {
         waitStop(s1);
 
     }
+
+    @Test
+    void testSplit() throws Exception {
+        servicePortBase = 5000;
+        ServerInfo s1 = createServer(1, "1, 127.0.0.1:4001", "1", "");
+
+        waitStart(s1);
+        DtTime timeout = new DtTime(5, TimeUnit.SECONDS);
+
+        AdminKvClient admin = new AdminKvClient();
+        // copy the children in pages
+        admin.setCopyPageSize(1);
+        admin.start();
+        admin.getRaftClient().addOrUpdateGroup(groupId, "1, 127.0.0.1:5001");
+        admin.mkdir(groupId, "d1", timeout);
+        admin.mkdir(groupId, "d1.dd1", timeout);
+        admin.put(groupId, "d1.k1", "v1".getBytes(), timeout);
+        admin.put(groupId, "d1.dd1.k1", "v2".getBytes(), timeout);
+        admin.put(groupId, "d1.dd1.k2", "v5".getBytes(), timeout);
+        admin.put(groupId, "k1", "v3".getBytes(), timeout);
+
+        int newGroupId = groupId + 1;
+        RaftGroupConfig groupConfig = RaftGroupConfig.newInstance(newGroupId, "1", "");
+        groupConfig.setDataDir(DATA_DIR + "-1-" + newGroupId);
+        groupConfig.setSaveSnapshotWhenClose(false);
+        s1.raftServer.addGroup(groupConfig, 1000).get(5, TimeUnit.SECONDS);
+        TestUtil.waitUtil(() -> s1.raftServer.getRaftGroup(newGroupId).isLeader());
+
+        admin.split(groupId, "d1", newGroupId, timeout);
+
+        // the new client knows nothing about the split
+        KvClient client = new KvClient();
+        client.start();
+        client.getRaftClient().addOrUpdateGroup(groupId, "1, 127.0.0.1:5001");
+        assertEquals("v1", new String(client.get(groupId, "d1.k1", timeout).getData()));
+        assertEquals("v2", new String(client.get(groupId, "d1.dd1.k1", timeout).getData()));
+        assertEquals("v5", new String(client.get(groupId, "d1.dd1.k2", timeout).getData()));
+        assertEquals("v3", new String(client.get(groupId, "k1", timeout).getData()));
+        client.put(groupId, "d1.k2", "v4".getBytes(), timeout);
+        assertEquals("v4", new String(client.get(newGroupId, "d1.k2", timeout).getData()));
+        assertEquals(3, client.list(groupId, "d1", timeout).size());
+        // the source group has no data of the moved dir
+        assertEquals(1, client.list(groupId, "", timeout).size());
+
+        client.stop(timeout);
+        admin.stop(timeout);
+        waitStop(s1);
+    }
+
+    @Test
+    void testSharded() throws Exception {
+        servicePortBase = 5000;
+        ServerInfo s1 = createServer(1, "1, 127.0.0.1:4001", "1", "");
+
+        waitStart(s1);
+        DtTime timeout = new DtTime(5, TimeUnit.SECONDS);
+
+        int group2 = groupId + 1;
+        RaftGroupConfig groupConfig = RaftGroupConfig.newInstance(group2, "1", "");
+        groupConfig.setDataDir(DATA_DIR + "-1-" + group2);
+        groupConfig.setSaveSnapshotWhenClose(false);
+        s1.raftServer.addGroup(groupConfig, 1000).get(5, TimeUnit.SECONDS);
+
+        // the meta group is also a data group
+        KvClient admin = new KvClient();
+        admin.start();
+        admin.getRaftClient().addOrUpdateGroup(groupId, "1, 127.0.0.1:5001");
+        admin.getRaftClient().addOrUpdateGroup(group2, "1, 127.0.0.1:5001");
+        admin.mkdir(groupId, ShardedKvClient.ROUTE_DIR, timeout);
+        admin.mkdir(groupId, ShardedKvClient.ROUTE_GROUPS_DIR, timeout);
+        admin.mkdir(groupId, ShardedKvClient.ROUTE_DIRS_DIR, timeout);
+        admin.put(groupId, ShardedKvClient.ROUTE_GROUPS_DIR + "." + groupId, "1, 127.0.0.1:5001".getBytes(), timeout);
+        admin.put(groupId, ShardedKvClient.ROUTE_GROUPS_DIR + "." + group2, "1, 127.0.0.1:5001".getBytes(), timeout);
+        admin.put(groupId, ShardedKvClient.ROUTE_DIRS_DIR + ".pinned", String.valueOf(group2).getBytes(), timeout);
+
+        ShardedKvClient client = new ShardedKvClient(new NioClientConfig(), groupId, "1, 127.0.0.1:5001", 0);
+        client.start();
+        assertEquals(2, client.getRouteTable().getGroups().size());
+        assertNotNull(client.getKvClient().getRaftClient().getGroup(group2).getLeader());
+
+        ArrayList<String> keys = new ArrayList<>();
+        ArrayList<byte[]> values = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            keys.add("key" + i);
+            values.add(("value" + i).getBytes());
+        }
+        client.batchPut(keys, values, timeout);
+        keys.add("notExist");
+        List<KvNode> nodes = client.batchGet(keys, timeout);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("value" + i, new String(nodes.get(i).getData()));
+            // check it is in the routed group
+            int g = client.route("key" + i);
+            assertEquals("value" + i, new String(admin.get(g, "key" + i, timeout).getData()));
+        }
+        assertNull(nodes.get(10));
+
+        client.mkdir("pinned", timeout);
+        client.put("pinned.k1", "v1".getBytes(), timeout);
+        assertEquals("v1", new String(admin.get(group2, "pinned.k1", timeout).getData()));
+        assertEquals(1, client.list("pinned", timeout).size());
+
+        // root dir of all groups, the route dir is in meta group
+        assertEquals(12, client.list("", timeout).size());
+
+        client.stop(timeout);
+        admin.stop(timeout);
+        waitStop(s1);
+    }
+
+    @Test
+    void testBulk() throws Exception {
+        servicePortBase = 5000;
+        ServerInfo s1 = createServer(1, "1, 127.0.0.1:4001", "1", "");
+
+        waitStart(s1);
+        DtTime timeout = new DtTime(5, TimeUnit.SECONDS);
+        s1.gc.getGroupConfig().setMaxPendingBulkRaftTasks(0);
+
+        KvClient bulkClient = new KvClient();
+        bulkClient.setBulk(true);
+        bulkClient.start();
+        bulkClient.getRaftClient().addOrUpdateGroup(groupId, "1, 127.0.0.1:5001");
+        // the bulk budget is 0, so the bulk writes are rejected
+        assertThrows(RaftException.class, () -> bulkClient.put(groupId, "k1", "v1".getBytes(), timeout));
+        // reads are not affected
+        assertNull(bulkClient.get(groupId, "k1", timeout));
+
+        KvClient client = new KvClient();
+        client.start();
+        client.getRaftClient().addOrUpdateGroup(groupId, "1, 127.0.0.1:5001");
+        client.put(groupId, "k1", "v1".getBytes(), timeout);
+
+        PendingStat stat = s1.gc.getServerStat();
+        assertEquals(1, stat.getRejects(RaftInput.PRIORITY_CLASS_BULK));
+        assertEquals(0, stat.getRejects(RaftInput.PRIORITY_CLASS_INTERACTIVE));
+
+        client.stop(timeout);
+        bulkClient.stop(timeout);
+        waitStop(s1);
+    }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.server;
+
+import com.github.dtprj.dongting.common.ByteArray;
+import com.github.dtprj.dongting.common.DtTime;
+import com.github.dtprj.dongting.common.FlowControlException;
+import com.github.dtprj.dongting.dtkv.server.DtKV;
+import com.github.dtprj.dongting.raft.impl.PendingStat;
+import com.github.dtprj.dongting.raft.test.TestUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author huangli
+ */
+public class FlowControlTest extends ServerTestBase {
+
+    @Test
+    void testBulkBudget() throws Exception {
+        ServerInfo s1 = createServer(1, "1,127.0.0.1:4001", "1", "");
+        waitStart(s1);
+        TestUtil.waitUtil(() -> s1.gc.getRaftStatus().isGroupReady());
+        s1.gc.getGroupConfig().setMaxPendingBulkRaftTasks(0);
+
+        RaftInput bulk = new RaftInput(DtKV.BIZ_TYPE_PUT, new ByteArray("k1".getBytes()),
+                new ByteArray("v1".getBytes()), new DtTime(3, TimeUnit.SECONDS), false);
+        bulk.setPriorityClass(RaftInput.PRIORITY_CLASS_BULK);
+        assertThrows(FlowControlException.class, () -> s1.group.submitLinearTask(bulk, null));
+
+        // the interactive writes are not affected by the bulk budget
+        put(s1, "k2", "v2");
+
+        PendingStat stat = s1.gc.getServerStat();
+        assertEquals(1, stat.getRejects(RaftInput.PRIORITY_CLASS_BULK));
+        assertEquals(0, stat.getRejects(RaftInput.PRIORITY_CLASS_INTERACTIVE));
+        assertEquals(0, stat.getPendingRequests(RaftInput.PRIORITY_CLASS_BULK));
+        TestUtil.waitUtil(() -> stat.getPendingRequests(RaftInput.PRIORITY_CLASS_INTERACTIVE) == 0);
+        assertEquals(0, stat.getPendingRequestsPlain());
+
+        waitStop(s1);
+    }
+}
@@ -15,12 +15,27 @@
  */
 package com.github.dtprj.dongting.raft.server;
 
+import com.github.dtprj.dongting.common.ByteArray;
+import com.github.dtprj.dongting.dtkv.KvCodes;
+import com.github.dtprj.dongting.dtkv.KvResult;
+import com.github.dtprj.dongting.dtkv.server.DtKV;
 import com.github.dtprj.dongting.raft.impl.RaftGroupImpl;
+import com.github.dtprj.dongting.raft.impl.RaftMember;
+import com.github.dtprj.dongting.raft.sm.DefaultSnapshotManager;
 import com.github.dtprj.dongting.raft.impl.RaftRole;
 import com.github.dtprj.dongting.raft.impl.ShareStatus;
+import com.github.dtprj.dongting.raft.test.TestUtil;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -58,4 +73,115 @@ public class InstallTest extends ServerTestBase {
         waitStop(s2);
         waitStop(s3);
     }
+
+    @Test
+    void testInstallFromFollower() throws Exception {
+        ServerInfo s1 = createServer(1, "1,127.0.0.1:4001", "1", "");
+        waitStart(s1);
+        waitStop(s1);
+
+        initTerm = 2;
+        installSnapshotFromFollower = true;
+        String servers = "1,127.0.0.1:4001;2,127.0.0.1:4002;3,127.0.0.1:4003";
+        String members = "1,2,3";
+        String observers = "";
+
+        ServerInfo s2 = createServer(2, servers, members, observers);
+        ServerInfo s3 = createServer(3, servers, members, observers);
+        waitStart(s2);
+        waitStart(s3);
+        ServerInfo leader = waitLeaderElectAndGetLeaderId(s2, s3);
+        long index = put(leader, "key", "value");
+        // wait the other node catch up, so it can be selected as donor
+        ServerInfo follower = leader == s2 ? s3 : s2;
+        TestUtil.waitUtil(() -> follower.gc.getRaftStatus().getShareStatus().lastApplied >= index);
+
+        initTerm = 0;
+        s1 = createServer(1, servers, members, observers);
+        waitStart(s1);
+        DtKV kv = (DtKV) s1.gc.getStateMachine();
+        TestUtil.waitUtil(() -> {
+            KvResult r = kv.get(new ByteArray("key".getBytes()));
+            return r.getBizCode() == KvCodes.CODE_SUCCESS && "value".equals(new String(r.getNode().getData()));
+        });
+        // the leader finishes the install after the donor responds, and replicates from the donated index.
+        // the leader may change in the test, so check the member in current leader.
+        ServerInfo[] all = new ServerInfo[]{s1, s2, s3};
+        AtomicReference<RaftMember> member = new AtomicReference<>();
+        TestUtil.waitUtil(() -> {
+            for (ServerInfo si : all) {
+                if (si.raftServer.getRaftGroup(1).isLeader()) {
+                    RaftMember m = si.gc.getRaftStatus().getReplicateList().stream()
+                            .filter(x -> x.getNode().getNodeId() == 1).findFirst().orElseThrow();
+                    member.set(m);
+                    return !m.isInstallSnapshot() && m.getMatchIndex() >= index
+                            && m.getNextIndex() == m.getMatchIndex() + 1;
+                }
+            }
+            return false;
+        });
+        // not fallback to install from leader
+        assertFalse(member.get().isSkipSnapshotDonor());
+
+        waitStop(s1);
+        waitStop(s2);
+        waitStop(s3);
+    }
+
+    @Test
+    void testInstallByFile() throws Exception {
+        ServerInfo s1 = createServer(1, "1,127.0.0.1:4001", "1", "");
+        waitStart(s1);
+        waitStop(s1);
+
+        initTerm = 2;
+        installSnapshotByFile = true;
+        String servers = "1,127.0.0.1:4001;2,127.0.0.1:4002;3,127.0.0.1:4003";
+        String members = "1,2,3";
+        String observers = "";
+
+        ServerInfo s2 = createServer(2, servers, members, observers);
+        ServerInfo s3 = createServer(3, servers, members, observers);
+        waitStart(s2);
+        waitStart(s3);
+        ServerInfo leader = waitLeaderElectAndGetLeaderId(s2, s3);
+        put(leader, "key1", "value1");
+        // the leader may change when node 1 joins, so save snapshot in both nodes
+        ServerInfo follower = leader == s2 ? s3 : s2;
+        TestUtil.waitUtil(() -> follower.gc.getRaftStatus().getShareStatus().lastApplied
+                >= leader.gc.getRaftStatus().getShareStatus().lastApplied);
+        s2.group.fireSaveSnapshot().get(5, TimeUnit.SECONDS);
+        s3.group.fireSaveSnapshot().get(5, TimeUnit.SECONDS);
+        // not in the saved snapshot file, replicated by append after install
+        put(leader, "key2", "value2");
+
+        initTerm = 0;
+        s1 = createServer(1, servers, members, observers);
+        waitStart(s1);
+        DtKV kv = (DtKV) s1.gc.getStateMachine();
+        for (String k : new String[]{"key1", "key2"}) {
+            TestUtil.waitUtil(() -> {
+                KvResult r = kv.get(new ByteArray(k.getBytes()));
+                return r.getBizCode() == KvCodes.CODE_SUCCESS;
+            });
+        }
+        // the received snapshot file is saved as is
+        byte[] received = Files.readAllBytes(snapshotDataFile(1).toPath());
+        assertTrue(Arrays.equals(received, Files.readAllBytes(snapshotDataFile(2).toPath()))
+                || Arrays.equals(received, Files.readAllBytes(snapshotDataFile(3).toPath())));
+
+        waitStop(s1);
+        waitStop(s2);
+        waitStop(s3);
+    }
+
+    private File snapshotDataFile(int nodeId) {
+        File[] files = new File(DATA_DIR + "-" + nodeId, DefaultSnapshotManager.SNAPSHOT_DIR)
+                .listFiles(f -> f.getName().endsWith(".data"));
+        assertNotNull(files);
+        assertTrue(files.length > 0);
+        // install may be retried when leader changed, use the latest one
+        Arrays.sort(files);
+        return files[files.length - 1];
+    }
 }
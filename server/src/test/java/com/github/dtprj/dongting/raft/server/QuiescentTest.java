@@ -0,0 +1,67 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.server;
+
+import com.github.dtprj.dongting.raft.impl.RaftStatusImpl;
+import com.github.dtprj.dongting.raft.test.TestUtil;
+import org.junit.jupiter.api.Test;
+
+import static com.github.dtprj.dongting.util.Tick.tick;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author huangli
+ */
+public class QuiescentTest extends ServerTestBase {
+
+    @Test
+    void test() throws Exception {
+        quiescent = true;
+        String servers = "1,127.0.0.1:4001;2,127.0.0.1:4002;3,127.0.0.1:4003";
+        String members = "1,2,3";
+        ServerInfo[] sis = new ServerInfo[3];
+        sis[0] = createServer(1, servers, members, "");
+        sis[1] = createServer(2, servers, members, "");
+        sis[2] = createServer(3, servers, members, "");
+        for (ServerInfo si : sis) {
+            waitStart(si);
+        }
+
+        ServerInfo leader = waitLeaderElectAndGetLeaderId(sis);
+        TestUtil.waitUtil(() -> leader.gc.getRaftStatus().isGroupReady());
+        long index = put(leader, "key", "value");
+        RaftStatusImpl leaderStatus = leader.gc.getRaftStatus();
+        int term = leaderStatus.getCurrentTerm();
+
+        // wait several elect timeout
+        Thread.sleep(tick(100));
+
+        assertTrue(leader.group.isLeader());
+        assertEquals(term, leaderStatus.getCurrentTerm());
+        // no heartbeat log written
+        assertEquals(index, leaderStatus.getLastLogIndex());
+        assertTrue(leaderStatus.getShareStatus().leaseEndNanos - System.nanoTime() > 0);
+        for (ServerInfo si : sis) {
+            // followers get commit index from node ping
+            TestUtil.waitUtil(() -> si.gc.getRaftStatus().getCommitIndex() == index);
+        }
+
+        for (ServerInfo si : sis) {
+            waitStop(si);
+        }
+    }
+}
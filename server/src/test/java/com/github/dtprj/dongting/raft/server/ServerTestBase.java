@@ -64,6 +64,12 @@ public class ServerTestBase {
     protected long initCommitIndex = 0;
     protected boolean initSnapshot = false;
     protected int groupId = 1;
+    protected boolean quiescent = false;
+    protected boolean appendBatch = false;
+    protected int completionThreads = 0;
+    protected boolean installSnapshotFromFollower = false;
+    protected boolean installSnapshotByFile = false;
+    protected String nodeIdOfWitnesses;
 
     protected static class ServerInfo {
         public RaftServer raftServer;
@@ -85,10 +91,16 @@ public class ServerTestBase {
         serverConfig.setElectTimeout(tick(25));
         serverConfig.setHeartbeatInterval(tick(7));
         serverConfig.setRpcTimeout(tick(100));
+        serverConfig.setQuiescent(quiescent);
+        serverConfig.setAppendBatch(appendBatch);
+        serverConfig.setCompletionThreads(completionThreads);
 
         RaftGroupConfig groupConfig = RaftGroupConfig.newInstance(groupId, nodeIdOfMembers, nodeIdOfObservers);
         groupConfig.setDataDir(DATA_DIR + "-" + nodeId);
         groupConfig.setSaveSnapshotWhenClose(false);
+        groupConfig.setInstallSnapshotFromFollower(installSnapshotFromFollower);
+        groupConfig.setInstallSnapshotByFile(installSnapshotByFile);
+        groupConfig.setNodeIdOfWitnesses(nodeIdOfWitnesses);
 
         DefaultRaftFactory raftFactory = createRaftFactory(nodeId);
 
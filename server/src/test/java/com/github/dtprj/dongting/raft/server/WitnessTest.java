@@ -0,0 +1,76 @@
+/*
+ * Copyright The Dongting Project
+ *
+ * The Dongting Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.dtprj.dongting.raft.server;
+
+import com.github.dtprj.dongting.common.ByteArray;
+import com.github.dtprj.dongting.dtkv.KvCodes;
+import com.github.dtprj.dongting.dtkv.server.DtKV;
+import com.github.dtprj.dongting.raft.test.TestUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author huangli
+ */
+public class WitnessTest extends ServerTestBase {
+
+    @Test
+    void test() throws Exception {
+        nodeIdOfWitnesses = "3";
+        String servers = "1,127.0.0.1:4001;2,127.0.0.1:4002;3,127.0.0.1:4003";
+        String members = "1,2,3";
+        String observers = "";
+        ServerInfo s1 = createServer(1, servers, members, observers);
+        ServerInfo s2 = createServer(2, servers, members, observers);
+        ServerInfo s3 = createServer(3, servers, members, observers);
+        waitStart(s1);
+        waitStart(s2);
+        waitStart(s3);
+
+        ServerInfo leader = waitLeaderElectAndGetLeaderId(s1, s2, s3);
+        assertNotSame(s3, leader);
+        long index = put(leader, "k1", "v1");
+        ServerInfo witness = s3;
+        TestUtil.waitUtil(() -> witness.gc.getRaftStatus().getShareStatus().lastApplied >= index);
+        // the witness advances apply index without state machine
+        assertEquals(KvCodes.CODE_NOT_FOUND, ((DtKV) s3.gc.getStateMachine())
+                .get(new ByteArray("k1".getBytes())).getBizCode());
+        assertThrows(ExecutionException.class, () -> s3.group.fireSaveSnapshot().get(5, TimeUnit.SECONDS));
+
+        // restart the witness, it recovers without snapshot
+        waitStop(s3);
+        ServerInfo newWitness = createServer(3, servers, members, observers);
+        waitStart(newWitness);
+        TestUtil.waitUtil(() -> newWitness.gc.getRaftStatus().getShareStatus().lastApplied >= index);
+
+        assertThrows(ExecutionException.class, () -> leader.group.transferLeadership(3, 3000).get());
+
+        // the witness counts toward quorum
+        ServerInfo follower = leader == s1 ? s2 : s1;
+        waitStop(follower);
+        long index2 = put(leader, "k2", "v2");
+        TestUtil.waitUtil(() -> newWitness.gc.getRaftStatus().getShareStatus().lastApplied >= index2);
+
+        waitStop(leader);
+        waitStop(newWitness);
+    }
+}